@@ -18,6 +18,7 @@ See the License for the specific language governing permissions and
 limitations under the License.
 """
 
+import copy
 import logging
 import json
 import os
@@ -40,6 +41,20 @@ class ClusterConfiguration():
   ALERT_DEFINITION_COMMANDS = 'alertDefinitionCommands'
   COMMANDS_WITH_CONFIGURATIONS = [EXECUTION_COMMANDS, ALERT_DEFINITION_COMMANDS]
 
+  # commands which the server may send with content hashes in place of their
+  # configurations, mapping each hash key to the key of the content it replaces
+  STATUS_COMMANDS = 'statusCommands'
+  COMMANDS_WITH_CONFIGURATION_HASHES = [EXECUTION_COMMANDS, STATUS_COMMANDS, ALERT_DEFINITION_COMMANDS]
+  CONFIGURATION_HASH_KEYS = {
+    'configurationHashes' : 'configurations',
+    'configurationAttributeHashes' : 'configuration_attributes'
+  }
+  CLUSTER_HOST_INFO_HASH_KEY = 'clusterHostInfoHash'
+  CLUSTER_HOST_INFO_KEY = 'clusterHostInfo'
+
+  # the number of fetched configurations kept in memory
+  MAX_CACHED_BLOBS = 1000
+
   def __init__(self, cluster_config_cache_dir):
     """
     Initializes the configuration cache.
@@ -51,6 +66,9 @@ class ClusterConfiguration():
     # keys are cluster names, values are configurations
     self.__configurations = {}
 
+    # keys are content hashes, values are the configurations fetched for them
+    self.__blobs = {}
+
     self.__file_lock = threading.RLock()
     self.__cache_lock = threading.RLock()
     self.__config_json_file = os.path.join(self.cluster_config_cache_dir, self.FILENAME)
@@ -112,6 +130,64 @@ class ClusterConfiguration():
       return
 
 
+  def resolve_configuration_hashes(self, heartbeat, fetch_blob):
+    """
+    Replaces the content hashes which the server sends in place of the
+    configurations, configuration attributes and cluster host information of
+    commands with the content itself. Hashes which are not known yet are
+    fetched once using fetch_blob and then kept in memory.
+    :param heartbeat: the heartbeat response, updated in place
+    :param fetch_blob: function taking a hash and returning its content
+    :return:
+    """
+    for command_type in self.COMMANDS_WITH_CONFIGURATION_HASHES:
+      if command_type not in heartbeat or heartbeat[command_type] is None:
+        continue
+
+      for command in heartbeat[command_type]:
+        for hash_key, content_key in self.CONFIGURATION_HASH_KEYS.items():
+          if hash_key in command:
+            hashes = command.pop(hash_key)
+            command[content_key] = dict((key, self._get_blob(blob_hash, fetch_blob))
+              for key, blob_hash in hashes.items())
+
+        if self.CLUSTER_HOST_INFO_HASH_KEY in command:
+          blob_hash = command.pop(self.CLUSTER_HOST_INFO_HASH_KEY)
+          command[self.CLUSTER_HOST_INFO_KEY] = self._get_blob(blob_hash, fetch_blob)
+
+
+  def _get_blob(self, blob_hash, fetch_blob):
+    """
+    Gets a copy of the content for the specified hash, fetching it from the
+    server if it is not cached yet. Copies are returned since commands are
+    modified while they are being executed.
+    :param blob_hash: the content hash
+    :param fetch_blob: function taking a hash and returning its content
+    :return: the content
+    """
+    self.__cache_lock.acquire()
+    try:
+      blob = self.__blobs.get(blob_hash)
+    finally:
+      self.__cache_lock.release()
+
+    if blob is None:
+      logger.debug("Fetching configuration {0}".format(blob_hash))
+      blob = fetch_blob(blob_hash)
+
+      self.__cache_lock.acquire()
+      try:
+        # the content of a hash never changes, so the cache is simply emptied
+        # when it grows too large
+        if len(self.__blobs) >= self.MAX_CACHED_BLOBS:
+          self.__blobs.clear()
+        self.__blobs[blob_hash] = blob
+      finally:
+        self.__cache_lock.release()
+
+    return copy.deepcopy(blob)
+
+
   def _update_configurations(self, cluster_name, configuration):
     """
     Thread-safe method for writing out the specified cluster configuration
@@ -69,6 +69,7 @@ class Controller(threading.Thread):
     self.registerUrl = server_secured_url + '/agent/v1/register/' + self.hostname
     self.heartbeatUrl = server_secured_url + '/agent/v1/heartbeat/' + self.hostname
     self.componentsUrl = server_secured_url + '/agent/v1/components/'
+    self.configurationsUrl = server_secured_url + '/agent/v1/configurations/'
     self.netutil = NetUtil(heartbeat_stop_callback)
     self.responseId = -1
     self.repeatRegistration = False
@@ -238,6 +239,11 @@ class Controller(threading.Thread):
 
         logger.info('Heartbeat response received (id = %s)', serverId)
 
+        # fetch any configurations that were sent as content hashes before the
+        # response id is accepted, so that a failure repeats this heartbeat
+        self.cluster_configuration.resolve_configuration_hashes(response,
+          self.fetchConfiguration)
+
         if 'hasMappedComponents' in response.keys():
           self.hasMappedComponents = response['hasMappedComponents'] is not False
 
@@ -383,6 +389,11 @@ class Controller(threading.Thread):
                       + '; Response: ' + str(response))
 
 
+  def fetchConfiguration(self, blob_hash):
+    # May throw IOError on server connection error
+    return self.sendRequest(self.configurationsUrl + blob_hash, None)
+
+
   def updateComponents(self, cluster_name):
     logger.info("Updating components map of cluster " + cluster_name)
 
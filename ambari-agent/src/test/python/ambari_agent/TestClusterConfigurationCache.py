@@ -67,6 +67,48 @@ class TestClusterConfigurationCache(TestCase):
 
     json_dump_mock.assert_called_with({'c1': {'foo-site': {'baz': 'rendered-baz', 'bar': 'rendered-bar'}}}, ANY, indent=2)
 
+  def test_resolve_configuration_hashes(self):
+    cluster_configuration = self.__get_cluster_configuration()
+
+    blobs = {
+      'h1' : { 'foo' : 'bar' },
+      'h2' : { 'foo' : { 'final' : 'true' } },
+      'h3' : { 'all_hosts' : ['c6401', 'c6402'] }
+    }
+    fetch_blob = MagicMock(side_effect = lambda blob_hash: blobs[blob_hash])
+
+    heartbeat = {
+      'executionCommands' : [{
+        'clusterName' : 'c1',
+        'configurationHashes' : { 'foo-site' : 'h1' },
+        'configurationAttributeHashes' : { 'foo-site' : 'h2' },
+        'clusterHostInfoHash' : 'h3'
+      }],
+      'statusCommands' : [{
+        'clusterName' : 'c1',
+        'configurationHashes' : { 'foo-site' : 'h1' }
+      }],
+      'alertDefinitionCommands' : None
+    }
+
+    cluster_configuration.resolve_configuration_hashes(heartbeat, fetch_blob)
+
+    execution_command = heartbeat['executionCommands'][0]
+    self.assertFalse('configurationHashes' in execution_command)
+    self.assertEqual({ 'foo-site' : { 'foo' : 'bar' } }, execution_command['configurations'])
+    self.assertEqual({ 'foo-site' : { 'foo' : { 'final' : 'true' } } },
+      execution_command['configuration_attributes'])
+    self.assertEqual({ 'all_hosts' : ['c6401', 'c6402'] }, execution_command['clusterHostInfo'])
+
+    status_command = heartbeat['statusCommands'][0]
+    self.assertEqual({ 'foo-site' : { 'foo' : 'bar' } }, status_command['configurations'])
+
+    # each hash is only fetched once and every command gets its own copy
+    self.assertEqual(3, fetch_blob.call_count)
+    status_command['configurations']['foo-site']['foo'] = 'changed'
+    self.assertEqual('bar', execution_command['configurations']['foo-site']['foo'])
+
+
   def __get_cluster_configuration(self):
     """
     Gets an instance of the cluster cache where the file read and write
@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.Role;
+import org.apache.ambari.server.RoleCommand;
+import org.apache.ambari.server.actionmanager.ActionDBAccessor;
+import org.apache.ambari.server.actionmanager.ActionScheduler;
+import org.apache.ambari.server.actionmanager.Stage;
+import org.apache.ambari.server.agent.ActionQueue;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.HostsMap;
+import org.apache.ambari.server.orm.entities.RequestEntity;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.HostState;
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStartEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Benchmarks for {@link ActionScheduler#doWork} over a single stage that
+ * starts a component on every host of the cluster.  The database accessor
+ * and cluster state are mocked so that only the scheduling loop is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ActionSchedulerBenchmark {
+
+  private static final String CLUSTER_HOST_INFO = "{all_hosts=[host0], slave_hosts=[host0]}";
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  /**
+   * First scheduler pass over a fresh stage; every command gets queued.
+   */
+  @Benchmark
+  public ActionQueue scheduleStage(PendingStageState state) throws Exception {
+    state.scheduler.doWork();
+    return state.actionQueue;
+  }
+
+  /**
+   * Scheduler pass over a stage whose commands are already queued and have
+   * not timed out; nothing gets queued.
+   */
+  @Benchmark
+  public ActionQueue doWorkInProgress(InProgressStageState state) throws Exception {
+    state.scheduler.doWork();
+    return state.actionQueue;
+  }
+
+
+  // ----- inner classes -----------------------------------------------------
+
+  /**
+   * Common scheduler setup.
+   */
+  @State(Scope.Thread)
+  public abstract static class SchedulerState {
+
+    @Param({"10", "100", "1000"})
+    public int hostCount;
+
+    protected Injector injector;
+    protected ActionDBAccessor db;
+    protected ActionQueue actionQueue;
+    protected ActionScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void setupScheduler() throws Exception {
+      // stages resolve their execution commands through the statically injected injector
+      injector = BenchmarkModule.createInjector();
+
+      Clusters clusters = mock(Clusters.class);
+      Cluster cluster = mock(Cluster.class);
+      Service service = mock(Service.class);
+      ServiceComponent component = mock(ServiceComponent.class);
+      ServiceComponentHost componentHost = mock(ServiceComponentHost.class);
+      Host host = mock(Host.class);
+
+      when(clusters.getCluster(anyString())).thenReturn(cluster);
+      when(clusters.getClusterById(anyLong())).thenReturn(cluster);
+      when(clusters.getHost(anyString())).thenReturn(host);
+      when(cluster.getClusterId()).thenReturn(1L);
+      when(cluster.getService(anyString())).thenReturn(service);
+      when(service.getCluster()).thenReturn(cluster);
+      when(service.getServiceComponent(anyString())).thenReturn(component);
+      when(component.getServiceComponentHost(anyString())).thenReturn(componentHost);
+      when(host.getState()).thenReturn(HostState.HEALTHY);
+
+      db = mock(ActionDBAccessor.class);
+      when(db.getRequestEntity(anyLong())).thenReturn(new RequestEntity());
+
+      actionQueue = new ActionQueue();
+
+      // long action timeout so that queued commands are never rescheduled
+      scheduler = new ActionScheduler(100, TimeUnit.HOURS.toMillis(1), db, actionQueue, clusters,
+          10000, new HostsMap((String) null), mock(UnitOfWork.class), null,
+          new Configuration(new Properties()));
+      scheduler.setTaskTimeoutAdjustment(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownScheduler() {
+      BenchmarkModule.stop(injector);
+    }
+
+    protected void setStage(Stage stage) {
+      List<Stage> stages = Collections.singletonList(stage);
+      when(db.getCommandsInProgressCount()).thenReturn(stage.getOrderedHostRoleCommands().size());
+      when(db.getStagesInProgress()).thenReturn(stages);
+    }
+
+    protected Stage createStage() {
+      Stage stage = new Stage(1L, "/tmp", "cluster1", 1L, "context", CLUSTER_HOST_INFO, "{}", "{}");
+      stage.setStageId(1L);
+
+      long now = System.currentTimeMillis();
+      for (int i = 0; i < hostCount; ++i) {
+        String hostName = "host" + i;
+        stage.addHostRoleExecutionCommand(hostName, Role.DATANODE, RoleCommand.START,
+            new ServiceComponentHostStartEvent(Role.DATANODE.name(), hostName, now),
+            "cluster1", "HDFS", false);
+      }
+      return stage;
+    }
+  }
+
+  /**
+   * A fresh stage for every invocation.
+   */
+  public static class PendingStageState extends SchedulerState {
+
+    @Setup(Level.Invocation)
+    public void setupStage() {
+      setStage(createStage());
+      drainQueue(actionQueue, hostCount);
+    }
+  }
+
+  /**
+   * A single stage that has already been through one scheduler pass.
+   */
+  public static class InProgressStageState extends SchedulerState {
+
+    @Setup(Level.Trial)
+    public void setupStage() throws Exception {
+      setStage(createStage());
+      scheduler.doWork();
+      drainQueue(actionQueue, hostCount);
+    }
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private static void drainQueue(ActionQueue actionQueue, int hostCount) {
+    for (int i = 0; i < hostCount; ++i) {
+      actionQueue.dequeueAll("host" + i);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.Properties;
+
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.ControllerModule;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+import com.google.inject.persist.jpa.GuiceJpaInitializer;
+
+/**
+ * Guice module used to boot an in-memory Ambari server for benchmarks.
+ * Persistence is backed by in-memory Derby and the stack definitions are
+ * read from the ambari-server test resources unless the
+ * {@code ambari.benchmark.resources} system property points elsewhere.
+ */
+public class BenchmarkModule extends AbstractModule {
+
+  /**
+   * System property naming the directory that holds the stacks and version file.
+   */
+  public static final String RESOURCES_DIR_PROPERTY = "ambari.benchmark.resources";
+
+  /**
+   * Default resources directory, relative to the ambari-benchmarks module.
+   */
+  public static final String DEFAULT_RESOURCES_DIR = "../ambari-server/src/test/resources";
+
+  private final Properties properties = new Properties();
+
+
+  // ----- AbstractModule ----------------------------------------------------
+
+  @Override
+  protected void configure() {
+    String resourcesDir = System.getProperty(RESOURCES_DIR_PROPERTY, DEFAULT_RESOURCES_DIR);
+
+    properties.setProperty(Configuration.SERVER_PERSISTENCE_TYPE_KEY, "in-memory");
+    properties.setProperty(Configuration.METADETA_DIR_PATH, resourcesDir + "/stacks");
+    properties.setProperty(Configuration.SERVER_VERSION_FILE, resourcesDir + "/version");
+    properties.setProperty(Configuration.OS_VERSION_KEY, "centos5");
+    properties.setProperty(Configuration.SHARED_RESOURCES_DIR_KEY, resourcesDir + "/");
+
+    try {
+      install(new ControllerModule(properties));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+
+  // ----- BenchmarkModule ---------------------------------------------------
+
+  /**
+   * Create an injector with JPA started and the stack metadata loaded.
+   *
+   * @return the injector
+   *
+   * @throws Exception if the stack metadata can not be loaded
+   */
+  public static Injector createInjector() throws Exception {
+    Injector injector = Guice.createInjector(new BenchmarkModule());
+    injector.getInstance(GuiceJpaInitializer.class);
+    injector.getInstance(AmbariMetaInfo.class).init();
+    return injector;
+  }
+
+  /**
+   * Stop the persistence service started by {@link #createInjector()}.
+   *
+   * @param injector  the injector
+   */
+  public static void stop(Injector injector) {
+    if (injector != null) {
+      injector.getInstance(PersistService.class).stop();
+    }
+  }
+
+  public Properties getProperties() {
+    return properties;
+  }
+}
@@ -0,0 +1,188 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.predicate.PredicateCompiler;
+import org.apache.ambari.server.controller.internal.AbstractResourceProvider;
+import org.apache.ambari.server.controller.internal.ClusterControllerImpl;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.PropertyProvider;
+import org.apache.ambari.server.controller.spi.ProviderModule;
+import org.apache.ambari.server.controller.spi.QueryResponse;
+import org.apache.ambari.server.controller.spi.Request;
+import org.apache.ambari.server.controller.spi.RequestStatus;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.spi.ResourceProvider;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link ClusterControllerImpl#getResources} over a large
+ * number of host resources.  The provider hands back pre-built resources so
+ * that only the cost of the controller (property checks, predicate
+ * evaluation and result assembly) is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClusterControllerBenchmark {
+
+  @Param({"100", "1000", "5000"})
+  public int hostCount;
+
+  private ClusterControllerImpl controller;
+  private Request request;
+  private Predicate hostNamePredicate;
+  private Predicate hostStatusPredicate;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    controller = new ClusterControllerImpl(new HostProviderModule(createHosts(hostCount)));
+
+    request = PropertyHelper.getReadRequest(
+        "Hosts/cluster_name", "Hosts/host_name", "Hosts/host_status", "Hosts/cpu_count",
+        "Hosts/total_mem", "Hosts/os_type", "Hosts/rack_info");
+
+    hostNamePredicate   = new PredicateCompiler().compile("Hosts/host_name=host" + (hostCount / 2));
+    hostStatusPredicate = new PredicateCompiler().compile("Hosts/host_status=HEALTHY&Hosts/cpu_count>=4");
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public QueryResponse getAllResources() throws Exception {
+    return controller.getResources(Resource.Type.Host, request, null);
+  }
+
+  @Benchmark
+  public QueryResponse getResourcesByHostName() throws Exception {
+    return controller.getResources(Resource.Type.Host, request, hostNamePredicate);
+  }
+
+  @Benchmark
+  public QueryResponse getResourcesByStatus() throws Exception {
+    return controller.getResources(Resource.Type.Host, request, hostStatusPredicate);
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private static Set<Resource> createHosts(int count) {
+    Set<Resource> resources = new LinkedHashSet<Resource>();
+    for (int i = 0; i < count; ++i) {
+      Resource resource = new ResourceImpl(Resource.Type.Host);
+      resource.setProperty("Hosts/cluster_name", "c1");
+      resource.setProperty("Hosts/host_name", "host" + i);
+      resource.setProperty("Hosts/host_status", i % 10 == 0 ? "UNHEALTHY" : "HEALTHY");
+      resource.setProperty("Hosts/cpu_count", 2 << (i % 3));
+      resource.setProperty("Hosts/total_mem", 1024L * 1024L * (8 + i % 4));
+      resource.setProperty("Hosts/os_type", "centos6");
+      resource.setProperty("Hosts/rack_info", "/rack" + (i % 20));
+      resources.add(resource);
+    }
+    return resources;
+  }
+
+
+  // ----- inner classes -----------------------------------------------------
+
+  /**
+   * Provider module that only knows about hosts.
+   */
+  private static class HostProviderModule implements ProviderModule {
+    private final ResourceProvider hostProvider;
+
+    private HostProviderModule(Set<Resource> hosts) {
+      hostProvider = new HostResourceProvider(hosts);
+    }
+
+    @Override
+    public ResourceProvider getResourceProvider(Resource.Type type) {
+      return type == Resource.Type.Host ? hostProvider : null;
+    }
+
+    @Override
+    public List<PropertyProvider> getPropertyProviders(Resource.Type type) {
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Read only host provider backed by a fixed set of resources.
+   */
+  private static class HostResourceProvider extends AbstractResourceProvider {
+    private final Set<Resource> hosts;
+
+    private HostResourceProvider(Set<Resource> hosts) {
+      super(PropertyHelper.getPropertyIds(Resource.Type.Host),
+          PropertyHelper.getKeyPropertyIds(Resource.Type.Host));
+      this.hosts = hosts;
+    }
+
+    @Override
+    public RequestStatus createResources(Request request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<Resource> getResources(Request request, Predicate predicate) {
+      return new HashSet<Resource>(hosts);
+    }
+
+    @Override
+    public RequestStatus updateResources(Request request, Predicate predicate) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RequestStatus deleteResources(Predicate predicate) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Set<String> getPKPropertyIds() {
+      return new HashSet<String>(getKeyPropertyIds().values());
+    }
+  }
+}
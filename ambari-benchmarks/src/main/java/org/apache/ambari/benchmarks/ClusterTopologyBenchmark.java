@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.controller.AmbariManagementController;
+import org.apache.ambari.server.controller.ServiceComponentHostRequest;
+import org.apache.ambari.server.controller.ServiceComponentHostResponse;
+import org.apache.ambari.server.orm.dao.RepositoryVersionDAO;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.RepositoryVersionState;
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.StackId;
+import org.apache.ambari.server.state.State;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostOpSucceededEvent;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStartEvent;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStopEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+/**
+ * Benchmarks for reading host components through
+ * {@link AmbariManagementController#getHostComponents} while another thread
+ * restarts components the way the action scheduler does, by feeding stop,
+ * start and completion events to the host components.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClusterTopologyBenchmark {
+
+  private static final String CLUSTER_NAME = "c1";
+  private static final String STACK_ID = "HDP-0.1";
+
+  /**
+   * Components installed on every host, with the service of each component.
+   */
+  private static final String[][] COMPONENTS = {
+      {"HDFS", "DATANODE"}, {"HDFS", "HDFS_CLIENT"},
+      {"MAPREDUCE", "TASKTRACKER"}, {"MAPREDUCE", "MAPREDUCE_CLIENT"}
+  };
+
+  @Param({"10", "100", "500"})
+  public int hostCount;
+
+  private Injector injector;
+  private AmbariManagementController controller;
+  private Set<ServiceComponentHostRequest> allHostComponents;
+  private List<ServiceComponentHost> restartTargets;
+  private int next = 0;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    injector = BenchmarkModule.createInjector();
+
+    Clusters clusters = injector.getInstance(Clusters.class);
+    controller = injector.getInstance(AmbariManagementController.class);
+
+    StackId stackId = new StackId(STACK_ID);
+    clusters.addCluster(CLUSTER_NAME);
+    Cluster cluster = clusters.getCluster(CLUSTER_NAME);
+    cluster.setDesiredStackVersion(stackId);
+    cluster.setCurrentStackVersion(stackId);
+    injector.getInstance(RepositoryVersionDAO.class).create(stackId.getStackId(),
+        stackId.getStackVersion(), String.valueOf(System.currentTimeMillis()), "pack", "");
+    cluster.createClusterVersion(stackId.getStackId(), stackId.getStackVersion(), "admin",
+        RepositoryVersionState.UPGRADING);
+
+    Map<String, String> hostAttributes = new HashMap<String, String>();
+    hostAttributes.put("os_family", "redhat");
+    hostAttributes.put("os_release_version", "5.8");
+
+    List<String> hostNames = new ArrayList<String>(hostCount);
+    for (int i = 0; i < hostCount; ++i) {
+      String hostName = "host" + i;
+      clusters.addHost(hostName);
+      Host host = clusters.getHost(hostName);
+      host.setOsType("centos5");
+      host.setHostAttributes(hostAttributes);
+      host.persist();
+      clusters.mapHostToCluster(hostName, CLUSTER_NAME);
+      hostNames.add(hostName);
+    }
+
+    restartTargets = new ArrayList<ServiceComponentHost>(hostCount);
+    for (String[] serviceComponent : COMPONENTS) {
+      Service service = cluster.getServices().get(serviceComponent[0]);
+      if (service == null) {
+        service = cluster.addService(serviceComponent[0]);
+        service.persist();
+      }
+      ServiceComponent component = service.addServiceComponent(serviceComponent[1]);
+      component.persist();
+      for (String hostName : hostNames) {
+        ServiceComponentHost sch = component.addServiceComponentHost(hostName);
+        sch.persist();
+        sch.setState(State.STARTED);
+
+        if (!component.isClientComponent()) {
+          restartTargets.add(sch);
+        }
+      }
+    }
+
+    allHostComponents = Collections.singleton(
+        new ServiceComponentHostRequest(CLUSTER_NAME, null, null, null, null));
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkModule.stop(injector);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  /**
+   * Reads every host component of the cluster, as a GET on host_components
+   * does.
+   */
+  @Benchmark
+  @Group("restart")
+  @GroupThreads(3)
+  public Set<ServiceComponentHostResponse> getHostComponents() throws Exception {
+    return controller.getHostComponents(allHostComponents);
+  }
+
+  /**
+   * Restarts the next component in round robin order.
+   */
+  @Benchmark
+  @Group("restart")
+  @GroupThreads(1)
+  public ServiceComponentHost restartComponent() throws Exception {
+    ServiceComponentHost sch = restartTargets.get(next);
+    next = (next + 1) % restartTargets.size();
+
+    String componentName = sch.getServiceComponentName();
+    String hostName = sch.getHostName();
+    long now = System.currentTimeMillis();
+
+    sch.handleEvent(new ServiceComponentHostStopEvent(componentName, hostName, now));
+    sch.handleEvent(new ServiceComponentHostOpSucceededEvent(componentName, hostName, now));
+    sch.handleEvent(new ServiceComponentHostStartEvent(componentName, hostName, now));
+    sch.handleEvent(new ServiceComponentHostOpSucceededEvent(componentName, hostName, now));
+    return sch;
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Config;
+import org.apache.ambari.server.state.ConfigFactory;
+import org.apache.ambari.server.state.ConfigHelper;
+import org.apache.ambari.server.state.ConfigImpl;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.StackId;
+import org.apache.ambari.server.state.configgroup.ConfigGroup;
+import org.apache.ambari.server.state.configgroup.ConfigGroupFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+/**
+ * Benchmarks for resolving the effective configuration of a host with
+ * {@link ConfigHelper}.  The host belongs to a config group that overrides
+ * a handful of properties of the first config type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConfigHelperBenchmark {
+
+  private static final String CLUSTER_NAME = "c1";
+  private static final String HOST_NAME = "h1";
+  private static final int CONFIG_TYPE_COUNT = 10;
+  private static final int OVERRIDE_COUNT = 5;
+
+  @Param({"50", "500"})
+  public int propertyCount;
+
+  private Injector injector;
+  private ConfigHelper configHelper;
+  private Cluster cluster;
+  private Map<String, Map<String, String>> desiredTags;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    injector = BenchmarkModule.createInjector();
+
+    Clusters clusters = injector.getInstance(Clusters.class);
+    ConfigFactory configFactory = injector.getInstance(ConfigFactory.class);
+    configHelper = injector.getInstance(ConfigHelper.class);
+
+    clusters.addCluster(CLUSTER_NAME);
+    cluster = clusters.getCluster(CLUSTER_NAME);
+    cluster.setDesiredStackVersion(new StackId("HDP-2.0.6"));
+
+    clusters.addHost(HOST_NAME);
+    Host host = clusters.getHost(HOST_NAME);
+    host.persist();
+    clusters.mapHostToCluster(HOST_NAME, CLUSTER_NAME);
+
+    for (int i = 0; i < CONFIG_TYPE_COUNT; ++i) {
+      Map<String, String> properties = new HashMap<String, String>();
+      for (int j = 0; j < propertyCount; ++j) {
+        properties.put("property." + j, "value" + j);
+      }
+      Config config = configFactory.createNew(cluster, getConfigType(i), properties,
+          new HashMap<String, Map<String, String>>());
+      config.setTag("version1");
+      config.persist();
+      cluster.addConfig(config);
+      cluster.addDesiredConfig("admin", Collections.singleton(config));
+    }
+
+    Config override = new ConfigImpl(getConfigType(0));
+    override.setTag("override1");
+    Map<String, String> overrideProperties = new HashMap<String, String>();
+    for (int j = 0; j < OVERRIDE_COUNT; ++j) {
+      overrideProperties.put("property." + j, "override" + j);
+    }
+    override.setProperties(overrideProperties);
+
+    ConfigGroup configGroup = injector.getInstance(ConfigGroupFactory.class).createNew(cluster,
+        "g1", "t1", "", Collections.singletonMap(override.getType(), override),
+        Collections.singletonMap(HOST_NAME, host));
+    configGroup.persist();
+    cluster.addConfigGroup(configGroup);
+
+    desiredTags = configHelper.getEffectiveDesiredTags(cluster, HOST_NAME);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkModule.stop(injector);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public Map<String, Map<String, String>> getEffectiveDesiredTags() throws Exception {
+    return configHelper.getEffectiveDesiredTags(cluster, HOST_NAME);
+  }
+
+  @Benchmark
+  public Map<String, Map<String, String>> getEffectiveConfigProperties() {
+    return configHelper.getEffectiveConfigProperties(cluster, desiredTags);
+  }
+
+  @Benchmark
+  public Map<String, Map<String, String>> getEffectiveConfigPropertiesForHost() throws Exception {
+    return configHelper.getEffectiveConfigProperties(cluster,
+        configHelper.getEffectiveDesiredTags(cluster, HOST_NAME));
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private static String getConfigType(int i) {
+    return "type" + i + "-site";
+  }
+}
@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.actionmanager.ActionManager;
+import org.apache.ambari.server.agent.ActionQueue;
+import org.apache.ambari.server.agent.CommandReport;
+import org.apache.ambari.server.agent.ComponentStatus;
+import org.apache.ambari.server.agent.HeartBeat;
+import org.apache.ambari.server.agent.HeartBeatHandler;
+import org.apache.ambari.server.agent.HeartBeatResponse;
+import org.apache.ambari.server.agent.HostInfo;
+import org.apache.ambari.server.agent.HostStatus;
+import org.apache.ambari.server.agent.Register;
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.orm.dao.RepositoryVersionDAO;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.RepositoryVersionState;
+import org.apache.ambari.server.state.SecurityState;
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.StackId;
+import org.apache.ambari.server.state.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+/**
+ * Benchmarks for {@link HeartBeatHandler#handleHeartBeat} against in-memory
+ * clusters backed by Derby.  Each invocation processes the next heartbeat of
+ * one host in round robin order, carrying a live status report for every
+ * component on the host.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HeartBeatHandlerBenchmark {
+
+  private static final String CLUSTER_NAME = "c1";
+  private static final String STACK_ID = "HDP-0.1";
+
+  /**
+   * Components installed on every host, with the service of each component.
+   */
+  private static final String[][] COMPONENTS = {
+      {"HDFS", "DATANODE"}, {"HDFS", "HDFS_CLIENT"},
+      {"MAPREDUCE", "TASKTRACKER"}, {"MAPREDUCE", "MAPREDUCE_CLIENT"}
+  };
+
+  @Param({"10", "100", "500"})
+  public int hostCount;
+
+  private Injector injector;
+  private HeartBeatHandler handler;
+  private List<HeartBeat> heartBeats;
+  private int next = 0;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    injector = BenchmarkModule.createInjector();
+
+    Clusters clusters = injector.getInstance(Clusters.class);
+    AmbariMetaInfo metaInfo = injector.getInstance(AmbariMetaInfo.class);
+
+    StackId stackId = new StackId(STACK_ID);
+    clusters.addCluster(CLUSTER_NAME);
+    Cluster cluster = clusters.getCluster(CLUSTER_NAME);
+    cluster.setDesiredStackVersion(stackId);
+    cluster.setCurrentStackVersion(stackId);
+    injector.getInstance(RepositoryVersionDAO.class).create(stackId.getStackId(),
+        stackId.getStackVersion(), String.valueOf(System.currentTimeMillis()), "pack", "");
+    cluster.createClusterVersion(stackId.getStackId(), stackId.getStackVersion(), "admin",
+        RepositoryVersionState.UPGRADING);
+
+    Map<String, String> hostAttributes = new HashMap<String, String>();
+    hostAttributes.put("os_family", "redhat");
+    hostAttributes.put("os_release_version", "5.8");
+
+    List<String> hostNames = new ArrayList<String>(hostCount);
+    for (int i = 0; i < hostCount; ++i) {
+      String hostName = "host" + i;
+      clusters.addHost(hostName);
+      Host host = clusters.getHost(hostName);
+      host.setOsType("centos5");
+      host.setHostAttributes(hostAttributes);
+      host.persist();
+      clusters.mapHostToCluster(hostName, CLUSTER_NAME);
+      hostNames.add(hostName);
+    }
+
+    for (String[] serviceComponent : COMPONENTS) {
+      Service service = cluster.getServices().get(serviceComponent[0]);
+      if (service == null) {
+        service = cluster.addService(serviceComponent[0]);
+        service.persist();
+      }
+      ServiceComponent component = service.addServiceComponent(serviceComponent[1]);
+      component.persist();
+      for (String hostName : hostNames) {
+        component.addServiceComponentHost(hostName).persist();
+        component.getServiceComponentHost(hostName).setState(State.STARTED);
+      }
+    }
+
+    handler = new HeartBeatHandler(clusters, new ActionQueue(), mock(ActionManager.class), injector);
+
+    heartBeats = new ArrayList<HeartBeat>(hostCount);
+    for (String hostName : hostNames) {
+      HostInfo hostInfo = new HostInfo();
+      hostInfo.setHostName(hostName);
+      hostInfo.setOS("CentOS");
+      hostInfo.setOSRelease("5.8");
+
+      Register register = new Register();
+      register.setHostname(hostName);
+      register.setResponseId(0);
+      register.setHardwareProfile(hostInfo);
+      register.setAgentVersion(metaInfo.getServerVersion());
+      handler.handleRegistration(register);
+
+      heartBeats.add(createHeartBeat(hostName));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkModule.stop(injector);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public HeartBeatResponse handleHeartBeat() throws Exception {
+    HeartBeat heartBeat = heartBeats.get(next);
+    next = (next + 1) % heartBeats.size();
+
+    heartBeat.setTimestamp(System.currentTimeMillis());
+    HeartBeatResponse response = handler.handleHeartBeat(heartBeat);
+
+    // the agent always echoes the last response id back to the server
+    heartBeat.setResponseId(response.getResponseId());
+    return response;
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private static HeartBeat createHeartBeat(String hostName) {
+    List<ComponentStatus> componentStatuses = new ArrayList<ComponentStatus>();
+    for (String[] serviceComponent : COMPONENTS) {
+      ComponentStatus componentStatus = new ComponentStatus();
+      componentStatus.setClusterName(CLUSTER_NAME);
+      componentStatus.setServiceName(serviceComponent[0]);
+      componentStatus.setComponentName(serviceComponent[1]);
+      componentStatus.setStatus(State.STARTED.name());
+      componentStatus.setSecurityState(SecurityState.UNSECURED.name());
+      componentStatus.setMessage("");
+      componentStatuses.add(componentStatus);
+    }
+
+    HeartBeat heartBeat = new HeartBeat();
+    heartBeat.setResponseId(0);
+    heartBeat.setHostname(hostName);
+    heartBeat.setNodeStatus(new HostStatus(HostStatus.Status.HEALTHY, "I am ok"));
+    heartBeat.setReports(Collections.<CommandReport>emptyList());
+    heartBeat.setComponentStatus(componentStatuses);
+    return heartBeat;
+  }
+}
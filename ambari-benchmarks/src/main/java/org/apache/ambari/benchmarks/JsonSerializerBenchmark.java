@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.services.Result;
+import org.apache.ambari.server.api.services.ResultImpl;
+import org.apache.ambari.server.api.services.ResultStatus;
+import org.apache.ambari.server.api.services.serializers.JsonSerializer;
+import org.apache.ambari.server.api.util.TreeNode;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link JsonSerializer} on large result trees shaped like
+ * a {@code GET /clusters/c1/hosts?fields=host_components/*} response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonSerializerBenchmark {
+
+  private static final String[] COMPONENTS =
+      {"DATANODE", "NODEMANAGER", "HBASE_REGIONSERVER", "HDFS_CLIENT", "YARN_CLIENT", "ZOOKEEPER_CLIENT"};
+
+  @Param({"100", "1000", "5000"})
+  public int hostCount;
+
+  private Result result;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() {
+    result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+
+    TreeNode<Resource> root = result.getResultTree();
+    root.setProperty("isCollection", "true");
+
+    for (int i = 0; i < hostCount; ++i) {
+      String hostName = "host" + i;
+
+      Resource host = new ResourceImpl(Resource.Type.Host);
+      host.setProperty("Hosts/cluster_name", "c1");
+      host.setProperty("Hosts/host_name", hostName);
+      host.setProperty("Hosts/host_status", "HEALTHY");
+      host.setProperty("Hosts/cpu_count", 8);
+      host.setProperty("Hosts/total_mem", 16L * 1024L * 1024L);
+      host.setProperty("Hosts/os_type", "centos6");
+      host.setProperty("Hosts/rack_info", "/default-rack");
+
+      TreeNode<Resource> hostNode = root.addChild(host, "Host:" + i);
+      hostNode.setProperty("href", "http://ambari:8080/api/v1/clusters/c1/hosts/" + hostName);
+
+      TreeNode<Resource> componentsNode = hostNode.addChild(null, "host_components");
+      componentsNode.setProperty("isCollection", "true");
+
+      for (String componentName : COMPONENTS) {
+        Resource component = new ResourceImpl(Resource.Type.HostComponent);
+        component.setProperty("HostRoles/cluster_name", "c1");
+        component.setProperty("HostRoles/host_name", hostName);
+        component.setProperty("HostRoles/component_name", componentName);
+        component.setProperty("HostRoles/state", "STARTED");
+        component.setProperty("HostRoles/desired_state", "STARTED");
+        component.setProperty("HostRoles/stale_configs", false);
+
+        TreeNode<Resource> componentNode = componentsNode.addChild(component, "HostComponent:" + componentName);
+        componentNode.setProperty("href",
+            "http://ambari:8080/api/v1/clusters/c1/hosts/" + hostName + "/host_components/" + componentName);
+      }
+    }
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public Object serialize() {
+    return new JsonSerializer().serialize(result);
+  }
+}
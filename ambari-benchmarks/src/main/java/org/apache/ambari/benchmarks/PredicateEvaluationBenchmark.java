@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.predicate.CompiledPredicate;
+import org.apache.ambari.server.api.predicate.PredicateCompiler;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for filtering a set of task resources with a query predicate,
+ * walking the predicate tree versus evaluating the compiled predicate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PredicateEvaluationBenchmark {
+
+  private static final String[] STATES = {"COMPLETED", "FAILED", "IN_PROGRESS", "PENDING", "TIMEDOUT"};
+
+  @Param({"10000"})
+  public int resourceCount;
+
+  @Param({
+      "HostRoles/status=COMPLETED",
+      "HostRoles/task_id>=5000&HostRoles/exit_code=0",
+      "HostRoles/status.in(FAILED,TIMEDOUT,ABORTED)&HostRoles/host_name.in(host1,host2,host3,host4,host5,host6,host7,host8)"
+  })
+  public String query;
+
+  private List<Resource> resources;
+
+  private Predicate predicate;
+
+  private Predicate compiledPredicate;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    resources = new ArrayList<Resource>(resourceCount);
+    for (int i = 0; i < resourceCount; ++i) {
+      Resource resource = new ResourceImpl(Resource.Type.Task);
+      resource.setProperty("HostRoles/task_id", (long) i);
+      resource.setProperty("HostRoles/host_name", "host" + (i % 100));
+      resource.setProperty("HostRoles/status", STATES[i % STATES.length]);
+      resource.setProperty("HostRoles/exit_code", i % 7 == 0 ? 1 : 0);
+      resources.add(resource);
+    }
+    predicate         = new PredicateCompiler().compile(query);
+    compiledPredicate = CompiledPredicate.compile(predicate);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public int evaluate() {
+    return count(predicate);
+  }
+
+  @Benchmark
+  public int evaluateCompiled() {
+    return count(compiledPredicate);
+  }
+
+  @Benchmark
+  public int compileAndEvaluate() {
+    return count(CompiledPredicate.compile(predicate));
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private int count(Predicate predicate) {
+    int count = 0;
+    for (Resource resource : resources) {
+      if (predicate.evaluate(resource)) {
+        ++count;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.predicate.QueryLexer;
+import org.apache.ambari.server.api.predicate.QueryParser;
+import org.apache.ambari.server.api.predicate.Token;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for compiling the query string of a REST request into a predicate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QueryParserBenchmark {
+
+  /**
+   * Query strings of increasing complexity.
+   */
+  @Param({
+      "Hosts/host_name=host1",
+      "Hosts/host_status=HEALTHY&Hosts/cpu_count>=4&Hosts/total_mem<1000000",
+      "(Hosts/host_status=HEALTHY|Hosts/host_status=UNHEALTHY)&!(Hosts/os_type=centos5)&Hosts/host_name.in(host1,host2,host3,host4,host5,host6,host7,host8)",
+      "HostRoles/component_name=DATANODE&HostRoles/state=STARTED&(HostRoles/host_name=host1|HostRoles/host_name=host2|HostRoles/host_name=host3|HostRoles/host_name=host4)&HostRoles/stale_configs=false"
+  })
+  public String query;
+
+  private Token[] tokens;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    tokens = new QueryLexer().tokens(query);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public Token[] lex() throws Exception {
+    return new QueryLexer().tokens(query);
+  }
+
+  @Benchmark
+  public Predicate parse() throws Exception {
+    return new QueryParser().parse(tokens);
+  }
+
+  @Benchmark
+  public Predicate lexAndParse() throws Exception {
+    return new QueryParser().parse(new QueryLexer().tokens(query));
+  }
+}
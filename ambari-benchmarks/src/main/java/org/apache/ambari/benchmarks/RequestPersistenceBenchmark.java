@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.Role;
+import org.apache.ambari.server.RoleCommand;
+import org.apache.ambari.server.actionmanager.ActionDBAccessor;
+import org.apache.ambari.server.actionmanager.ActionDBAccessorImpl;
+import org.apache.ambari.server.actionmanager.Request;
+import org.apache.ambari.server.actionmanager.Stage;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStartEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+/**
+ * Benchmarks for {@link ActionDBAccessor#persistActions} against in-memory
+ * Derby.  Each invocation submits a new request whose stages start a
+ * component on every host of the cluster, so the measured latency is the
+ * cost of writing the request, stages, commands and execution commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RequestPersistenceBenchmark {
+
+  private static final String CLUSTER_NAME = "c1";
+
+  @Param({"10", "100", "1000"})
+  public int hostCount;
+
+  @Param({"1", "3"})
+  public int stageCount;
+
+  private Injector injector;
+  private Clusters clusters;
+  private ActionDBAccessor db;
+  private long requestId = 1L;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    injector = BenchmarkModule.createInjector();
+
+    clusters = injector.getInstance(Clusters.class);
+    clusters.addCluster(CLUSTER_NAME);
+
+    for (int i = 0; i < hostCount; ++i) {
+      String hostName = "host" + i;
+      clusters.addHost(hostName);
+      clusters.getHost(hostName).persist();
+      clusters.mapHostToCluster(hostName, CLUSTER_NAME);
+    }
+
+    db = injector.getInstance(ActionDBAccessorImpl.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkModule.stop(injector);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  /**
+   * Persist a new request with {@link #stageCount} stages of one command per host.
+   */
+  @Benchmark
+  public Request persistActions() throws Exception {
+    long id = requestId++;
+    long clusterId = clusters.getCluster(CLUSTER_NAME).getClusterId();
+
+    List<Stage> stages = new ArrayList<Stage>(stageCount);
+    long now = System.currentTimeMillis();
+    for (int s = 0; s < stageCount; ++s) {
+      Stage stage = new Stage(id, "/tmp", CLUSTER_NAME, clusterId, "context", "{}", "{}", "{}");
+      stage.setStageId(s);
+      for (int i = 0; i < hostCount; ++i) {
+        String hostName = "host" + i;
+        stage.addHostRoleExecutionCommand(hostName, Role.DATANODE, RoleCommand.START,
+            new ServiceComponentHostStartEvent(Role.DATANODE.name(), hostName, now),
+            CLUSTER_NAME, "HDFS", false);
+      }
+      stages.add(stage);
+    }
+
+    Request request = new Request(stages, clusters);
+    db.persistActions(request);
+    return request;
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.Role;
+import org.apache.ambari.server.RoleCommand;
+import org.apache.ambari.server.actionmanager.Stage;
+import org.apache.ambari.server.metadata.RoleCommandOrder;
+import org.apache.ambari.server.stageplanner.RoleGraph;
+import org.apache.ambari.server.state.StackId;
+import org.apache.ambari.server.state.cluster.ClusterImpl;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStartEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+/**
+ * Benchmarks for planning a cluster wide start with {@link RoleGraph}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RoleGraphBenchmark {
+
+  /**
+   * Master roles, one row per master host, with the service of each role.
+   */
+  private static final String[][][] MASTERS = {
+      {{"NAMENODE", "HDFS"}, {"SECONDARY_NAMENODE", "HDFS"}, {"ZOOKEEPER_SERVER", "ZOOKEEPER"}},
+      {{"RESOURCEMANAGER", "YARN"}, {"HISTORYSERVER", "MAPREDUCE2"}, {"HBASE_MASTER", "HBASE"}},
+      {{"HIVE_METASTORE", "HIVE"}, {"HIVE_SERVER", "HIVE"}, {"OOZIE_SERVER", "OOZIE"}}
+  };
+
+  /**
+   * Slave roles installed on every worker host.
+   */
+  private static final String[][] SLAVES =
+      {{"DATANODE", "HDFS"}, {"NODEMANAGER", "YARN"}, {"HBASE_REGIONSERVER", "HBASE"}};
+
+  @Param({"10", "100", "1000"})
+  public int hostCount;
+
+  private Injector injector;
+  private RoleCommandOrder roleCommandOrder;
+  private Stage stage;
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    injector = BenchmarkModule.createInjector();
+
+    ClusterImpl cluster = mock(ClusterImpl.class);
+    when(cluster.getCurrentStackVersion()).thenReturn(new StackId("HDP-2.0.6"));
+
+    roleCommandOrder = injector.getInstance(RoleCommandOrder.class);
+    roleCommandOrder.initialize(cluster);
+
+    stage = new Stage(1L, "/tmp", "cluster1", 1L, "context", "{}", "{}", "{}");
+    stage.setStageId(1L);
+
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < MASTERS.length; ++i) {
+      String hostName = "master" + i;
+      for (String[] role : MASTERS[i]) {
+        addStartCommand(hostName, role[0], role[1], now);
+      }
+    }
+    for (int i = 0; i < hostCount; ++i) {
+      String hostName = "host" + i;
+      for (String[] role : SLAVES) {
+        addStartCommand(hostName, role[0], role[1], now);
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkModule.stop(injector);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public RoleGraph build() {
+    RoleGraph roleGraph = new RoleGraph(roleCommandOrder);
+    roleGraph.build(stage);
+    return roleGraph;
+  }
+
+  @Benchmark
+  public List<Stage> buildAndGetStages() {
+    RoleGraph roleGraph = new RoleGraph(roleCommandOrder);
+    roleGraph.build(stage);
+    return roleGraph.getStages();
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private void addStartCommand(String hostName, String roleName, String serviceName, long now) {
+    stage.addHostRoleExecutionCommand(hostName, Role.valueOf(roleName), RoleCommand.START,
+        new ServiceComponentHostStartEvent(roleName, hostName, now),
+        "cluster1", serviceName, false);
+  }
+}
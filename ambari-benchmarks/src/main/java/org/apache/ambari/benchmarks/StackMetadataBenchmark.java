@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.state.ComponentInfo;
+import org.apache.ambari.server.state.ServiceInfo;
+import org.apache.ambari.server.state.StackInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.inject.Injector;
+
+/**
+ * Benchmarks for the stack metadata lookups made by {@link AmbariMetaInfo}
+ * while processing heartbeats and building commands.  Each invocation looks
+ * up every component of every service of the stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StackMetadataBenchmark {
+
+  private static final String STACK_NAME = "HDP";
+  private static final String STACK_VERSION = "2.0.6";
+
+  private Injector injector;
+  private AmbariMetaInfo metaInfo;
+
+  /**
+   * Service and component name pairs of the stack.
+   */
+  private final List<String[]> components = new ArrayList<String[]>();
+
+
+  // ----- Setup -------------------------------------------------------------
+
+  @Setup
+  public void setup() throws Exception {
+    injector = BenchmarkModule.createInjector();
+    metaInfo = injector.getInstance(AmbariMetaInfo.class);
+
+    for (ServiceInfo service : metaInfo.getStack(STACK_NAME, STACK_VERSION).getServices()) {
+      for (ComponentInfo component : service.getComponents()) {
+        components.add(new String[]{service.getName(), component.getName()});
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkModule.stop(injector);
+  }
+
+
+  // ----- Benchmarks --------------------------------------------------------
+
+  @Benchmark
+  public StackInfo getStack() throws Exception {
+    return metaInfo.getStack(STACK_NAME, STACK_VERSION);
+  }
+
+  @Benchmark
+  public void getService(Blackhole blackhole) throws Exception {
+    for (String[] component : components) {
+      blackhole.consume(metaInfo.getService(STACK_NAME, STACK_VERSION, component[0]));
+    }
+  }
+
+  @Benchmark
+  public void getComponent(Blackhole blackhole) throws Exception {
+    for (String[] component : components) {
+      blackhole.consume(metaInfo.getComponent(STACK_NAME, STACK_VERSION, component[0], component[1]));
+    }
+  }
+}
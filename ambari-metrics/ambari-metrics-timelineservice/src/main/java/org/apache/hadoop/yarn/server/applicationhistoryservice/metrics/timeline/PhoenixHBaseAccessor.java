@@ -494,23 +494,35 @@ public class PhoenixHBaseAccessor {
     SplitByMetricNamesCondition splitCondition =
       new SplitByMetricNamesCondition(condition);
 
+    List<String> hostnames = splitCondition.getOriginalHostnames();
+    if (hostnames == null || hostnames.isEmpty()) {
+      hostnames = Collections.singletonList(null);
+    }
+
     for (String metricName: splitCondition.getOriginalMetricNames()) {
       splitCondition.setCurrentMetric(metricName);
-      stmt = PhoenixTransactSQL.prepareGetLatestMetricSqlStmt(conn,
-        splitCondition);
-      ResultSet rs = null;
-      try {
-        rs = stmt.executeQuery();
-        while (rs.next()) {
-          TimelineMetric metric = getLastTimelineMetricFromResultSet(rs);
-          metrics.getMetrics().add(metric);
+      for (String hostname : hostnames) {
+        splitCondition.setCurrentHostname(hostname);
+        if (stmt != null) {
+          // Only the last statement is handed back to the caller to close
+          stmt.close();
         }
-      } finally {
-        if (rs != null) {
-          try {
-            rs.close();
-          } catch (SQLException e) {
-            // Ignore
+        stmt = PhoenixTransactSQL.prepareGetLatestMetricSqlStmt(conn,
+          splitCondition);
+        ResultSet rs = null;
+        try {
+          rs = stmt.executeQuery();
+          while (rs.next()) {
+            TimelineMetric metric = getLastTimelineMetricFromResultSet(rs);
+            metrics.getMetrics().add(metric);
+          }
+        } finally {
+          if (rs != null) {
+            try {
+              rs.close();
+            } catch (SQLException e) {
+              // Ignore
+            }
           }
         }
       }
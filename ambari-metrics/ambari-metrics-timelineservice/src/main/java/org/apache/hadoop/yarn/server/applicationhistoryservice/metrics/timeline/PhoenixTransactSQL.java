@@ -22,6 +22,7 @@ import org.apache.commons.logging.LogFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -291,7 +292,8 @@ public class PhoenixTransactSQL {
       sb.append(" ORDER BY METRIC_NAME, SERVER_TIME ");
     }
     if (condition.getLimit() != null) {
-      sb.append(" LIMIT ").append(condition.getLimit());
+      // the limit applies to the series of each host
+      sb.append(" LIMIT ").append((long) condition.getLimit() * getHostCount(condition));
     }
 
     if (LOG.isDebugEnabled()) {
@@ -307,11 +309,13 @@ public class PhoenixTransactSQL {
         stmt.setString(pos, condition.getMetricNames().get(pos - 1));
       }
     }
-    if (condition.getHostname() != null) {
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("Setting pos: " + pos + ", value: " + condition.getHostname());
+    if (condition.getHostnames() != null) {
+      for (String hostname : condition.getHostnames()) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Setting pos: " + pos + ", value: " + hostname);
+        }
+        stmt.setString(pos++, hostname);
       }
-      stmt.setString(pos++, condition.getHostname());
     }
     if (condition.getAppId() != null) {
       if (LOG.isDebugEnabled()) {
@@ -367,14 +371,27 @@ public class PhoenixTransactSQL {
       rowsPerMetric = TimeUnit.MILLISECONDS.toHours(range) + 1;
     }
 
-    long totalRowsRequested = rowsPerMetric * condition.getMetricNames().size();
-    if (totalRowsRequested > PhoenixHBaseAccessor.RESULTSET_LIMIT) {
+    // the statement limit is scaled by the number of hosts, so the rows of
+    // all hosts are checked against the scaled limit
+    int hostCount = getHostCount(condition);
+    long totalRowsRequested = rowsPerMetric * condition.getMetricNames().size()
+      * hostCount;
+    long rowLimit = (long) PhoenixHBaseAccessor.RESULTSET_LIMIT * hostCount;
+    if (totalRowsRequested > rowLimit) {
       throw new IllegalArgumentException("The time range query for " +
         "precision table exceeds row count limit, please query aggregate " +
         "table instead.");
     }
   }
 
+  /**
+   * Number of hosts whose series are fetched by one statement; at least 1.
+   */
+  private static int getHostCount(Condition condition) {
+    List<String> hostnames = condition.getHostnames();
+    return hostnames == null || hostnames.isEmpty() ? 1 : hostnames.size();
+  }
+
   public static PreparedStatement prepareGetLatestMetricSqlStmt(
     Connection connection, Condition condition) throws SQLException {
 
@@ -421,11 +438,13 @@ public class PhoenixTransactSQL {
         stmt.setString(pos, condition.getMetricNames().get(pos - 1));
       }
     }
-    if (condition.getHostname() != null) {
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("Setting pos: " + pos + ", value: " + condition.getHostname());
+    if (condition.getHostnames() != null) {
+      for (String hostname : condition.getHostnames()) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Setting pos: " + pos + ", value: " + hostname);
+        }
+        stmt.setString(pos++, hostname);
       }
-      stmt.setString(pos++, condition.getHostname());
     }
     if (condition.getAppId() != null) {
       if (LOG.isDebugEnabled()) {
@@ -576,6 +595,7 @@ public class PhoenixTransactSQL {
     boolean isGrouped();
     void setStatement(String statement);
     String getHostname();
+    List<String> getHostnames();
     Precision getPrecision();
     void setPrecision(Precision precision);
     String getAppId();
@@ -595,6 +615,7 @@ public class PhoenixTransactSQL {
   static class DefaultCondition implements Condition {
     List<String> metricNames;
     String hostname;
+    List<String> hostnames;
     String appId;
     String instanceId;
     Long startTime;
@@ -676,7 +697,7 @@ public class PhoenixTransactSQL {
         }
       }
 
-      appendConjunction = append(sb, appendConjunction, getHostname(), " HOSTNAME = ?");
+      appendConjunction = appendHostnames(sb, appendConjunction, getHostnames());
       appendConjunction = append(sb, appendConjunction, getAppId(), " APP_ID = ?");
       appendConjunction = append(sb, appendConjunction, getInstanceId(), " INSTANCE_ID = ?");
       appendConjunction = append(sb, appendConjunction, getStartTime(), " SERVER_TIME >= ?");
@@ -699,10 +720,47 @@ public class PhoenixTransactSQL {
       return appendConjunction;
     }
 
+    protected static boolean appendHostnames(StringBuilder sb,
+                                             boolean appendConjunction,
+                                             List<String> hostnames) {
+      if (hostnames == null) {
+        return appendConjunction;
+      }
+      if (hostnames.size() == 1) {
+        return append(sb, appendConjunction, hostnames.get(0), " HOSTNAME = ?");
+      }
+      StringBuilder hostsIn = new StringBuilder(" HOSTNAME IN (");
+      for (int i = 0; i < hostnames.size(); i++) {
+        if (i > 0) {
+          hostsIn.append(", ");
+        }
+        hostsIn.append("?");
+      }
+      hostsIn.append(")");
+      return append(sb, appendConjunction, hostnames, hostsIn.toString());
+    }
+
     public String getHostname() {
       return hostname == null || hostname.isEmpty() ? null : hostname;
     }
 
+    /**
+     * The hostname filter may be a comma separated list of hosts so that
+     * callers can fetch the same metrics for many hosts in a single request.
+     */
+    public List<String> getHostnames() {
+      if (hostnames == null && getHostname() != null) {
+        List<String> result = new ArrayList<String>();
+        for (String host : getHostname().split(",")) {
+          if (!host.trim().isEmpty()) {
+            result.add(host.trim());
+          }
+        }
+        hostnames = result.isEmpty() ? null : result;
+      }
+      return hostnames;
+    }
+
     public Precision getPrecision() {
       return precision;
     }
@@ -829,6 +887,7 @@ public class PhoenixTransactSQL {
   static class SplitByMetricNamesCondition implements Condition {
     private final Condition adaptee;
     private String currentMetric;
+    private String currentHostname;
 
     SplitByMetricNamesCondition(Condition condition){
       this.adaptee = condition;
@@ -861,7 +920,13 @@ public class PhoenixTransactSQL {
 
     @Override
     public String getHostname() {
-      return adaptee.getHostname();
+      return currentHostname == null ? adaptee.getHostname() : currentHostname;
+    }
+
+    @Override
+    public List<String> getHostnames() {
+      return currentHostname == null ? adaptee.getHostnames() :
+        Collections.singletonList(currentHostname);
     }
 
     @Override
@@ -900,8 +965,8 @@ public class PhoenixTransactSQL {
         appendConjunction = true;
       }
 
-      appendConjunction = DefaultCondition.append(sb, appendConjunction,
-        getHostname(), " HOSTNAME = ?");
+      appendConjunction = DefaultCondition.appendHostnames(sb,
+        appendConjunction, getHostnames());
       appendConjunction = DefaultCondition.append(sb, appendConjunction,
         getAppId(), " APP_ID = ?");
       appendConjunction = DefaultCondition.append(sb, appendConjunction,
@@ -966,5 +1031,18 @@ public class PhoenixTransactSQL {
     public void setCurrentMetric(String currentMetric) {
       this.currentMetric = currentMetric;
     }
+
+    public List<String> getOriginalHostnames() {
+      return adaptee.getHostnames();
+    }
+
+    /**
+     * Restrict the condition to a single host, so that a point in time
+     * query returns the latest row of every requested host rather than
+     * the latest rows overall.
+     */
+    public void setCurrentHostname(String currentHostname) {
+      this.currentHostname = currentHostname;
+    }
   }
 }
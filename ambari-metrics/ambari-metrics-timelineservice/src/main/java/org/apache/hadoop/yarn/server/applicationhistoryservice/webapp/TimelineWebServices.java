@@ -337,7 +337,9 @@ public class TimelineWebServices {
    * @param metricNames Comma separated list of metrics to retrieve.
    * @param appId Application Id for the requested metrics.
    * @param instanceId Application instance id.
-   * @param hostname Hostname where the metrics originated.
+   * @param hostname Hostname where the metrics originated. A comma separated
+   *                 list of hostnames may be given to fetch the metrics of
+   *                 several hosts in one call.
    * @param startTime Start time for the metric records retrieved.
    * @param precision Precision [ seconds, minutes, hours ]
    * @param limit limit on total number of {@link TimelineMetric} records
@@ -53,6 +53,20 @@ public class TestPhoenixTransactSQL {
     Assert.assertEquals(expectedClause, preparedClause);
   }
 
+  @Test
+  public void testMultipleHostsConditionClause() throws Exception {
+    Condition condition = new DefaultCondition(
+      Arrays.asList("cpu_user", "mem_free"), "h1,h2, h3", "a1", null,
+        1407959718L, 1407959918L, null, null, false);
+
+    String preparedClause = condition.getConditionClause().toString();
+    String expectedClause = "(METRIC_NAME IN (?, ?)) AND HOSTNAME IN (?, ?, ?) AND " +
+      "APP_ID = ? AND SERVER_TIME >= ? AND SERVER_TIME < ?";
+
+    Assert.assertEquals(expectedClause, preparedClause);
+    Assert.assertEquals(Arrays.asList("h1", "h2", "h3"), condition.getHostnames());
+  }
+
   @Test
   public void testSplitByMetricNamesCondition() throws Exception {
     Condition c = new DefaultCondition(
@@ -239,4 +253,77 @@ public class TestPhoenixTransactSQL {
     Assert.assertTrue(stmt.contains("FROM METRIC_RECORD_HOURLY"));
     verify(connection, preparedStatement);
   }
+
+  @Test
+  public void testPrepareGetMetricsMultipleHostsTimeRange() throws SQLException {
+    Condition condition = new DefaultCondition(
+        Arrays.asList("cpu_user", "mem_free"), "h1,h2,h3", "a1", null,
+        1407959718L, 1407959918L, null, 100, false);
+    Connection connection = createNiceMock(Connection.class);
+    PreparedStatement preparedStatement = createNiceMock(PreparedStatement.class);
+    Capture<String> stmtCapture = new Capture<String>();
+    expect(connection.prepareStatement(EasyMock.and(EasyMock.anyString(), EasyMock.capture(stmtCapture))))
+        .andReturn(preparedStatement).times(2);
+
+    replay(connection, preparedStatement);
+    PhoenixTransactSQL.prepareGetMetricsSqlStmt(connection, condition);
+    String stmt = stmtCapture.getValue();
+    Assert.assertTrue(stmt.contains("HOSTNAME IN (?, ?, ?)"));
+    // the limit applies to each host
+    Assert.assertTrue(stmt.endsWith("LIMIT 300"));
+
+    // a range whose series fits the limit for every host is accepted
+    long hours = PhoenixHBaseAccessor.RESULTSET_LIMIT - 1;
+    condition = new DefaultCondition(
+        Collections.singletonList("cpu_user"), "h1,h2,h3", "a1", null,
+        1407959718L, 1407959718L + hours * 3600000L, null, null, false);
+    PhoenixTransactSQL.prepareGetMetricsSqlStmt(connection, condition);
+    stmt = stmtCapture.getValue();
+    Assert.assertTrue(stmt.endsWith("LIMIT " + PhoenixHBaseAccessor.RESULTSET_LIMIT * 3L));
+    verify(connection, preparedStatement);
+
+    // but not one whose series exceeds it
+    condition = new DefaultCondition(
+        Collections.singletonList("cpu_user"), "h1,h2,h3", "a1", null,
+        1407959718L, 1407959718L + (hours + 1) * 3600000L, null, null, false);
+    try {
+      PhoenixTransactSQL.prepareGetMetricsSqlStmt(connection, condition);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testPrepareGetLatestMetricsMultipleHosts() throws SQLException {
+    Condition c = new DefaultCondition(
+        Arrays.asList("cpu_user", "mem_free"), "h1,h2", "a1", null,
+        null, null, null, null, true);
+    SplitByMetricNamesCondition condition = new SplitByMetricNamesCondition(c);
+    Connection connection = createNiceMock(Connection.class);
+    PreparedStatement preparedStatement = createNiceMock(PreparedStatement.class);
+    Capture<String> stmtCapture = new Capture<String>();
+    expect(connection.prepareStatement(EasyMock.and(EasyMock.anyString(), EasyMock.capture(stmtCapture))))
+        .andReturn(preparedStatement).times(4);
+    for (String metricName : c.getMetricNames()) {
+      for (String hostname : c.getHostnames()) {
+        preparedStatement.setString(1, metricName);
+        preparedStatement.setString(2, hostname);
+        preparedStatement.setString(3, "a1");
+      }
+    }
+
+    replay(connection, preparedStatement);
+    for (String metricName : condition.getOriginalMetricNames()) {
+      condition.setCurrentMetric(metricName);
+      for (String hostname : condition.getOriginalHostnames()) {
+        condition.setCurrentHostname(hostname);
+        PhoenixTransactSQL.prepareGetLatestMetricSqlStmt(connection, condition);
+        String stmt = stmtCapture.getValue();
+        Assert.assertTrue(stmt.contains("METRIC_NAME = ? AND HOSTNAME = ? AND"));
+        Assert.assertTrue(stmt.endsWith("LIMIT 1"));
+      }
+    }
+    verify(connection, preparedStatement);
+  }
 }
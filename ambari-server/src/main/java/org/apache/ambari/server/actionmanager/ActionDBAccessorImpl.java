@@ -23,8 +23,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.AmbariException;
@@ -245,6 +247,10 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
     requestEntity.setClusterId(clusterId);
     requestDAO.create(requestEntity);
 
+    // resolve every host of the request once instead of once per command
+    Map<String, HostEntity> hostEntities = getHostEntities(request);
+    Map<String, String> logPrefixes = new HashMap<String, String>();
+
     //TODO wire request to cluster
     List<StageEntity> stageEntities = new ArrayList<StageEntity>(request.getStages().size());
 
@@ -252,19 +258,29 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
       StageEntity stageEntity = stage.constructNewPersistenceEntity();
       stageEntities.add(stageEntity);
       stageEntity.setClusterId(clusterId);
-      //TODO refactor to reduce merges
       stageEntity.setRequest(requestEntity);
       stageDAO.create(stageEntity);
 
       List<HostRoleCommand> orderedHostRoleCommands = stage.getOrderedHostRoleCommands();
 
+      // the entities below are managed from the moment they are persisted, so
+      // they are only written once, as JDBC batches, when the transaction commits
       for (HostRoleCommand hostRoleCommand : orderedHostRoleCommands) {
         HostRoleCommandEntity hostRoleCommandEntity = hostRoleCommand.constructNewPersistenceEntity();
         hostRoleCommandEntity.setStage(stageEntity);
 
-        HostEntity hostEntity = hostDAO.findByName(hostRoleCommandEntity.getHostName());
+        String hostName = hostRoleCommandEntity.getHostName();
+        HostEntity hostEntity = hostEntities.get(hostName);
+        if (hostEntity == null) {
+          // the batch lookup is keyed by the stored host name, which may differ
+          // in case from the requested one on case-insensitive databases
+          hostEntity = hostDAO.findByName(hostName);
+          if (hostEntity != null) {
+            hostEntities.put(hostName, hostEntity);
+          }
+        }
         if (hostEntity == null) {
-          String msg = String.format("Host %s doesn't exist in database", hostRoleCommandEntity.getHostName());
+          String msg = String.format("Host %s doesn't exist in database", hostName);
           LOG.error(msg);
           throw new AmbariException(msg);
         }
@@ -274,21 +290,12 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
         assert hostRoleCommandEntity.getTaskId() != null;
         hostRoleCommand.setTaskId(hostRoleCommandEntity.getTaskId());
 
-        try {
-          // Get the in-memory host object and its prefix to construct the output and error log paths.
-          Host hostObject = clusters.getHost(hostRoleCommandEntity.getHostName());
-          String prefix = hostObject.getPrefix();
-          if (null != prefix && !prefix.isEmpty()) {
-            if (!prefix.endsWith("/")) {
-              prefix = prefix + "/";
-            }
-            hostRoleCommand.setOutputLog(prefix + "output-" + hostRoleCommandEntity.getTaskId() + ".txt");
-            hostRoleCommand.setErrorLog(prefix + "errors-" + hostRoleCommandEntity.getTaskId() + ".txt");
-            hostRoleCommandEntity.setOutputLog(hostRoleCommand.getOutputLog());
-            hostRoleCommandEntity.setErrorLog(hostRoleCommand.getErrorLog());
-          }
-        } catch (AmbariException e) {
-          LOG.warn("Exception in getting prefix for host and setting output and error log files.");
+        String prefix = getLogPrefix(hostName, logPrefixes);
+        if (!prefix.isEmpty()) {
+          hostRoleCommand.setOutputLog(prefix + "output-" + hostRoleCommandEntity.getTaskId() + ".txt");
+          hostRoleCommand.setErrorLog(prefix + "errors-" + hostRoleCommandEntity.getTaskId() + ".txt");
+          hostRoleCommandEntity.setOutputLog(hostRoleCommand.getOutputLog());
+          hostRoleCommandEntity.setErrorLog(hostRoleCommand.getErrorLog());
         }
 
         ExecutionCommandEntity executionCommandEntity = hostRoleCommand.constructExecutionCommandEntity();
@@ -298,20 +305,66 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
         hostRoleCommandEntity.setExecutionCommand(executionCommandEntity);
 
         executionCommandDAO.create(hostRoleCommandEntity.getExecutionCommand());
-        hostRoleCommandDAO.merge(hostRoleCommandEntity);
-        hostDAO.merge(hostEntity);
       }
 
       for (RoleSuccessCriteriaEntity roleSuccessCriteriaEntity : stageEntity.getRoleSuccessCriterias()) {
         roleSuccessCriteriaDAO.create(roleSuccessCriteriaEntity);
       }
-
-      stageDAO.create(stageEntity);
     }
     requestEntity.setStages(stageEntities);
     requestDAO.merge(requestEntity);
   }
 
+  /**
+   * Find the entities of all hosts that the commands of the given request run on.
+   *
+   * @param request  the request
+   *
+   * @return the host entities keyed by their stored host name
+   */
+  private Map<String, HostEntity> getHostEntities(Request request) {
+    Set<String> hostNames = new HashSet<String>();
+    for (Stage stage : request.getStages()) {
+      for (HostRoleCommand hostRoleCommand : stage.getOrderedHostRoleCommands()) {
+        hostNames.add(hostRoleCommand.getHostName());
+      }
+    }
+
+    Map<String, HostEntity> hostEntities = new HashMap<String, HostEntity>(hostNames.size());
+    for (HostEntity hostEntity : hostDAO.findByNames(hostNames)) {
+      hostEntities.put(hostEntity.getHostName(), hostEntity);
+    }
+    return hostEntities;
+  }
+
+  /**
+   * Get the prefix of the output and error log paths of the given host,
+   * ending with a '/', or an empty string if the host has no prefix.
+   *
+   * @param hostName     the host name
+   * @param logPrefixes  prefixes already looked up for this request
+   *
+   * @return the log prefix of the host
+   */
+  private String getLogPrefix(String hostName, Map<String, String> logPrefixes) {
+    String prefix = logPrefixes.get(hostName);
+    if (prefix == null) {
+      prefix = "";
+      try {
+        // Get the in-memory host object and its prefix to construct the output and error log paths.
+        Host hostObject = clusters.getHost(hostName);
+        String hostPrefix = hostObject.getPrefix();
+        if (null != hostPrefix && !hostPrefix.isEmpty()) {
+          prefix = hostPrefix.endsWith("/") ? hostPrefix : hostPrefix + "/";
+        }
+      } catch (AmbariException e) {
+        LOG.warn("Exception in getting prefix for host and setting output and error log files.");
+      }
+      logPrefixes.put(hostName, prefix);
+    }
+    return prefix;
+  }
+
   @Override
   public void startRequest(long requestId) {
     RequestEntity requestEntity = getRequestEntity(requestId);
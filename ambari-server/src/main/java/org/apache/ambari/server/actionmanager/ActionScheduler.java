@@ -138,7 +138,11 @@ class ActionScheduler implements Runnable {
     this.fsmObject = fsmObject;
     this.ambariEventPublisher = ambariEventPublisher;
     this.maxAttempts = (short) maxAttempts;
-    serverActionExecutor = new ServerActionExecutor(db, sleepTimeMilliSec);
+    serverActionExecutor = (null == configuration)
+        ? new ServerActionExecutor(db, sleepTimeMilliSec)
+        : new ServerActionExecutor(db, sleepTimeMilliSec,
+            configuration.getServerActionThreads(),
+            configuration.getServerActionClusterTasksMax());
     this.unitOfWork = unitOfWork;
     clusterHostInfoCache = CacheBuilder.newBuilder().
         expireAfterAccess(5, TimeUnit.MINUTES).
@@ -594,8 +598,9 @@ class ActionScheduler implements Runnable {
             }
 
             // Dequeue command
-            LOG.info("Removing command from queue, host={}, commandId={} ", host, c.getCommandId());
-            actionQueue.dequeue(host, c.getCommandId());
+            LOG.info("Removing command from queue, host={}, commandId={}, taskId={} ", host,
+                c.getCommandId(), c.getTaskId());
+            actionQueue.dequeue(host, c.getTaskId());
           } else {
             // reschedule command
             commandsToSchedule.add(c);
@@ -869,8 +874,7 @@ class ActionScheduler implements Runnable {
       if (hostRoleCommand.getStatus() == HostRoleStatus.QUEUED) {
         // Dequeue all tasks that have been already scheduled for sending to agent
         actionQueue.dequeue(hostRoleCommand.getHostName(),
-                hostRoleCommand.getExecutionCommandWrapper().
-                        getExecutionCommand().getCommandId());
+                hostRoleCommand.getTaskId());
       }
       if (hostRoleCommand.getStatus() == HostRoleStatus.QUEUED ||
             hostRoleCommand.getStatus() == HostRoleStatus.IN_PROGRESS) {
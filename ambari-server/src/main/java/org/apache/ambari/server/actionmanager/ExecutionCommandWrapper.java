@@ -75,7 +75,7 @@ public class ExecutionCommandWrapper {
           ConfigHelper configHelper = injector.getInstance(ConfigHelper.class);
 
           Map<String, Map<String, String>> configProperties = configHelper
-            .getEffectiveConfigProperties(cluster,
+            .getEffectiveConfigPropertiesView(cluster,
               executionCommand.getConfigurationTags());
 
           // Apply the configurations saved with the Execution Cmd on top of
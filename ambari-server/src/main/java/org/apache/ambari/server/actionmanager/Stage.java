@@ -629,6 +629,35 @@ public class Stage {
         origStage.getHostRoleCommand(hostname, role));
   }
 
+  /**
+   * This method should be used only in stage planner. Adds the commands of the
+   * given role on all of the given hosts, sharing the host role commands and
+   * their execution command wrappers with the original stage.
+   */
+  public synchronized void addExecutionCommandWrappers(Stage origStage,
+      Collection<String> hostnames, Role r) {
+    //used on stage creation only, no need to check if wrappers loaded
+    String role = r.toString();
+    for (String hostname : hostnames) {
+      HostRoleCommand hostRoleCommand = origStage.getHostRoleCommand(hostname, role);
+
+      List<ExecutionCommandWrapper> wrappers = commandsToSend.get(hostname);
+      if (wrappers == null) {
+        wrappers = new ArrayList<ExecutionCommandWrapper>();
+        commandsToSend.put(hostname, wrappers);
+      }
+      wrappers.add(hostRoleCommand == null ? null
+          : hostRoleCommand.getExecutionCommandWrapper());
+
+      Map<String, HostRoleCommand> roleCommands = hostRoleCommands.get(hostname);
+      if (roleCommands == null) {
+        roleCommands = new LinkedHashMap<String, HostRoleCommand>();
+        hostRoleCommands.put(hostname, roleCommands);
+      }
+      roleCommands.put(role, hostRoleCommand);
+    }
+  }
+
   public HostRoleCommand getHostRoleCommand(String hostname, String role) {
     return hostRoleCommands.get(hostname).get(role);
   }
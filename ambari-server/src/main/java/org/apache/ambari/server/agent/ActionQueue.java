@@ -19,45 +19,84 @@ package org.apache.ambari.server.agent;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ambari.server.agent.AgentCommand.AgentCommandType;
+import org.apache.ambari.server.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+/**
+ * The {@link ActionQueue} holds the commands waiting to be sent to each host
+ * on its next heartbeat. The commands of a host are kept in FIFO order and are
+ * indexed by type, command ID and task ID so that they can be removed without
+ * scanning the queue.
+ * <p/>
+ * A {@link StatusCommand} for a component which already has one queued
+ * replaces the queued command in place, since only the most recent status
+ * command is of any use. Status commands are also not queued for hosts whose
+ * queue has reached its maximum size; they are generated again on every
+ * heartbeat monitor cycle.
+ */
 @Singleton
 public class ActionQueue {
 
   private static Logger LOG = LoggerFactory.getLogger(ActionQueue.class);
 
-  final ConcurrentMap<String, Queue<AgentCommand>> hostQueues;
+  final ConcurrentMap<String, HostQueue> hostQueues;
+
+  /**
+   * The queue size above which status commands are dropped, or {@code 0} for
+   * no limit.
+   */
+  private final int maxSize;
 
+  /**
+   * Constructor for an unbounded queue.
+   */
   public ActionQueue() {
-    hostQueues = new ConcurrentHashMap<String, Queue<AgentCommand>>();
+    this(0);
   }
 
-  private Queue<AgentCommand> getQueue(String hostname) {
+  /**
+   * Constructor.
+   *
+   * @param configuration
+   *          the server configuration, used to bound the queue of each host.
+   */
+  @Inject
+  public ActionQueue(Configuration configuration) {
+    this(configuration.getAgentQueueSizeMax());
+  }
+
+  private ActionQueue(int maxSize) {
+    hostQueues = new ConcurrentHashMap<String, HostQueue>();
+    this.maxSize = maxSize;
+  }
+
+  private HostQueue getQueue(String hostname) {
     return hostQueues.get(hostname);
   }
 
-  /**
-   * Adds command to queue for given hostname
-   * @param hostname - hostname of node
-   * @param cmd - command to add to queue
-   */
-  public void enqueue(String hostname, AgentCommand cmd) {
-    Queue<AgentCommand> q = getQueue(hostname);
+  private HostQueue getOrCreateQueue(String hostname) {
+    HostQueue q = getQueue(hostname);
 
     if (q == null) {
       //try to add new queue to map if not found
-      q = hostQueues.putIfAbsent(hostname, new ConcurrentLinkedQueue<AgentCommand>());
+      q = hostQueues.putIfAbsent(hostname, new HostQueue());
       if (q == null) {
         //null means that new queue was added to map, get it
         q = getQueue(hostname);
@@ -65,7 +104,37 @@ public class ActionQueue {
       //otherwise we got existing queue (and put nothing!)
     }
 
-    q.add(cmd);
+    return q;
+  }
+
+  /**
+   * Adds command to queue for given hostname
+   * @param hostname - hostname of node
+   * @param cmd - command to add to queue
+   */
+  public void enqueue(String hostname, AgentCommand cmd) {
+    if (!getOrCreateQueue(hostname).add(cmd, maxSize)) {
+      LOG.debug("The queue of host {} is full, dropping {}", hostname, cmd);
+    }
+  }
+
+  /**
+   * Atomically removes all commands of the specified types for the given host
+   * and adds the command to its queue. This is used for commands which
+   * supersede those already queued, such as alert definition commands.
+   *
+   * @param hostname
+   *          the host to add the command for (not {@code null}).
+   * @param cmd
+   *          the command to add (not {@code null}).
+   * @param commandTypes
+   *          the types of the commands superseded by the command.
+   * @return the commands removed, or an empty list if none (never {@code null}
+   *         ).
+   */
+  public List<AgentCommand> replace(String hostname, AgentCommand cmd,
+      AgentCommandType... commandTypes) {
+    return getOrCreateQueue(hostname).replace(cmd, commandTypes, maxSize);
   }
 
   /**
@@ -74,7 +143,7 @@ public class ActionQueue {
    * @return
    */
   public AgentCommand dequeue(String hostname) {
-    Queue<AgentCommand> q = getQueue(hostname);
+    HostQueue q = getQueue(hostname);
     if (q == null) {
       return null;
     }
@@ -98,24 +167,12 @@ public class ActionQueue {
       return Collections.emptyList();
     }
 
-    Queue<AgentCommand> queue = getQueue(hostname);
+    HostQueue queue = getQueue(hostname);
     if (null == queue) {
       return null;
     }
 
-    List<AgentCommand> removedCommands = new ArrayList<AgentCommand>(
-        queue.size());
-
-    Iterator<AgentCommand> iterator = queue.iterator();
-    while (iterator.hasNext()) {
-      AgentCommand command = iterator.next();
-      if (command.getCommandType() == commandType) {
-        removedCommands.add(command);
-        iterator.remove();
-      }
-    }
-
-    return removedCommands;
+    return queue.removeAll(commandType);
   }
 
   /**
@@ -126,52 +183,281 @@ public class ActionQueue {
    * @return
    */
   public AgentCommand dequeue(String hostname, String commandId) {
-    Queue<AgentCommand> q = getQueue(hostname);
+    HostQueue q = getQueue(hostname);
     if (q == null) {
       return null;
     }
-    if (q.isEmpty()) {
+
+    return q.removeByCommandId(commandId);
+  }
+
+  /**
+   * Try to dequeue the execution command for the provided task.
+   *
+   * @param hostname
+   *          the host to remove the command for (not {@code null}).
+   * @param taskId
+   *          the ID of the task of the command.
+   * @return the command removed, or {@code null} if none.
+   */
+  public AgentCommand dequeue(String hostname, long taskId) {
+    HostQueue q = getQueue(hostname);
+    if (q == null) {
       return null;
-    } else {
-      AgentCommand c = null;
-      for (Iterator<AgentCommand> it = q.iterator(); it.hasNext();) {
-        AgentCommand ac = it.next();
-        if (ac instanceof ExecutionCommand && ((ExecutionCommand) ac)
-          .getCommandId().equals(commandId)) {
-          c = ac;
-          it.remove();
-          break;
-        }
-      }
-      return c;
     }
+
+    return q.removeByTaskId(taskId);
   }
 
   public int size(String hostname) {
-    Queue<AgentCommand> q = getQueue(hostname);
+    HostQueue q = getQueue(hostname);
     if (q == null) {
       return 0;
     }
       return q.size();
   }
 
+  /**
+   * Gets the number of commands of the specified type queued for the given
+   * host.
+   *
+   * @param hostname
+   *          the host (not {@code null}).
+   * @param commandType
+   *          the type of command (not {@code null}).
+   * @return the number of commands.
+   */
+  public int size(String hostname, AgentCommandType commandType) {
+    HostQueue q = getQueue(hostname);
+    if (q == null) {
+      return 0;
+    }
+    return q.size(commandType);
+  }
+
+  /**
+   * Gets the number of commands queued for every host which has a queue.
+   *
+   * @return the queue sizes keyed by host name.
+   */
+  public Map<String, Integer> getQueueDepths() {
+    Map<String, Integer> depths = new TreeMap<String, Integer>();
+    for (Map.Entry<String, HostQueue> entry : hostQueues.entrySet()) {
+      depths.put(entry.getKey(), entry.getValue().size());
+    }
+    return depths;
+  }
+
   public List<AgentCommand> dequeueAll(String hostname) {
-    Queue<AgentCommand> q = getQueue(hostname);
+    HostQueue q = getQueue(hostname);
     if (q == null) {
       return null;
     }
 
-    List<AgentCommand> l = new ArrayList<AgentCommand>();
+    return q.drain();
+  }
+
+  /**
+   * The commands queued for a single host. The commands are kept in FIFO order
+   * keyed by a sequence number, which the indexes refer to.
+   */
+  static final class HostQueue {
+
+    private long sequence = 0;
+
+    private final LinkedHashMap<Long, AgentCommand> commands = new LinkedHashMap<Long, AgentCommand>();
+
+    private final Map<AgentCommandType, Set<Long>> byType =
+        new EnumMap<AgentCommandType, Set<Long>>(AgentCommandType.class);
+
+    private final Map<String, Set<Long>> byCommandId = new HashMap<String, Set<Long>>();
+
+    private final Map<Long, Long> byTaskId = new HashMap<Long, Long>();
+
+    /**
+     * Status commands keyed by the component they are for.
+     */
+    private final Map<String, Long> byComponent = new HashMap<String, Long>();
+
+    /**
+     * Adds the command, replacing a status command queued for the same
+     * component.
+     *
+     * @return {@code false} if the command was dropped because the queue is
+     *         full.
+     */
+    synchronized boolean add(AgentCommand command, int maxSize) {
+      String component = getComponentKey(command);
+      if (null != component) {
+        Long existing = byComponent.get(component);
+        if (null != existing) {
+          commands.put(existing, command);
+          return true;
+        }
+
+        if (maxSize > 0 && commands.size() >= maxSize) {
+          return false;
+        }
+      }
+
+      Long key = sequence++;
+      commands.put(key, command);
+
+      AgentCommandType commandType = command.getCommandType();
+      if (null != commandType) {
+        Set<Long> keys = byType.get(commandType);
+        if (null == keys) {
+          keys = new LinkedHashSet<Long>();
+          byType.put(commandType, keys);
+        }
+        keys.add(key);
+      }
+
+      if (command instanceof ExecutionCommand) {
+        ExecutionCommand executionCommand = (ExecutionCommand) command;
+        Set<Long> keys = byCommandId.get(executionCommand.getCommandId());
+        if (null == keys) {
+          keys = new LinkedHashSet<Long>();
+          byCommandId.put(executionCommand.getCommandId(), keys);
+        }
+        keys.add(key);
+        byTaskId.put(executionCommand.getTaskId(), key);
+      }
+
+      if (null != component) {
+        byComponent.put(component, key);
+      }
+
+      return true;
+    }
+
+    synchronized List<AgentCommand> replace(AgentCommand command,
+        AgentCommandType[] commandTypes, int maxSize) {
+      List<AgentCommand> removed = new ArrayList<AgentCommand>();
+      for (AgentCommandType commandType : commandTypes) {
+        removed.addAll(removeAll(commandType));
+      }
+      add(command, maxSize);
+      return removed;
+    }
+
+    synchronized AgentCommand poll() {
+      Iterator<Long> iterator = commands.keySet().iterator();
+      if (!iterator.hasNext()) {
+        return null;
+      }
+      return remove(iterator.next());
+    }
+
+    synchronized List<AgentCommand> removeAll(AgentCommandType commandType) {
+      Set<Long> keys = byType.get(commandType);
+      if (null == keys) {
+        return new ArrayList<AgentCommand>();
+      }
 
-    AgentCommand command;
-    do {
-      //get commands from queue until empty
-      command = q.poll();
-      if (command != null) {
-        l.add(command);
+      List<AgentCommand> removed = new ArrayList<AgentCommand>(keys.size());
+      for (Long key : new ArrayList<Long>(keys)) {
+        removed.add(remove(key));
+      }
+      return removed;
+    }
+
+    synchronized AgentCommand removeByCommandId(String commandId) {
+      Set<Long> keys = byCommandId.get(commandId);
+      if (null == keys) {
+        return null;
+      }
+      return remove(keys.iterator().next());
+    }
+
+    synchronized AgentCommand removeByTaskId(long taskId) {
+      Long key = byTaskId.get(taskId);
+      if (null == key) {
+        return null;
+      }
+      return remove(key);
+    }
+
+    synchronized List<AgentCommand> drain() {
+      List<AgentCommand> drained = new ArrayList<AgentCommand>(commands.values());
+      commands.clear();
+      byType.clear();
+      byCommandId.clear();
+      byTaskId.clear();
+      byComponent.clear();
+      return drained;
+    }
+
+    synchronized int size() {
+      return commands.size();
+    }
+
+    synchronized int size(AgentCommandType commandType) {
+      Set<Long> keys = byType.get(commandType);
+      return null == keys ? 0 : keys.size();
+    }
+
+    /**
+     * Removes the command with the given key from the queue and the indexes.
+     */
+    private AgentCommand remove(Long key) {
+      AgentCommand command = commands.remove(key);
+      if (null == command) {
+        return null;
+      }
+
+      AgentCommandType commandType = command.getCommandType();
+      if (null != commandType) {
+        removeKey(byType, commandType, key);
       }
-    } while (command != null);
 
-    return l;
+      if (command instanceof ExecutionCommand) {
+        ExecutionCommand executionCommand = (ExecutionCommand) command;
+        removeKey(byCommandId, executionCommand.getCommandId(), key);
+
+        // task IDs are unique, but guard against commands without one
+        if (key.equals(byTaskId.get(executionCommand.getTaskId()))) {
+          byTaskId.remove(executionCommand.getTaskId());
+        }
+      }
+
+      String component = getComponentKey(command);
+      if (null != component && key.equals(byComponent.get(component))) {
+        byComponent.remove(component);
+      }
+
+      return command;
+    }
+
+    private static <K> void removeKey(Map<K, Set<Long>> index, K indexKey, Long key) {
+      Set<Long> keys = index.get(indexKey);
+      if (null != keys) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          index.remove(indexKey);
+        }
+      }
+    }
+
+    /**
+     * Gets the component a status command is for, or {@code null} for any
+     * other command or a status command which does not name its component.
+     */
+    private static String getComponentKey(AgentCommand command) {
+      if (!(command instanceof StatusCommand)) {
+        return null;
+      }
+
+      StatusCommand statusCommand = (StatusCommand) command;
+      if (null == statusCommand.getClusterName()
+          || null == statusCommand.getServiceName()
+          || null == statusCommand.getComponentName()) {
+        return null;
+      }
+
+      return statusCommand.getClusterName() + "/"
+          + statusCommand.getServiceName() + "/"
+          + statusCommand.getComponentName();
+    }
   }
 }
@@ -24,7 +24,7 @@ import com.google.gson.Gson;
  * serialized by Gson ({@link Gson}) and should be annotated with Gson
  * annotations (not Jackson).
  */
-public abstract class AgentCommand {
+public abstract class AgentCommand implements Cloneable {
 
   private AgentCommandType commandType;
 
@@ -74,6 +74,20 @@ public abstract class AgentCommand {
     this.commandType = commandType;
   }
 
+  /**
+   * Creates a shallow copy of this command. The copy shares its maps and
+   * collections with this command, so only its fields may be reassigned.
+   *
+   * @return the copy
+   */
+  public AgentCommand copy() {
+    try {
+      return (AgentCommand) clone();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   @Override
   public String toString() {
     return "AgentCommand{" +
@@ -0,0 +1,361 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.agent;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link AgentConfigurationCache} replaces the configurations,
+ * configuration attributes and cluster host information of the commands sent
+ * to the agents with content hashes. The serialized content is kept by hash so
+ * that an agent which does not know a hash yet can fetch it once from
+ * {@code /agent/v1/configurations/{hash}}; identical configurations sent to
+ * many hosts are serialized only once.
+ * <p/>
+ * Commands are never modified in place since they may be cached and sent
+ * again; a shallow copy carrying the hashes is returned instead.
+ * <p/>
+ * The content is held in a size bounded cache, so the hashes of the last
+ * response sent to every host are pinned with {@link #pin}; the response is
+ * sent again if it was lost and its hashes must stay resolvable even after
+ * they were evicted.
+ */
+@Singleton
+public class AgentConfigurationCache {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOG = LoggerFactory.getLogger(AgentConfigurationCache.class);
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Serialized content keyed by its hash.
+   */
+  private final Cache<String, byte[]> m_blobs;
+
+  /**
+   * Content referenced by the last response of a host, keyed by its hash.
+   */
+  private final Map<String, byte[]> m_pinnedBlobs = new HashMap<String, byte[]>();
+
+  /**
+   * The number of hosts pinning each hash.
+   */
+  private final Map<String, Integer> m_pinCounts = new HashMap<String, Integer>();
+
+  /**
+   * The hashes pinned by each host.
+   */
+  private final Map<String, Set<String>> m_hostHashes = new HashMap<String, Set<String>>();
+
+  @Inject
+  private Gson m_gson;
+
+  /**
+   * Constructor.
+   *
+   * @param configuration
+   *          the server configuration, used to size the cache.
+   */
+  @Inject
+  public AgentConfigurationCache(Configuration configuration) {
+    m_blobs = CacheBuilder.newBuilder().maximumSize(
+        configuration.getAgentConfigCacheSize()).build();
+  }
+
+  /**
+   * Gets the serialized content for the specified hash.
+   *
+   * @param hash
+   *          the content hash sent to an agent.
+   * @return the JSON content, or {@code null} if the hash is unknown.
+   */
+  public byte[] getBlob(String hash) {
+    byte[] blob = m_blobs.getIfPresent(hash);
+    if (null == blob) {
+      synchronized (this) {
+        blob = m_pinnedBlobs.get(hash);
+      }
+    }
+    return blob;
+  }
+
+  /**
+   * Pins the hashes referenced by the response sent to a host, releasing the
+   * hashes of the previous response sent to it.
+   *
+   * @param hostname
+   *          the host the response is sent to.
+   * @param response
+   *          the response, carrying compacted commands.
+   */
+  public void pin(String hostname, HeartBeatResponse response) {
+    Set<String> hashes = new HashSet<String>();
+    for (ExecutionCommand command : response.getExecutionCommands()) {
+      addHashes(hashes, command.getConfigurationHashes());
+      addHashes(hashes, command.getConfigurationAttributeHashes());
+      if (null != command.getClusterHostInfoHash()) {
+        hashes.add(command.getClusterHostInfoHash());
+      }
+    }
+
+    for (StatusCommand command : response.getStatusCommands()) {
+      addHashes(hashes, command.getConfigurationHashes());
+      addHashes(hashes, command.getConfigurationAttributeHashes());
+    }
+
+    if (null != response.getAlertDefinitionCommands()) {
+      for (AlertDefinitionCommand command : response.getAlertDefinitionCommands()) {
+        addHashes(hashes, command.getConfigurationHashes());
+      }
+    }
+
+    synchronized (this) {
+      for (String hash : hashes) {
+        Integer count = m_pinCounts.get(hash);
+        if (null == count) {
+          byte[] blob = m_blobs.getIfPresent(hash);
+          if (null == blob) {
+            LOG.warn("Configuration {} sent to {} is no longer cached", hash,
+                hostname);
+            continue;
+          }
+          m_pinnedBlobs.put(hash, blob);
+          count = 0;
+        }
+        m_pinCounts.put(hash, count + 1);
+      }
+
+      Set<String> released = m_hostHashes.put(hostname, hashes);
+      if (null != released) {
+        for (String hash : released) {
+          Integer count = m_pinCounts.get(hash);
+          if (null == count) {
+            continue;
+          } else if (count > 1) {
+            m_pinCounts.put(hash, count - 1);
+          } else {
+            m_pinCounts.remove(hash);
+            m_pinnedBlobs.remove(hash);
+          }
+        }
+      }
+    }
+  }
+
+  private static void addHashes(Set<String> hashes, Map<String, String> contents) {
+    if (null != contents) {
+      hashes.addAll(contents.values());
+    }
+  }
+
+  /**
+   * Creates a copy of the command carrying hashes in place of its
+   * configurations, configuration attributes and cluster host information.
+   *
+   * @param command
+   *          the command to send.
+   * @return the copy, or the command itself if it could not be hashed.
+   */
+  public ExecutionCommand compact(ExecutionCommand command) {
+    try {
+      ExecutionCommand copy = (ExecutionCommand) command.copy();
+      if (null != command.getConfigurations()) {
+        copy.setConfigurationHashes(putAll(command.getConfigurations()));
+        copy.setConfigurations(null);
+      }
+
+      if (null != command.getConfigurationAttributes()) {
+        copy.setConfigurationAttributeHashes(putAll(command.getConfigurationAttributes()));
+        copy.setConfigurationAttributes(null);
+      }
+
+      if (null != command.getClusterHostInfo()) {
+        copy.setClusterHostInfoHash(put(command.getClusterHostInfo()));
+        copy.setClusterHostInfo(null);
+      }
+
+      return copy;
+    } catch (NoSuchAlgorithmException nsae) {
+      LOG.warn("Unable to hash the configurations of command {}",
+          command.getCommandId(), nsae);
+      return command;
+    }
+  }
+
+  /**
+   * Creates a copy of the command carrying hashes in place of its
+   * configurations and configuration attributes.
+   *
+   * @param command
+   *          the command to send.
+   * @return the copy, or the command itself if it could not be hashed.
+   */
+  public StatusCommand compact(StatusCommand command) {
+    try {
+      StatusCommand copy = (StatusCommand) command.copy();
+      if (null != command.getConfigurations()) {
+        copy.setConfigurationHashes(putAll(command.getConfigurations()));
+        copy.setConfigurations(null);
+      }
+
+      if (null != command.getConfigurationAttributes()) {
+        copy.setConfigurationAttributeHashes(putAll(command.getConfigurationAttributes()));
+        copy.setConfigurationAttributes(null);
+      }
+
+      return copy;
+    } catch (NoSuchAlgorithmException nsae) {
+      LOG.warn("Unable to hash the configurations of the {} status command",
+          command.getComponentName(), nsae);
+      return command;
+    }
+  }
+
+  /**
+   * Creates a copy of the command carrying hashes in place of its
+   * configurations.
+   *
+   * @param command
+   *          the command to send.
+   * @return the copy, or the command itself if it could not be hashed.
+   */
+  public AlertDefinitionCommand compact(AlertDefinitionCommand command) {
+    try {
+      AlertDefinitionCommand copy = (AlertDefinitionCommand) command.copy();
+      if (null != command.getConfigurations()) {
+        copy.setConfigurationHashes(putAll(command.getConfigurations()));
+        copy.setConfigurations(null);
+      }
+
+      return copy;
+    } catch (NoSuchAlgorithmException nsae) {
+      LOG.warn("Unable to hash the configurations of the alert definitions for {}",
+          command.getHostName(), nsae);
+      return command;
+    }
+  }
+
+  /**
+   * Stores every value of the map and returns their hashes under the same
+   * keys.
+   */
+  private Map<String, String> putAll(Map<String, ?> contents)
+      throws NoSuchAlgorithmException {
+    Map<String, String> hashes = new TreeMap<String, String>();
+    for (Map.Entry<String, ?> entry : contents.entrySet()) {
+      hashes.put(entry.getKey(), put(entry.getValue()));
+    }
+    return hashes;
+  }
+
+  /**
+   * Stores the content, serializing it only if its hash is not cached yet.
+   *
+   * @return the content hash
+   */
+  private String put(Object content) throws NoSuchAlgorithmException {
+    String hash = hash(content);
+    if (null == m_blobs.getIfPresent(hash)) {
+      m_blobs.put(hash, m_gson.toJson(content).getBytes(UTF_8));
+    }
+    return hash;
+  }
+
+  /**
+   * Calculates a hash of the content which does not depend on the iteration
+   * order of its maps and sets. The content is walked rather than serialized
+   * so that content which is already cached is never serialized again.
+   *
+   * @param content
+   *          maps, collections of scalar values and scalar values.
+   * @return the hex encoded SHA-1 hash
+   */
+  static String hash(Object content) throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-1");
+    update(digest, content);
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, Object content) {
+    if (null == content) {
+      digest.update((byte) 'n');
+    } else if (content instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) content;
+      Map<String, Object> sorted = new TreeMap<String, Object>();
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+      }
+
+      digest.update((byte) 'm');
+      update(digest, String.valueOf(sorted.size()));
+      for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+        update(digest, entry.getKey());
+        update(digest, entry.getValue());
+      }
+    } else if (content instanceof Collection) {
+      List<String> elements = new ArrayList<String>();
+      for (Object element : (Collection<?>) content) {
+        elements.add(String.valueOf(element));
+      }
+
+      // only the order of lists is significant
+      if (!(content instanceof List)) {
+        Collections.sort(elements);
+      }
+
+      digest.update((byte) 'c');
+      update(digest, String.valueOf(elements.size()));
+      for (String element : elements) {
+        update(digest, element);
+      }
+    } else {
+      // length prefixed so that adjacent values cannot run into each other
+      byte[] bytes = String.valueOf(content).getBytes(UTF_8);
+      digest.update((byte) 's');
+      digest.update(String.valueOf(bytes.length).getBytes(UTF_8));
+      digest.update((byte) ':');
+      digest.update(bytes);
+    }
+  }
+}
@@ -57,6 +57,13 @@ public class AlertDefinitionCommand extends AgentCommand {
   @SerializedName("configurations")
   private Map<String, Map<String, String>> m_configurations;
 
+  /**
+   * Content hashes of the configuration types, sent in place of
+   * {@link #m_configurations} when agent configuration hashes are enabled.
+   */
+  @SerializedName("configurationHashes")
+  private Map<String, String> m_configurationHashes;
+
   /**
    * Constructor.
    *
@@ -122,6 +129,44 @@ public class AlertDefinitionCommand extends AgentCommand {
     return m_hostName;
   }
 
+  /**
+   * Gets the configurations added by {@link #addConfigs(ConfigHelper, Cluster)}.
+   *
+   * @return the configurations, or {@code null} if none.
+   */
+  public Map<String, Map<String, String>> getConfigurations() {
+    return m_configurations;
+  }
+
+  /**
+   * Sets the configurations sent with this command.
+   *
+   * @param configurations
+   *          the configurations, or {@code null} for none.
+   */
+  public void setConfigurations(Map<String, Map<String, String>> configurations) {
+    m_configurations = configurations;
+  }
+
+  /**
+   * Gets the content hashes sent in place of the configurations.
+   *
+   * @return the hashes keyed by configuration type, or {@code null} if none.
+   */
+  public Map<String, String> getConfigurationHashes() {
+    return m_configurationHashes;
+  }
+
+  /**
+   * Sets the content hashes sent in place of the configurations.
+   *
+   * @param configurationHashes
+   *          the hashes keyed by configuration type.
+   */
+  public void setConfigurationHashes(Map<String, String> configurationHashes) {
+    m_configurationHashes = configurationHashes;
+  }
+
   /**
    * Adds cluster configuration properties as required by commands sent to agent.
    *
@@ -154,7 +199,7 @@ public class AlertDefinitionCommand extends AgentCommand {
       }
 
       Map<String, Map<String, String>> properties = configHelper
-              .getEffectiveConfigProperties(cluster, configTags);
+              .getEffectiveConfigPropertiesView(cluster, configTags);
 
       if (!properties.isEmpty()) {
         for (Map<String, String> propertyMap : properties.values()) {
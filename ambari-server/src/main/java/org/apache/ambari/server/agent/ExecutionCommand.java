@@ -76,6 +76,19 @@ public class ExecutionCommand extends AgentCommand {
   @SerializedName("configurationTags")
   private Map<String, Map<String, String>> configurationTags;
 
+  /**
+   * Content hashes of the configuration types, sent in place of the
+   * configurations themselves when agent configuration hashes are enabled.
+   */
+  @SerializedName("configurationHashes")
+  private Map<String, String> configurationHashes;
+
+  @SerializedName("configurationAttributeHashes")
+  private Map<String, String> configurationAttributeHashes;
+
+  @SerializedName("clusterHostInfoHash")
+  private String clusterHostInfoHash;
+
   @SerializedName("forceRefreshConfigTags")
   private Set<String> forceRefreshConfigTags = new HashSet<String>();
 
@@ -216,6 +229,30 @@ public class ExecutionCommand extends AgentCommand {
     this.configurationAttributes = configurationAttributes;
   }
 
+  public Map<String, String> getConfigurationHashes() {
+    return configurationHashes;
+  }
+
+  public void setConfigurationHashes(Map<String, String> configurationHashes) {
+    this.configurationHashes = configurationHashes;
+  }
+
+  public Map<String, String> getConfigurationAttributeHashes() {
+    return configurationAttributeHashes;
+  }
+
+  public void setConfigurationAttributeHashes(Map<String, String> configurationAttributeHashes) {
+    this.configurationAttributeHashes = configurationAttributeHashes;
+  }
+
+  public String getClusterHostInfoHash() {
+    return clusterHostInfoHash;
+  }
+
+  public void setClusterHostInfoHash(String clusterHostInfoHash) {
+    this.clusterHostInfoHash = clusterHostInfoHash;
+  }
+
   public Map<String, String> getCommandParams() {
     return commandParams;
   }
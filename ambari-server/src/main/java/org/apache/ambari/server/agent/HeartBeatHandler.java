@@ -144,6 +144,13 @@ public class HeartBeatHandler {
   @Inject
   private AlertDefinitionHash alertDefinitionHash;
 
+  /**
+   * Replaces the configurations of outgoing commands with content hashes
+   * when {@link Configuration#isAgentConfigHashesEnabled()}.
+   */
+  @Inject
+  private AgentConfigurationCache agentConfigurationCache;
+
   /**
    * Publishes {@link AlertEvent} instances.
    */
@@ -272,6 +279,9 @@ public class HeartBeatHandler {
       annotateResponse(hostname, response);
     }
 
+    // the response is sent again if it gets lost, keep its hashes resolvable
+    agentConfigurationCache.pin(hostname, response);
+
     return response;
   }
 
@@ -771,6 +781,7 @@ public class HeartBeatHandler {
       throws AmbariException {
     List<AgentCommand> cmds = actionQueue.dequeueAll(hostname);
     if (cmds != null && !cmds.isEmpty()) {
+      boolean sendConfigHashes = config.isAgentConfigHashesEnabled();
       for (AgentCommand ac : cmds) {
         try {
           if (LOG.isDebugEnabled()) {
@@ -795,11 +806,18 @@ public class HeartBeatHandler {
                 }
               }
             }
-            response.addExecutionCommand((ExecutionCommand) ac);
+            if (sendConfigHashes) {
+              ec = agentConfigurationCache.compact(ec);
+            }
+            response.addExecutionCommand(ec);
             break;
           }
           case STATUS_COMMAND: {
-            response.addStatusCommand((StatusCommand) ac);
+            StatusCommand sc = (StatusCommand) ac;
+            if (sendConfigHashes) {
+              sc = agentConfigurationCache.compact(sc);
+            }
+            response.addStatusCommand(sc);
             break;
           }
           case CANCEL_COMMAND: {
@@ -807,7 +825,11 @@ public class HeartBeatHandler {
             break;
           }
           case ALERT_DEFINITION_COMMAND: {
-            response.addAlertDefinitionCommand((AlertDefinitionCommand) ac);
+            AlertDefinitionCommand adc = (AlertDefinitionCommand) ac;
+            if (sendConfigHashes) {
+              adc = agentConfigurationCache.compact(adc);
+            }
+            response.addAlertDefinitionCommand(adc);
             break;
           }
           case ALERT_EXECUTION_COMMAND: {
@@ -958,6 +980,18 @@ public class HeartBeatHandler {
     }
   }
 
+  /**
+   * Gets the serialized configuration content that was sent to an agent as
+   * the specified content hash.
+   *
+   * @param hash
+   *          the content hash
+   * @return the JSON content, or {@code null} if the hash is unknown
+   */
+  public byte[] handleConfiguration(String hash) {
+    return agentConfigurationCache.getBlob(hash);
+  }
+
   /**
    * Response contains information about HDP Stack in use
    * @param clusterName
@@ -111,6 +111,9 @@ public class HeartbeatMonitor implements Runnable {
     while (shouldRun) {
       try {
         doWork();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Commands queued per host: " + actionQueue.getQueueDepths());
+        }
         LOG.trace("Putting monitor to sleep for " + threadWakeupInterval + " " +
           "milliseconds");
         Thread.sleep(threadWakeupInterval);
@@ -264,7 +267,7 @@ public class HeartbeatMonitor implements Runnable {
         }
 
         Map<String, Map<String, String>> properties = configHelper
-                .getEffectiveConfigProperties(cluster, configTags);
+                .getEffectiveConfigPropertiesView(cluster, configTags);
 
         if (!properties.isEmpty()) {
           for (Map<String, String> propertyMap : properties.values()) {
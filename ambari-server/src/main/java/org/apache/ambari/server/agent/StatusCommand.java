@@ -46,6 +46,16 @@ public class StatusCommand extends AgentCommand {
   @SerializedName("configuration_attributes")
   private Map<String, Map<String, Map<String, String>>> configurationAttributes;
 
+  /**
+   * Content hashes of the configuration types, sent in place of the
+   * configurations themselves when agent configuration hashes are enabled.
+   */
+  @SerializedName("configurationHashes")
+  private Map<String, String> configurationHashes;
+
+  @SerializedName("configurationAttributeHashes")
+  private Map<String, String> configurationAttributeHashes;
+
   @SerializedName("commandParams")
   private Map<String, String> commandParams = new HashMap<String, String>();
 
@@ -95,6 +105,22 @@ public class StatusCommand extends AgentCommand {
     this.configurationAttributes = configurationAttributes;
   }
 
+  public Map<String, String> getConfigurationHashes() {
+    return configurationHashes;
+  }
+
+  public void setConfigurationHashes(Map<String, String> configurationHashes) {
+    this.configurationHashes = configurationHashes;
+  }
+
+  public Map<String, String> getConfigurationAttributeHashes() {
+    return configurationAttributeHashes;
+  }
+
+  public void setConfigurationAttributeHashes(Map<String, String> configurationAttributeHashes) {
+    this.configurationAttributeHashes = configurationAttributeHashes;
+  }
+
   public Map<String, String> getHostLevelParams() {
     return hostLevelParams;
   }
@@ -26,8 +26,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.agent.ComponentsResponse;
@@ -55,6 +60,12 @@ public class AgentResource {
   private static HeartBeatHandler hh;
   private static Log LOG = LogFactory.getLog(AgentResource.class);
 
+  /**
+   * Seconds for which a configuration fetched by its content hash may be
+   * cached by the agent.
+   */
+  private static final int CONFIGURATION_MAX_AGE = 86400;
+
   @Inject
   public static void init(HeartBeatHandler instance) {
     hh = instance;
@@ -132,6 +143,43 @@ public class AgentResource {
     return heartBeatResponse;
   }
 
+  /**
+   * Retrieves a configuration that was sent to the agent as a content hash
+   * (Internal API to be used by Ambari agent). The content never changes for
+   * a given hash, so the hash is also used as the entity tag.
+   *
+   * @response.representation.200.doc This API is invoked by Ambari agent running
+   *  on a cluster to fetch a configuration it has not cached yet
+   * @response.representation.200.mediaType text/plain
+   * @response.representation.304.doc The agent already has the configuration
+   * @response.representation.404.doc The hash is unknown
+   * @param hash content hash of the configuration
+   * @param request the request, used to evaluate If-None-Match
+   */
+  @Path("configurations/{hash}")
+  @GET
+  @Produces({MediaType.TEXT_PLAIN})
+  public Response configurations(@PathParam("hash") String hash,
+      @Context Request request) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Received configuration request for hash " + hash);
+    }
+
+    EntityTag entityTag = new EntityTag(hash);
+    ResponseBuilder builder = request.evaluatePreconditions(entityTag);
+    if (builder == null) {
+      byte[] configuration = hh.handleConfiguration(hash);
+      if (configuration == null) {
+        throw new WebApplicationException(404);
+      }
+      builder = Response.ok(configuration);
+    }
+
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setMaxAge(CONFIGURATION_MAX_AGE);
+    return builder.tag(entityTag).cacheControl(cacheControl).build();
+  }
+
   /**
    * Retrieves the components category map for stack used on cluster
    * (Internal API to be used by Ambari agent).
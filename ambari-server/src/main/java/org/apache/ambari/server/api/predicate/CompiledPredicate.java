@@ -0,0 +1,540 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.predicate;
+
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.predicate.AlwaysPredicate;
+import org.apache.ambari.server.controller.predicate.AndPredicate;
+import org.apache.ambari.server.controller.predicate.ArrayPredicate;
+import org.apache.ambari.server.controller.predicate.CategoryPredicate;
+import org.apache.ambari.server.controller.predicate.ComparisonPredicate;
+import org.apache.ambari.server.controller.predicate.EqualsPredicate;
+import org.apache.ambari.server.controller.predicate.FilterPredicate;
+import org.apache.ambari.server.controller.predicate.GreaterEqualsPredicate;
+import org.apache.ambari.server.controller.predicate.GreaterPredicate;
+import org.apache.ambari.server.controller.predicate.LessEqualsPredicate;
+import org.apache.ambari.server.controller.predicate.LessPredicate;
+import org.apache.ambari.server.controller.predicate.NotPredicate;
+import org.apache.ambari.server.controller.predicate.OrPredicate;
+import org.apache.ambari.server.controller.predicate.PredicateVisitor;
+import org.apache.ambari.server.controller.predicate.PredicateVisitorAcceptor;
+import org.apache.ambari.server.controller.predicate.UnaryPredicate;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A predicate compiled for repeated evaluation against many resources.
+ * <p/>
+ * Compiling resolves each property id to its category and name once, rather
+ * than once per resource, and turns a disjunction of string equalities on
+ * the same property (i.e. the result of an <code>.in()</code> query) into a
+ * single hash lookup.  Conjunctions evaluate their cheapest members first so
+ * that equality checks short circuit before range, filter and unknown
+ * predicates are evaluated.  Comparisons are delegated to
+ * {@link ComparisonPredicate#evaluateValue(Object)} so a compiled predicate
+ * always gives the same result as the predicate it was compiled from.
+ * <p/>
+ * Compiled predicates are only meant for evaluation; they should not be
+ * visited or used to build other predicates.
+ */
+public abstract class CompiledPredicate implements Predicate {
+
+  /**
+   * Relative evaluation costs used to order the members of a conjunction.
+   */
+  private static final int COST_CONSTANT   = 0;
+  private static final int COST_LOOKUP     = 1;
+  private static final int COST_COMPARISON = 2;
+  private static final int COST_FILTER     = 3;
+  private static final int COST_UNKNOWN    = 4;
+
+  /**
+   * Comparator used to order the members of a conjunction by cost.
+   */
+  private static final Comparator<CompiledPredicate> COST_COMPARATOR =
+      new Comparator<CompiledPredicate>() {
+        @Override
+        public int compare(CompiledPredicate p1, CompiledPredicate p2) {
+          return p1.getCost() < p2.getCost() ? -1 : p1.getCost() == p2.getCost() ? 0 : 1;
+        }
+      };
+
+  /**
+   * The predicate that this predicate was compiled from.
+   */
+  private final Predicate source;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  /**
+   * Constructor.
+   *
+   * @param source  the predicate that this predicate was compiled from
+   */
+  protected CompiledPredicate(Predicate source) {
+    this.source = source;
+  }
+
+
+  // ----- CompiledPredicate -------------------------------------------------
+
+  /**
+   * Compile the given predicate.
+   *
+   * @param predicate  the predicate to compile; may be null
+   *
+   * @return the compiled predicate or null if the given predicate is null
+   */
+  public static CompiledPredicate compile(Predicate predicate) {
+    if (predicate == null) {
+      return null;
+    }
+    if (predicate instanceof CompiledPredicate) {
+      return (CompiledPredicate) predicate;
+    }
+    return new CompilingVisitor().compile(predicate);
+  }
+
+  /**
+   * Get the predicate that this predicate was compiled from.
+   *
+   * @return the source predicate
+   */
+  public Predicate getSource() {
+    return source;
+  }
+
+  /**
+   * Get the relative cost of evaluating this predicate.
+   *
+   * @return the evaluation cost
+   */
+  protected abstract int getCost();
+
+
+  // ----- Object overrides --------------------------------------------------
+
+  @Override
+  public String toString() {
+    return String.valueOf(source);
+  }
+
+
+  // ----- inner class : PropertyAccessor ------------------------------------
+
+  /**
+   * Reads a property value from a resource using a pre-resolved category
+   * and property name.
+   */
+  private static class PropertyAccessor {
+    private final String propertyId;
+    private final String categoryKey;
+    private final String propertyName;
+
+    private PropertyAccessor(String propertyId) {
+      String category = PropertyHelper.getPropertyCategory(propertyId);
+
+      this.propertyId   = propertyId;
+      this.categoryKey  = category == null ? "" : category;
+      this.propertyName = PropertyHelper.getPropertyName(propertyId);
+    }
+
+    private Object getValue(Resource resource) {
+      // only the plain resource implementation is known to store its
+      // properties by category; anything else may resolve values itself
+      if (resource.getClass() == ResourceImpl.class) {
+        Map<String, Object> properties = resource.getPropertiesMap().get(categoryKey);
+        return properties == null ? null : properties.get(propertyName);
+      }
+      return resource.getPropertyValue(propertyId);
+    }
+  }
+
+
+  // ----- inner class : ConstantPredicate -----------------------------------
+
+  private static class ConstantPredicate extends CompiledPredicate {
+    private final boolean value;
+
+    private ConstantPredicate(Predicate source, boolean value) {
+      super(source);
+      this.value = value;
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      return value;
+    }
+
+    @Override
+    protected int getCost() {
+      return COST_CONSTANT;
+    }
+  }
+
+
+  // ----- inner class : ComparisonPropertyPredicate -------------------------
+
+  private static class ComparisonPropertyPredicate extends CompiledPredicate {
+    private final PropertyAccessor accessor;
+    private final ComparisonPredicate comparison;
+    private final int cost;
+
+    private ComparisonPropertyPredicate(ComparisonPredicate comparison, int cost) {
+      super(comparison);
+      this.accessor   = new PropertyAccessor(comparison.getPropertyId());
+      this.comparison = comparison;
+      this.cost       = cost;
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      return comparison.evaluateValue(accessor.getValue(resource));
+    }
+
+    @Override
+    protected int getCost() {
+      return cost;
+    }
+  }
+
+
+  // ----- inner class : InPredicate -----------------------------------------
+
+  /**
+   * Matches a property against a set of non-numeric string values.  This is
+   * equivalent to a disjunction of {@link EqualsPredicate}s, which compare
+   * non-numeric string values with the string form of the property value.
+   */
+  private static class InPredicate extends CompiledPredicate {
+    private final PropertyAccessor accessor;
+    private final Set<String> values;
+
+    private InPredicate(Predicate source, String propertyId, Set<String> values) {
+      super(source);
+      this.accessor = new PropertyAccessor(propertyId);
+      this.values   = values;
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      Object propertyValue = accessor.getValue(resource);
+      return propertyValue != null && values.contains(propertyValue.toString());
+    }
+
+    @Override
+    protected int getCost() {
+      return COST_LOOKUP;
+    }
+  }
+
+
+  // ----- inner class : AndCompiledPredicate --------------------------------
+
+  private static class AndCompiledPredicate extends CompiledPredicate {
+    private final CompiledPredicate[] predicates;
+    private final int cost;
+
+    private AndCompiledPredicate(Predicate source, CompiledPredicate[] predicates) {
+      super(source);
+      this.predicates = predicates;
+      this.cost       = sumCost(predicates);
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      for (CompiledPredicate predicate : predicates) {
+        if (!predicate.evaluate(resource)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    protected int getCost() {
+      return cost;
+    }
+  }
+
+
+  // ----- inner class : OrCompiledPredicate ---------------------------------
+
+  private static class OrCompiledPredicate extends CompiledPredicate {
+    private final CompiledPredicate[] predicates;
+    private final int cost;
+
+    private OrCompiledPredicate(Predicate source, CompiledPredicate[] predicates) {
+      super(source);
+      this.predicates = predicates;
+      this.cost       = sumCost(predicates);
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      for (CompiledPredicate predicate : predicates) {
+        if (predicate.evaluate(resource)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected int getCost() {
+      return cost;
+    }
+  }
+
+
+  // ----- inner class : NotCompiledPredicate --------------------------------
+
+  private static class NotCompiledPredicate extends CompiledPredicate {
+    private final CompiledPredicate predicate;
+
+    private NotCompiledPredicate(Predicate source, CompiledPredicate predicate) {
+      super(source);
+      this.predicate = predicate;
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      return !predicate.evaluate(resource);
+    }
+
+    @Override
+    protected int getCost() {
+      return predicate.getCost();
+    }
+  }
+
+
+  // ----- inner class : DelegatingPredicate ---------------------------------
+
+  /**
+   * Evaluates a predicate that the compiler does not know how to compile.
+   */
+  private static class DelegatingPredicate extends CompiledPredicate {
+
+    private DelegatingPredicate(Predicate source) {
+      super(source);
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      return getSource().evaluate(resource);
+    }
+
+    @Override
+    protected int getCost() {
+      return COST_UNKNOWN;
+    }
+  }
+
+
+  // ----- inner class : CompilingVisitor ------------------------------------
+
+  /**
+   * Predicate visitor that produces a compiled predicate.  Only the exact
+   * predicate classes known to the compiler are compiled; subclasses may
+   * change the evaluation and are delegated to as is.
+   */
+  private static class CompilingVisitor implements PredicateVisitor {
+
+    /**
+     * The compiled form of the last visited predicate.
+     */
+    private CompiledPredicate lastCompiled;
+
+    private CompiledPredicate compile(Predicate predicate) {
+      if (predicate instanceof PredicateVisitorAcceptor) {
+        ((PredicateVisitorAcceptor) predicate).accept(this);
+        return lastCompiled;
+      }
+      return new DelegatingPredicate(predicate);
+    }
+
+    @Override
+    public void acceptComparisonPredicate(ComparisonPredicate predicate) {
+      Class<?> predicateClass = predicate.getClass();
+
+      if (predicateClass == EqualsPredicate.class) {
+        lastCompiled = new ComparisonPropertyPredicate(predicate, COST_LOOKUP);
+      } else if (predicateClass == GreaterPredicate.class ||
+          predicateClass == GreaterEqualsPredicate.class ||
+          predicateClass == LessPredicate.class ||
+          predicateClass == LessEqualsPredicate.class) {
+        lastCompiled = new ComparisonPropertyPredicate(predicate, COST_COMPARISON);
+      } else if (predicateClass == FilterPredicate.class) {
+        lastCompiled = new ComparisonPropertyPredicate(predicate, COST_FILTER);
+      } else {
+        lastCompiled = new DelegatingPredicate(predicate);
+      }
+    }
+
+    @Override
+    public void acceptArrayPredicate(ArrayPredicate predicate) {
+      if (predicate.getClass() == AndPredicate.class) {
+        lastCompiled = compileAnd(predicate);
+      } else if (predicate.getClass() == OrPredicate.class) {
+        lastCompiled = compileOr(predicate);
+      } else {
+        lastCompiled = new DelegatingPredicate(predicate);
+      }
+    }
+
+    @Override
+    public void acceptUnaryPredicate(UnaryPredicate predicate) {
+      if (predicate.getClass() == NotPredicate.class) {
+        CompiledPredicate compiled = compile(predicate.getPredicate());
+
+        lastCompiled = compiled instanceof ConstantPredicate ?
+            new ConstantPredicate(predicate, !compiled.evaluate(null)) :
+            new NotCompiledPredicate(predicate, compiled);
+      } else {
+        lastCompiled = new DelegatingPredicate(predicate);
+      }
+    }
+
+    @Override
+    public void acceptAlwaysPredicate(AlwaysPredicate predicate) {
+      lastCompiled = new ConstantPredicate(predicate, true);
+    }
+
+    @Override
+    public void acceptCategoryPredicate(CategoryPredicate predicate) {
+      lastCompiled = new DelegatingPredicate(predicate);
+    }
+
+    // ----- helper methods --------------------------------------------------
+
+    private CompiledPredicate compileAnd(ArrayPredicate predicate) {
+      List<CompiledPredicate> compiledList = new ArrayList<CompiledPredicate>();
+
+      for (Predicate member : predicate.getPredicates()) {
+        CompiledPredicate compiled = compile(member);
+        if (compiled instanceof ConstantPredicate) {
+          if (!compiled.evaluate(null)) {
+            return new ConstantPredicate(predicate, false);
+          }
+        } else {
+          compiledList.add(compiled);
+        }
+      }
+      if (compiledList.isEmpty()) {
+        return new ConstantPredicate(predicate, true);
+      }
+
+      CompiledPredicate[] compiled = compiledList.toArray(new CompiledPredicate[compiledList.size()]);
+      // stable sort; cheapest predicates first
+      Arrays.sort(compiled, COST_COMPARATOR);
+
+      return compiled.length == 1 ? compiled[0] : new AndCompiledPredicate(predicate, compiled);
+    }
+
+    private CompiledPredicate compileOr(ArrayPredicate predicate) {
+      List<CompiledPredicate> compiledList = new ArrayList<CompiledPredicate>();
+
+      // group the equality predicates on non-numeric strings by property id
+      Map<String, List<EqualsPredicate>> equalsByProperty = new LinkedHashMap<String, List<EqualsPredicate>>();
+
+      for (Predicate member : predicate.getPredicates()) {
+        if (isStringEquality(member)) {
+          EqualsPredicate equalsPredicate = (EqualsPredicate) member;
+          String          propertyId      = equalsPredicate.getPropertyId();
+
+          List<EqualsPredicate> equalsList = equalsByProperty.get(propertyId);
+          if (equalsList == null) {
+            equalsList = new ArrayList<EqualsPredicate>();
+            equalsByProperty.put(propertyId, equalsList);
+          }
+          equalsList.add(equalsPredicate);
+        } else {
+          CompiledPredicate compiled = compile(member);
+          if (compiled instanceof ConstantPredicate) {
+            if (compiled.evaluate(null)) {
+              return new ConstantPredicate(predicate, true);
+            }
+          } else {
+            compiledList.add(compiled);
+          }
+        }
+      }
+
+      List<CompiledPredicate> lookupList = new ArrayList<CompiledPredicate>();
+      for (Map.Entry<String, List<EqualsPredicate>> entry : equalsByProperty.entrySet()) {
+        List<EqualsPredicate> equalsList = entry.getValue();
+
+        if (equalsList.size() == 1) {
+          lookupList.add(compile(equalsList.get(0)));
+        } else {
+          Set<String> values = new HashSet<String>();
+          for (EqualsPredicate equalsPredicate : equalsList) {
+            values.add((String) equalsPredicate.getValue());
+          }
+          // keep the original predicate as the source if the lookup covers all of it
+          Predicate source = equalsList.size() == predicate.getPredicates().length ?
+              predicate : new OrPredicate(equalsList.toArray(new Predicate[equalsList.size()]));
+
+          lookupList.add(new InPredicate(source, entry.getKey(), values));
+        }
+      }
+      // evaluate the lookups first
+      compiledList.addAll(0, lookupList);
+
+      if (compiledList.isEmpty()) {
+        return new ConstantPredicate(predicate, false);
+      }
+
+      CompiledPredicate[] compiled = compiledList.toArray(new CompiledPredicate[compiledList.size()]);
+
+      return compiled.length == 1 ? compiled[0] : new OrCompiledPredicate(predicate, compiled);
+    }
+
+    private boolean isStringEquality(Predicate predicate) {
+      if (predicate.getClass() == EqualsPredicate.class) {
+        EqualsPredicate equalsPredicate = (EqualsPredicate) predicate;
+        return equalsPredicate.getValue() instanceof String && !equalsPredicate.isNumericValue();
+      }
+      return false;
+    }
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private static int sumCost(CompiledPredicate[] predicates) {
+    int cost = 0;
+    for (CompiledPredicate predicate : predicates) {
+      cost += predicate.getCost();
+    }
+    return cost;
+  }
+}
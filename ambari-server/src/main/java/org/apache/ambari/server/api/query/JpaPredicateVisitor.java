@@ -67,6 +67,13 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
    */
   private javax.persistence.criteria.Predicate m_lastPredicate = null;
 
+  /**
+   * {@code false} if any part of the Ambari {@link Predicate} could not be
+   * converted. Parts that can't be converted are left unconstrained so that
+   * the JPA predicate always matches a superset of the Ambari predicate.
+   */
+  private boolean m_fullyTranslated = true;
+
   /**
    * A queue of lists of {@link javax.persistence.criteria.Predicate}. Every
    * time an {@code OR} or {@code AND} is encountered, a new chain (list) is
@@ -91,6 +98,22 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     m_root = m_query.from(entityClass);
   }
 
+  /**
+   * Constructor for building a predicate against a root which belongs to a
+   * query that doesn't select the entity itself, such as a row count. Visitors
+   * created this way have no {@link #getCriteriaQuery()}.
+   *
+   * @param entityManager
+   *          the EM used to get a {@link CriteriaBuilder}.
+   * @param root
+   *          the root of the query which the predicate will be applied to.
+   */
+  public JpaPredicateVisitor(EntityManager entityManager, Root<T> root) {
+    m_entityManager = entityManager;
+    m_builder = m_entityManager.getCriteriaBuilder();
+    m_root = root;
+  }
+
   /**
    * Gets the entity class that is the root type in the JPA {@code from} clause.
    *
@@ -120,15 +143,37 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     return m_lastPredicate;
   }
 
+  /**
+   * Gets whether every part of the visited Ambari {@link Predicate} was
+   * converted. If not, {@link #getJpaPredicate()} may match more entities than
+   * the Ambari predicate and the results must still be filtered in memory; in
+   * particular they can't be paged by the database.
+   *
+   * @return {@code true} if the JPA predicate is equivalent to the Ambari one
+   */
+  public boolean isFullyTranslated() {
+    return m_fullyTranslated;
+  }
+
   /**
    * Gets the query to use along with {@link #getJpaPredicate()}.
    *
-   * @return the query (not {@code null}).
+   * @return the query, or {@code null} if this visitor was created for an
+   *         existing {@link Root}.
    */
   public CriteriaQuery<T> getCriteriaQuery() {
     return m_query;
   }
 
+  /**
+   * Gets the root that predicate paths are built from.
+   *
+   * @return the root (never {@code null}).
+   */
+  public Root<T> getRoot() {
+    return m_root;
+  }
+
   /**
    * Gets the criteria builder used to construct the query and predicates.
    *
@@ -149,6 +194,7 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     List<? extends SingularAttribute<?, ?>> singularAttributes = getPredicateMapping(propertyId);
 
     if (null == singularAttributes || singularAttributes.size() == 0) {
+      m_fullyTranslated = false;
       return;
     }
 
@@ -168,18 +214,33 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     }
 
     if (null == path) {
+      m_fullyTranslated = false;
       return;
     }
 
     String operator = predicate.getOperator();
     Comparable<?> value = predicate.getValue();
 
-    // convert string to enum for proper JPA comparisons
-    if (lastSingularAttribute != null) {
+    // convert strings to enums and numbers for proper JPA comparisons
+    if (lastSingularAttribute != null && value != null) {
       Class<?> clazz = lastSingularAttribute.getJavaType();
-      if (clazz.isEnum()) {
-        Class<? extends Enum> enumClass = (Class<? extends Enum>) clazz;
-        value = Enum.valueOf(enumClass, value.toString());
+      try {
+        if (clazz.isEnum()) {
+          Class<? extends Enum> enumClass = (Class<? extends Enum>) clazz;
+          value = Enum.valueOf(enumClass, value.toString());
+        } else if (value instanceof String) {
+          if (Long.class.equals(clazz) || long.class.equals(clazz)) {
+            value = Long.valueOf((String) value);
+          } else if (Integer.class.equals(clazz) || int.class.equals(clazz)) {
+            value = Integer.valueOf((String) value);
+          } else if (Short.class.equals(clazz) || short.class.equals(clazz)) {
+            value = Short.valueOf((String) value);
+          }
+        }
+      } catch (IllegalArgumentException exception) {
+        // leave the comparison to the in-memory evaluation of the predicate
+        m_fullyTranslated = false;
+        return;
       }
     }
 
@@ -197,6 +258,7 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     }
 
     if (null == jpaPredicate) {
+      m_fullyTranslated = false;
       return;
     }
 
@@ -231,6 +293,13 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     // the list is done; deque and apply logical AND or OR
     predicateList = m_queue.pollLast();
 
+    // a child that couldn't be converted is unconstrained; dropping it from an
+    // AND only widens the result, but an OR with such a child matches anything
+    if (predicateList.isEmpty()
+        || (!"AND".equals(operator) && predicateList.size() < predicates.length)) {
+      return;
+    }
+
     javax.persistence.criteria.Predicate jpaPredicate = null;
     javax.persistence.criteria.Predicate[] array = new javax.persistence.criteria.Predicate[predicateList.size()];
     array = predicateList.toArray(array);
@@ -253,6 +322,7 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
    */
   @Override
   public void acceptUnaryPredicate(UnaryPredicate predicate) {
+    m_fullyTranslated = false;
   }
 
   /**
@@ -267,5 +337,6 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
    */
   @Override
   public void acceptCategoryPredicate(CategoryPredicate predicate) {
+    m_fullyTranslated = false;
   }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.apache.ambari.server.controller.predicate.AndPredicate;
+import org.apache.ambari.server.controller.predicate.EqualsPredicate;
+import org.apache.ambari.server.controller.spi.PageRequest;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Request;
+import org.apache.ambari.server.controller.spi.SortRequest;
+import org.apache.ambari.server.controller.spi.SortRequestProperty;
+
+/**
+ * The {@link JpaQueryHelper} decides how much of an Ambari {@link Request}
+ * can be handed to JPA along with the predicate converted by a
+ * {@link JpaPredicateVisitor}.
+ * <p/>
+ * A page can only be taken by the database if the whole predicate and every
+ * sort property were converted; otherwise the database would page a result
+ * that is still going to be filtered or re-sorted in memory.
+ */
+public class JpaQueryHelper {
+
+  /**
+   * Gets whether every property of the sort request is mapped by the visitor.
+   *
+   * @param sortRequest
+   *          the sort request, or {@code null} for none.
+   * @param visitor
+   *          the visitor for the entity being queried (not {@code null}).
+   * @return {@code true} if the sort request can be applied by JPA.
+   */
+  public static boolean isSortSupported(SortRequest sortRequest,
+      JpaPredicateVisitor<?> visitor) {
+
+    if (null == sortRequest || null == sortRequest.getProperties()) {
+      return true;
+    }
+
+    for (SortRequestProperty sort : sortRequest.getProperties()) {
+      List<? extends SingularAttribute<?, ?>> singularAttributes =
+          visitor.getPredicateMapping(sort.getPropertyId());
+
+      if (null == singularAttributes || singularAttributes.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets whether the page of the given request can be taken by JPA after the
+   * visitor has been applied to the request's predicate.
+   *
+   * @param request
+   *          the Ambari request (not {@code null}).
+   * @param visitor
+   *          the visitor that has already visited the predicate.
+   * @return {@code true} if the request has a page request which JPA can
+   *         satisfy.
+   */
+  public static boolean isPageSupported(Request request,
+      JpaPredicateVisitor<?> visitor) {
+
+    PageRequest pageRequest = request.getPageRequest();
+    if (null == pageRequest) {
+      return false;
+    }
+
+    switch (pageRequest.getStartingPoint()) {
+      case Beginning:
+      case OffsetStart:
+        break;
+      default:
+        // pages counted back from the end or starting at a predicate match
+        // are left to the cluster controller
+        return false;
+    }
+
+    return visitor.isFullyTranslated()
+        && isSortSupported(request.getSortRequest(), visitor);
+  }
+
+  /**
+   * Restricts the query to the page of the given request.
+   *
+   * @param typedQuery
+   *          the query to restrict (not {@code null}).
+   * @param pageRequest
+   *          the page request (not {@code null}).
+   */
+  public static void applyPage(TypedQuery<?> typedQuery, PageRequest pageRequest) {
+    int offset = pageRequest.getStartingPoint() == PageRequest.StartingPoint.OffsetStart
+        ? pageRequest.getOffset() : 0;
+
+    typedQuery.setFirstResult(offset);
+    typedQuery.setMaxResults(pageRequest.getPageSize());
+  }
+
+  /**
+   * Removes any equality on the given property from the top level of the
+   * predicate. Providers use this for properties which only identify a parent
+   * resource, such as a cluster name, and don't correspond to a column.
+   *
+   * @param predicate
+   *          the predicate, or {@code null} for none.
+   * @param propertyId
+   *          the property to remove.
+   * @return the predicate without the equality, or {@code null} if nothing is
+   *         left of it.
+   */
+  public static Predicate removeEqualsPredicate(Predicate predicate,
+      String propertyId) {
+
+    if (predicate instanceof EqualsPredicate) {
+      return propertyId.equals(((EqualsPredicate<?>) predicate).getPropertyId())
+          ? null : predicate;
+    }
+
+    if (!(predicate instanceof AndPredicate)) {
+      return predicate;
+    }
+
+    Predicate[] predicates = ((AndPredicate) predicate).getPredicates();
+    List<Predicate> remaining = new ArrayList<Predicate>(predicates.length);
+    for (Predicate child : predicates) {
+      if (!(child instanceof EqualsPredicate)
+          || !propertyId.equals(((EqualsPredicate<?>) child).getPropertyId())) {
+        remaining.add(child);
+      }
+    }
+
+    if (remaining.size() == predicates.length) {
+      return predicate;
+    }
+
+    return remaining.isEmpty() ? null
+        : AndPredicate.instance(remaining.toArray(new Predicate[remaining.size()]));
+  }
+}
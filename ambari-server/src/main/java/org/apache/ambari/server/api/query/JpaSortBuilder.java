@@ -22,7 +22,6 @@ import java.util.Collections;
 import java.util.List;
 
 import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Path;
 import javax.persistence.metamodel.SingularAttribute;
@@ -81,12 +80,12 @@ public class JpaSortBuilder<T> {
         continue;
       }
 
+      // paths must come from the same root as the predicate; a new root would
+      // add a cross join to the query
       Path<?> path = null;
       for (SingularAttribute<?, ?> singularAttribute : singularAttributes) {
         if (null == path) {
-          CriteriaQuery<T> query = visitor.getCriteriaQuery();
-          path = query.from(visitor.getEntityClass()).get(
-              singularAttribute.getName());
+          path = visitor.getRoot().get(singularAttribute.getName());
         } else {
           path = path.get(singularAttribute.getName());
         }
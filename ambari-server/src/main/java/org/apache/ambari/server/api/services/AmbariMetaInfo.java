@@ -53,6 +53,7 @@ import org.apache.ambari.server.orm.entities.MetainfoEntity;
 import org.apache.ambari.server.stack.StackContext;
 import org.apache.ambari.server.stack.StackDirectory;
 import org.apache.ambari.server.stack.StackManager;
+import org.apache.ambari.server.stack.StackMetadataIndex;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ComponentInfo;
@@ -267,7 +268,14 @@ public class AmbariMetaInfo {
   public ComponentInfo getComponent(String stackName, String version, String serviceName,
                                     String componentName) throws AmbariException {
 
-    ComponentInfo component = getService(stackName, version, serviceName).getComponentByName(componentName);
+    StackMetadataIndex stackIndex = stackManager.getStackIndex();
+    ComponentInfo component = stackIndex == null ? null :
+        stackIndex.getComponent(stackName, version, serviceName, componentName);
+    if (component != null) {
+      return component;
+    }
+
+    component = getService(stackName, version, serviceName).getComponentByName(componentName);
 
     if (component == null) {
       throw new StackAccessException("stackName=" + stackName
@@ -496,7 +504,14 @@ public class AmbariMetaInfo {
   }
 
   public ServiceInfo getService(String stackName, String version, String serviceName) throws AmbariException {
-    ServiceInfo service = getStack(stackName, version).getService(serviceName);
+    StackMetadataIndex stackIndex = stackManager.getStackIndex();
+    ServiceInfo service = stackIndex == null ? null :
+        stackIndex.getService(stackName, version, serviceName);
+    if (service != null) {
+      return service;
+    }
+
+    service = getStack(stackName, version).getService(serviceName);
 
     if (service == null) {
       throw new StackAccessException("stackName=" + stackName + ", stackVersion=" +
@@ -547,7 +562,14 @@ public class AmbariMetaInfo {
   }
 
   public StackInfo getStack(String stackName, String version) throws AmbariException {
-    StackInfo stackInfoResult = stackManager.getStack(stackName, version);
+    StackMetadataIndex stackIndex = stackManager.getStackIndex();
+    StackInfo stackInfoResult = stackIndex == null ? null :
+        stackIndex.getStack(stackName, version);
+    if (stackInfoResult != null) {
+      return stackInfoResult;
+    }
+
+    stackInfoResult = stackManager.getStack(stackName, version);
 
     if (stackInfoResult == null) {
       throw new StackAccessException("Stack " + stackName + " " + version + " is not found in Ambari metainfo");
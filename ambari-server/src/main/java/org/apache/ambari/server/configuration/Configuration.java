@@ -146,6 +146,8 @@ public class Configuration {
   public static final String LDAP_ADMIN_GROUP_MAPPING_RULES_KEY = "authorization.ldap.adminGroupMappingRules";
   public static final String LDAP_GROUP_SEARCH_FILTER_KEY = "authorization.ldap.groupSearchFilter";
   public static final String LDAP_REFERRAL_KEY = "authentication.ldap.referral";
+  public static final String LDAP_SYNC_BULK_ENABLED_KEY = "authentication.ldap.sync.bulk.enabled";
+  public static final String LDAP_SYNC_PAGE_SIZE_KEY = "authentication.ldap.sync.pageSize";
   public static final String SERVER_EC_CACHE_SIZE = "server.ecCacheSize";
   public static final String SERVER_STALE_CONFIG_CACHE_ENABLED_KEY = "server.cache.isStale.enabled";
   public static final String SERVER_PERSISTENCE_TYPE_KEY = "server.persistence.type";
@@ -241,6 +243,10 @@ public class Configuration {
   public static final String KDC_CONNECTION_CHECK_TIMEOUT_DEFAULT = "10000";
   public static final String KERBEROS_KEYTAB_CACHE_DIR_KEY = "kerberos.keytab.cache.dir";
   public static final String KERBEROS_KEYTAB_CACHE_DIR_DEFAULT = "/var/lib/ambari-server/data/cache";
+  public static final String KERBEROS_OPERATION_THREADS_KEY = "kerberos.operation.threads";
+  public static final String KERBEROS_OPERATION_THREADS_DEFAULT = "1";
+  public static final String KERBEROS_KADMIN_SESSION_ENABLED_KEY = "kerberos.kadmin.session.enabled";
+  public static final String KERBEROS_KADMIN_SESSION_ENABLED_DEFAULT = "false";
   /**
    * This key defines whether stages of parallel requests are executed in
    * parallel or sequentally. Only stages from different requests
@@ -251,6 +257,16 @@ public class Configuration {
   public static final String AGENT_PACKAGE_INSTALL_TASK_TIMEOUT_KEY = "agent.package.install.task.timeout";
   public static final String AGENT_TASK_TIMEOUT_DEFAULT = "900";
   public static final String AGENT_PACKAGE_INSTALL_TASK_TIMEOUT_DEFAULT = "1800";
+  public static final String AGENT_CONFIG_HASHES_ENABLED_KEY = "agent.config.hashes.enabled";
+  public static final String AGENT_CONFIG_HASHES_ENABLED_DEFAULT = "false";
+  public static final String AGENT_CONFIG_CACHE_SIZE_KEY = "agent.config.cache.size";
+  public static final String AGENT_CONFIG_CACHE_SIZE_DEFAULT = "5000";
+  public static final String AGENT_QUEUE_SIZE_MAX_KEY = "agent.queue.size.max";
+  public static final String AGENT_QUEUE_SIZE_MAX_DEFAULT = "1000";
+  public static final String SERVER_ACTION_THREADS_KEY = "server.action.executor.threads";
+  public static final String SERVER_ACTION_THREADS_DEFAULT = "4";
+  public static final String SERVER_ACTION_CLUSTER_TASKS_MAX_KEY = "server.action.executor.cluster.tasks.max";
+  public static final String SERVER_ACTION_CLUSTER_TASKS_MAX_DEFAULT = "2";
 
   public static final String CUSTOM_ACTION_DEFINITION_KEY = "custom.action.definitions";
   public static final String SHARED_RESOURCES_DIR_KEY = "shared.resources.dir";
@@ -294,6 +310,8 @@ public class Configuration {
   private static final String LDAP_ADMIN_GROUP_MAPPING_RULES_DEFAULT = "Ambari Administrators";
   private static final String LDAP_GROUP_SEARCH_FILTER_DEFAULT = "";
   private static final String LDAP_REFERRAL_DEFAULT = "follow";
+  private static final String LDAP_SYNC_BULK_ENABLED_DEFAULT = "false";
+  private static final String LDAP_SYNC_PAGE_SIZE_DEFAULT = "1000";
 
   /**
    * !!! TODO: for development purposes only, should be changed to 'false'
@@ -994,6 +1012,29 @@ public class Configuration {
     return Boolean.parseBoolean(properties.getProperty(IS_LDAP_CONFIGURED, IS_LDAP_CONFIGURED_DEFAULT));
   }
 
+  /**
+   * Gets whether LDAP synchronization should pull users and groups with paged
+   * searches and resolve group membership in memory instead of looking up
+   * every member individually.
+   *
+   * @return {@code true} if bulk LDAP synchronization is enabled
+   */
+  public boolean isLdapBulkSyncEnabled() {
+    return Boolean.parseBoolean(properties.getProperty(
+        LDAP_SYNC_BULK_ENABLED_KEY, LDAP_SYNC_BULK_ENABLED_DEFAULT));
+  }
+
+  /**
+   * Gets the number of entries requested per page (RFC 2696) during bulk LDAP
+   * synchronization.
+   *
+   * @return the page size; a value less than 1 disables paging
+   */
+  public int getLdapSyncPageSize() {
+    return Integer.parseInt(properties.getProperty(
+        LDAP_SYNC_PAGE_SIZE_KEY, LDAP_SYNC_PAGE_SIZE_DEFAULT));
+  }
+
   public String getServerOsType() {
     return properties.getProperty(OS_VERSION_KEY, "");
   }
@@ -1339,6 +1380,90 @@ public class Configuration {
     return new File(fileName);
   }
 
+  /**
+   * Gets the number of threads, each with its own KDC operation handler, used
+   * to process the Kerberos identities of a request.
+   *
+   * @return the number of threads, at least 1
+   */
+  public int getKerberosOperationThreads() {
+    int threads = Integer.parseInt(properties.getProperty(
+        KERBEROS_OPERATION_THREADS_KEY, KERBEROS_OPERATION_THREADS_DEFAULT));
+    return Math.max(1, threads);
+  }
+
+  /**
+   * Determines whether the MIT KDC operation handler sends all of its queries
+   * through one long-lived kadmin process rather than starting kadmin for
+   * every query.
+   *
+   * @return true if a kadmin session is to be used; false otherwise
+   */
+  public boolean isKerberosKAdminSessionEnabled() {
+    return Boolean.parseBoolean(properties.getProperty(
+        KERBEROS_KADMIN_SESSION_ENABLED_KEY, KERBEROS_KADMIN_SESSION_ENABLED_DEFAULT));
+  }
+
+  /**
+   * Determines whether commands sent to the agents carry content hashes in
+   * place of their configurations, leaving the agents to fetch each unknown
+   * configuration once from the server.
+   *
+   * @return true if configuration hashes are sent; false otherwise
+   */
+  public boolean isAgentConfigHashesEnabled() {
+    return Boolean.parseBoolean(properties.getProperty(
+        AGENT_CONFIG_HASHES_ENABLED_KEY, AGENT_CONFIG_HASHES_ENABLED_DEFAULT));
+  }
+
+  /**
+   * Gets the maximum number of serialized configurations kept by the server
+   * for the agents to fetch by their content hash.
+   *
+   * @return the maximum number of cached configurations
+   */
+  public int getAgentConfigCacheSize() {
+    return Integer.parseInt(properties.getProperty(
+        AGENT_CONFIG_CACHE_SIZE_KEY, AGENT_CONFIG_CACHE_SIZE_DEFAULT));
+  }
+
+  /**
+   * Gets the number of commands queued for a single host above which status
+   * commands are no longer queued for it. Status commands are generated again
+   * on every heartbeat monitor cycle, so dropping them loses nothing while an
+   * agent is not draining its queue.
+   *
+   * @return the maximum queue size, or {@code 0} for no limit
+   */
+  public int getAgentQueueSizeMax() {
+    return Integer.parseInt(properties.getProperty(
+        AGENT_QUEUE_SIZE_MAX_KEY, AGENT_QUEUE_SIZE_MAX_DEFAULT));
+  }
+
+  /**
+   * Gets the number of threads used to execute server actions. Server actions
+   * of the same stage always run one after another.
+   *
+   * @return the number of threads, at least 1
+   */
+  public int getServerActionThreads() {
+    int threads = Integer.parseInt(properties.getProperty(
+        SERVER_ACTION_THREADS_KEY, SERVER_ACTION_THREADS_DEFAULT));
+    return Math.max(1, threads);
+  }
+
+  /**
+   * Gets the maximum number of server actions running at the same time for a
+   * single cluster.
+   *
+   * @return the maximum number of server actions per cluster, at least 1
+   */
+  public int getServerActionClusterTasksMax() {
+    int max = Integer.parseInt(properties.getProperty(
+        SERVER_ACTION_CLUSTER_TASKS_MAX_KEY, SERVER_ACTION_CLUSTER_TASKS_MAX_DEFAULT));
+    return Math.max(1, max);
+  }
+
   /**
    * Gets the type of database by examining the {@link #getDatabaseUrl()} JDBC
    * URL.
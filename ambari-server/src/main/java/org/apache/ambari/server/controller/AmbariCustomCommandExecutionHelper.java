@@ -788,8 +788,8 @@ public class AmbariCustomCommandExecutionHelper {
         clusterName, actionExecutionContext.getActionName(), resourceFilters
       );
 
-      String clusterHostInfoJson = StageUtils.getGson().toJson(
-          StageUtils.getClusterHostInfo(clusters.getHostsForCluster(cluster.getClusterName()), cluster));
+      String clusterHostInfoJson = StageUtils.getClusterHostInfoJson(
+          clusters.getHostsForCluster(cluster.getClusterName()), cluster);
 
       // Reset cluster host info as it has changed
       stage.setClusterHostInfo(clusterHostInfoJson);
@@ -83,6 +83,7 @@ import org.apache.ambari.server.controller.internal.RequestStageContainer;
 import org.apache.ambari.server.controller.internal.URLStreamProvider;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.customactions.ActionDefinition;
+import org.apache.ambari.server.events.ServiceComponentInstalledEvent;
 import org.apache.ambari.server.metadata.ActionMetadata;
 import org.apache.ambari.server.metadata.RoleCommandOrder;
 import org.apache.ambari.server.orm.dao.RepositoryVersionDAO;
@@ -132,6 +133,7 @@ import org.apache.ambari.server.state.State;
 import org.apache.ambari.server.state.configgroup.ConfigGroupFactory;
 import org.apache.ambari.server.state.scheduler.RequestExecutionFactory;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostInstallEvent;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostPersister;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStartEvent;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStopEvent;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostUpgradeEvent;
@@ -180,6 +182,8 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
   @Inject
   private ServiceComponentHostFactory serviceComponentHostFactory;
   @Inject
+  private ServiceComponentHostPersister serviceComponentHostPersister;
+  @Inject
   private ConfigFactory configFactory;
   @Inject
   private StageFactory stageFactory;
@@ -536,14 +540,16 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
 
     // set restartRequired flag for  monitoring services
     setMonitoringServicesRestartRequired(requests);
-    // now doing actual work
-    persistServiceComponentHosts(requests);
+    // now doing actual work; the installed events are published once the
+    // host components have been committed
+    serviceComponentHostPersister.publish(persistServiceComponentHosts(requests));
   }
 
   @Transactional
-  void persistServiceComponentHosts(Set<ServiceComponentHostRequest> requests)
+  List<ServiceComponentInstalledEvent> persistServiceComponentHosts(Set<ServiceComponentHostRequest> requests)
     throws AmbariException {
 
+    List<ServiceComponentHost> hostComponents = new ArrayList<ServiceComponentHost>(requests.size());
     for (ServiceComponentHostRequest request : requests) {
       Cluster cluster = clusters.getCluster(request.getClusterName());
       Service s = cluster.getService(request.getServiceName());
@@ -562,15 +568,30 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
       sch.setDesiredStackVersion(sc.getDesiredStackVersion());
 
       sc.addServiceComponentHost(sch);
-      sch.persist();
+      hostComponents.add(sch);
     }
+
+    // write the whole topology at once rather than one host component at a time
+    return serviceComponentHostPersister.write(hostComponents);
   }
 
   private void setMonitoringServicesRestartRequired(
     Set<ServiceComponentHostRequest> requests) throws AmbariException {
 
+    // the flags only depend on the cluster and the host, so visit each
+    // monitoring component once per cluster rather than once per request
+    Map<String, Set<String>> hostnamesByCluster = new HashMap<String, Set<String>>();
     for (ServiceComponentHostRequest request : requests) {
-      Cluster cluster = clusters.getCluster(request.getClusterName());
+      Set<String> hostnames = hostnamesByCluster.get(request.getClusterName());
+      if (hostnames == null) {
+        hostnames = new HashSet<String>();
+        hostnamesByCluster.put(request.getClusterName(), hostnames);
+      }
+      hostnames.add(request.getHostname());
+    }
+
+    for (Entry<String, Set<String>> entry : hostnamesByCluster.entrySet()) {
+      Cluster cluster = clusters.getCluster(entry.getKey());
 
       StackId stackId = cluster.getCurrentStackVersion();
       Collection<String> monitoringServices = ambariMetaInfo.getMonitoringServiceNames(
@@ -588,10 +609,11 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
               continue;
             }
 
-            String hostname = request.getHostname();
-            if (sc.getServiceComponentHosts().containsKey(hostname)) {
-              ServiceComponentHost sch = sc.getServiceComponentHost(hostname);
-              sch.setRestartRequired(true);
+            for (String hostname : entry.getValue()) {
+              if (sc.getServiceComponentHosts().containsKey(hostname)) {
+                ServiceComponentHost sch = sc.getServiceComponentHost(hostname);
+                sch.setRestartRequired(true);
+              }
             }
           }
         }
@@ -1903,10 +1925,8 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
 
       // FIXME cannot work with a single stage
       // multiple stages may be needed for reconfigure
-      Map<String, Set<String>> clusterHostInfo = StageUtils.getClusterHostInfo(
+      String clusterHostInfoJson = StageUtils.getClusterHostInfoJson(
           clusters.getHostsForCluster(cluster.getClusterName()), cluster);
-
-      String clusterHostInfoJson = StageUtils.getGson().toJson(clusterHostInfo);
       String HostParamsJson = StageUtils.getGson().toJson(
           customCommandExecutionHelper.createDefaultHostParams(cluster));
 
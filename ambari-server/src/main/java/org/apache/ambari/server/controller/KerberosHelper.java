@@ -834,8 +834,7 @@ public class KerberosHelper {
         // Always set up the necessary stages to perform the tasks needed to complete the operation.
         // Some stages may be no-ops, this is expected.
         // Gather data needed to create stages and tasks...
-        Map<String, Set<String>> clusterHostInfo = StageUtils.getClusterHostInfo(hosts, cluster);
-        String clusterHostInfoJson = StageUtils.getGson().toJson(clusterHostInfo);
+        String clusterHostInfoJson = StageUtils.getClusterHostInfoJson(hosts, cluster);
         Map<String, String> hostParams = customCommandExecutionHelper.createDefaultHostParams(cluster);
         String hostParamsJson = StageUtils.getGson().toJson(hostParams);
         String ambariServerHostname = StageUtils.getHostName();
@@ -1075,8 +1074,7 @@ public class KerberosHelper {
         // Always set up the necessary stages to perform the tasks needed to complete the operation.
         // Some stages may be no-ops, this is expected.
         // Gather data needed to create stages and tasks...
-        Map<String, Set<String>> clusterHostInfo = StageUtils.getClusterHostInfo(hosts, cluster);
-        String clusterHostInfoJson = StageUtils.getGson().toJson(clusterHostInfo);
+        String clusterHostInfoJson = StageUtils.getClusterHostInfoJson(hosts, cluster);
         Map<String, String> hostParams = customCommandExecutionHelper.createDefaultHostParams(cluster);
         String hostParamsJson = StageUtils.getGson().toJson(hostParams);
         String ambariServerHostname = StageUtils.getHostName();
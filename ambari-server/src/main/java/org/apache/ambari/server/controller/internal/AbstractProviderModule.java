@@ -26,10 +26,10 @@ import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.AmbariServer;
 import org.apache.ambari.server.controller.HostRequest;
 import org.apache.ambari.server.controller.HostResponse;
-import org.apache.ambari.server.controller.ServiceComponentHostRequest;
-import org.apache.ambari.server.controller.ServiceComponentHostResponse;
 import org.apache.ambari.server.controller.jmx.JMXHostProvider;
 import org.apache.ambari.server.controller.jmx.JMXPropertyProvider;
+import org.apache.ambari.server.controller.metrics.HealthCheckingStreamProvider;
+import org.apache.ambari.server.controller.metrics.LatencyRecordingStreamProvider;
 import org.apache.ambari.server.controller.metrics.MetricHostProvider;
 import org.apache.ambari.server.controller.metrics.MetricsPropertyProvider;
 import org.apache.ambari.server.controller.metrics.MetricsReportPropertyProvider;
@@ -51,6 +51,7 @@ import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.DesiredConfig;
 import org.apache.ambari.server.state.HostState;
 import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponentHost;
 import org.apache.ambari.server.state.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -325,7 +326,7 @@ public abstract class AbstractProviderModule implements ProviderModule,
     try {
       Cluster cluster = managementController.getClusters().getCluster(clusterName);
       String serviceName = managementController.findServiceName(cluster, componentName);
-      hosts = cluster.getService(serviceName).getServiceComponent(componentName).getServiceComponentHosts().keySet();
+      hosts = cluster.getTopologySnapshot().getServiceComponentHosts(serviceName, componentName).keySet();
     } catch (Exception e) {
       LOG.warn("Exception in getting host names for jmx metrics: ", e);
     }
@@ -353,25 +354,18 @@ public abstract class AbstractProviderModule implements ProviderModule,
       return false;
     }
 
-    ServiceComponentHostResponse componentHostResponse;
+    ServiceComponentHost componentHost;
 
     try {
-      ServiceComponentHostRequest componentRequest =
-        new ServiceComponentHostRequest(clusterName, serviceName,
-          componentName, hostName, null);
-
-      Set<ServiceComponentHostResponse> hostComponents =
-        managementController.getHostComponents(Collections.singleton(componentRequest));
-
-      componentHostResponse = hostComponents.size() == 1 ? hostComponents.iterator().next() : null;
+      componentHost = managementController.getClusters().getCluster(clusterName)
+          .getTopologySnapshot().getServiceComponentHost(serviceName, componentName, hostName);
     } catch (AmbariException e) {
       LOG.debug("Error checking " + componentName + " server host component state: ", e);
       return false;
     }
 
     //Cluster without SCH
-    return componentHostResponse != null &&
-      componentHostResponse.getLiveState().equals(State.STARTED.name());
+    return componentHost != null && componentHost.getState() == State.STARTED;
   }
 
   protected boolean isHostLive(String clusterName, String hostName) {
@@ -529,9 +523,10 @@ public abstract class AbstractProviderModule implements ProviderModule,
     List<PropertyProvider> providers = new LinkedList<PropertyProvider>();
 
     ComponentSSLConfiguration configuration = ComponentSSLConfiguration.instance();
-    URLStreamProvider streamProvider = new URLStreamProvider(
-        PROPERTY_REQUEST_CONNECT_TIMEOUT, PROPERTY_REQUEST_READ_TIMEOUT,
-        configuration);
+    StreamProvider streamProvider = new HealthCheckingStreamProvider(
+        new LatencyRecordingStreamProvider(
+            new URLStreamProvider(PROPERTY_REQUEST_CONNECT_TIMEOUT,
+                PROPERTY_REQUEST_READ_TIMEOUT, configuration)));
 
     if (type.isInternalType()) {
       switch (type.getInternalType()) {
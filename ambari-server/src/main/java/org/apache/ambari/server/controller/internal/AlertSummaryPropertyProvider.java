@@ -31,10 +31,10 @@ import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.orm.dao.AlertHostSummaryDTO;
 import org.apache.ambari.server.orm.dao.AlertSummaryDTO;
-import org.apache.ambari.server.orm.dao.AlertsDAO;
 import org.apache.ambari.server.state.AlertState;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.alert.AlertSummaryCounters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,8 +64,12 @@ public class AlertSummaryPropertyProvider extends BaseProvider implements Proper
   @Inject
   private static Provider<Clusters> s_clusters = null;
 
+  /**
+   * In-memory alert counts, kept current from alert events, so that summaries
+   * don't require an aggregate query per resource.
+   */
   @Inject
-  private static AlertsDAO s_dao = null;
+  private static AlertSummaryCounters s_counters = null;
 
   private Resource.Type m_resourceType = null;
   private String m_clusterPropertyId = null;
@@ -124,21 +128,21 @@ public class AlertSummaryPropertyProvider extends BaseProvider implements Proper
 
         // only make the calculation if asked
         if (BaseProvider.isPropertyRequested(ALERTS_SUMMARY, requestedIds)) {
-          summary = s_dao.findCurrentCounts(cluster.getClusterId(), null, null);
+          summary = s_counters.getSummary(clusterId, null, null);
         }
 
         // only make the calculation if asked
         if (BaseProvider.isPropertyRequested(ALERTS_SUMMARY_HOSTS,
             requestedIds)) {
-          hostSummary = s_dao.findCurrentHostCounts(clusterId);
+          hostSummary = s_counters.getHostSummary(clusterId);
         }
 
         break;
       case Service:
-        summary = s_dao.findCurrentCounts(cluster.getClusterId(), typeId, null);
+        summary = s_counters.getSummary(cluster.getClusterId(), typeId, null);
         break;
       case Host:
-        summary = s_dao.findCurrentCounts(cluster.getClusterId(), null, typeId);
+        summary = s_counters.getSummary(cluster.getClusterId(), null, typeId);
         break;
       default:
         break;
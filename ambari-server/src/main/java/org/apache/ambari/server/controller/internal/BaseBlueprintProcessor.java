@@ -41,7 +41,6 @@ import org.apache.ambari.server.state.ConfigHelper;
 import org.apache.ambari.server.state.DependencyInfo;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -491,18 +490,18 @@ public abstract class BaseBlueprintProcessor extends AbstractControllerResourceP
                                                         ResourceAlreadyExistsException,
                                                         NoSuchParentResourceException {
 
-    ResourceProvider hostComponentProvider = getResourceProvider(Resource.Type.HostComponent);
+    // all hosts and all host components are submitted as one request each so
+    // that the whole topology is validated and persisted in a single pass
+    Set<Map<String, Object>> setHostRequestProps = new HashSet<Map<String, Object>>();
+    Set<Map<String, Object>> setHostComponentRequestProps = new HashSet<Map<String, Object>>();
     for (HostGroupImpl group : blueprintHostGroups.values()) {
       for (String host : group.getHostInfo()) {
         Map<String, Object> hostProperties = new HashMap<String, Object>();
         hostProperties.put("Hosts/cluster_name", clusterName);
         hostProperties.put("Hosts/host_name", host);
-
-        hostProvider.createResources(new RequestImpl(
-            null, Collections.singleton(hostProperties), null, null));
+        setHostRequestProps.add(hostProperties);
 
         // create clusters/hosts/host_components
-        Set<Map<String, Object>> setHostComponentRequestProps = new HashSet<Map<String, Object>>();
         for (String hostComponent : group.getComponents()) {
           // AMBARI_SERVER is not recognized by Ambari as a component
           if (! hostComponent.equals("AMBARI_SERVER")) {
@@ -513,10 +512,16 @@ public abstract class BaseBlueprintProcessor extends AbstractControllerResourceP
             setHostComponentRequestProps.add(hostComponentProperties);
           }
         }
-        hostComponentProvider.createResources(new RequestImpl(
-            null, setHostComponentRequestProps, null, null));
       }
     }
+
+    if (!setHostRequestProps.isEmpty()) {
+      hostProvider.createResources(new RequestImpl(
+          null, setHostRequestProps, null, null));
+
+      getResourceProvider(Resource.Type.HostComponent).createResources(new RequestImpl(
+          null, setHostComponentRequestProps, null, null));
+    }
   }
 
   /**
@@ -31,6 +31,7 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.apache.ambari.server.api.predicate.CompiledPredicate;
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.ExtendedResourceProvider;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
@@ -171,6 +172,9 @@ public class ClusterControllerImpl implements ClusterController {
 
     ExtendedResourceProviderWrapper provider  = ensureResourceProviderWrapper(type);
 
+    // compile the predicate once rather than walking it for every resource
+    predicate = provider.compilePredicate(predicate);
+
     int totalCount = 0;
     Set<Resource> resources = providerResources;
 
@@ -992,5 +996,22 @@ public class ClusterControllerImpl implements ClusterController {
     public boolean evaluate(Predicate predicate, Resource resource) {
       return evaluator.evaluate(predicate, resource);
     }
+
+
+    // ----- ExtendedResourceProviderWrapper ---------------------------------
+
+    /**
+     * Compile the given predicate for evaluation against the resources of
+     * the delegate provider.  Providers with their own predicate evaluator
+     * may inspect the predicate, so their predicates are left as is.
+     *
+     * @param predicate  the predicate; may be null
+     *
+     * @return the predicate to evaluate against each resource
+     */
+    public Predicate compilePredicate(Predicate predicate) {
+      return evaluator == DEFAULT_RESOURCE_PREDICATE_EVALUATOR ?
+          CompiledPredicate.compile(predicate) : predicate;
+    }
   }
 }
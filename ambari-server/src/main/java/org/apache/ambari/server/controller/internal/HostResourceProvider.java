@@ -536,6 +536,10 @@ public class HostResourceProvider extends BaseBlueprintProcessor {
     Set<String> addedHosts = new HashSet<String>();
     // all hosts will have same cluster
     String clusterName = null;
+    // each blueprint is parsed once and all of its hosts are created together
+    Map<String, Map<String, HostGroupImpl>> blueprintHostGroupsByName =
+        new HashMap<String, Map<String, HostGroupImpl>>();
+    Map<String, String> configGroupNameByHost = new HashMap<String, String>();
     for (Map<String, Object> properties : propertySet) {
       clusterName = (String) properties.get(HOST_CLUSTER_NAME_PROPERTY_ID);
       String bpName = (String) properties.get(BLUEPRINT_PROPERTY_ID);
@@ -544,15 +548,25 @@ public class HostResourceProvider extends BaseBlueprintProcessor {
 
       addedHosts.add(hostname);
 
-      String configGroupName = getConfigurationGroupName(bpName, hgName);
-      BlueprintEntity blueprint = getExistingBlueprint(bpName);
-      Stack stack = parseStack(blueprint);
-      Map<String, HostGroupImpl> blueprintHostGroups = parseBlueprintHostGroups(blueprint, stack);
-      addKerberosClientIfNecessary(clusterName, blueprintHostGroups);
+      Map<String, HostGroupImpl> blueprintHostGroups = blueprintHostGroupsByName.get(bpName);
+      if (blueprintHostGroups == null) {
+        BlueprintEntity blueprint = getExistingBlueprint(bpName);
+        Stack stack = parseStack(blueprint);
+        blueprintHostGroups = parseBlueprintHostGroups(blueprint, stack);
+        addKerberosClientIfNecessary(clusterName, blueprintHostGroups);
+        blueprintHostGroupsByName.put(bpName, blueprintHostGroups);
+      }
       addHostToHostgroup(hgName, hostname, blueprintHostGroups);
+      configGroupNameByHost.put(hostname, getConfigurationGroupName(bpName, hgName));
+    }
+
+    for (Map<String, HostGroupImpl> blueprintHostGroups : blueprintHostGroupsByName.values()) {
       createHostAndComponentResources(blueprintHostGroups, clusterName, this);
-      //todo: optimize: update once per hostgroup with added hosts
-      addHostToExistingConfigGroups(configGroupName, clusterName, hostname);
+    }
+
+    //todo: optimize: update once per hostgroup with added hosts
+    for (Map.Entry<String, String> entry : configGroupNameByHost.entrySet()) {
+      addHostToExistingConfigGroups(entry.getValue(), clusterName, entry.getKey());
     }
     return ((HostComponentResourceProvider) getResourceProvider(Resource.Type.HostComponent)).
         installAndStart(clusterName, addedHosts);
@@ -853,7 +867,8 @@ public class HostResourceProvider extends BaseBlueprintProcessor {
       if (null != hostRequest.getClusterName()) {
         Cluster cluster = clusters.getCluster(hostRequest.getClusterName());
 
-        List<ServiceComponentHost> list = cluster.getServiceComponentHosts(hostName);
+        List<ServiceComponentHost> list =
+            cluster.getTopologySnapshot().getServiceComponentHosts(hostName);
 
         if (0 != list.size()) {
           StringBuilder reason = new StringBuilder("Cannot remove host ")
@@ -571,7 +571,7 @@ public class ServiceResourceProvider extends AbstractControllerResourceProvider
       checkDesiredState = true;
     }
 
-    for (Service s : cluster.getServices().values()) {
+    for (Service s : cluster.getTopologySnapshot().getServices().values()) {
       if (checkDesiredState
           && (desiredStateToCheck != s.getDesiredState())) {
         // skip non matching state
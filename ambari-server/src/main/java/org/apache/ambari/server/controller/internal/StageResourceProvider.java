@@ -31,9 +31,13 @@ import java.util.Set;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
+import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.StaticallyInject;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.api.query.JpaQueryHelper;
 import org.apache.ambari.server.controller.AmbariManagementController;
+import org.apache.ambari.server.controller.predicate.AndPredicate;
+import org.apache.ambari.server.controller.predicate.EqualsPredicate;
 import org.apache.ambari.server.controller.spi.ExtendedResourceProvider;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
 import org.apache.ambari.server.controller.spi.NoSuchResourceException;
@@ -46,6 +50,7 @@ import org.apache.ambari.server.controller.spi.ResourceAlreadyExistsException;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.controller.utilities.PredicateBuilder;
+import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
@@ -98,6 +103,12 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
   public static final String STAGE_START_TIME = "Stage/start_time";
   public static final String STAGE_END_TIME = "Stage/end_time";
 
+  /**
+   * The cluster id of a stage. This is not a resource property; it is used to
+   * hand a {@link #STAGE_CLUSTER_NAME} predicate to the database.
+   */
+  public static final String STAGE_CLUSTER_ID = "Stage/cluster_id";
+
   /**
    * The property ids for a stage resource.
    */
@@ -210,6 +221,43 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
       throws SystemException, UnsupportedPropertyException,
       NoSuchResourceException, NoSuchParentResourceException {
 
+    return getResources(request, predicate, predicate);
+  }
+
+
+  // ----- ExtendedResourceProvider ------------------------------------------
+
+  @Override
+  public QueryResponse queryForResources(Request request, Predicate predicate)
+      throws SystemException, UnsupportedPropertyException,
+      NoSuchResourceException, NoSuchParentResourceException {
+
+    ensureClusters();
+
+    Predicate jpaPredicate = toJpaPredicate(predicate);
+    Set<Resource> results = getResources(request, predicate, jpaPredicate);
+
+    boolean sorted = dao.isSortSupported(request);
+    boolean paged = dao.isPageSupported(request, jpaPredicate);
+    int total = paged ? (int) dao.getCount(jpaPredicate) : results.size();
+
+    return new QueryResponseImpl(results, sorted, paged, total);
+  }
+
+  // ----- StageResourceProvider ---------------------------------------------
+
+  /**
+   * Get the stage resources which match the given JPA predicate.
+   *
+   * @param request       the request
+   * @param predicate     the predicate of the request
+   * @param jpaPredicate  the predicate to hand to the DAO
+   *
+   * @return the stage resources
+   */
+  private Set<Resource> getResources(Request request, Predicate predicate,
+      Predicate jpaPredicate) {
+
     ensureClusters();
 
     Set<Resource> results     = new LinkedHashSet<Resource>();
@@ -220,7 +268,7 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
     Map<Long, Map<Long, HostRoleCommandStatusSummaryDTO>> cache =
         new HashMap<Long, Map<Long, HostRoleCommandStatusSummaryDTO>>();
 
-    List<StageEntity> entities = dao.findAll(request, predicate);
+    List<StageEntity> entities = dao.findAll(request, jpaPredicate);
     for (StageEntity entity : entities) {
       results.add(toResource(cache, entity, propertyIds));
     }
@@ -230,21 +278,6 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
     return results;
   }
 
-
-  // ----- ExtendedResourceProvider ------------------------------------------
-
-  @Override
-  public QueryResponse queryForResources(Request request, Predicate predicate)
-      throws SystemException, UnsupportedPropertyException,
-      NoSuchResourceException, NoSuchParentResourceException {
-
-    Set<Resource> results = getResources(request, predicate);
-
-    return new QueryResponseImpl(results, request.getSortRequest() != null, false, results.size());
-  }
-
-  // ----- StageResourceProvider ---------------------------------------------
-
   /**
    * Update the stage identified by the given stage id with the desired status.
    *
@@ -362,6 +395,35 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
     return resource;
   }
 
+  /**
+   * Replace a cluster name equality at the top level of the given predicate
+   * with an equality on the cluster id so that the database can evaluate it.
+   *
+   * @param predicate  the predicate of the request
+   *
+   * @return the predicate to hand to the DAO
+   */
+  private Predicate toJpaPredicate(Predicate predicate) {
+    Object clusterName = PredicateHelper.getProperties(predicate).get(STAGE_CLUSTER_NAME);
+    if (null == clusterName) {
+      return predicate;
+    }
+
+    Cluster cluster;
+    try {
+      cluster = clusters.getCluster(clusterName.toString());
+    } catch (AmbariException e) {
+      // leave the cluster name for the in-memory evaluation of the predicate
+      return predicate;
+    }
+
+    Predicate remaining = JpaQueryHelper.removeEqualsPredicate(predicate, STAGE_CLUSTER_NAME);
+    Predicate clusterIdPredicate = new EqualsPredicate<Long>(STAGE_CLUSTER_ID, cluster.getClusterId());
+
+    return null == remaining ? clusterIdPredicate
+        : new AndPredicate(remaining, clusterIdPredicate);
+  }
+
   /**
    * Ensure that cluster information is available.
    *
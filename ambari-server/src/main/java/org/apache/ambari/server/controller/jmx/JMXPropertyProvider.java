@@ -203,35 +203,40 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
       return resource;
     }
 
-    InputStream in = null;
-
-    try {
+    for (String hostName : hostNames) {
+      InputStream in = null;
       try {
-        for (String hostName : hostNames) {
-          try {
-            in = streamProvider.readFrom(getSpec(protocol, hostName, port, "/jmx"));
-            // if the ticket becomes invalid (timeout) then bail out
-            if (!ticket.isValid()) {
-              return resource;
-            }
+        in = streamProvider.readFrom(getSpec(protocol, hostName, port, "/jmx"));
+        // if the ticket becomes invalid (timeout) then bail out
+        if (!ticket.isValid()) {
+          return resource;
+        }
 
-            getHadoopMetricValue(in, ids, resource, request, ticket);
+        getHadoopMetricValue(in, ids, resource, request, ticket);
 
-          } catch (IOException e) {
-            logException(e);
-          }
-        }
+      } catch (IOException e) {
+        logException(e);
       } finally {
-        if (in != null) {
-          in.close();
-        }
+        // close each stream so that the underlying connection can be reused
+        closeStream(in);
       }
-    } catch (IOException e) {
-      logException(e);
     }
     return resource;
   }
 
+  /**
+   * Close the given stream, logging any error.
+   */
+  private static void closeStream(InputStream in) {
+    if (in != null) {
+      try {
+        in.close();
+      } catch (IOException e) {
+        logException(e);
+      }
+    }
+  }
+
   /**
    * Hadoop-specific metrics fetching
    */
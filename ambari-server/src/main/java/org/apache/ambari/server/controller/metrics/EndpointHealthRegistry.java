@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the health of the endpoints (host:port) that the metric and
+ * JMX property providers read from.  Connection failures and timeouts are
+ * recorded per endpoint.  Once an endpoint has failed
+ * {@link #FAILURE_THRESHOLD} times in a row it is skipped for a backoff
+ * period, after which a single probe request is let through.  A successful
+ * probe marks the endpoint healthy again; a failed probe doubles the
+ * backoff, up to {@link #MAX_BACKOFF_MILLIS}.
+ */
+public class EndpointHealthRegistry {
+
+  /**
+   * The number of consecutive failures after which an endpoint is skipped.
+   */
+  public static final int FAILURE_THRESHOLD = 2;
+
+  /**
+   * The initial time that a failing endpoint is skipped.
+   */
+  public static final long INITIAL_BACKOFF_MILLIS = 30000L;
+
+  /**
+   * The maximum time that a failing endpoint is skipped.
+   */
+  public static final long MAX_BACKOFF_MILLIS = 300000L;
+
+  private static final EndpointHealthRegistry INSTANCE = new EndpointHealthRegistry();
+
+  private final ConcurrentMap<String, EndpointHealth> endpoints =
+      new ConcurrentHashMap<String, EndpointHealth>();
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  protected EndpointHealthRegistry() {
+  }
+
+  /**
+   * Get the registry shared by all of the property providers.
+   *
+   * @return the shared registry
+   */
+  public static EndpointHealthRegistry instance() {
+    return INSTANCE;
+  }
+
+
+  // ----- EndpointHealthRegistry --------------------------------------------
+
+  /**
+   * Determine whether or not a request should be made to the given endpoint.
+   * Returns true for a healthy endpoint and for the single probe request
+   * allowed once the backoff period of a failing endpoint has passed.
+   *
+   * @param endpoint  the endpoint (host:port)
+   *
+   * @return true if the request should be made
+   */
+  public boolean allowRequest(String endpoint) {
+    EndpointHealth health = endpoints.get(endpoint);
+    return health == null || health.allowRequest(currentTimeMillis());
+  }
+
+  /**
+   * Record a successful request to the given endpoint.
+   *
+   * @param endpoint  the endpoint (host:port)
+   */
+  public void recordSuccess(String endpoint) {
+    EndpointHealth health = endpoints.get(endpoint);
+    if (health != null) {
+      health.recordSuccess();
+    }
+  }
+
+  /**
+   * Record a connection failure or timeout for the given endpoint.
+   *
+   * @param endpoint  the endpoint (host:port)
+   */
+  public void recordFailure(String endpoint) {
+    EndpointHealth health = endpoints.get(endpoint);
+    if (health == null) {
+      health = new EndpointHealth();
+      EndpointHealth existing = endpoints.putIfAbsent(endpoint, health);
+      if (existing != null) {
+        health = existing;
+      }
+    }
+    health.recordFailure(currentTimeMillis());
+  }
+
+  /**
+   * Determine whether or not the given endpoint is currently being skipped.
+   *
+   * @param endpoint  the endpoint (host:port)
+   *
+   * @return true if requests to the endpoint are being skipped
+   */
+  public boolean isOpen(String endpoint) {
+    EndpointHealth health = endpoints.get(endpoint);
+    return health != null && health.isOpen();
+  }
+
+  /**
+   * Forget everything known about the endpoints.
+   */
+  public void clear() {
+    endpoints.clear();
+  }
+
+  /**
+   * Get the current time.  Overridden by tests.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+
+  // ----- inner class : EndpointHealth --------------------------------------
+
+  /**
+   * The health of a single endpoint.
+   */
+  private static class EndpointHealth {
+    private int consecutiveFailures = 0;
+    private long backoffMillis = INITIAL_BACKOFF_MILLIS;
+    private long retryTime = 0L;
+    private boolean probing = false;
+
+    synchronized boolean allowRequest(long now) {
+      if (!isOpen()) {
+        return true;
+      }
+      if (!probing && now >= retryTime) {
+        // half open; let a single probe through
+        probing = true;
+        return true;
+      }
+      return false;
+    }
+
+    synchronized void recordSuccess() {
+      consecutiveFailures = 0;
+      backoffMillis = INITIAL_BACKOFF_MILLIS;
+      probing = false;
+    }
+
+    synchronized void recordFailure(long now) {
+      if (probing) {
+        backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        probing = false;
+      }
+      ++consecutiveFailures;
+      if (isOpen()) {
+        retryTime = now + backoffMillis;
+      }
+    }
+
+    synchronized boolean isOpen() {
+      return consecutiveFailures >= FAILURE_THRESHOLD;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram for the calls made to a single metrics endpoint
+ * (host:port).  Histograms are kept in a shared registry so that the
+ * latencies of all the metric and JMX property providers can be inspected
+ * in one place.
+ */
+public class EndpointLatencyHistogram {
+
+  /**
+   * Upper bounds, in milliseconds, of the histogram buckets.  The last
+   * bucket holds everything above the highest bound.
+   */
+  public static final long[] BUCKET_BOUNDS =
+      {10L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L};
+
+  /**
+   * Shared registry of histograms keyed by endpoint.
+   */
+  private static final ConcurrentMap<String, EndpointLatencyHistogram> HISTOGRAMS =
+      new ConcurrentHashMap<String, EndpointLatencyHistogram>();
+
+  private final String endpoint;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong totalMillis = new AtomicLong();
+  private final AtomicLong maxMillis = new AtomicLong();
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  private EndpointLatencyHistogram(String endpoint) {
+    this.endpoint = endpoint;
+  }
+
+
+  // ----- EndpointLatencyHistogram ------------------------------------------
+
+  /**
+   * Get the histogram for the given endpoint, creating it if required.
+   *
+   * @param endpoint  the endpoint (host:port)
+   *
+   * @return the histogram for the endpoint
+   */
+  public static EndpointLatencyHistogram getHistogram(String endpoint) {
+    EndpointLatencyHistogram histogram = HISTOGRAMS.get(endpoint);
+    if (histogram == null) {
+      histogram = new EndpointLatencyHistogram(endpoint);
+      EndpointLatencyHistogram existing = HISTOGRAMS.putIfAbsent(endpoint, histogram);
+      if (existing != null) {
+        histogram = existing;
+      }
+    }
+    return histogram;
+  }
+
+  /**
+   * Get all of the known histograms keyed by endpoint.
+   *
+   * @return an unmodifiable view of the histograms
+   */
+  public static Map<String, EndpointLatencyHistogram> getHistograms() {
+    return Collections.unmodifiableMap(HISTOGRAMS);
+  }
+
+  /**
+   * Record the latency of a call to the endpoint.
+   *
+   * @param millis   the call latency in milliseconds
+   * @param success  false if the call failed
+   */
+  public void record(long millis, boolean success) {
+    int bucket = 0;
+    while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+      ++bucket;
+    }
+    buckets.incrementAndGet(bucket);
+    count.incrementAndGet();
+    totalMillis.addAndGet(millis);
+    if (!success) {
+      failures.incrementAndGet();
+    }
+
+    long max = maxMillis.get();
+    while (millis > max && !maxMillis.compareAndSet(max, millis)) {
+      max = maxMillis.get();
+    }
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * Get the number of calls recorded in each bucket.
+   *
+   * @return the bucket counts; one more entry than {@link #BUCKET_BOUNDS}
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[buckets.length()];
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] = buckets.get(i);
+    }
+    return counts;
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getFailureCount() {
+    return failures.get();
+  }
+
+  public long getMaxMillis() {
+    return maxMillis.get();
+  }
+
+  public long getMeanMillis() {
+    long calls = count.get();
+    return calls == 0 ? 0 : totalMillis.get() / calls;
+  }
+
+  @Override
+  public String toString() {
+    return "EndpointLatencyHistogram{" +
+        "endpoint='" + endpoint + '\'' +
+        ", count=" + getCount() +
+        ", failures=" + getFailureCount() +
+        ", meanMillis=" + getMeanMillis() +
+        ", maxMillis=" + getMaxMillis() +
+        '}';
+  }
+}
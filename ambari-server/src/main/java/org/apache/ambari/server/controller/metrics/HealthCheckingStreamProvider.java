@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import org.apache.ambari.server.controller.utilities.StreamProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stream provider that consults the {@link EndpointHealthRegistry} before
+ * reading from an endpoint.  Requests to endpoints that are known to be
+ * unreachable fail fast instead of waiting out the connect and read
+ * timeouts of the wrapped stream provider.
+ */
+public class HealthCheckingStreamProvider implements StreamProvider {
+
+  private final static Logger LOG =
+      LoggerFactory.getLogger(HealthCheckingStreamProvider.class);
+
+  private final StreamProvider streamProvider;
+  private final EndpointHealthRegistry healthRegistry;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  /**
+   * Create a health checking stream provider using the shared registry.
+   *
+   * @param streamProvider  the wrapped stream provider
+   */
+  public HealthCheckingStreamProvider(StreamProvider streamProvider) {
+    this(streamProvider, EndpointHealthRegistry.instance());
+  }
+
+  /**
+   * Create a health checking stream provider.
+   *
+   * @param streamProvider  the wrapped stream provider
+   * @param healthRegistry  the endpoint health registry
+   */
+  public HealthCheckingStreamProvider(StreamProvider streamProvider,
+                                      EndpointHealthRegistry healthRegistry) {
+    this.streamProvider = streamProvider;
+    this.healthRegistry = healthRegistry;
+  }
+
+
+  // ----- StreamProvider ----------------------------------------------------
+
+  @Override
+  public InputStream readFrom(String spec) throws IOException {
+    String endpoint = checkEndpoint(spec);
+    boolean recorded = false;
+    try {
+      InputStream in = streamProvider.readFrom(spec);
+      healthRegistry.recordSuccess(endpoint);
+      recorded = true;
+      return in;
+    } catch (IOException e) {
+      recordException(endpoint, e);
+      recorded = true;
+      throw e;
+    } finally {
+      if (!recorded) {
+        // unexpected error; count it as a failure so that a probe is not left pending
+        healthRegistry.recordFailure(endpoint);
+      }
+    }
+  }
+
+  @Override
+  public InputStream readFrom(String spec, String requestMethod, String params) throws IOException {
+    String endpoint = checkEndpoint(spec);
+    boolean recorded = false;
+    try {
+      InputStream in = streamProvider.readFrom(spec, requestMethod, params);
+      healthRegistry.recordSuccess(endpoint);
+      recorded = true;
+      return in;
+    } catch (IOException e) {
+      recordException(endpoint, e);
+      recorded = true;
+      throw e;
+    } finally {
+      if (!recorded) {
+        // unexpected error; count it as a failure so that a probe is not left pending
+        healthRegistry.recordFailure(endpoint);
+      }
+    }
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  /**
+   * Fail fast if the endpoint of the given spec is known to be unreachable.
+   *
+   * @return the endpoint of the spec
+   *
+   * @throws IOException if requests to the endpoint are being skipped
+   */
+  private String checkEndpoint(String spec) throws IOException {
+    String endpoint = LatencyRecordingStreamProvider.getEndpoint(spec);
+    if (!healthRegistry.allowRequest(endpoint)) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Skipping request to unreachable endpoint " + endpoint + " : spec=" + spec);
+      }
+      throw new ConnectException("Endpoint " + endpoint + " is unreachable; skipping request.");
+    }
+    return endpoint;
+  }
+
+  /**
+   * Record a failure for the endpoint if the given exception indicates that
+   * the endpoint could not be reached.  Other errors (bad responses, etc.)
+   * show that the endpoint is up.
+   */
+  private void recordException(String endpoint, IOException e) {
+    if (e instanceof ConnectException ||
+        e instanceof SocketTimeoutException ||
+        e instanceof NoRouteToHostException ||
+        e instanceof UnknownHostException) {
+      healthRegistry.recordFailure(endpoint);
+    } else {
+      healthRegistry.recordSuccess(endpoint);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.apache.ambari.server.controller.utilities.StreamProvider;
+
+/**
+ * Stream provider that wraps the stream provider shared by the metric and
+ * JMX property providers and records the latency of every call in the
+ * {@link EndpointLatencyHistogram} of the called endpoint.
+ */
+public class LatencyRecordingStreamProvider implements StreamProvider {
+
+  private final StreamProvider streamProvider;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  /**
+   * Create a latency recording stream provider.
+   *
+   * @param streamProvider  the wrapped stream provider
+   */
+  public LatencyRecordingStreamProvider(StreamProvider streamProvider) {
+    this.streamProvider = streamProvider;
+  }
+
+
+  // ----- StreamProvider ----------------------------------------------------
+
+  @Override
+  public InputStream readFrom(String spec) throws IOException {
+    long start = System.currentTimeMillis();
+    boolean success = false;
+    try {
+      InputStream in = streamProvider.readFrom(spec);
+      success = true;
+      return in;
+    } finally {
+      record(spec, start, success);
+    }
+  }
+
+  @Override
+  public InputStream readFrom(String spec, String requestMethod, String params) throws IOException {
+    long start = System.currentTimeMillis();
+    boolean success = false;
+    try {
+      InputStream in = streamProvider.readFrom(spec, requestMethod, params);
+      success = true;
+      return in;
+    } finally {
+      record(spec, start, success);
+    }
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  /**
+   * Get the endpoint (host:port) of the given spec.
+   *
+   * @param spec  the URL spec
+   *
+   * @return the endpoint of the spec; the spec itself if it can't be parsed
+   */
+  public static String getEndpoint(String spec) {
+    try {
+      URI uri = new URI(spec);
+      if (uri.getHost() != null) {
+        return uri.getHost() + ":" + uri.getPort();
+      }
+    } catch (Exception e) {
+      // fall through and use the spec as the endpoint
+    }
+    return spec;
+  }
+
+  private void record(String spec, long start, boolean success) {
+    EndpointLatencyHistogram.getHistogram(getEndpoint(spec)).record(
+        System.currentTimeMillis() - start, success);
+  }
+}
@@ -25,8 +25,16 @@ import org.apache.ambari.server.controller.spi.Request;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.SystemException;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -36,8 +44,10 @@ import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Unites common functionality for multithreaded metrics providers
@@ -60,6 +70,26 @@ public abstract class ThreadPoolEnabledPropertyProvider extends AbstractProperty
   private static final int THREAD_POOL_MAX_SIZE = 100;
   private static final long THREAD_POOL_TIMEOUT_MILLIS = 30000L;
 
+  /**
+   * The maximum number of pool threads that may be working on the resources
+   * of a single host at the same time.
+   */
+  protected static final int HOST_CONCURRENCY_LIMIT = 2;
+
+  /**
+   * Permits limiting the number of concurrent calls to a single host.
+   * Shared by all requests of all providers.  The permits are only
+   * weakly referenced, so the entries of hosts that are no longer queried,
+   * e.g. decommissioned ones, are collected once no call holds them.
+   */
+  private static final LoadingCache<String, Semaphore> HOST_PERMITS =
+      CacheBuilder.newBuilder().weakValues().build(new CacheLoader<String, Semaphore>() {
+        @Override
+        public Semaphore load(String hostName) {
+          return new Semaphore(HOST_CONCURRENCY_LIMIT);
+        }
+      });
+
   private static final long DEFAULT_POPULATE_TIMEOUT_MILLIS = 10000L;
   /**
    * The amount of time that this provider will wait for JMX metric values to be
@@ -120,33 +150,40 @@ public abstract class ThreadPoolEnabledPropertyProvider extends AbstractProperty
     // Get a valid ticket for the request.
     Ticket ticket = new Ticket();
 
-    CompletionService<Resource> completionService =
-        new ExecutorCompletionService<Resource>(EXECUTOR_SERVICE);
+    CompletionService<Set<Resource>> completionService =
+        new ExecutorCompletionService<Set<Resource>>(EXECUTOR_SERVICE);
 
     // In a large cluster we could have thousands of resources to populate here.
-    // Distribute the work across multiple threads.
-    for (Resource resource : resources) {
-      completionService.submit(getPopulateResourceCallable(resource, request, predicate, ticket));
+    // Distribute the work across multiple threads, but never run more than
+    // HOST_CONCURRENCY_LIMIT tasks against the same host so that a slow or
+    // dead host can't tie up the shared pool.
+    // Resources of a batch are populated one after another, so every call
+    // gets its own populateTimeout window rather than sharing one per batch.
+    AtomicLong lastProgress = new AtomicLong(System.currentTimeMillis());
+    List<List<Resource>> batches = getResourceBatches(resources);
+    for (List<Resource> batch : batches) {
+      completionService.submit(getPopulateResourceCallable(batch, request, predicate, ticket, lastProgress));
     }
 
     Set<Resource> keepers = new HashSet<Resource>();
     try {
-      for (int i = 0; i < resources.size(); ++ i) {
-        Future<Resource> resourceFuture =
-            completionService.poll(populateTimeout, TimeUnit.MILLISECONDS);
+      for (int i = 0; i < batches.size(); ++ i) {
+        Future<Set<Resource>> resourceFuture = null;
+        long wait = populateTimeout;
+        while (resourceFuture == null && wait > 0) {
+          resourceFuture = completionService.poll(wait, TimeUnit.MILLISECONDS);
+          wait = lastProgress.get() + populateTimeout - System.currentTimeMillis();
+        }
 
         if (resourceFuture == null) {
-          // its been more than the populateTimeout since the last callable completed ...
+          // its been more than the populateTimeout since the last resource was populated ...
           // invalidate the ticket to abort the threads and don't wait any longer
           ticket.invalidate();
           LOG.error(TIMED_OUT_MSG);
           break;
         } else {
           // future should already be completed... no need to wait on get
-          Resource resource = resourceFuture.get();
-          if (resource != null) {
-            keepers.add(resource);
-          }
+          keepers.addAll(resourceFuture.get());
         }
       }
     } catch (InterruptedException e) {
@@ -158,24 +195,119 @@ public abstract class ThreadPoolEnabledPropertyProvider extends AbstractProperty
   }
 
   /**
-   * Get a callable that can be used to populate the given resource.
+   * Split the given resources into batches that are populated by a single
+   * pool thread.  The resources of a host are spread over at most
+   * {@link #HOST_CONCURRENCY_LIMIT} batches.  Resources without a host are
+   * each given their own batch.
    *
-   * @param resource  the resource to be populated
-   * @param request   the request
-   * @param predicate the predicate
-   * @param ticket    a valid ticket
+   * @param resources  the resources to be populated
    *
-   * @return a callable that can be used to populate the given resource
+   * @return the list of resource batches
    */
-  private Callable<Resource> getPopulateResourceCallable(
-      final Resource resource, final Request request, final Predicate predicate, final Ticket ticket) {
-    return new Callable<Resource>() {
-      public Resource call() throws SystemException {
-        return populateResource(resource, request, predicate, ticket);
+  protected List<List<Resource>> getResourceBatches(Set<Resource> resources) {
+    List<List<Resource>> batches = new ArrayList<List<Resource>>();
+    Map<String, List<List<Resource>>> hostBatches = new HashMap<String, List<List<Resource>>>();
+    Map<String, Integer> hostCounts = new HashMap<String, Integer>();
+
+    for (Resource resource : resources) {
+      String hostName = getHostName(resource);
+
+      if (hostName == null) {
+        List<Resource> batch = new LinkedList<Resource>();
+        batch.add(resource);
+        batches.add(batch);
+        continue;
+      }
+
+      List<List<Resource>> batchesForHost = hostBatches.get(hostName);
+      if (batchesForHost == null) {
+        batchesForHost = new ArrayList<List<Resource>>(HOST_CONCURRENCY_LIMIT);
+        hostBatches.put(hostName, batchesForHost);
+        hostCounts.put(hostName, 0);
+      }
+
+      int count = hostCounts.get(hostName);
+      hostCounts.put(hostName, count + 1);
+
+      List<Resource> batch;
+      if (batchesForHost.size() < HOST_CONCURRENCY_LIMIT) {
+        batch = new LinkedList<Resource>();
+        batchesForHost.add(batch);
+        batches.add(batch);
+      } else {
+        batch = batchesForHost.get(count % HOST_CONCURRENCY_LIMIT);
+      }
+      batch.add(resource);
+    }
+    return batches;
+  }
+
+  /**
+   * Get a callable that can be used to populate the given resources.
+   *
+   * @param resources     the resources to be populated
+   * @param request       the request
+   * @param predicate     the predicate
+   * @param ticket        a valid ticket
+   * @param lastProgress  updated with the time each resource is populated
+   *
+   * @return a callable that can be used to populate the given resources
+   */
+  private Callable<Set<Resource>> getPopulateResourceCallable(
+      final List<Resource> resources, final Request request, final Predicate predicate,
+      final Ticket ticket, final AtomicLong lastProgress) {
+    return new Callable<Set<Resource>>() {
+      public Set<Resource> call() throws SystemException {
+        Set<Resource> populated = new HashSet<Resource>();
+        for (Resource resource : resources) {
+          if (!ticket.isValid()) {
+            // timed out; don't bother with the rest of the batch
+            break;
+          }
+          String hostName = getHostName(resource);
+          Semaphore permits = hostName == null ? null : HOST_PERMITS.getUnchecked(hostName);
+          if (permits != null) {
+            try {
+              if (!permits.tryAcquire(populateTimeout, TimeUnit.MILLISECONDS)) {
+                // the host is busy with other requests; skip it like a timed out call
+                LOG.error(TIMED_OUT_MSG + " Host " + hostName + " is busy with " +
+                    HOST_CONCURRENCY_LIMIT + " other metrics requests, skipping it.");
+                continue;
+              }
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              break;
+            }
+          }
+          try {
+            Resource result = populateResource(resource, request, predicate, ticket);
+            if (result != null) {
+              populated.add(result);
+            }
+          } finally {
+            if (permits != null) {
+              permits.release();
+            }
+            lastProgress.set(System.currentTimeMillis());
+          }
+        }
+        return populated;
       }
     };
   }
 
+  /**
+   * Get the host of the given resource.
+   *
+   * @param resource  the resource
+   *
+   * @return the host name; null if the resource has no host
+   */
+  private String getHostName(Resource resource) {
+    return hostNamePropertyId == null ? null :
+        (String) resource.getPropertyValue(hostNamePropertyId);
+  }
+
 
   /**
    * Populate a resource by obtaining the requested JMX properties.
@@ -39,10 +39,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +65,11 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
   private static final String METRIC_REGEXP_PATTERN = "\\([^)]*\\)";
   private static final int COLLECTOR_DEFAULT_PORT = 6188;
 
+  /**
+   * The maximum number of hosts sent to the collector in a single request.
+   */
+  private static final int HOST_BATCH_SIZE = 50;
+
   static {
     TIMELINE_APPID_MAP.put(HBASE_MASTER.name(), "HBASE");
     TIMELINE_APPID_MAP.put(HBASE_REGIONSERVER.name(), "HBASE");
@@ -99,16 +106,20 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
   }
 
   /**
-   * The information required to make a single call to the Metrics service.
+   * The information required to make a batched call to the Metrics service
+   * for all the resources of a cluster that share the same temporal info.
    */
   class MetricsRequest {
+    private final String clusterName;
     private final TemporalInfo temporalInfo;
     private final Map<String, Set<Resource>> resources = new HashMap<String, Set<Resource>>();
     private final Map<String, Set<String>> metrics = new HashMap<String, Set<String>>();
+    private final Map<String, Pattern> metricKeyPatterns = new HashMap<String, Pattern>();
     private final URIBuilder uriBuilder;
     private final String dummyHostName = "__SummaryInfo__";
 
-    private MetricsRequest(TemporalInfo temporalInfo, URIBuilder uriBuilder) {
+    private MetricsRequest(String clusterName, TemporalInfo temporalInfo, URIBuilder uriBuilder) {
+      this.clusterName = clusterName;
       this.temporalInfo = temporalInfo;
       this.uriBuilder = uriBuilder;
     }
@@ -136,8 +147,10 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
     }
 
     /**
-     * Populate the associated resources by making a call to the Metrics
-     * service.
+     * Populate the associated resources by making calls to the Metrics
+     * service. Resources are grouped by application id and the hosts of
+     * each group are queried together, so the number of calls does not grow
+     * with the number of hosts.
      *
      * @return a collection of populated resources
      * @throws SystemException if unable to populate the resources
@@ -149,80 +162,152 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
         return Collections.emptySet();
       }
 
-      for (Map.Entry<String, Set<Resource>> resourceEntry : resources.entrySet()) {
-        String hostname = resourceEntry.getKey();
-        Set<Resource> resourceSet = resourceEntry.getValue();
+      if (resources.isEmpty()) {
+        return Collections.emptySet();
+      }
 
-        for (Resource resource : resourceSet) {
-          String clusterName = (String) resource.getPropertyValue(clusterNamePropertyId);
+      // Check liveliness of host
+      if (!hostProvider.isCollectorHostLive(clusterName, TIMELINE_METRICS)) {
+        LOG.info("METRICS_COLLECTOR host is not live. Skip populating " +
+          "resources with metrics.");
+        return Collections.emptySet();
+      }
 
-          // Check liveliness of host
-          if (!hostProvider.isCollectorHostLive(clusterName, TIMELINE_METRICS)) {
-            LOG.info("METRICS_COLLECTOR host is not live. Skip populating " +
-              "resources with metrics.");
-            return Collections.emptySet();
-          }
+      // Check liveliness of Collector
+      if (!hostProvider.isCollectorComponentLive(clusterName, TIMELINE_METRICS)) {
+        LOG.info("METRICS_COLLECTOR is not live. Skip populating resources" +
+          " with metrics.");
+        return Collections.emptySet();
+      }
+
+      String metricsParam = getSetString(processRegexps(metrics.keySet()), -1);
+      List<Pattern> patterns = createPatterns(metrics.keySet());
 
-          // Check liveliness of Collector
-          if (!hostProvider.isCollectorComponentLive(clusterName, TIMELINE_METRICS)) {
-            LOG.info("METRICS_COLLECTOR is not live. Skip populating resources" +
-              " with metrics.");
-            return Collections.emptySet();
+      // appId -> hostname -> resources
+      Map<String, Map<String, Set<Resource>>> appResources =
+        new HashMap<String, Map<String, Set<Resource>>>();
+
+      for (Map.Entry<String, Set<Resource>> resourceEntry : resources.entrySet()) {
+        for (Resource resource : resourceEntry.getValue()) {
+          String appId = getAppId(resource);
+          Map<String, Set<Resource>> hostResources = appResources.get(appId);
+          if (hostResources == null) {
+            hostResources = new HashMap<String, Set<Resource>>();
+            appResources.put(appId, hostResources);
           }
+          Set<Resource> resourceSet = hostResources.get(resourceEntry.getKey());
+          if (resourceSet == null) {
+            resourceSet = new HashSet<Resource>();
+            hostResources.put(resourceEntry.getKey(), resourceSet);
+          }
+          resourceSet.add(resource);
+        }
+      }
 
-          String spec = getSpec(hostname, resource);
+      for (Map.Entry<String, Map<String, Set<Resource>>> appEntry : appResources.entrySet()) {
+        String appId = appEntry.getKey();
+        Map<String, Set<Resource>> hostResources = appEntry.getValue();
 
-          BufferedReader reader = null;
-          try {
-            LOG.debug("Metrics request url =" + spec);
-            reader = new BufferedReader(new InputStreamReader(streamProvider.readFrom(spec)));
+        Set<Resource> summaryResources = hostResources.remove(dummyHostName);
+        if (summaryResources != null) {
+          populateResources(metricsParam, appId, null, summaryResources,
+            Collections.<String, Set<Resource>>emptyMap(), patterns);
+        }
 
-            TimelineMetrics timelineMetrics = timelineObjectReader.readValue(reader);
-            LOG.debug("Timeline metrics response => " + timelineMetrics);
+        List<String> hostnames = new ArrayList<String>(hostResources.keySet());
+        for (int i = 0; i < hostnames.size(); i += HOST_BATCH_SIZE) {
+          List<String> batch = hostnames.subList(i, Math.min(i + HOST_BATCH_SIZE, hostnames.size()));
+          Set<Resource> batchResources = batch.size() == 1 ?
+            hostResources.get(batch.get(0)) : null;
+          populateResources(metricsParam, appId, batch, batchResources,
+            hostResources, patterns);
+        }
+      }
 
-            Set<String> patterns = createPatterns(metrics.keySet());
+      return Collections.emptySet();
+    }
 
-            for (TimelineMetric metric : timelineMetrics.getMetrics()) {
-              if (metric.getMetricName() != null
-                && metric.getMetricValues() != null
-                && checkMetricName(patterns, metric.getMetricName())) {
+    /**
+     * Make a single call to the Metrics service and demultiplex the returned
+     * metrics to the given resources.
+     *
+     * @param metricsParam    the metric names parameter
+     * @param appId           the application id; may be null
+     * @param hostnames       the hosts to query; null for summary metrics
+     * @param allResources    if not null, every returned metric is applied to
+     *                        all of these resources
+     * @param hostResources   the resources keyed by host name; used when
+     *                        allResources is null
+     * @param patterns        the compiled metric name matchers
+     */
+    private void populateResources(String metricsParam, String appId,
+                                   List<String> hostnames,
+                                   Set<Resource> allResources,
+                                   Map<String, Set<Resource>> hostResources,
+                                   List<Pattern> patterns) {
+
+      String spec = getSpec(metricsParam, appId, hostnames);
+
+      BufferedReader reader = null;
+      try {
+        LOG.debug("Metrics request url =" + spec);
+        reader = new BufferedReader(new InputStreamReader(streamProvider.readFrom(spec)));
+
+        TimelineMetrics timelineMetrics = timelineObjectReader.readValue(reader);
+        LOG.debug("Timeline metrics response => " + timelineMetrics);
+
+        for (TimelineMetric metric : timelineMetrics.getMetrics()) {
+          if (metric.getMetricName() != null
+            && metric.getMetricValues() != null
+            && checkMetricName(patterns, metric.getMetricName())) {
+
+            Set<Resource> resourceSet = allResources != null ?
+              allResources : hostResources.get(metric.getHostName());
+
+            if (resourceSet != null) {
+              for (Resource resource : resourceSet) {
                 populateResource(resource, metric);
               }
             }
+          }
+        }
 
-          } catch (IOException io) {
-            String errorMsg = "Error getting timeline metrics.";
-            if (LOG.isDebugEnabled()) {
-              LOG.error(errorMsg, io);
-            } else {
-              if (io instanceof SocketTimeoutException) {
-                errorMsg += " Can not connect to collector, socket error.";
-              }
-              LOG.error(errorMsg);
-            }
-          } finally {
-            if (reader != null) {
-              try {
-                reader.close();
-              } catch (IOException e) {
-                if (LOG.isWarnEnabled()) {
-                  if (LOG.isDebugEnabled()) {
-                    LOG.warn("Unable to close http input stream : spec=" + spec, e);
-                  } else {
-                    LOG.warn("Unable to close http input stream : spec=" + spec);
-                  }
-                }
+      } catch (IOException io) {
+        String errorMsg = "Error getting timeline metrics.";
+        if (LOG.isDebugEnabled()) {
+          LOG.error(errorMsg, io);
+        } else {
+          if (io instanceof SocketTimeoutException) {
+            errorMsg += " Can not connect to collector, socket error.";
+          }
+          LOG.error(errorMsg);
+        }
+      } finally {
+        if (reader != null) {
+          try {
+            reader.close();
+          } catch (IOException e) {
+            if (LOG.isWarnEnabled()) {
+              if (LOG.isDebugEnabled()) {
+                LOG.warn("Unable to close http input stream : spec=" + spec, e);
+              } else {
+                LOG.warn("Unable to close http input stream : spec=" + spec);
               }
             }
           }
         }
       }
+    }
 
-      return Collections.emptySet();
+    private String getAppId(Resource resource) {
+      String componentName = getComponentName(resource);
+      if (componentName != null && TIMELINE_APPID_MAP.containsKey(componentName)) {
+        return TIMELINE_APPID_MAP.get(componentName);
+      }
+      return componentName;
     }
 
-    private String getSpec(String hostname, Resource resource) {
-      String metricsParam = getSetString(processRegexps(metrics.keySet()), -1);
+    private String getSpec(String metricsParam, String appId, List<String> hostnames) {
       // Reuse uriBuilder
       uriBuilder.removeQuery();
 
@@ -230,16 +315,12 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
         uriBuilder.setParameter("metricNames", metricsParam);
       }
 
-      if (hostname != null && !hostname.isEmpty() && !hostname.equals(dummyHostName)) {
-        uriBuilder.setParameter("hostname", hostname);
+      if (hostnames != null && !hostnames.isEmpty()) {
+        uriBuilder.setParameter("hostname", getSetString(new LinkedHashSet<String>(hostnames), -1));
       }
 
-      String componentName = getComponentName(resource);
-      if (componentName != null && !componentName.isEmpty()) {
-        if (TIMELINE_APPID_MAP.containsKey(componentName)) {
-          componentName = TIMELINE_APPID_MAP.get(componentName);
-        }
-        uriBuilder.setParameter("appId", componentName);
+      if (appId != null && !appId.isEmpty()) {
+        uriBuilder.setParameter("appId", appId);
       }
 
       if (temporalInfo != null) {
@@ -257,9 +338,9 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
       return uriBuilder.toString();
     }
 
-    private Set<String> createPatterns(Set<String> rawNames) {
+    private List<Pattern> createPatterns(Set<String> rawNames) {
       Pattern pattern = Pattern.compile(METRIC_REGEXP_PATTERN);
-      Set<String> result = new HashSet<String>();
+      List<Pattern> result = new ArrayList<Pattern>(rawNames.size());
       for (String rawName : rawNames) {
         Matcher matcher = pattern.matcher(rawName);
         StringBuilder sb = new StringBuilder();
@@ -270,14 +351,14 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
           lastPos = matcher.end();
         }
         sb.append(Pattern.quote(rawName.substring(lastPos)));
-        result.add(sb.toString());
+        result.add(Pattern.compile(sb.toString()));
       }
       return result;
     }
 
-    private boolean checkMetricName(Set<String> patterns, String name) {
-      for (String pattern : patterns) {
-        if (Pattern.matches(pattern, name)) {
+    private boolean checkMetricName(List<Pattern> patterns, String name) {
+      for (Pattern pattern : patterns) {
+        if (pattern.matcher(name).matches()) {
           return true;
         }
       }
@@ -300,7 +381,11 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
       if (propertyIdSet == null) {
         for (Map.Entry<String, Set<String>> entry : metrics.entrySet()) {
           String key = entry.getKey();
-          Pattern pattern = Pattern.compile(key);
+          Pattern pattern = metricKeyPatterns.get(key);
+          if (pattern == null) {
+            pattern = Pattern.compile(key);
+            metricKeyPatterns.put(key, pattern);
+          }
           Matcher matcher = pattern.matcher(metric_name);
 
           if (matcher.matches()) {
@@ -436,7 +521,7 @@ public abstract class AMSPropertyProvider extends MetricsPropertyProvider {
 
             MetricsRequest metricsRequest = requests.get(temporalInfo);
             if (metricsRequest == null) {
-              metricsRequest = new MetricsRequest(temporalInfo,
+              metricsRequest = new MetricsRequest(clusterName, temporalInfo,
                 getAMSUriBuilder(collectorHostName,
                   collectorPort != null ? Integer.parseInt(collectorPort) : COLLECTOR_DEFAULT_PORT));
               requests.put(temporalInfo, metricsRequest);
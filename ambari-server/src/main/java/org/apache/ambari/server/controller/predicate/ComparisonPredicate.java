@@ -29,30 +29,43 @@ import java.text.ParsePosition;
 public abstract class ComparisonPredicate<T> extends PropertyPredicate implements BasePredicate {
   private final Comparable<T> value;
   private final String stringValue;
-  private final Double doubleValue;
+  private final boolean numeric;
+  private final double doubleValue;
 
   protected ComparisonPredicate(String propertyId, Comparable<T> value) {
     super(propertyId);
     this.value = value;
 
+    Double parsedValue = null;
     if (value instanceof Number) {
       stringValue = null;
-      doubleValue = ((Number) value).doubleValue();
+      parsedValue = ((Number) value).doubleValue();
     }
     else if (value instanceof String) {
       stringValue = (String) value;
-      doubleValue = stringToDouble(stringValue);
+      parsedValue = stringToDouble(stringValue);
     }
     else {
       stringValue = null;
-      doubleValue = null;
     }
+    numeric     = parsedValue != null;
+    doubleValue = numeric ? parsedValue : 0.0;
   }
 
   public Comparable<T> getValue() {
     return value;
   }
 
+  /**
+   * Determine whether the value of this predicate is compared to property
+   * values as a number.
+   *
+   * @return true if the predicate value is a number or a numeric string
+   */
+  public boolean isNumericValue() {
+    return numeric;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -76,15 +89,31 @@ public abstract class ComparisonPredicate<T> extends PropertyPredicate implement
     visitor.acceptComparisonPredicate(this);
   }
 
+  @Override
+  public boolean evaluate(Resource resource) {
+    return evaluateValue(resource.getPropertyValue(getPropertyId()));
+  }
+
+  /**
+   * Evaluate this predicate against an already resolved property value.
+   * This allows compiled predicates to resolve the property value without
+   * going through {@link Resource#getPropertyValue(String)}.
+   *
+   * @param propertyValue  the property value; may be null
+   *
+   * @return the result of applying this predicate to the given value
+   */
+  public abstract boolean evaluateValue(Object propertyValue);
+
   protected int compareValueTo(Object propertyValue) throws ClassCastException{
-    if (doubleValue != null) {
+    if (numeric) {
       if (propertyValue instanceof Number) {
-        return doubleValue.compareTo(((Number) propertyValue).doubleValue());
+        return Double.compare(doubleValue, ((Number) propertyValue).doubleValue());
       }
       else if (propertyValue instanceof String) {
         Double doubleFromString = stringToDouble((String) propertyValue);
         if (doubleFromString != null) {
-          return (int) (doubleValue - doubleFromString);
+          return Double.compare(doubleValue, doubleFromString);
         }
       }
     }
@@ -95,17 +124,56 @@ public abstract class ComparisonPredicate<T> extends PropertyPredicate implement
     return getValue().compareTo((T) propertyValue);
   }
 
-  private Double stringToDouble(String stringValue) {
+  /**
+   * Convert the given string to a double.  Strings that can't be numbers are
+   * rejected by looking at the first character so that the common case of
+   * comparing names and states does not allocate a parser.
+   *
+   * @param stringValue  the string to convert
+   *
+   * @return the double value or null if the string is not a number
+   */
+  private static Double stringToDouble(String stringValue) {
     if (stringValue == null || stringValue.isEmpty()) {
       return null;
     }
+    char first = stringValue.charAt(0);
+    if (!Character.isDigit(first) && first != '-' && first != '+' && first != '.') {
+      return null;
+    }
+    if (isPlainDecimal(stringValue)) {
+      return Double.parseDouble(stringValue);
+    }
     ParsePosition parsePosition = new ParsePosition(0);
     NumberFormat  numberFormat  = NumberFormat.getInstance();
-    Number        parsedNumber  = numberFormat.parse((String) value, parsePosition);
+    Number        parsedNumber  = numberFormat.parse(stringValue, parsePosition);
 
     return parsePosition.getIndex() == stringValue.length() ? parsedNumber.doubleValue() : null;
   }
 
+  /**
+   * Determine whether the given string is a plain decimal number
+   * (optional sign, digits and at most one decimal point).
+   */
+  private static boolean isPlainDecimal(String stringValue) {
+    int     length = stringValue.length();
+    int     start  = stringValue.charAt(0) == '-' ? 1 : 0;
+    boolean digits = false;
+    boolean point  = false;
+
+    for (int i = start; i < length; ++i) {
+      char c = stringValue.charAt(i);
+      if (Character.isDigit(c) && c < 128) {
+        digits = true;
+      } else if (c == '.' && !point) {
+        point = true;
+      } else {
+        return false;
+      }
+    }
+    return digits;
+  }
+
   public abstract String getOperator();
 
   public abstract ComparisonPredicate<T> copy(String propertyId);
@@ -17,7 +17,6 @@
  */
 package org.apache.ambari.server.controller.predicate;
 
-import org.apache.ambari.server.controller.spi.Resource;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -48,8 +47,7 @@ public class FilterPredicate extends ComparisonPredicate {
   }
 
   @Override
-  public boolean evaluate(Resource resource) {
-    Object propertyValue =  resource.getPropertyValue(getPropertyId());
+  public boolean evaluateValue(Object propertyValue) {
     matcher.reset(propertyValue != null ? propertyValue.toString() : emptyString);
 
     return patternExpr == null ?
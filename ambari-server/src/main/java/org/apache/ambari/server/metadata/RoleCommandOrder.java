@@ -247,6 +247,32 @@ public class RoleCommandOrder {
     return 0;
   }
 
+  /**
+   * Returns the nodes which the role command order requires to run before the
+   * given node. Only the explicit dependencies are considered; unlike
+   * {@link #order(RoleGraphNode, RoleGraphNode)} the default ordering of
+   * different commands is not.
+   *
+   * @param rgn the node which may be blocked
+   * @param nodes the candidate blocking nodes, keyed by their role
+   * @return the blocking nodes; empty list if none
+   */
+  public List<RoleGraphNode> getBlockers(RoleGraphNode rgn, Map<Role, RoleGraphNode> nodes) {
+    List<RoleGraphNode> blockers = new ArrayList<RoleGraphNode>();
+    Set<RoleCommandPair> blockerPairs = this.dependencies.get(
+        new RoleCommandPair(rgn.getRole(), rgn.getCommand()));
+    if (blockerPairs != null) {
+      for (RoleCommandPair blockerPair : blockerPairs) {
+        RoleGraphNode blocker = nodes.get(blockerPair.getRole());
+        if (blocker != null && blocker != rgn
+            && blocker.getCommand().equals(blockerPair.getCmd())) {
+          blockers.add(blocker);
+        }
+      }
+    }
+    return blockers;
+  }
+
   /**
    * Returns transitive dependencies as a services list
    * @param service to check if it depends on another services
@@ -18,6 +18,10 @@
 
 package org.apache.ambari.server.orm.dao;
 
+import static org.apache.ambari.server.orm.DBAccessor.DbType.ORACLE;
+import static org.apache.ambari.server.orm.dao.DaoUtils.ORACLE_LIST_LIMIT;
+
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -29,6 +33,8 @@ import org.apache.ambari.server.orm.entities.StageEntity;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -38,6 +44,9 @@ public class HostDAO {
   @Inject
   Provider<EntityManager> entityManagerProvider;
 
+  @Inject
+  DaoUtils daoUtils;
+
   /**
    * Looks for Host by ID
    * @param id ID of Host
@@ -60,6 +69,36 @@ public class HostDAO {
     }
   }
 
+  /**
+   * Looks up all hosts with the given names in as few queries as the
+   * database allows.  Names that do not match a host are ignored.
+   *
+   * @param hostNames names of the hosts
+   * @return the found entities, in no particular order
+   */
+  @RequiresSession
+  public List<HostEntity> findByNames(Collection<String> hostNames) {
+    if (hostNames == null || hostNames.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    TypedQuery<HostEntity> query = entityManagerProvider.get().createQuery(
+        "SELECT host FROM HostEntity host WHERE host.hostName IN ?1", HostEntity.class);
+
+    if (daoUtils.getDbType().equals(ORACLE) && hostNames.size() > ORACLE_LIST_LIMIT) {
+      List<HostEntity> result = new ArrayList<HostEntity>();
+
+      List<List<String>> lists = Lists.partition(new ArrayList<String>(hostNames), ORACLE_LIST_LIMIT);
+      for (List<String> list : lists) {
+        result.addAll(daoUtils.selectList(query, list));
+      }
+
+      return result;
+    }
+
+    return daoUtils.selectList(query, hostNames);
+  }
+
   @RequiresSession
   public List<HostEntity> findAll() {
     TypedQuery<HostEntity> query = entityManagerProvider.get().createQuery("SELECT host FROM HostEntity host", HostEntity.class);
@@ -31,11 +31,23 @@ import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.api.query.JpaPredicateVisitor;
+import org.apache.ambari.server.api.query.JpaQueryHelper;
+import org.apache.ambari.server.api.query.JpaSortBuilder;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Request;
+import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.entities.HostEntity;
 import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
+import org.apache.ambari.server.orm.entities.HostRoleCommandEntity_;
 import org.apache.ambari.server.orm.entities.StageEntity;
 
 import com.google.common.collect.Lists;
@@ -416,4 +428,155 @@ public class HostRoleCommandDAO {
     return map;
   }
 
+  /**
+   * Finds all {@link HostRoleCommandEntity} that match the provided
+   * {@link Predicate}. The predicate and sort request are converted into JPA
+   * criteria; if the whole predicate could be converted, the page of the
+   * request is also taken by the database.
+   *
+   * @param request
+   *          the request with the sort and page to apply (not {@code null}).
+   * @param predicate
+   *          the predicate, or {@code null} for all tasks.
+   * @return the matching tasks (never {@code null}).
+   */
+  @RequiresSession
+  public List<HostRoleCommandEntity> findAll(Request request, Predicate predicate) {
+    EntityManager entityManager = entityManagerProvider.get();
+
+    // convert the Ambari predicate into a JPA predicate
+    TaskPredicateVisitor visitor = new TaskPredicateVisitor();
+    PredicateHelper.visit(predicate, visitor);
+
+    CriteriaQuery<HostRoleCommandEntity> query = visitor.getCriteriaQuery();
+    javax.persistence.criteria.Predicate jpaPredicate = visitor.getJpaPredicate();
+
+    if (jpaPredicate != null) {
+      query.where(jpaPredicate);
+    }
+
+    // sorting
+    JpaSortBuilder<HostRoleCommandEntity> sortBuilder = new JpaSortBuilder<HostRoleCommandEntity>();
+    List<Order> sortOrders = sortBuilder.buildSortOrders(request.getSortRequest(), visitor);
+
+    boolean paged = JpaQueryHelper.isPageSupported(request, visitor);
+
+    // a page is only stable over a deterministic order
+    if (paged && sortOrders.isEmpty()) {
+      sortOrders = Collections.singletonList(
+          visitor.getCriteriaBuilder().asc(visitor.getRoot().get(HostRoleCommandEntity_.taskId)));
+    }
+
+    query.orderBy(sortOrders);
+
+    TypedQuery<HostRoleCommandEntity> typedQuery = entityManager.createQuery(query);
+
+    if (paged) {
+      JpaQueryHelper.applyPage(typedQuery, request.getPageRequest());
+    }
+
+    return daoUtils.selectList(typedQuery);
+  }
+
+  /**
+   * Gets the number of {@link HostRoleCommandEntity} that match the provided
+   * {@link Predicate}. This is used as the total count of a paged response
+   * from {@link #findAll(Request, Predicate)}.
+   *
+   * @param predicate
+   *          the predicate, or {@code null} for all tasks.
+   * @return the number of matching tasks.
+   */
+  @RequiresSession
+  public long getCount(Predicate predicate) {
+    EntityManager entityManager = entityManagerProvider.get();
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Root<HostRoleCommandEntity> root = query.from(HostRoleCommandEntity.class);
+
+    TaskPredicateVisitor visitor = new TaskPredicateVisitor(root);
+    PredicateHelper.visit(predicate, visitor);
+
+    query.select(builder.count(root));
+
+    javax.persistence.criteria.Predicate jpaPredicate = visitor.getJpaPredicate();
+    if (jpaPredicate != null) {
+      query.where(jpaPredicate);
+    }
+
+    Long count = daoUtils.selectSingle(entityManager.createQuery(query));
+    return null == count ? 0 : count;
+  }
+
+  /**
+   * Gets whether {@link #findAll(Request, Predicate)} will return exactly the
+   * requested page, sorted as requested, for the given request and predicate.
+   *
+   * @param request
+   *          the request (not {@code null}).
+   * @param predicate
+   *          the predicate, or {@code null} for all tasks.
+   * @return {@code true} if the database takes the page of the request.
+   */
+  public boolean isPageSupported(Request request, Predicate predicate) {
+    TaskPredicateVisitor visitor = new TaskPredicateVisitor();
+    PredicateHelper.visit(predicate, visitor);
+    return JpaQueryHelper.isPageSupported(request, visitor);
+  }
+
+  /**
+   * Gets whether {@link #findAll(Request, Predicate)} will fully sort the
+   * results for the given request.
+   *
+   * @param request
+   *          the request (not {@code null}).
+   * @return {@code true} if the request has a sort which the database applies.
+   */
+  public boolean isSortSupported(Request request) {
+    return null != request.getSortRequest()
+        && JpaQueryHelper.isSortSupported(request.getSortRequest(), new TaskPredicateVisitor());
+  }
+
+  /**
+   * The {@link TaskPredicateVisitor} is used to convert an Ambari
+   * {@link Predicate} into a JPA {@link javax.persistence.criteria.Predicate}.
+   */
+  private final class TaskPredicateVisitor extends
+      JpaPredicateVisitor<HostRoleCommandEntity> {
+
+    /**
+     * Constructor.
+     */
+    public TaskPredicateVisitor() {
+      super(entityManagerProvider.get(), HostRoleCommandEntity.class);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param root
+     *          the root of an existing query.
+     */
+    public TaskPredicateVisitor(Root<HostRoleCommandEntity> root) {
+      super(entityManagerProvider.get(), root);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Class<HostRoleCommandEntity> getEntityClass() {
+      return HostRoleCommandEntity.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<? extends SingularAttribute<?, ?>> getPredicateMapping(
+        String propertyId) {
+      return HostRoleCommandEntity_.getPredicateMapping().get(propertyId);
+    }
+  }
 }
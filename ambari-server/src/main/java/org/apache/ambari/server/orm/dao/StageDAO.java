@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.orm.dao;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -27,12 +28,15 @@ import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.api.query.JpaPredicateVisitor;
+import org.apache.ambari.server.api.query.JpaQueryHelper;
 import org.apache.ambari.server.api.query.JpaSortBuilder;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.Request;
@@ -204,6 +208,19 @@ public class StageDAO {
     // sorting
     JpaSortBuilder<StageEntity> sortBuilder = new JpaSortBuilder<StageEntity>();
     List<Order> sortOrders = sortBuilder.buildSortOrders(request.getSortRequest(), visitor);
+
+    boolean paged = JpaQueryHelper.isPageSupported(request, visitor);
+
+    // a page is only stable over a deterministic order
+    if (paged && sortOrders.isEmpty()) {
+      CriteriaBuilder builder = visitor.getCriteriaBuilder();
+      Root<StageEntity> root = visitor.getRoot();
+
+      sortOrders = new ArrayList<Order>(2);
+      sortOrders.add(builder.asc(root.get(StageEntity_.requestId)));
+      sortOrders.add(builder.asc(root.get(StageEntity_.stageId)));
+    }
+
     query.orderBy(sortOrders);
 
     TypedQuery<StageEntity> typedQuery = entityManager.createQuery(query);
@@ -213,9 +230,73 @@ public class StageDAO {
     // the associated StageEntity to be stale
     typedQuery.setHint(QueryHints.REFRESH, HintValues.TRUE);
 
+    if (paged) {
+      JpaQueryHelper.applyPage(typedQuery, request.getPageRequest());
+    }
+
     return daoUtils.selectList(typedQuery);
   }
 
+  /**
+   * Gets the number of {@link StageEntity} that match the provided
+   * {@link Predicate}. This is used as the total count of a paged response
+   * from {@link #findAll(Request, Predicate)}.
+   *
+   * @param predicate
+   *          the predicate, or {@code null} for all stages.
+   * @return the number of matching stages.
+   */
+  @RequiresSession
+  public long getCount(Predicate predicate) {
+    EntityManager entityManager = entityManagerProvider.get();
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Root<StageEntity> root = query.from(StageEntity.class);
+
+    StagePredicateVisitor visitor = new StagePredicateVisitor(root);
+    PredicateHelper.visit(predicate, visitor);
+
+    query.select(builder.count(root));
+
+    javax.persistence.criteria.Predicate jpaPredicate = visitor.getJpaPredicate();
+    if (jpaPredicate != null) {
+      query.where(jpaPredicate);
+    }
+
+    Long count = daoUtils.selectSingle(entityManager.createQuery(query));
+    return null == count ? 0 : count;
+  }
+
+  /**
+   * Gets whether {@link #findAll(Request, Predicate)} will return exactly the
+   * requested page, sorted as requested, for the given request and predicate.
+   *
+   * @param request
+   *          the request (not {@code null}).
+   * @param predicate
+   *          the predicate, or {@code null} for all stages.
+   * @return {@code true} if the database takes the page of the request.
+   */
+  public boolean isPageSupported(Request request, Predicate predicate) {
+    StagePredicateVisitor visitor = new StagePredicateVisitor();
+    PredicateHelper.visit(predicate, visitor);
+    return JpaQueryHelper.isPageSupported(request, visitor);
+  }
+
+  /**
+   * Gets whether {@link #findAll(Request, Predicate)} will fully sort the
+   * results for the given request.
+   *
+   * @param request
+   *          the request (not {@code null}).
+   * @return {@code true} if the request has a sort which the database applies.
+   */
+  public boolean isSortSupported(Request request) {
+    return null != request.getSortRequest()
+        && JpaQueryHelper.isSortSupported(request.getSortRequest(), new StagePredicateVisitor());
+  }
+
   /**
    * The {@link org.apache.ambari.server.orm.dao.StageDAO.StagePredicateVisitor} is used to convert an Ambari
    * {@link org.apache.ambari.server.controller.spi.Predicate} into a JPA {@link javax.persistence.criteria.Predicate}.
@@ -231,6 +312,16 @@ public class StageDAO {
       super(entityManagerProvider.get(), StageEntity.class);
     }
 
+    /**
+     * Constructor.
+     *
+     * @param root
+     *          the root of an existing query.
+     */
+    public StagePredicateVisitor(Root<StageEntity> root) {
+      super(entityManagerProvider.get(), root);
+    }
+
     /**
      * {@inheritDoc}
      */
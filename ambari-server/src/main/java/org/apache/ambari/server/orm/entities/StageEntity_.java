@@ -61,6 +61,9 @@ public class StageEntity_ {
   public static Map<String, List<? extends SingularAttribute<StageEntity, ?>>> getPredicateMapping() {
     Map<String, List<? extends SingularAttribute<StageEntity, ?>>> mapping = new HashMap<String, List<? extends SingularAttribute<StageEntity, ?>>>();
 
+    mapping.put(StageResourceProvider.STAGE_CLUSTER_ID,
+        Collections.singletonList(clusterId));
+
     mapping.put(StageResourceProvider.STAGE_REQUEST_ID,
         Collections.singletonList(requestId));
 
@@ -522,14 +522,26 @@ public class Users {
     final Map<String, UserEntity> allUsers = new HashMap<String, UserEntity>();
     final Map<String, GroupEntity> allGroups = new HashMap<String, GroupEntity>();
 
+    // lower cased name lookups matching the userByName, localUserByName,
+    // ldapUserByName and groupByName queries, so that no query is issued per item
+    final Map<String, UserEntity> localUsersByName = new HashMap<String, UserEntity>();
+    final Map<String, UserEntity> ldapUsersByName = new HashMap<String, UserEntity>();
+    final Map<String, GroupEntity> groupsByName = new HashMap<String, GroupEntity>();
+
     // prefetch all user and group data to avoid heavy queries in membership creation
 
     for (UserEntity userEntity: userDAO.findAll()) {
       allUsers.put(userEntity.getUserName(), userEntity);
+      if (userEntity.getLdapUser()) {
+        ldapUsersByName.put(userEntity.getUserName().toLowerCase(), userEntity);
+      } else {
+        localUsersByName.put(userEntity.getUserName().toLowerCase(), userEntity);
+      }
     }
 
     for (GroupEntity groupEntity: groupDAO.findAll()) {
       allGroups.put(groupEntity.getGroupName(), groupEntity);
+      groupsByName.put(groupEntity.getGroupName().toLowerCase(), groupEntity);
     }
 
     final PrincipalTypeEntity userPrincipalType = principalTypeDAO
@@ -540,7 +552,10 @@ public class Users {
     // remove users
     final Set<UserEntity> usersToRemove = new HashSet<UserEntity>();
     for (String userName: batchInfo.getUsersToBeRemoved()) {
-      UserEntity userEntity = userDAO.findUserByName(userName);
+      UserEntity userEntity = ldapUsersByName.get(userName.toLowerCase());
+      if (userEntity == null) {
+        userEntity = localUsersByName.get(userName.toLowerCase());
+      }
       if (userEntity == null) {
         continue;
       }
@@ -552,7 +567,7 @@ public class Users {
     // remove groups
     final Set<GroupEntity> groupsToRemove = new HashSet<GroupEntity>();
     for (String groupName: batchInfo.getGroupsToBeRemoved()) {
-      final GroupEntity groupEntity = groupDAO.findGroupByName(groupName);
+      final GroupEntity groupEntity = groupsByName.get(groupName.toLowerCase());
       allGroups.remove(groupEntity.getGroupName());
       groupsToRemove.add(groupEntity);
     }
@@ -561,9 +576,9 @@ public class Users {
     // update users
     final Set<UserEntity> usersToBecomeLdap = new HashSet<UserEntity>();
     for (String userName: batchInfo.getUsersToBecomeLdap()) {
-      UserEntity userEntity = userDAO.findLocalUserByName(userName);
+      UserEntity userEntity = localUsersByName.get(userName.toLowerCase());
       if (userEntity == null) {
-        userEntity = userDAO.findLdapUserByName(userName);
+        userEntity = ldapUsersByName.get(userName.toLowerCase());
         if (userEntity == null) {
           continue;
         }
@@ -577,7 +592,7 @@ public class Users {
     // update groups
     final Set<GroupEntity> groupsToBecomeLdap = new HashSet<GroupEntity>();
     for (String groupName: batchInfo.getGroupsToBecomeLdap()) {
-      final GroupEntity groupEntity = groupDAO.findGroupByName(groupName);
+      final GroupEntity groupEntity = groupsByName.get(groupName.toLowerCase());
       groupEntity.setLdapGroup(true);
       allGroups.put(groupEntity.getGroupName(), groupEntity);
       groupsToBecomeLdap.add(groupEntity);
@@ -643,9 +658,14 @@ public class Users {
     // remove membership
     final Set<MemberEntity> membersToRemove = new HashSet<MemberEntity>();
     for (LdapUserGroupMemberDto member: batchInfo.getMembershipToRemove()) {
-      MemberEntity memberEntity = memberDAO.findByUserAndGroup(member.getUserName(), member.getGroupName());
-      if (memberEntity != null) {
-        membersToRemove.add(memberEntity);
+      final GroupEntity groupEntity = groupsByName.get(member.getGroupName().toLowerCase());
+      if (groupEntity == null) {
+        continue;
+      }
+      for (MemberEntity memberEntity: groupEntity.getMemberEntities()) {
+        if (memberEntity.getUser().getUserName().equalsIgnoreCase(member.getUserName())) {
+          membersToRemove.add(memberEntity);
+        }
       }
     }
     memberDAO.remove(membersToRemove);
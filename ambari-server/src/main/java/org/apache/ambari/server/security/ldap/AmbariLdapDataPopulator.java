@@ -17,6 +17,7 @@
  */
 package org.apache.ambari.server.security.ldap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -26,8 +27,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import javax.naming.InvalidNameException;
 import javax.naming.NamingException;
 import javax.naming.directory.Attributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.ldap.LdapName;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.configuration.Configuration;
@@ -40,8 +44,11 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.ldap.core.AttributesMapper;
 import org.springframework.ldap.core.ContextMapper;
 import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.control.PagedResultsCookie;
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
 import org.springframework.ldap.core.LdapTemplate;
 import org.springframework.ldap.core.support.LdapContextSource;
+import org.springframework.ldap.core.support.SingleContextSource;
 import org.springframework.ldap.filter.AndFilter;
 import org.springframework.ldap.filter.EqualsFilter;
 import org.springframework.ldap.filter.Filter;
@@ -170,6 +177,10 @@ public class AmbariLdapDataPopulator {
     final Map<String, Group> internalGroupsMap = getInternalGroups();
     final Map<String, User> internalUsersMap = getInternalUsers();
 
+    final boolean bulkSync = configuration.isLdapBulkSyncEnabled();
+    final Map<String, LdapUserDto> memberIndex = bulkSync ? getExternalLdapMemberIndex() : null;
+    final Map<String, Map<String, User>> internalMemberships = bulkSync ? getInternalMemberships(internalUsersMap) : null;
+
     for (LdapGroupDto groupDto : externalLdapGroupInfo) {
       String groupName = groupDto.getGroupName();
       if (internalGroupsMap.containsKey(groupName)) {
@@ -181,7 +192,11 @@ public class AmbariLdapDataPopulator {
       } else {
         batchInfo.getGroupsToBeCreated().add(groupName);
       }
-      refreshGroupMembers(batchInfo, groupDto, internalUsersMap);
+      if (bulkSync) {
+        refreshGroupMembersFromIndex(batchInfo, groupDto, internalUsersMap, memberIndex, internalMemberships);
+      } else {
+        refreshGroupMembers(batchInfo, groupDto, internalUsersMap);
+      }
     }
     for (Entry<String, Group> internalGroup : internalGroupsMap.entrySet()) {
       if (internalGroup.getValue().isLdapGroup()) {
@@ -306,6 +321,27 @@ public class AmbariLdapDataPopulator {
     final Map<String, Group> internalGroupsMap = getInternalGroups();
     final Map<String, User> internalUsersMap = getInternalUsers();
 
+    if (configuration.isLdapBulkSyncEnabled()) {
+      final Map<String, LdapGroupDto> externalGroups = new HashMap<String, LdapGroupDto>();
+      for (LdapGroupDto groupDto : getExternalLdapGroupInfo()) {
+        externalGroups.put(groupDto.getGroupName(), groupDto);
+      }
+      final Map<String, LdapUserDto> memberIndex = getExternalLdapMemberIndex();
+      final Map<String, Map<String, User>> internalMemberships = getInternalMemberships(internalUsersMap);
+
+      for (Group group : internalGroupsMap.values()) {
+        if (group.isLdapGroup()) {
+          LdapGroupDto groupDto = externalGroups.get(group.getGroupName().toLowerCase());
+          if (groupDto == null) {
+            batchInfo.getGroupsToBeRemoved().add(group.getGroupName());
+          } else {
+            refreshGroupMembersFromIndex(batchInfo, groupDto, internalUsersMap, memberIndex, internalMemberships);
+          }
+        }
+      }
+      return batchInfo;
+    }
+
     for (Group group : internalGroupsMap.values()) {
       if (group.isLdapGroup()) {
         Set<LdapGroupDto> groupDtos = getLdapGroups(group.getGroupName());
@@ -329,6 +365,19 @@ public class AmbariLdapDataPopulator {
   public LdapBatchDto synchronizeExistingLdapUsers(LdapBatchDto batchInfo) throws AmbariException {
     final Map<String, User> internalUsersMap = getInternalUsers();
 
+    if (configuration.isLdapBulkSyncEnabled()) {
+      final Set<String> externalUserNames = new HashSet<String>();
+      for (LdapUserDto userDto : getExternalLdapUserInfo()) {
+        externalUserNames.add(userDto.getUserName());
+      }
+      for (User user : internalUsersMap.values()) {
+        if (user.isLdapUser() && !externalUserNames.contains(user.getUserName().toLowerCase())) {
+          batchInfo.getUsersToBeRemoved().add(user.getUserName());
+        }
+      }
+      return batchInfo;
+    }
+
     for (User user : internalUsersMap.values()) {
       if (user.isLdapUser()) {
         Set<LdapUserDto> userDtos = getLdapUsers(user.getUserName());
@@ -359,7 +408,40 @@ public class AmbariLdapDataPopulator {
       }
     }
     String groupName = group.getGroupName();
-    final Map<String, User> internalMembers = getInternalMembers(groupName);
+    updateGroupMembers(batchInfo, groupName, externalMembers, internalUsers, getInternalMembers(groupName));
+  }
+
+  /**
+   * Check group members of the synced group against an index of all LDAP users
+   * built up front, so that no LDAP query is issued per member. Member attribute
+   * values that don't match any indexed user are ignored, just as they are when
+   * the per-member search finds nothing.
+   *
+   * @param batchInfo            batch update object
+   * @param group                ldap group
+   * @param internalUsers        map of internal users
+   * @param memberIndex          LDAP users keyed by normalized DN and uid
+   * @param internalMemberships  internal members keyed by lower cased group name
+   */
+  protected void refreshGroupMembersFromIndex(LdapBatchDto batchInfo, LdapGroupDto group,
+      Map<String, User> internalUsers, Map<String, LdapUserDto> memberIndex,
+      Map<String, Map<String, User>> internalMemberships) {
+    Set<String> externalMembers = new HashSet<String>();
+    for (String memberAttributeValue: group.getMemberAttributes()) {
+      LdapUserDto groupMember = memberIndex.get(memberAttributeValue);
+      if (groupMember != null) {
+        externalMembers.add(groupMember.getUserName());
+      }
+    }
+    String groupName = group.getGroupName();
+    Map<String, User> internalMembers = internalMemberships.get(groupName.toLowerCase());
+    internalMembers = internalMembers == null ? new HashMap<String, User>() : new HashMap<String, User>(internalMembers);
+    updateGroupMembers(batchInfo, groupName, externalMembers, internalUsers, internalMembers);
+  }
+
+  // add missing members of the given group and remove the ones absent in external LDAP
+  private void updateGroupMembers(LdapBatchDto batchInfo, String groupName, Set<String> externalMembers,
+                                  Map<String, User> internalUsers, Map<String, User> internalMembers) {
     for (String externalMember: externalMembers) {
       if (internalUsers.containsKey(externalMember)) {
         final User user = internalUsers.get(externalMember);
@@ -479,9 +561,7 @@ public class AmbariLdapDataPopulator {
 
   private Set<LdapGroupDto> getFilteredLdapGroups(Filter filter) {
     final Set<LdapGroupDto> groups = new HashSet<LdapGroupDto>();
-    final LdapTemplate ldapTemplate = loadLdapTemplate();
-    String baseDn = ldapServerProperties.getBaseDN();
-    ldapTemplate.search(baseDn, filter.encode(), new LdapGroupContextMapper(groups, ldapServerProperties));
+    search(filter, new LdapGroupContextMapper(groups, ldapServerProperties));
     return groups;
   }
 
@@ -496,6 +576,55 @@ public class AmbariLdapDataPopulator {
     return getFilteredLdapUsers(userObjectFilter);
   }
 
+  /**
+   * Retrieves all users from external LDAP server and indexes them by the values
+   * a group membership attribute may hold, i.e. the normalized DN and the
+   * lower cased uid.
+   *
+   * @return map of member attribute value to LDAP user
+   */
+  protected Map<String, LdapUserDto> getExternalLdapMemberIndex() {
+    final Map<String, LdapUserDto> memberIndex = new HashMap<String, LdapUserDto>();
+    for (LdapUserDto userDto : getExternalLdapUserInfo()) {
+      if (userDto.getDn() != null) {
+        memberIndex.put(userDto.getDn(), userDto);
+      }
+      if (userDto.getUid() != null && !memberIndex.containsKey(userDto.getUid())) {
+        memberIndex.put(userDto.getUid(), userDto);
+      }
+    }
+    return memberIndex;
+  }
+
+  /**
+   * Normalizes the given distinguished name so that equal DNs compare equal as
+   * strings. The DN is parsed, attribute types and values are lower cased,
+   * whitespace around separators is dropped and values are escaped the same
+   * way. A value that is not a DN, such as a uid, is just lower cased.
+   *
+   * @param name  the distinguished name or other member attribute value
+   *
+   * @return the normalized value
+   */
+  protected static String normalizeDn(String name) {
+    try {
+      LdapName ldapName = new LdapName(name);
+      StringBuilder normalized = new StringBuilder();
+      // RDNs are indexed from the rightmost one
+      for (int i = ldapName.size() - 1; i >= 0; i--) {
+        if (normalized.length() > 0) {
+          normalized.append(',');
+        }
+        normalized.append(ldapName.getRdn(i).toString().toLowerCase());
+      }
+      return normalized.toString();
+    } catch (InvalidNameException e) {
+      return name.toLowerCase();
+    } catch (IllegalArgumentException e) {
+      return name.toLowerCase();
+    }
+  }
+
   // get the user for the given distinguished name; null if not found
   private LdapUserDto getLdapUser(String distinguishedName) {
     final LdapTemplate ldapTemplate = loadLdapTemplate();
@@ -513,10 +642,8 @@ public class AmbariLdapDataPopulator {
 
   private Set<LdapUserDto> getFilteredLdapUsers(Filter filter) {
     final Set<LdapUserDto> users = new HashSet<LdapUserDto>();
-    final LdapTemplate ldapTemplate = loadLdapTemplate();
-    String baseDn = ldapServerProperties.getBaseDN();
 
-    for (Object dto: ldapTemplate.search(baseDn, filter.encode(), new LdapUserContextMapper(ldapServerProperties))) {
+    for (Object dto: search(filter, new LdapUserContextMapper(ldapServerProperties))) {
       if (dto != null ) {
         users.add((LdapUserDto) dto);
       }
@@ -524,6 +651,39 @@ public class AmbariLdapDataPopulator {
     return users;
   }
 
+  // search the base DN with the given filter; paged if bulk synchronization is enabled
+  private List<?> search(Filter filter, ContextMapper contextMapper) {
+    final LdapTemplate ldapTemplate = loadLdapTemplate();
+    final String baseDn = ldapServerProperties.getBaseDN();
+    final int pageSize = configuration.isLdapBulkSyncEnabled() ? configuration.getLdapSyncPageSize() : 0;
+    if (pageSize < 1) {
+      return ldapTemplate.search(baseDn, filter.encode(), contextMapper);
+    }
+
+    // the paged results cookie is only valid on the connection that issued it
+    final SingleContextSource singleContextSource =
+        new SingleContextSource(ldapTemplate.getContextSource().getReadOnlyContext());
+    try {
+      final LdapTemplate singleLdapTemplate = new LdapTemplate(singleContextSource);
+      singleLdapTemplate.setIgnorePartialResultException(true);
+
+      final SearchControls searchControls = new SearchControls();
+      searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+
+      final List<Object> results = new ArrayList<Object>();
+      PagedResultsCookie cookie = null;
+      do {
+        final PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(pageSize, cookie);
+        results.addAll(singleLdapTemplate.search(baseDn, filter.encode(), searchControls, contextMapper, processor));
+        cookie = processor.getCookie();
+      } while (cookie != null && cookie.getCookie() != null);
+
+      return results;
+    } finally {
+      singleContextSource.destroy();
+    }
+  }
+
   /**
    * Creates a map of internal groups.
    *
@@ -570,6 +730,27 @@ public class AmbariLdapDataPopulator {
     return internalMembersMap;
   }
 
+  /**
+   * Creates a map of internal group memberships from already loaded internal users.
+   *
+   * @param internalUsers map of internal users
+   * @return map of lower cased group name to map of UserName-User pairs
+   */
+  protected Map<String, Map<String, User>> getInternalMemberships(Map<String, User> internalUsers) {
+    final Map<String, Map<String, User>> internalMemberships = new HashMap<String, Map<String, User>>();
+    for (User user : internalUsers.values()) {
+      for (String groupName : user.getGroups()) {
+        Map<String, User> members = internalMemberships.get(groupName.toLowerCase());
+        if (members == null) {
+          members = new HashMap<String, User>();
+          internalMemberships.put(groupName.toLowerCase(), members);
+        }
+        members.put(user.getUserName(), user);
+      }
+    }
+    return internalMemberships;
+  }
+
   /**
    * Checks LDAP configuration for changes and reloads LDAP template if they occurred.
    *
@@ -651,7 +832,7 @@ public class AmbariLdapDataPopulator {
         final String[] uniqueMembers = adapter.getStringAttributes(ldapServerProperties.getGroupMembershipAttr());
         if (uniqueMembers != null) {
           for (String uniqueMember: uniqueMembers) {
-            group.getMemberAttributes().add(uniqueMember.toLowerCase());
+            group.getMemberAttributes().add(normalizeDn(uniqueMember));
           }
         }
         groups.add(group);
@@ -677,7 +858,7 @@ public class AmbariLdapDataPopulator {
         final LdapUserDto user = new LdapUserDto();
         user.setUserName(usernameAttribute != null ? usernameAttribute.toLowerCase() : null);
         user.setUid(uidAttribute != null ? uidAttribute.toLowerCase() : null);
-        user.setDn(adapter.getNameInNamespace().toLowerCase());
+        user.setDn(normalizeDn(adapter.getNameInNamespace()));
         return user;
       } else {
         LOG.warn("Ignoring LDAP user " + adapter.getNameInNamespace() + " as it doesn't have required" +
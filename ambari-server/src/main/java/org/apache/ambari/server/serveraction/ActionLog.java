@@ -89,10 +89,13 @@ public class ActionLog {
   private void write(StringBuffer buffer, String message) {
     if (message != null) {
       Date date = new Date();
-      buffer.append(dateFormat.format(date));
-      buffer.append(" - ");
-      buffer.append(message);
-      buffer.append("\n");
+      // keep each message on its own line when several threads log to the same action
+      synchronized (buffer) {
+        buffer.append(dateFormat.format(date));
+        buffer.append(" - ");
+        buffer.append(message);
+        buffer.append("\n");
+      }
     }
   }
 
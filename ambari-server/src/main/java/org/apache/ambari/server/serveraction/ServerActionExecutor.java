@@ -33,6 +33,13 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Server Action Executor used to execute server-side actions (or tasks)
@@ -41,6 +48,15 @@ import java.util.concurrent.ConcurrentMap;
  * HostRoleCommands queued for execution.  It is expected that this thread is managed by the
  * ActionScheduler such that it is started when the ActionScheduler is started and stopped when the
  * ActionScheduler is stopped.
+ * <p/>
+ * Queued tasks are handed to a fixed number of single threaded lanes, chosen by hashing the
+ * request and stage of the task, so that the tasks of a stage run one after another in the order
+ * they were queued while tasks of independent stages run concurrently.  The number of tasks
+ * running at the same time for a single cluster can be limited as well; a task is only handed to
+ * a lane once a permit for its cluster is available, otherwise it stays queued until the next poll.
+ * <p/>
+ * A task is marked IN_PROGRESS when its lane starts executing it, and is skipped if it was no
+ * longer QUEUED by then (for instance because its stage was aborted or timed out meanwhile).
  */
 @StaticallyInject
 public class ServerActionExecutor {
@@ -97,6 +113,35 @@ public class ServerActionExecutor {
    */
   private Thread executorThread = null;
 
+  /**
+   * Single threaded executors running the tasks; the tasks of a stage always use the same lane.
+   */
+  private final ExecutorService[] lanes;
+
+  /**
+   * The maximum number of tasks running at the same time for a single cluster.
+   */
+  private final int maxTasksPerCluster;
+
+  /**
+   * Permits limiting the number of running tasks, keyed by cluster name.
+   */
+  private final ConcurrentMap<String, Semaphore> clusterPermits =
+      new ConcurrentHashMap<String, Semaphore>();
+
+  /**
+   * The IDs of the tasks handed to a lane which have not completed yet; they are still QUEUED
+   * until their lane starts executing them and must not be dispatched again.
+   */
+  private final Set<Long> dispatchedTasks =
+      Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+  /**
+   * Execution times keyed by server action classname.
+   */
+  private final ConcurrentMap<String, ActionMetrics> actionMetrics =
+      new ConcurrentHashMap<String, ActionMetrics>();
+
   /**
    * Statically initialize the Injector
    * <p/>
@@ -109,15 +154,37 @@ public class ServerActionExecutor {
   }
 
   /**
-   * Creates a new ServerActionExecutor
+   * Creates a new ServerActionExecutor which executes one task at a time
    *
    * @param db          the ActionDBAccessor to use to read and update tasks
    * @param sleepTimeMS the time (in milliseconds) to wait between polling the database for more tasks
    */
   public ServerActionExecutor(ActionDBAccessor db, long sleepTimeMS) {
+    this(db, sleepTimeMS, 1, 1);
+  }
+
+  /**
+   * Creates a new ServerActionExecutor
+   *
+   * @param db                 the ActionDBAccessor to use to read and update tasks
+   * @param sleepTimeMS        the time (in milliseconds) to wait between polling the database for
+   *                           more tasks
+   * @param threads            the maximum number of tasks executed at the same time
+   * @param maxTasksPerCluster the maximum number of tasks executed at the same time for a single
+   *                           cluster
+   */
+  public ServerActionExecutor(ActionDBAccessor db, long sleepTimeMS, int threads,
+                              int maxTasksPerCluster) {
     this.serverHostName = StageUtils.getHostName();
     this.db = db;
     this.sleepTimeMS = (sleepTimeMS < 1) ? POLLING_TIMEOUT_MS : sleepTimeMS;
+    this.maxTasksPerCluster = (maxTasksPerCluster < 1) ? 1 : maxTasksPerCluster;
+
+    lanes = new ExecutorService[(threads < 1) ? 1 : threads];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = Executors.newSingleThreadExecutor(
+          new LaneThreadFactory(String.format("Server Action Executor Lane %d", i)));
+    }
   }
 
   /**
@@ -138,7 +205,7 @@ public class ServerActionExecutor {
               activeAwakeRequest = false;
             }
 
-            doWork();
+            dispatch();
           } catch (InterruptedException e) {
             LOG.warn("Server Action Executor thread interrupted, starting to shutdown...");
             break;
@@ -187,6 +254,20 @@ public class ServerActionExecutor {
     } else {
       LOG.warn("Server Action Executor thread hasn't stopped, giving up waiting.");
     }
+
+    // Interrupt the running tasks, they are left IN_PROGRESS as if the server was stopped
+    for (ExecutorService lane : lanes) {
+      lane.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the execution times of the server actions executed so far.
+   *
+   * @return a map of server action classnames to their execution times
+   */
+  public Map<String, ActionMetrics> getActionMetrics() {
+    return Collections.unmodifiableMap(actionMetrics);
   }
 
   /**
@@ -332,12 +413,33 @@ public class ServerActionExecutor {
   /**
    * Execute the logic to handle each task in the queue in the order in which it was queued.
    * <p/>
-   * A single task is executed at one time, allowing for a specified (ExecutionCommand.KeyNames.COMMAND_TIMEOUT)
-   * or the default timeout for it to complete before considering the task timed out.
+   * Tasks of different stages may be executed concurrently, each allowing for a specified
+   * (ExecutionCommand.KeyNames.COMMAND_TIMEOUT) or the default timeout for it to complete before
+   * considering the task timed out.  This method returns once all of the tasks found have been
+   * handled; tasks waiting for a permit of their cluster are left queued for the next call.
    *
    * @throws InterruptedException
    */
   public void doWork() throws InterruptedException {
+    for (Future<?> future : dispatch()) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        LOG.warn("Server action task failed unexpectedly", e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Hands each task in the queue for which a permit of its cluster is available to the lane of its
+   * stage without waiting for it to complete.
+   *
+   * @return the futures of the dispatched tasks
+   * @throws InterruptedException
+   */
+  private List<Future<?>> dispatch() throws InterruptedException {
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+
     List<HostRoleCommand> tasks = db.getTasksByHostRoleAndStatus(serverHostName,
         Role.AMBARI_SERVER_ACTION.toString(), HostRoleStatus.QUEUED);
     
@@ -351,9 +453,21 @@ public class ServerActionExecutor {
     }
 
     if ((tasks != null) && !tasks.isEmpty()) {
+      // Stages with a task waiting for a cluster permit, their later tasks have to wait as well
+      Set<String> deferredStages = new HashSet<String>();
+
       for (HostRoleCommand task : tasks) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+
         Long taskId = task.getTaskId();
 
+        if (dispatchedTasks.contains(taskId)) {
+          LOG.debug("Task #{} is waiting to be executed, skipping.", taskId);
+          continue;
+        }
+
         LOG.debug("Processing task #{}", taskId);
 
         if (task.getStatus() == HostRoleStatus.QUEUED) {
@@ -363,35 +477,25 @@ public class ServerActionExecutor {
             ExecutionCommand executionCommand = executionWrapper.getExecutionCommand();
 
             if (executionCommand != null) {
-              // For now, execute only one task at a time. This may change in the future in the
-              // event it is discovered that this is a bottleneck. Since this implementation may
-              // change, it should be noted from outside of this class, that there is no expectation
-              // that tasks will be processed in order or serially.
-              Worker worker = new Worker(task, executionCommand);
-              Thread workerThread = new Thread(worker, String.format("Server Action Executor Worker %s", taskId));
-              Long timeout = determineTimeout(executionCommand);
-
-              updateHostRoleState(task, executionCommand, createInProgressReport());
-
-              LOG.debug("Starting Server Action Executor Worker thread for task #{}.", taskId);
-              workerThread.start();
-
-              try {
-                workerThread.join(timeout);
-              } catch (InterruptedException e) {
-                // Make sure the workerThread is interrupted as well.
-                workerThread.interrupt();
-                throw e;
+              String stageKey = task.getRequestId() + "-" + task.getStageId();
+              Semaphore permits = getClusterPermits(executionCommand.getClusterName());
+
+              // Only hand the task to its lane once it may run, so that a busy cluster does not
+              // hold up the tasks of other clusters sharing the lane
+              if (deferredStages.contains(stageKey) || !permits.tryAcquire()) {
+                LOG.debug("Task #{} is waiting for cluster {}, deferring.", taskId,
+                    executionCommand.getClusterName());
+                deferredStages.add(stageKey);
+                continue;
               }
 
-              if (workerThread.isAlive()) {
-                LOG.debug("Server Action Executor Worker thread for task #{} timed out - it failed to complete within {} ms.",
-                    taskId, timeout);
-                workerThread.interrupt();
-                updateHostRoleState(task, executionCommand, createTimedOutReport());
-              } else {
-                LOG.debug("Server Action Executor Worker thread for task #{} exited on its own.", taskId);
-                updateHostRoleState(task, executionCommand, worker.getCommandReport());
+              dispatchedTasks.add(taskId);
+              try {
+                futures.add(getLane(task).submit(new TaskRunner(task, executionCommand, permits)));
+              } catch (RejectedExecutionException e) {
+                LOG.warn("Task #{} could not be handed to its lane, skipping.", taskId);
+                dispatchedTasks.remove(taskId);
+                permits.release();
               }
             } else {
               LOG.warn("Task #{} failed to produce an ExecutionCommand, skipping.", taskId);
@@ -407,6 +511,217 @@ public class ServerActionExecutor {
     }
 
     cleanRequestShareDataContexts();
+    return futures;
+  }
+
+  /**
+   * Gets the lane executing the tasks of the stage of the task.
+   *
+   * @param task the task to execute
+   * @return the lane
+   */
+  private ExecutorService getLane(HostRoleCommand task) {
+    long stageKey = task.getRequestId() * 31 + task.getStageId();
+    int hash = (int) (stageKey ^ (stageKey >>> 32));
+    return lanes[(hash & Integer.MAX_VALUE) % lanes.length];
+  }
+
+  /**
+   * Gets the permits limiting the number of tasks running at the same time for a cluster.
+   *
+   * @param clusterName the cluster name, may be null
+   * @return the permits for the cluster
+   */
+  private Semaphore getClusterPermits(String clusterName) {
+    String key = (clusterName == null) ? "" : clusterName;
+    Semaphore permits = clusterPermits.get(key);
+
+    if (permits == null) {
+      permits = new Semaphore(maxTasksPerCluster);
+      Semaphore existing = clusterPermits.putIfAbsent(key, permits);
+      if (existing != null) {
+        permits = existing;
+      }
+    }
+
+    return permits;
+  }
+
+  /**
+   * Executes a single task in a Worker thread, waiting for it to complete or time out, and
+   * stores the resulting status of the task.
+   *
+   * @param task             the HostRoleCommand for the relevant task
+   * @param executionCommand the ExecutionCommand for the relevant task
+   * @throws InterruptedException
+   */
+  private void execute(HostRoleCommand task, ExecutionCommand executionCommand)
+      throws InterruptedException {
+    Long taskId = task.getTaskId();
+    Worker worker = new Worker(task, executionCommand);
+    Thread workerThread = new Thread(worker, String.format("Server Action Executor Worker %s", taskId));
+    Long timeout = determineTimeout(executionCommand);
+
+    LOG.debug("Starting Server Action Executor Worker thread for task #{}.", taskId);
+    workerThread.start();
+
+    try {
+      workerThread.join(timeout);
+    } catch (InterruptedException e) {
+      // Make sure the workerThread is interrupted as well.
+      workerThread.interrupt();
+      throw e;
+    }
+
+    if (workerThread.isAlive()) {
+      LOG.debug("Server Action Executor Worker thread for task #{} timed out - it failed to complete within {} ms.",
+          taskId, timeout);
+      workerThread.interrupt();
+      updateHostRoleState(task, executionCommand, createTimedOutReport());
+    } else {
+      LOG.debug("Server Action Executor Worker thread for task #{} exited on its own.", taskId);
+      updateHostRoleState(task, executionCommand, worker.getCommandReport());
+    }
+  }
+
+  /**
+   * Internal class to run a task on its lane, holding a permit of its cluster
+   */
+  private class TaskRunner implements Runnable {
+    /**
+     * The HostRoleCommand for the relevant task
+     */
+    private final HostRoleCommand hostRoleCommand;
+
+    /**
+     * The ExecutionCommand for the relevant task
+     */
+    private final ExecutionCommand executionCommand;
+
+    /**
+     * The permits of the cluster of the task, one of which was acquired for it
+     */
+    private final Semaphore permits;
+
+    private TaskRunner(HostRoleCommand hostRoleCommand, ExecutionCommand executionCommand,
+                       Semaphore permits) {
+      this.hostRoleCommand = hostRoleCommand;
+      this.executionCommand = executionCommand;
+      this.permits = permits;
+    }
+
+    @Override
+    public void run() {
+      Long taskId = hostRoleCommand.getTaskId();
+
+      try {
+        // The stage may have been aborted or timed out while the task was waiting on its lane
+        HostRoleCommand current = db.getTask(taskId);
+        HostRoleStatus status = (current == null) ? null : current.getStatus();
+        if (status != HostRoleStatus.QUEUED) {
+          LOG.info("Task #{} is expected to have a status of {} but has a status of {}, skipping.",
+              taskId, HostRoleStatus.QUEUED, status);
+          return;
+        }
+
+        updateHostRoleState(hostRoleCommand, executionCommand, createInProgressReport());
+
+        long startTime = System.currentTimeMillis();
+        ServerActionExecutor.this.execute(hostRoleCommand, executionCommand);
+        long duration = System.currentTimeMillis() - startTime;
+
+        Map<String, String> roleParams = executionCommand.getRoleParams();
+        String actionClassname = (roleParams == null) ? null : roleParams.get(ServerAction.ACTION_NAME);
+        if (actionClassname != null) {
+          getActionMetrics(actionClassname).record(duration);
+        }
+
+        LOG.debug("Task #{} ({}) was handled in {} ms", taskId, actionClassname, duration);
+      } catch (InterruptedException e) {
+        LOG.warn("Server Action Executor lane interrupted while handling task #{}.", taskId);
+        Thread.currentThread().interrupt();
+      } finally {
+        dispatchedTasks.remove(taskId);
+        permits.release();
+
+        // Tasks may be waiting for the permit
+        awake();
+      }
+    }
+  }
+
+  /**
+   * Gets the execution times of a server action, creating them if needed.
+   *
+   * @param actionClassname the classname of the server action
+   * @return the execution times
+   */
+  private ActionMetrics getActionMetrics(String actionClassname) {
+    ActionMetrics metrics = actionMetrics.get(actionClassname);
+
+    if (metrics == null) {
+      metrics = new ActionMetrics();
+      ActionMetrics existing = actionMetrics.putIfAbsent(actionClassname, metrics);
+      if (existing != null) {
+        metrics = existing;
+      }
+    }
+
+    return metrics;
+  }
+
+  /**
+   * Execution times of a server action
+   */
+  public static class ActionMetrics {
+    private long count = 0;
+    private long totalTimeMS = 0;
+    private long maxTimeMS = 0;
+
+    private synchronized void record(long timeMS) {
+      count++;
+      totalTimeMS += timeMS;
+      maxTimeMS = Math.max(maxTimeMS, timeMS);
+    }
+
+    /**
+     * @return the number of executed tasks
+     */
+    public synchronized long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the total time (in milliseconds) spent executing tasks
+     */
+    public synchronized long getTotalTimeMS() {
+      return totalTimeMS;
+    }
+
+    /**
+     * @return the longest time (in milliseconds) spent executing a single task
+     */
+    public synchronized long getMaxTimeMS() {
+      return maxTimeMS;
+    }
+  }
+
+  /**
+   * Creates the named daemon threads of the lanes
+   */
+  private static class LaneThreadFactory implements ThreadFactory {
+    private final String name;
+
+    private LaneThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    }
   }
 
   /**
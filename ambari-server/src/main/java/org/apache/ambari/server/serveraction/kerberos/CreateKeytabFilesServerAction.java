@@ -33,10 +33,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import static org.apache.ambari.server.serveraction.kerberos.KerberosActionDataFile.HOSTNAME;
@@ -77,8 +77,11 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
   /**
    * A map of data used to track what has been processed in order to optimize the creation of keytabs
    * such as knowing when to create a cached keytab file or use a cached keytab file.
+   * <p/>
+   * Identities may be processed on several threads, but all of the records of a principal are
+   * processed by the same thread, so only this map needs to be thread-safe.
    */
-  Map<String, Set<String>> visitedIdentities = new HashMap<String, Set<String>>();
+  Map<String, Set<String>> visitedIdentities = new ConcurrentHashMap<String, Set<String>>();
 
   /**
    * Called to execute this action.  Upon invocation, calls
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.serveraction.kerberos;
+
+import org.apache.ambari.server.utils.ShellCommandUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * KAdminSession is a long-lived kadmin (or kadmin.local) process used to execute many queries
+ * without starting a new process, and authenticating again, for each one.
+ * <p/>
+ * Queries are written to the process one per line.  kadmin prints a prompt (for example
+ * <code>kadmin:  </code>) when it is ready to read the next query, so everything written to STDOUT
+ * and STDERR between two prompts is taken as the output of the query.  If the process exits rather
+ * than prompting, the session is over and the output is returned as the error of an unsuccessful
+ * {@link org.apache.ambari.server.utils.ShellCommandUtil.Result}.
+ * <p/>
+ * A KAdminSession is not thread-safe.
+ */
+public class KAdminSession {
+
+  private final static Logger LOG = LoggerFactory.getLogger(KAdminSession.class);
+
+  /**
+   * The kadmin command line, without a query
+   */
+  private final String[] command;
+
+  /**
+   * The prompt kadmin prints when it is waiting for a query; the name of the executable followed by
+   * a colon and two spaces
+   */
+  private final String prompt;
+
+  private Process process = null;
+  private Reader reader = null;
+  private Writer writer = null;
+
+  /**
+   * Creates a new (not yet started) KAdminSession
+   *
+   * @param command the kadmin command line, starting with the path of the kadmin executable and
+   *                holding the options used to authenticate, but no query
+   */
+  public KAdminSession(String[] command) {
+    if ((command == null) || (command.length == 0)) {
+      throw new IllegalArgumentException("Missing kadmin command");
+    }
+
+    this.command = command;
+    this.prompt = new File(command[0]).getName() + ":  ";
+  }
+
+  /**
+   * Starts the kadmin process and waits for it to be ready for queries.
+   *
+   * @return a successful ShellCommandUtil.Result if kadmin is ready; otherwise an unsuccessful
+   * ShellCommandUtil.Result holding the exit code and output of kadmin
+   * @throws IOException if the process cannot be started or read from
+   */
+  public ShellCommandUtil.Result start() throws IOException {
+    if (process != null) {
+      throw new IllegalStateException("The kadmin session has already been started");
+    }
+
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.redirectErrorStream(true);
+
+    process = builder.start();
+    reader = new InputStreamReader(process.getInputStream());
+    writer = new OutputStreamWriter(process.getOutputStream());
+
+    return readResponse();
+  }
+
+  /**
+   * Executes a query in the session.
+   *
+   * @param query the kadmin query, which may not contain line breaks
+   * @return a successful ShellCommandUtil.Result holding the output of the query if kadmin is
+   * ready for the next query; otherwise an unsuccessful ShellCommandUtil.Result holding the exit
+   * code and output of kadmin
+   * @throws IOException if the session is not running or cannot be written to or read from
+   */
+  public ShellCommandUtil.Result execute(String query) throws IOException {
+    if (!isRunning()) {
+      throw new IOException("The kadmin session is not running");
+    }
+
+    if ((query.indexOf('\n') >= 0) || (query.indexOf('\r') >= 0)) {
+      throw new IllegalArgumentException("A kadmin query may not contain line breaks");
+    }
+
+    writer.write(query);
+    writer.write('\n');
+    writer.flush();
+
+    return readResponse();
+  }
+
+  /**
+   * Tests whether the kadmin process has been started and has not exited.
+   *
+   * @return true if queries may be executed in this session; false otherwise
+   */
+  public boolean isRunning() {
+    if (process == null) {
+      return false;
+    }
+
+    try {
+      process.exitValue();
+      return false;
+    } catch (IllegalThreadStateException e) {
+      return true;
+    }
+  }
+
+  /**
+   * Ends the session, asking kadmin to quit and killing the process if it does not.
+   */
+  public void close() {
+    if (process != null) {
+      try {
+        writer.write("quit\n");
+        writer.flush();
+      } catch (IOException e) {
+        // The process has most likely already exited...
+      }
+
+      closeQuietly(writer);
+      closeQuietly(reader);
+      process.destroy();
+
+      process = null;
+      reader = null;
+      writer = null;
+    }
+  }
+
+  /**
+   * Reads output up to the next prompt, or up to the end of the output if the process exits.
+   *
+   * @return a ShellCommandUtil.Result
+   * @throws IOException if the process cannot be read from
+   */
+  private ShellCommandUtil.Result readResponse() throws IOException {
+    StringBuilder output = new StringBuilder();
+    char[] buffer = new char[1024];
+
+    while (true) {
+      int read = reader.read(buffer);
+
+      if (read < 0) {
+        int exitCode;
+        try {
+          exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for kadmin to exit");
+        }
+
+        // The session is over; whatever kadmin printed explains why.
+        String message = output.toString();
+        LOG.debug("The kadmin session ended with exit code {}", exitCode);
+        return new ShellCommandUtil.Result((exitCode == 0) ? 1 : exitCode, message, message);
+      }
+
+      output.append(buffer, 0, read);
+
+      // The prompt is not followed by a new line, so it can only be the end of the output if
+      // nothing more is ready to be read.
+      if (endsWithPrompt(output) && !reader.ready()) {
+        output.setLength(output.length() - prompt.length());
+        return new ShellCommandUtil.Result(0, output.toString(), "");
+      }
+    }
+  }
+
+  private boolean endsWithPrompt(StringBuilder output) {
+    int start = output.length() - prompt.length();
+    return (start >= 0) && (output.indexOf(prompt, start) == start);
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Ignore this...
+    }
+  }
+}
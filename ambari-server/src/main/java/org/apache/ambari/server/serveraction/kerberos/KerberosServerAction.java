@@ -23,6 +23,7 @@ import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.agent.CommandReport;
 import org.apache.ambari.server.agent.ExecutionCommand;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.serveraction.AbstractServerAction;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
@@ -33,8 +34,22 @@ import static org.apache.ambari.server.serveraction.kerberos.KerberosActionDataF
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * KerberosServerAction is an abstract class to be implemented by Kerberos-related
@@ -117,6 +132,12 @@ public abstract class KerberosServerAction extends AbstractServerAction {
   @Inject
   private KerberosOperationHandlerFactory kerberosOperationHandlerFactory;
 
+  /**
+   * The Ambari server configuration, used to get the number of threads to process identities with
+   */
+  @Inject
+  private Configuration configuration;
+
 
   /**
    * Given a (command parameter) Map and a property name, attempts to safely retrieve the requested
@@ -200,7 +221,7 @@ public abstract class KerberosServerAction extends AbstractServerAction {
       Object map = requestSharedDataContext.get(PRINCIPAL_PASSWORD_MAP);
 
       if (map == null) {
-        map = new HashMap<String, String>();
+        map = new ConcurrentHashMap<String, String>();
         requestSharedDataContext.put(PRINCIPAL_PASSWORD_MAP, map);
       }
 
@@ -226,7 +247,7 @@ public abstract class KerberosServerAction extends AbstractServerAction {
       Object map = requestSharedDataContext.get(PRINCIPAL_KEY_NUMBER_MAP);
 
       if (map == null) {
-        map = new HashMap<String, String>();
+        map = new ConcurrentHashMap<String, Integer>();
         requestSharedDataContext.put(PRINCIPAL_KEY_NUMBER_MAP, map);
       }
 
@@ -312,6 +333,11 @@ public abstract class KerberosServerAction extends AbstractServerAction {
    * {@link org.apache.ambari.server.serveraction.kerberos.KerberosActionDataFileReader} to parse
    * the relative index.dat file and iterate through its "records".  Each "record" is process using
    * {@link #processRecord(java.util.Map, String, KerberosOperationHandler, java.util.Map)}.
+   * <p/>
+   * Records are grouped by principal and keytab file (see {@link #groupRecords(Iterable, String)}).
+   * If the Ambari server is configured with more than one Kerberos operation thread, the groups are
+   * spread over that many threads, each with its own KerberosOperationHandler; the records of a
+   * group are always processed in order by one handler.
    *
    * @param requestSharedDataContext a Map to be used a shared data among all ServerActions related
    *                                 to a given request
@@ -358,67 +384,17 @@ public abstract class KerberosServerAction extends AbstractServerAction {
               throw new AmbariException(message);
             }
 
-            KerberosOperationHandler handler = kerberosOperationHandlerFactory.getKerberosOperationHandler(kdcType);
-            if (handler == null) {
-              String message = String.format("Failed to process the identities, a KDC operation handler was not found for the KDC type of : %s",
-                  kdcType.toString());
-              actionLog.writeStdErr(message);
-              LOG.error(message);
-              throw new AmbariException(message);
-            }
+            Map<String, String> kerberosConfiguration = getConfiguration("kerberos-env");
+            KerberosOperationHandler handler = openOperationHandler(kdcType, administratorCredential,
+                defaultRealm, kerberosConfiguration);
 
             try {
-              handler.open(administratorCredential, defaultRealm, getConfiguration("kerberos-env"));
-            } catch (KerberosOperationException e) {
-              String message = String.format("Failed to process the identities, could not properly open the KDC operation handler: %s",
-                  e.getMessage());
-              actionLog.writeStdErr(message);
-              LOG.error(message);
-              throw new AmbariException(message, e);
-            }
+              List<List<Map<String, String>>> recordGroups = readRecordGroups(indexFile, defaultRealm);
 
-            // Create the data file reader to parse and iterate through the records
-            KerberosActionDataFileReader reader = null;
-            try {
-              reader = new KerberosActionDataFileReader(indexFile);
-              for (Map<String, String> record : reader) {
-                // Process the current record
-                commandReport = processRecord(record, defaultRealm, handler, requestSharedDataContext);
-
-                // If the principal processor returns a CommandReport, than it is time to stop since
-                // an error condition has probably occurred, else all is assumed to be well.
-                if (commandReport != null) {
-                  break;
-                }
-              }
-            } catch (AmbariException e) {
-              // Catch this separately from IOException since the reason it was thrown was not the same
-              // Note: AmbariException is an IOException, so there may be some confusion
-              throw new AmbariException(e.getMessage(), e);
-            } catch (IOException e) {
-              String message = String.format("Failed to process the identities, cannot read the index file: %s",
-                  indexFile.getAbsolutePath());
-              actionLog.writeStdErr(message);
-              LOG.error(message, e);
-              throw new AmbariException(message, e);
+              commandReport = processRecordGroups(recordGroups, handler, kdcType, administratorCredential,
+                  defaultRealm, kerberosConfiguration, requestSharedDataContext);
             } finally {
-              if (reader != null) {
-                // The reader needs to be closed, if it fails to close ignore the exception since
-                // there is little we can or care to do about it now.
-                try {
-                  reader.close();
-                } catch (IOException e) {
-                  // Ignore this...
-                }
-              }
-
-              // The KerberosOperationHandler needs to be closed, if it fails to close ignore the
-              // exception since there is little we can or care to do about it now.
-              try {
-                handler.close();
-              } catch (KerberosOperationException e) {
-                // Ignore this...
-              }
+              closeOperationHandler(handler);
             }
           }
         }
@@ -483,18 +459,374 @@ public abstract class KerberosServerAction extends AbstractServerAction {
     CommandReport commandReport = null;
 
     if (record != null) {
-      String principal = record.get(KerberosActionDataFile.PRINCIPAL);
-      String host = record.get(KerberosActionDataFile.HOSTNAME);
-
-      if (principal != null) {
-        // Evaluate the principal "pattern" found in the record to generate the "evaluated principal"
-        // by replacing the _HOST and _REALM variables.
-        String evaluatedPrincipal = principal.replace("_HOST", host).replace("_REALM", defaultRealm);
+      String evaluatedPrincipal = evaluatePrincipal(record, defaultRealm);
 
+      if (evaluatedPrincipal != null) {
         commandReport = processIdentity(record, evaluatedPrincipal, operationHandler, requestSharedDataContext);
       }
     }
 
     return commandReport;
   }
+
+  /**
+   * Evaluates the principal "pattern" found in the record to generate the "evaluated principal"
+   * by replacing the _HOST and _REALM variables.
+   *
+   * @param record       a Map containing the data for the current identity record
+   * @param defaultRealm a String declaring the default Kerberos realm
+   * @return the evaluated principal, or null if the record has no principal
+   */
+  private String evaluatePrincipal(Map<String, String> record, String defaultRealm) {
+    String principal = record.get(KerberosActionDataFile.PRINCIPAL);
+    String host = record.get(KerberosActionDataFile.HOSTNAME);
+
+    return (principal == null)
+        ? null
+        : principal.replace("_HOST", host).replace("_REALM", defaultRealm);
+  }
+
+  /**
+   * Reads the identity records from the index file and groups them so that records which touch the
+   * same principal, or the same keytab file on the same host, are in the same group.
+   * <p/>
+   * The records of a group are kept in the order they were found in the index file and the groups
+   * are ordered by their first record.  Records without a principal are skipped.
+   *
+   * @param indexFile    the index file to read
+   * @param defaultRealm a String declaring the default Kerberos realm
+   * @return a List of record groups
+   * @throws AmbariException if the index file cannot be read
+   */
+  private List<List<Map<String, String>>> readRecordGroups(File indexFile, String defaultRealm)
+      throws AmbariException {
+    KerberosActionDataFileReader reader = null;
+
+    try {
+      reader = new KerberosActionDataFileReader(indexFile);
+      return groupRecords(reader, defaultRealm);
+    } catch (AmbariException e) {
+      // Catch this separately from IOException since the reason it was thrown was not the same
+      // Note: AmbariException is an IOException, so there may be some confusion
+      throw new AmbariException(e.getMessage(), e);
+    } catch (IOException e) {
+      String message = String.format("Failed to process the identities, cannot read the index file: %s",
+          indexFile.getAbsolutePath());
+      actionLog.writeStdErr(message);
+      LOG.error(message, e);
+      throw new AmbariException(message, e);
+    } finally {
+      if (reader != null) {
+        // The reader needs to be closed, if it fails to close ignore the exception since
+        // there is little we can or care to do about it now.
+        try {
+          reader.close();
+        } catch (IOException e) {
+          // Ignore this...
+        }
+      }
+    }
+  }
+
+  /**
+   * Groups identity records by evaluated principal and by host and keytab file.
+   * <p/>
+   * Two records end up in the same group when they share a principal or would write to the same
+   * keytab file on the same host, directly or through other records.  All of the work on a group
+   * can then be done by a single KerberosOperationHandler without being affected by the work done
+   * on other groups.
+   *
+   * @param records      the identity records
+   * @param defaultRealm a String declaring the default Kerberos realm
+   * @return a List of record groups
+   */
+  List<List<Map<String, String>>> groupRecords(Iterable<Map<String, String>> records, String defaultRealm) {
+    // union-find over principal and keytab file keys; each record joins its principal key
+    // with its keytab file key
+    Map<String, String> parents = new HashMap<String, String>();
+    List<Map<String, String>> validRecords = new ArrayList<Map<String, String>>();
+    List<String> recordKeys = new ArrayList<String>();
+
+    for (Map<String, String> record : records) {
+      if (record == null) {
+        continue;
+      }
+
+      String evaluatedPrincipal = evaluatePrincipal(record, defaultRealm);
+      if (evaluatedPrincipal != null) {
+        String principalKey = "principal:" + evaluatedPrincipal;
+        String host = record.get(KerberosActionDataFile.HOSTNAME);
+        String keytabFilePath = record.get(KerberosActionDataFile.KEYTAB_FILE_PATH);
+
+        findRoot(parents, principalKey);
+        if ((host != null) && (keytabFilePath != null) && !keytabFilePath.isEmpty()) {
+          String keytabKey = "keytab:" + host + "|" + keytabFilePath;
+          String principalRoot = findRoot(parents, principalKey);
+          String keytabRoot = findRoot(parents, keytabKey);
+          if (!principalRoot.equals(keytabRoot)) {
+            parents.put(keytabRoot, principalRoot);
+          }
+        }
+
+        validRecords.add(record);
+        recordKeys.add(principalKey);
+      }
+    }
+
+    Map<String, List<Map<String, String>>> groups = new LinkedHashMap<String, List<Map<String, String>>>();
+    for (int i = 0; i < validRecords.size(); i++) {
+      String root = findRoot(parents, recordKeys.get(i));
+      List<Map<String, String>> group = groups.get(root);
+
+      if (group == null) {
+        group = new ArrayList<Map<String, String>>();
+        groups.put(root, group);
+      }
+      group.add(validRecords.get(i));
+    }
+
+    return new ArrayList<List<Map<String, String>>>(groups.values());
+  }
+
+  /**
+   * Finds the representative key of the group the given key belongs to, adding the key as its own
+   * group if it is not yet known.
+   *
+   * @param parents the Map of keys to their parent keys
+   * @param key     the key to look up
+   * @return the representative key
+   */
+  private static String findRoot(Map<String, String> parents, String key) {
+    String root = key;
+    String parent = parents.get(root);
+
+    if (parent == null) {
+      parents.put(key, key);
+      return key;
+    }
+
+    while (!parent.equals(root)) {
+      root = parent;
+      parent = parents.get(root);
+    }
+
+    // compress the path so later look ups are direct
+    while (!key.equals(root)) {
+      String next = parents.get(key);
+      parents.put(key, root);
+      key = next;
+    }
+
+    return root;
+  }
+
+  /**
+   * Processes the record groups using the given (open) KerberosOperationHandler and, if configured
+   * with more than one Kerberos operation thread, additional handlers on a thread pool.
+   * <p/>
+   * Each group is processed in full, in order, by one handler.  Processing stops on the first record
+   * that yields a CommandReport or throws an exception.
+   *
+   * @param recordGroups             the record groups to process
+   * @param handler                  the open KerberosOperationHandler for the calling thread
+   * @param kdcType                  the KDCType used to create additional handlers
+   * @param administratorCredential  the KDC administrator credentials
+   * @param defaultRealm             a String declaring the default Kerberos realm
+   * @param kerberosConfiguration    the kerberos-env configuration
+   * @param requestSharedDataContext a Map to be used a shared data among all ServerActions related
+   *                                 to a given request
+   * @return a CommandReport, indicating an error condition; or null, indicating a success condition
+   * @throws AmbariException if an error occurs while processing the identity records
+   */
+  private CommandReport processRecordGroups(List<List<Map<String, String>>> recordGroups,
+                                            KerberosOperationHandler handler,
+                                            final KDCType kdcType,
+                                            final KerberosCredential administratorCredential,
+                                            final String defaultRealm,
+                                            final Map<String, String> kerberosConfiguration,
+                                            final Map<String, Object> requestSharedDataContext)
+      throws AmbariException {
+
+    // Create the shared maps up front so that the worker threads never race to create them
+    getPrincipalPasswordMap(requestSharedDataContext);
+    getPrincipalKeyNumberMap(requestSharedDataContext);
+
+    final Queue<List<Map<String, String>>> queue = new ConcurrentLinkedQueue<List<Map<String, String>>>(recordGroups);
+    final AtomicReference<CommandReport> failure = new AtomicReference<CommandReport>();
+
+    int threads = Math.min(recordGroups.size(), getOperationThreadCount());
+    ExecutorService executor = null;
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    if (threads > 1) {
+      LOG.info(String.format("Processing %d identity groups using %d threads", recordGroups.size(), threads));
+
+      // the calling thread is one of the workers
+      executor = Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "Kerberos Operation Thread-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+      for (int i = 1; i < threads; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            KerberosOperationHandler workerHandler;
+            try {
+              workerHandler = openOperationHandler(kdcType, administratorCredential, defaultRealm,
+                  kerberosConfiguration);
+            } catch (AmbariException e) {
+              queue.clear();
+              throw e;
+            }
+
+            try {
+              processQueuedRecordGroups(queue, workerHandler, defaultRealm, requestSharedDataContext, failure);
+            } finally {
+              closeOperationHandler(workerHandler);
+            }
+            return null;
+          }
+        }));
+      }
+    }
+
+    try {
+      processQueuedRecordGroups(queue, handler, defaultRealm, requestSharedDataContext, failure);
+
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmbariException("Interrupted while processing the identities", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AmbariException) {
+        throw (AmbariException) cause;
+      }
+      String message = String.format("Failed to process the identities: %s", cause.getMessage());
+      actionLog.writeStdErr(message);
+      LOG.error(message, cause);
+      throw new AmbariException(message, cause);
+    } finally {
+      queue.clear();
+
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+
+    return failure.get();
+  }
+
+  /**
+   * Takes record groups from the queue and processes them until the queue is empty or a record
+   * fails.
+   *
+   * @param queue                    the queue of record groups shared by all handlers
+   * @param operationHandler         the open KerberosOperationHandler to use
+   * @param defaultRealm             a String declaring the default Kerberos realm
+   * @param requestSharedDataContext a Map to be used a shared data among all ServerActions related
+   *                                 to a given request
+   * @param failure                  holds the CommandReport of the first failed record
+   * @throws AmbariException if an error occurs while processing an identity record
+   */
+  private void processQueuedRecordGroups(Queue<List<Map<String, String>>> queue,
+                                         KerberosOperationHandler operationHandler,
+                                         String defaultRealm,
+                                         Map<String, Object> requestSharedDataContext,
+                                         AtomicReference<CommandReport> failure)
+      throws AmbariException {
+    try {
+      List<Map<String, String>> recordGroup;
+
+      while ((failure.get() == null) && ((recordGroup = queue.poll()) != null)) {
+        for (Map<String, String> record : recordGroup) {
+          // Process the current record
+          CommandReport commandReport = processRecord(record, defaultRealm, operationHandler, requestSharedDataContext);
+
+          // If the principal processor returns a CommandReport, than it is time to stop since
+          // an error condition has probably occurred, else all is assumed to be well.
+          if (commandReport != null) {
+            failure.compareAndSet(null, commandReport);
+            return;
+          }
+        }
+      }
+    } catch (AmbariException e) {
+      // stop the other handlers as well
+      queue.clear();
+      throw e;
+    } catch (RuntimeException e) {
+      queue.clear();
+      throw e;
+    }
+  }
+
+  /**
+   * Gets a new KerberosOperationHandler for the KDC type and opens it.
+   *
+   * @param kdcType                 the relevant KDCType
+   * @param administratorCredential the KDC administrator credentials
+   * @param defaultRealm            a String declaring the default Kerberos realm
+   * @param kerberosConfiguration   the kerberos-env configuration
+   * @return an open KerberosOperationHandler
+   * @throws AmbariException if a handler is not available or cannot be opened
+   */
+  private KerberosOperationHandler openOperationHandler(KDCType kdcType,
+                                                        KerberosCredential administratorCredential,
+                                                        String defaultRealm,
+                                                        Map<String, String> kerberosConfiguration)
+      throws AmbariException {
+    KerberosOperationHandler handler = kerberosOperationHandlerFactory.getKerberosOperationHandler(kdcType);
+    if (handler == null) {
+      String message = String.format("Failed to process the identities, a KDC operation handler was not found for the KDC type of : %s",
+          kdcType.toString());
+      actionLog.writeStdErr(message);
+      LOG.error(message);
+      throw new AmbariException(message);
+    }
+
+    try {
+      handler.open(administratorCredential, defaultRealm, kerberosConfiguration);
+    } catch (KerberosOperationException e) {
+      String message = String.format("Failed to process the identities, could not properly open the KDC operation handler: %s",
+          e.getMessage());
+      actionLog.writeStdErr(message);
+      LOG.error(message);
+      throw new AmbariException(message, e);
+    }
+
+    return handler;
+  }
+
+  /**
+   * Closes a KerberosOperationHandler.  If it fails to close the exception is ignored since there
+   * is little we can or care to do about it now.
+   *
+   * @param handler the handler to close
+   */
+  private void closeOperationHandler(KerberosOperationHandler handler) {
+    try {
+      handler.close();
+    } catch (KerberosOperationException e) {
+      // Ignore this...
+    }
+  }
+
+  /**
+   * Gets the number of threads (and KerberosOperationHandlers) to use when processing identities.
+   *
+   * @return the number of threads, at least 1
+   */
+  private int getOperationThreadCount() {
+    return (configuration == null) ? 1 : configuration.getKerberosOperationThreads();
+  }
 }
@@ -18,11 +18,14 @@
 
 package org.apache.ambari.server.serveraction.kerberos;
 
+import com.google.inject.Inject;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.utils.ShellCommandUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -38,6 +41,10 @@ import java.util.regex.Pattern;
  * <p/>
  * It is assumed that a MIT Kerberos client is installed and that the kdamin shell command is
  * available
+ * <p/>
+ * By default kadmin is started once per query.  If kadmin sessions are enabled in the Ambari server
+ * configuration, all of the queries issued between {@link #open} and {@link #close} are sent to one
+ * kadmin process (see {@link KAdminSession}).
  */
 public class MITKerberosOperationHandler extends KerberosOperationHandler {
 
@@ -61,6 +68,33 @@ public class MITKerberosOperationHandler extends KerberosOperationHandler {
    */
   private String executableKadminLocal = null;
 
+  /**
+   * Whether queries are sent to one long-lived kadmin process rather than to a new kadmin
+   * process per query
+   */
+  private boolean kadminSessionEnabled = false;
+
+  /**
+   * The long-lived kadmin process, when kadmin sessions are enabled and one has been started
+   */
+  private KAdminSession kadminSession = null;
+
+  /**
+   * The command line of the long-lived kadmin process
+   */
+  private List<String> kadminSessionCommand = null;
+
+  /**
+   * The temporary administrator keytab file used by the long-lived kadmin process, if any
+   */
+  private File kadminSessionKeytabFile = null;
+
+  /**
+   * The Ambari server configuration, used to determine whether kadmin sessions are enabled
+   */
+  @Inject
+  private Configuration configuration;
+
   /**
    * Prepares and creates resources to be used by this KerberosOperationHandler
    * <p/>
@@ -95,12 +129,14 @@ public class MITKerberosOperationHandler extends KerberosOperationHandler {
     executableKadmin = getExecutable("kadmin");
     executableKadminLocal = getExecutable("kadmin.local");
 
+    kadminSessionEnabled = (configuration != null) && configuration.isKerberosKAdminSessionEnabled();
+
     setOpen(true);
   }
 
   @Override
   public void close() throws KerberosOperationException {
-    // There is nothing to do here.
+    closeKAdminSession();
     setOpen(false);
 
     executableKadmin = null;
@@ -301,6 +337,10 @@ public class MITKerberosOperationHandler extends KerberosOperationHandler {
 
   /**
    * Invokes the kadmin shell command to issue queries
+   * <p/>
+   * If kadmin sessions are enabled, the query is sent to the long-lived kadmin process of this
+   * handler (see {@link #invokeKAdminSession(String)}); otherwise a new kadmin process is started
+   * for the query.
    *
    * @param query a String containing the query to send to the kdamin command
    * @return a ShellCommandUtil.Result containing the result of the operation
@@ -316,139 +356,265 @@ public class MITKerberosOperationHandler extends KerberosOperationHandler {
     if ((query == null) || query.isEmpty()) {
       throw new KerberosOperationException("Missing kadmin query");
     }
-    KerberosCredential administratorCredentials = getAdministratorCredentials();
-    String defaultRealm = getDefaultRealm();
+
+    if (kadminSessionEnabled) {
+      return invokeKAdminSession(query);
+    }
 
     List<String> command = new ArrayList<String>();
     File tempKeytabFile = null;
 
     try {
-      String adminPrincipal = (administratorCredentials == null)
-          ? null
-          : administratorCredentials.getPrincipal();
-
-      if ((adminPrincipal == null) || adminPrincipal.isEmpty()) {
-        // Set the kdamin interface to be kadmin.local
-        if((executableKadminLocal == null) || executableKadminLocal.isEmpty()) {
-          throw new KerberosOperationException("No path for kadmin.local is available - this KerberosOperationHandler may not have been opened.");
-        }
+      tempKeytabFile = buildKAdminCommand(command);
 
-        command.add(executableKadminLocal);
-      } else {
-        if((executableKadmin == null) || executableKadmin.isEmpty()) {
-          throw new KerberosOperationException("No path for kadmin is available - this KerberosOperationHandler may not have been opened.");
-        }
-        String adminPassword = administratorCredentials.getPassword();
-        String adminKeyTab = administratorCredentials.getKeytab();
+      // Add kadmin query
+      command.add("-q");
+      command.add(query.replace("\"", "\\\""));
 
-        // Set the kdamin interface to be kadmin
-        command.add(executableKadmin);
+      result = executeCommand(command.toArray(new String[command.size()]));
 
-        // Add explicit KDC admin host, if available
-        if (getAdminServerHost() != null) {
-          command.add("-s");
-          command.add(getAdminServerHost());
-        }
+      if (!result.isSuccessful()) {
+        handleKAdminFailure(command, result);
+      }
+    } finally {
+      // If a temporary keytab file was created, clean it up.
+      deleteKeytabFile(tempKeytabFile);
+    }
 
-        // Add the administrative principal
-        command.add("-p");
-        command.add(adminPrincipal);
-
-        if ((adminKeyTab != null) && !adminKeyTab.isEmpty()) {
-          tempKeytabFile = createKeytabFile(adminKeyTab);
-
-          if (tempKeytabFile != null) {
-            // Add keytab file administrative principal
-            command.add("-k");
-            command.add("-t");
-            command.add(tempKeytabFile.getAbsolutePath());
-          }
-        } else if (adminPassword != null) {
-          // Add password for administrative principal
-          command.add("-w");
-          command.add(adminPassword);
-        }
+    return result;
+  }
+
+  /**
+   * Sends a query to the long-lived kadmin process of this handler, starting the process if it is
+   * not running.
+   * <p/>
+   * If the kadmin process exits, the failure is reported the same way as a failed kadmin command
+   * and a new process is started for the next query.
+   *
+   * @param query a String containing the query to send to the kdamin command
+   * @return a ShellCommandUtil.Result containing the result of the operation
+   * @throws KerberosKDCConnectionException       if a connection to the KDC cannot be made
+   * @throws KerberosAdminAuthenticationException if the administrator credentials fail to authenticate
+   * @throws KerberosRealmException               if the realm does not map to a KDC
+   * @throws KerberosOperationException           if an unexpected error occurred
+   */
+  private ShellCommandUtil.Result invokeKAdminSession(String query)
+      throws KerberosOperationException {
+
+    if ((query.indexOf('\n') >= 0) || (query.indexOf('\r') >= 0)) {
+      throw new KerberosOperationException("Invalid kadmin query - line breaks are not allowed");
+    }
+
+    ShellCommandUtil.Result result;
+
+    if ((kadminSession == null) || !kadminSession.isRunning()) {
+      closeKAdminSession();
+
+      kadminSessionCommand = new ArrayList<String>();
+      kadminSessionKeytabFile = buildKAdminCommand(kadminSessionCommand);
+      kadminSession = new KAdminSession(kadminSessionCommand.toArray(new String[kadminSessionCommand.size()]));
+
+      try {
+        result = kadminSession.start();
+      } catch (IOException e) {
+        closeKAdminSession();
+        String message = String.format("Failed to start kadmin: %s", e.getLocalizedMessage());
+        LOG.error(message, e);
+        throw new KerberosOperationException(message, e);
       }
 
-      if ((defaultRealm != null) && !defaultRealm.isEmpty()) {
-        // Add default realm clause
-        command.add("-r");
-        command.add(defaultRealm);
+      if (!result.isSuccessful()) {
+        List<String> command = kadminSessionCommand;
+        closeKAdminSession();
+        handleKAdminFailure(command, result);
       }
+    }
 
-      // Add kadmin query
+    try {
+      result = kadminSession.execute(query.replace("\"", "\\\""));
+    } catch (IOException e) {
+      closeKAdminSession();
+      String message = String.format("Failed to execute kadmin query: %s", e.getLocalizedMessage());
+      LOG.error(message, e);
+      throw new KerberosOperationException(message, e);
+    }
+
+    if (!result.isSuccessful()) {
+      List<String> command = new ArrayList<String>(kadminSessionCommand);
       command.add("-q");
-      command.add(query.replace("\"", "\\\""));
+      command.add(query);
+      closeKAdminSession();
+      handleKAdminFailure(command, result);
+    }
 
-      result = executeCommand(command.toArray(new String[command.size()]));
+    return result;
+  }
 
-      if (!result.isSuccessful()) {
-        // Build command string, replacing administrator password with "********"
-        StringBuilder cleanCommand = new StringBuilder();
-        Iterator<String> iterator = command.iterator();
+  /**
+   * Ends the long-lived kadmin process of this handler, if there is one.
+   */
+  private void closeKAdminSession() {
+    if (kadminSession != null) {
+      kadminSession.close();
+      kadminSession = null;
+    }
 
-        if (iterator.hasNext()) {
-          cleanCommand.append(iterator.next());
-        }
+    kadminSessionCommand = null;
 
-        while (iterator.hasNext()) {
-          String part = iterator.next();
-
-          cleanCommand.append(' ');
-
-          if (part.contains(" ")) {
-            cleanCommand.append('"');
-            cleanCommand.append(part);
-            cleanCommand.append('"');
-          } else {
-            cleanCommand.append(part);
-          }
-
-          if ("-w".equals(part)) {
-            // Skip the password and use "********" instead
-            if (iterator.hasNext()) {
-              iterator.next();
-            }
-            cleanCommand.append(" ********");
-          }
-        }
-        String message = String.format("Failed to execute kadmin:\n\tCommand: %s\n\tExitCode: %s\n\tSTDOUT: %s\n\tSTDERR: %s",
-            cleanCommand.toString(), result.getExitCode(), result.getStdout(), result.getStderr());
-        LOG.warn(message);
+    deleteKeytabFile(kadminSessionKeytabFile);
+    kadminSessionKeytabFile = null;
+  }
 
-        // Test STDERR to see of any "expected" error conditions were encountered...
-        String stdErr = result.getStderr();
-        // Did admin credentials fail?
-        if (stdErr.contains("Client not found in Kerberos database")) {
-          throw new KerberosAdminAuthenticationException(stdErr);
-        } else if (stdErr.contains("Incorrect password while initializing")) {
-          throw new KerberosAdminAuthenticationException(stdErr);
-        }
-        // Did we fail to connect to the KDC?
-        else if (stdErr.contains("Cannot contact any KDC")) {
-          throw new KerberosKDCConnectionException(stdErr);
-        } else if (stdErr.contains("Cannot resolve network address for admin server in requested realm while initializing kadmin interface")) {
-          throw new KerberosKDCConnectionException(stdErr);
-        }
-        // Was the realm invalid?
-        else if (stdErr.contains("Missing parameters in krb5.conf required for kadmin client")) {
-          throw new KerberosRealmException(stdErr);
-        } else if (stdErr.contains("Cannot find KDC for requested realm while initializing kadmin interface")) {
-          throw new KerberosRealmException(stdErr);
-        } else {
-          throw new KerberosOperationException("Unexpected error condition executing the kadmin command");
+  /**
+   * Builds the kadmin (or kadmin.local) command line used to authenticate as the administrator,
+   * without a query.
+   *
+   * @param command the List to add the executable and its arguments to
+   * @return the temporary keytab file holding the administrator's key, which the caller must
+   * delete when it is no longer needed; or null if no keytab file was created
+   * @throws KerberosOperationException if the needed kadmin executable is not available
+   */
+  private File buildKAdminCommand(List<String> command) throws KerberosOperationException {
+    KerberosCredential administratorCredentials = getAdministratorCredentials();
+    String defaultRealm = getDefaultRealm();
+    File tempKeytabFile = null;
+
+    String adminPrincipal = (administratorCredentials == null)
+        ? null
+        : administratorCredentials.getPrincipal();
+
+    if ((adminPrincipal == null) || adminPrincipal.isEmpty()) {
+      // Set the kdamin interface to be kadmin.local
+      if((executableKadminLocal == null) || executableKadminLocal.isEmpty()) {
+        throw new KerberosOperationException("No path for kadmin.local is available - this KerberosOperationHandler may not have been opened.");
+      }
+
+      command.add(executableKadminLocal);
+    } else {
+      if((executableKadmin == null) || executableKadmin.isEmpty()) {
+        throw new KerberosOperationException("No path for kadmin is available - this KerberosOperationHandler may not have been opened.");
+      }
+      String adminPassword = administratorCredentials.getPassword();
+      String adminKeyTab = administratorCredentials.getKeytab();
+
+      // Set the kdamin interface to be kadmin
+      command.add(executableKadmin);
+
+      // Add explicit KDC admin host, if available
+      if (getAdminServerHost() != null) {
+        command.add("-s");
+        command.add(getAdminServerHost());
+      }
+
+      // Add the administrative principal
+      command.add("-p");
+      command.add(adminPrincipal);
+
+      if ((adminKeyTab != null) && !adminKeyTab.isEmpty()) {
+        tempKeytabFile = createKeytabFile(adminKeyTab);
+
+        if (tempKeytabFile != null) {
+          // Add keytab file administrative principal
+          command.add("-k");
+          command.add("-t");
+          command.add(tempKeytabFile.getAbsolutePath());
         }
+      } else if (adminPassword != null) {
+        // Add password for administrative principal
+        command.add("-w");
+        command.add(adminPassword);
       }
-    } finally {
-      // If a temporary keytab file was created, clean it up.
-      if (tempKeytabFile != null) {
-        if (!tempKeytabFile.delete()) {
-          tempKeytabFile.deleteOnExit();
+    }
+
+    if ((defaultRealm != null) && !defaultRealm.isEmpty()) {
+      // Add default realm clause
+      command.add("-r");
+      command.add(defaultRealm);
+    }
+
+    return tempKeytabFile;
+  }
+
+  /**
+   * Logs a failed kadmin invocation and throws the exception matching the error reported on STDERR.
+   *
+   * @param command the kadmin command line, the administrator password is masked when logged
+   * @param result  the unsuccessful result
+   * @throws KerberosKDCConnectionException       if a connection to the KDC cannot be made
+   * @throws KerberosAdminAuthenticationException if the administrator credentials fail to authenticate
+   * @throws KerberosRealmException               if the realm does not map to a KDC
+   * @throws KerberosOperationException           in any other case
+   */
+  private void handleKAdminFailure(List<String> command, ShellCommandUtil.Result result)
+      throws KerberosOperationException {
+    // Build command string, replacing administrator password with "********"
+    StringBuilder cleanCommand = new StringBuilder();
+    Iterator<String> iterator = command.iterator();
+
+    if (iterator.hasNext()) {
+      cleanCommand.append(iterator.next());
+    }
+
+    while (iterator.hasNext()) {
+      String part = iterator.next();
+
+      cleanCommand.append(' ');
+
+      if (part.contains(" ")) {
+        cleanCommand.append('"');
+        cleanCommand.append(part);
+        cleanCommand.append('"');
+      } else {
+        cleanCommand.append(part);
+      }
+
+      if ("-w".equals(part)) {
+        // Skip the password and use "********" instead
+        if (iterator.hasNext()) {
+          iterator.next();
         }
+        cleanCommand.append(" ********");
       }
     }
+    String message = String.format("Failed to execute kadmin:\n\tCommand: %s\n\tExitCode: %s\n\tSTDOUT: %s\n\tSTDERR: %s",
+        cleanCommand.toString(), result.getExitCode(), result.getStdout(), result.getStderr());
+    LOG.warn(message);
+
+    // Test STDERR to see of any "expected" error conditions were encountered...
+    String stdErr = result.getStderr();
+    // Did admin credentials fail?
+    if (stdErr.contains("Client not found in Kerberos database")) {
+      throw new KerberosAdminAuthenticationException(stdErr);
+    } else if (stdErr.contains("Incorrect password while initializing")) {
+      throw new KerberosAdminAuthenticationException(stdErr);
+    }
+    // Did we fail to connect to the KDC?
+    else if (stdErr.contains("Cannot contact any KDC")) {
+      throw new KerberosKDCConnectionException(stdErr);
+    } else if (stdErr.contains("Cannot resolve network address for admin server in requested realm while initializing kadmin interface")) {
+      throw new KerberosKDCConnectionException(stdErr);
+    }
+    // Was the realm invalid?
+    else if (stdErr.contains("Missing parameters in krb5.conf required for kadmin client")) {
+      throw new KerberosRealmException(stdErr);
+    } else if (stdErr.contains("Cannot find KDC for requested realm while initializing kadmin interface")) {
+      throw new KerberosRealmException(stdErr);
+    } else {
+      throw new KerberosOperationException("Unexpected error condition executing the kadmin command");
+    }
+  }
 
-    return result;
+  /**
+   * Deletes a temporary keytab file, if one was created.
+   *
+   * @param keytabFile the keytab file to delete, may be null
+   */
+  private void deleteKeytabFile(File keytabFile) {
+    if (keytabFile != null) {
+      if (!keytabFile.delete()) {
+        keytabFile.deleteOnExit();
+      }
+    }
   }
 
   /**
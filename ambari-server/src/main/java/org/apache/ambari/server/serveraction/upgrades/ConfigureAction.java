@@ -18,7 +18,6 @@
 package org.apache.ambari.server.serveraction.upgrades;
 
 import java.text.MessageFormat;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 
@@ -110,9 +109,9 @@ public class ConfigureAction extends AbstractServerAction {
     DesiredConfig desiredConfig = desiredConfigs.get(configType);
     Config config = cluster.getConfig(configType, desiredConfig.getTag());
 
-    Map<String, String> propertiesToChange = new HashMap<String, String>();
-    propertiesToChange.put(key, value);
-    config.updateProperties(propertiesToChange);
+    // the existing config version is left untouched, a new one is created
+    Map<String, String> newValues = config.getProperties();
+    newValues.put(key, value);
 
     String serviceVersionNote = "Stack Upgrade";
 
@@ -123,7 +122,7 @@ public class ConfigureAction extends AbstractServerAction {
     }
 
     m_configHelper.createConfigType(cluster, m_controller, configType,
-        config.getProperties(), auditName, serviceVersionNote);
+        newValues, auditName, serviceVersionNote);
 
     String message = "Updated ''{0}'' with ''{1}={2}''";
     message = MessageFormat.format(message, configType, key, value);
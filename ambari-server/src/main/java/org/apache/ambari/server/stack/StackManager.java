@@ -28,11 +28,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -69,6 +77,16 @@ public class StackManager {
    */
   private Map<String, StackInfo> stackMap = new HashMap<String, StackInfo>();
 
+  /**
+   * Index of the fully resolved stacks
+   */
+  private StackMetadataIndex stackIndex;
+
+  /**
+   * Number of threads used to parse the stack definition directories
+   */
+  private static final int PARSE_THREAD_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
   /**
    * Constructor.
    * Initialize stack manager.
@@ -91,6 +109,8 @@ public class StackManager {
 
     fullyResolveCommonServices(stackModules, commonServiceModules);
     fullyResolveStacks(stackModules, commonServiceModules);
+
+    this.stackIndex = new StackMetadataIndex(stackMap.values());
   }
 
   /**
@@ -105,6 +125,15 @@ public class StackManager {
     return stackMap.get(name + StackManager.PATH_DELIMITER + version);
   }
 
+  /**
+   * Obtain the index of the fully resolved stacks.
+   *
+   * @return the stack metadata index
+   */
+  public StackMetadataIndex getStackIndex() {
+    return stackIndex;
+  }
+
   /**
    * Obtain all stacks for the given name.
    *
@@ -228,7 +257,8 @@ public class StackManager {
   }
 
   /**
-   * Parse the specified common services root directory
+   * Parse the specified common services root directory.
+   * Each common service version directory is parsed on the parse thread pool.
    *
    * @param commonServicesRoot  the common services root directory to parse
    * @return map of common service id which contains name and version to common service module.
@@ -238,40 +268,64 @@ public class StackManager {
     Map<String, ServiceModule> commonServiceModules = new HashMap<String, ServiceModule>();
 
     if(commonServicesRoot != null) {
+      List<Callable<Map<String, ServiceModule>>> tasks = new ArrayList<Callable<Map<String, ServiceModule>>>();
+
       File[] commonServiceFiles = commonServicesRoot.listFiles(AmbariMetaInfo.FILENAME_FILTER);
       for (File commonService : commonServiceFiles) {
         if (commonService.isFile()) {
           continue;
         }
-        for (File serviceFolder : commonService.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
-          String serviceName = serviceFolder.getParentFile().getName();
-          String serviceVersion = serviceFolder.getName();
-          ServiceDirectory serviceDirectory = new CommonServiceDirectory(serviceFolder.getPath());
-          ServiceMetainfoXml metaInfoXml = serviceDirectory.getMetaInfoFile();
-          if (metaInfoXml != null) {
-            if (metaInfoXml.isValid()) {
-              for (ServiceInfo serviceInfo : metaInfoXml.getServices()) {
-                ServiceModule serviceModule = new ServiceModule(stackContext, serviceInfo, serviceDirectory, true);
-
-                String commonServiceKey = serviceInfo.getName() + StackManager.PATH_DELIMITER + serviceInfo.getVersion();
-                commonServiceModules.put(commonServiceKey, serviceModule);
-              }
-            } else {
-              ServiceModule serviceModule = new ServiceModule(stackContext, new ServiceInfo(), serviceDirectory, true);
-              serviceModule.setValid(false);
-              serviceModule.setErrors(metaInfoXml.getErrors());
-              commonServiceModules.put(metaInfoXml.getSchemaVersion(), serviceModule);
-              metaInfoXml.setSchemaVersion(null);
+        for (final File serviceFolder : commonService.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
+          tasks.add(new Callable<Map<String, ServiceModule>>() {
+            @Override
+            public Map<String, ServiceModule> call() throws AmbariException {
+              return parseCommonServiceFolder(serviceFolder);
             }
-          }
+          });
         }
       }
+
+      for (Map<String, ServiceModule> serviceModules : invokeAll(tasks)) {
+        commonServiceModules.putAll(serviceModules);
+      }
     }
     return commonServiceModules;
   }
 
   /**
-   * Parse the specified stack root directory
+   * Parse a single common service version directory.
+   *
+   * @param serviceFolder  the common service version directory
+   * @return map of common service id to common service module
+   * @throws AmbariException if unable to parse the directory
+   */
+  private Map<String, ServiceModule> parseCommonServiceFolder(File serviceFolder) throws AmbariException {
+    Map<String, ServiceModule> commonServiceModules = new HashMap<String, ServiceModule>();
+
+    ServiceDirectory serviceDirectory = new CommonServiceDirectory(serviceFolder.getPath());
+    ServiceMetainfoXml metaInfoXml = serviceDirectory.getMetaInfoFile();
+    if (metaInfoXml != null) {
+      if (metaInfoXml.isValid()) {
+        for (ServiceInfo serviceInfo : metaInfoXml.getServices()) {
+          ServiceModule serviceModule = new ServiceModule(stackContext, serviceInfo, serviceDirectory, true);
+
+          String commonServiceKey = serviceInfo.getName() + StackManager.PATH_DELIMITER + serviceInfo.getVersion();
+          commonServiceModules.put(commonServiceKey, serviceModule);
+        }
+      } else {
+        ServiceModule serviceModule = new ServiceModule(stackContext, new ServiceInfo(), serviceDirectory, true);
+        serviceModule.setValid(false);
+        serviceModule.setErrors(metaInfoXml.getErrors());
+        commonServiceModules.put(metaInfoXml.getSchemaVersion(), serviceModule);
+        metaInfoXml.setSchemaVersion(null);
+      }
+    }
+    return commonServiceModules;
+  }
+
+  /**
+   * Parse the specified stack root directory.
+   * Each stack version directory is parsed on the parse thread pool.
    *
    * @param stackRoot  the stack root directory to parse
    * @return map of stack id which contains name and version to stack module.
@@ -279,30 +333,84 @@ public class StackManager {
    */
   private Map<String, StackModule> parseStackDirectory(File stackRoot) throws AmbariException {
     Map<String, StackModule> stackModules = new HashMap<String, StackModule>();
+    List<Callable<StackModule>> tasks = new ArrayList<Callable<StackModule>>();
 
     File[] stackFiles = stackRoot.listFiles(AmbariMetaInfo.FILENAME_FILTER);
     for (File stack : stackFiles) {
       if (stack.isFile()) {
         continue;
       }
-      for (File stackFolder : stack.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
+      for (final File stackFolder : stack.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
         if (stackFolder.isFile()) {
           continue;
         }
-        String stackName = stackFolder.getParentFile().getName();
-        String stackVersion = stackFolder.getName();
-
-        StackModule stackModule = new StackModule(new StackDirectory(stackFolder.getPath()), stackContext);
-        String stackKey = stackName + StackManager.PATH_DELIMITER + stackVersion;
-        stackModules.put(stackKey, stackModule);
-        stackMap.put(stackKey, stackModule.getModuleInfo());
+        tasks.add(new Callable<StackModule>() {
+          @Override
+          public StackModule call() throws AmbariException {
+            return new StackModule(new StackDirectory(stackFolder.getPath()), stackContext);
+          }
+        });
       }
     }
 
+    for (StackModule stackModule : invokeAll(tasks)) {
+      StackInfo stackInfo = stackModule.getModuleInfo();
+      String stackKey = stackInfo.getName() + StackManager.PATH_DELIMITER + stackInfo.getVersion();
+      stackModules.put(stackKey, stackModule);
+      stackMap.put(stackKey, stackInfo);
+    }
+
     if (stackMap.isEmpty()) {
       throw new AmbariException("Unable to find stack definitions under " +
           "stackRoot = " + stackRoot.getAbsolutePath());
     }
     return stackModules;
   }
+
+  /**
+   * Run the given parse tasks on a bounded thread pool and wait for all of
+   * them to complete.  Only directory parsing is done in parallel; stack
+   * resolution still runs on the calling thread since it depends on the
+   * fully parsed stack and service hierarchy.
+   *
+   * @param tasks  the parse tasks
+   * @return the results of the tasks in submission order
+   * @throws AmbariException if any of the tasks failed
+   */
+  private <T> List<T> invokeAll(List<Callable<T>> tasks) throws AmbariException {
+    List<T> results = new ArrayList<T>(tasks.size());
+    if (tasks.isEmpty()) {
+      return results;
+    }
+
+    int threads = Math.min(tasks.size(), PARSE_THREAD_COUNT);
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Stack Definition Parsing Thread-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    try {
+      for (Future<T> future : executor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmbariException("Interrupted while parsing stack definitions", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AmbariException) {
+        throw (AmbariException) cause;
+      }
+      throw new AmbariException("Unable to parse stack definitions", cause);
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
 }
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.stack;
+
+import org.apache.ambari.server.state.ComponentInfo;
+import org.apache.ambari.server.state.ServiceInfo;
+import org.apache.ambari.server.state.StackInfo;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable index of the fully resolved stacks, keyed by stack name, stack
+ * version, service name and component name.  Lookups walk a fixed number of
+ * hash maps and don't allocate, which makes them suitable for the hot paths
+ * (heartbeat processing, resource providers) that resolve stack metadata for
+ * every host and host component.
+ */
+public class StackMetadataIndex {
+
+  /**
+   * Map of stack name to stack version to the indexed stack.
+   */
+  private final Map<String, Map<String, StackEntry>> stacks;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  /**
+   * Build an index of the given stacks.
+   *
+   * @param stackInfos  the fully resolved stacks
+   */
+  public StackMetadataIndex(Collection<StackInfo> stackInfos) {
+    Map<String, Map<String, StackEntry>> stackMap = new HashMap<String, Map<String, StackEntry>>();
+
+    for (StackInfo stackInfo : stackInfos) {
+      Map<String, StackEntry> versions = stackMap.get(stackInfo.getName());
+      if (versions == null) {
+        versions = new HashMap<String, StackEntry>();
+        stackMap.put(stackInfo.getName(), versions);
+      }
+      versions.put(stackInfo.getVersion(), new StackEntry(stackInfo));
+    }
+
+    for (Map.Entry<String, Map<String, StackEntry>> entry : stackMap.entrySet()) {
+      entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+    }
+    stacks = Collections.unmodifiableMap(stackMap);
+  }
+
+
+  // ----- StackMetadataIndex ------------------------------------------------
+
+  /**
+   * Get the stack with the given name and version.
+   *
+   * @param stackName  the stack name
+   * @param version    the stack version
+   *
+   * @return the stack; null if the stack is not indexed
+   */
+  public StackInfo getStack(String stackName, String version) {
+    StackEntry stackEntry = getStackEntry(stackName, version);
+    return stackEntry == null ? null : stackEntry.stackInfo;
+  }
+
+  /**
+   * Get the service with the given name.
+   *
+   * @param stackName    the stack name
+   * @param version      the stack version
+   * @param serviceName  the service name
+   *
+   * @return the service; null if the service is not indexed
+   */
+  public ServiceInfo getService(String stackName, String version, String serviceName) {
+    ServiceEntry serviceEntry = getServiceEntry(stackName, version, serviceName);
+    return serviceEntry == null ? null : serviceEntry.serviceInfo;
+  }
+
+  /**
+   * Get the component with the given name.
+   *
+   * @param stackName      the stack name
+   * @param version        the stack version
+   * @param serviceName    the service name
+   * @param componentName  the component name
+   *
+   * @return the component; null if the component is not indexed
+   */
+  public ComponentInfo getComponent(String stackName, String version, String serviceName,
+                                    String componentName) {
+    ServiceEntry serviceEntry = getServiceEntry(stackName, version, serviceName);
+    return serviceEntry == null || componentName == null ? null :
+        serviceEntry.components.get(componentName);
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private StackEntry getStackEntry(String stackName, String version) {
+    if (stackName == null || version == null) {
+      return null;
+    }
+    Map<String, StackEntry> versions = stacks.get(stackName);
+    return versions == null ? null : versions.get(version);
+  }
+
+  private ServiceEntry getServiceEntry(String stackName, String version, String serviceName) {
+    StackEntry stackEntry = getStackEntry(stackName, version);
+    return stackEntry == null || serviceName == null ? null :
+        stackEntry.services.get(serviceName);
+  }
+
+
+  // ----- inner class : StackEntry ------------------------------------------
+
+  /**
+   * An indexed stack.
+   */
+  private static class StackEntry {
+    private final StackInfo stackInfo;
+    private final Map<String, ServiceEntry> services;
+
+    private StackEntry(StackInfo stackInfo) {
+      this.stackInfo = stackInfo;
+
+      Map<String, ServiceEntry> serviceMap = new HashMap<String, ServiceEntry>();
+      for (ServiceInfo serviceInfo : stackInfo.getServices()) {
+        // keep the first service of a given name, matching StackInfo.getService()
+        if (!serviceMap.containsKey(serviceInfo.getName())) {
+          serviceMap.put(serviceInfo.getName(), new ServiceEntry(serviceInfo));
+        }
+      }
+      services = Collections.unmodifiableMap(serviceMap);
+    }
+  }
+
+
+  // ----- inner class : ServiceEntry ----------------------------------------
+
+  /**
+   * An indexed service.
+   */
+  private static class ServiceEntry {
+    private final ServiceInfo serviceInfo;
+    private final Map<String, ComponentInfo> components;
+
+    private ServiceEntry(ServiceInfo serviceInfo) {
+      this.serviceInfo = serviceInfo;
+
+      Map<String, ComponentInfo> componentMap = new HashMap<String, ComponentInfo>();
+      for (ComponentInfo componentInfo : serviceInfo.getComponents()) {
+        // keep the first component of a given name, matching ServiceInfo.getComponentByName()
+        if (!componentMap.containsKey(componentInfo.getName())) {
+          componentMap.put(componentInfo.getName(), componentInfo);
+        }
+      }
+      components = Collections.unmodifiableMap(componentMap);
+    }
+  }
+}
@@ -18,10 +18,16 @@
 package org.apache.ambari.server.stageplanner;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.apache.ambari.server.Role;
+import org.apache.ambari.server.RoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleCommand;
 import org.apache.ambari.server.actionmanager.Stage;
 import org.apache.ambari.server.metadata.RoleCommandOrder;
@@ -32,6 +38,16 @@ public class RoleGraph {
 
   private static Log LOG = LogFactory.getLog(RoleGraph.class);
 
+  /**
+   * Orders the nodes of a stage the same way as the graph orders its keys.
+   */
+  private static final Comparator<RoleGraphNode> ROLE_NAME_COMPARATOR = new Comparator<RoleGraphNode>() {
+    @Override
+    public int compare(RoleGraphNode rgn1, RoleGraphNode rgn2) {
+      return rgn1.getRole().toString().compareTo(rgn2.getRole().toString());
+    }
+  };
+
   Map<String, RoleGraphNode> graph = null;
   private RoleCommandOrder roleDependencies;
   private Stage initialStage = null;
@@ -55,32 +71,57 @@ public class RoleGraph {
     initialStage = stage;
 
     Map<String, Map<String, HostRoleCommand>> hostRoleCommands = stage.getHostRoleCommands();
-    for (String host : hostRoleCommands.keySet()) {
-      for (String role : hostRoleCommands.get(host).keySet()) {
-        HostRoleCommand hostRoleCommand = hostRoleCommands.get(host).get(role);
-        RoleGraphNode rgn;
-        if (graph.get(role) == null) {
+    for (Map.Entry<String, Map<String, HostRoleCommand>> hostEntry : hostRoleCommands.entrySet()) {
+      String host = hostEntry.getKey();
+      for (Map.Entry<String, HostRoleCommand> roleEntry : hostEntry.getValue().entrySet()) {
+        String role = roleEntry.getKey();
+        RoleGraphNode rgn = graph.get(role);
+        if (rgn == null) {
+          HostRoleCommand hostRoleCommand = roleEntry.getValue();
           rgn = new RoleGraphNode(hostRoleCommand.getRole(),
               hostRoleCommand.getRoleCommand());
           graph.put(role, rgn);
         }
-        rgn = graph.get(role);
         rgn.addHost(host);
       }
     }
 
     if (null != roleDependencies) {
       //Add edges
-      for (String roleI : graph.keySet()) {
-        for (String roleJ : graph.keySet()) {
-          if (!roleI.equals(roleJ)) {
-            RoleGraphNode rgnI = graph.get(roleI);
-            RoleGraphNode rgnJ = graph.get(roleJ);
-            int order = roleDependencies.order(rgnI, rgnJ);
-            if (order == -1) {
-              rgnI.addEdge(rgnJ);
-            } else if (order == 1) {
-              rgnJ.addEdge(rgnI);
+      Map<Role, RoleGraphNode> nodesByRole = new HashMap<Role, RoleGraphNode>();
+      Map<RoleCommand, List<RoleGraphNode>> nodesByCommand =
+          new LinkedHashMap<RoleCommand, List<RoleGraphNode>>();
+      for (RoleGraphNode rgn : graph.values()) {
+        nodesByRole.put(rgn.getRole(), rgn);
+        List<RoleGraphNode> nodes = nodesByCommand.get(rgn.getCommand());
+        if (nodes == null) {
+          nodes = new ArrayList<RoleGraphNode>();
+          nodesByCommand.put(rgn.getCommand(), nodes);
+        }
+        nodes.add(rgn);
+      }
+
+      // explicit dependencies are looked up for each node rather than
+      // checked for each pair of nodes
+      for (RoleGraphNode rgn : graph.values()) {
+        for (RoleGraphNode blocker : roleDependencies.getBlockers(rgn, nodesByRole)) {
+          blocker.addEdge(rgn);
+        }
+      }
+
+      // only nodes with different commands can be ordered by their commands
+      List<List<RoleGraphNode>> commandGroups =
+          new ArrayList<List<RoleGraphNode>>(nodesByCommand.values());
+      for (int i = 0; i < commandGroups.size(); i++) {
+        for (int j = i + 1; j < commandGroups.size(); j++) {
+          for (RoleGraphNode rgnI : commandGroups.get(i)) {
+            for (RoleGraphNode rgnJ : commandGroups.get(j)) {
+              int order = roleDependencies.order(rgnI, rgnJ);
+              if (order == -1) {
+                rgnI.addEdge(rgnJ);
+              } else if (order == 1) {
+                rgnJ.addEdge(rgnI);
+              }
             }
           }
         }
@@ -96,29 +137,37 @@ public class RoleGraph {
     long initialStageId = initialStage.getStageId();
     List<Stage> stageList = new ArrayList<Stage>();
     List<RoleGraphNode> firstStageNodes = new ArrayList<RoleGraphNode>();
+    for (RoleGraphNode rgn : graph.values()) {
+      if (rgn.getInDegree() == 0) {
+        firstStageNodes.add(rgn);
+      }
+    }
+
     while (!graph.isEmpty()) {
       if (LOG.isDebugEnabled()) {
         LOG.debug(this.stringifyGraph());
       }
 
-      for (String role: graph.keySet()) {
-        RoleGraphNode rgn = graph.get(role);
-        if (rgn.getInDegree() == 0) {
-          firstStageNodes.add(rgn);
-        }
+      if (firstStageNodes.isEmpty()) {
+        throw new IllegalStateException("Role command order contains a cycle, "
+            + "unable to plan the remaining roles.\n" + stringifyGraph());
       }
+
       Stage aStage = getStageFromGraphNodes(initialStage, firstStageNodes);
       aStage.setStageId(++initialStageId);
       stageList.add(aStage);
       //Remove first stage nodes from the graph, we know that none of
-      //these nodes have an incoming edges.
+      //these nodes have an incoming edges. The nodes left without incoming
+      //edges make up the next stage.
+      List<RoleGraphNode> nextStageNodes = new ArrayList<RoleGraphNode>();
       for (RoleGraphNode rgn : firstStageNodes) {
         if (this.sameHostOptimization) {
           //Perform optimization
         }
-        removeZeroInDegreeNode(rgn.getRole().toString());
+        removeZeroInDegreeNode(rgn.getRole().toString(), nextStageNodes);
       }
-      firstStageNodes.clear();
+      Collections.sort(nextStageNodes, ROLE_NAME_COMPARATOR);
+      firstStageNodes = nextStageNodes;
     }
     return stageList;
   }
@@ -126,10 +175,14 @@ public class RoleGraph {
   /**
    * Assumes there are no incoming edges.
    */
-  private synchronized void removeZeroInDegreeNode(String role) {
+  private synchronized void removeZeroInDegreeNode(String role,
+      List<RoleGraphNode> zeroInDegreeNodes) {
     RoleGraphNode nodeToRemove = graph.remove(role);
     for (RoleGraphNode edgeNode: nodeToRemove.getEdges()) {
       edgeNode.decrementInDegree();
+      if (edgeNode.getInDegree() == 0) {
+        zeroInDegreeNodes.add(edgeNode);
+      }
     }
   }
 
@@ -143,9 +196,7 @@ public class RoleGraph {
         origStage.getCommandParamsStage(), origStage.getHostParamsStage());
     newStage.setSuccessFactors(origStage.getSuccessFactors());
     for (RoleGraphNode rgn : stageGraphNodes) {
-      for (String host : rgn.getHosts()) {
-        newStage.addExecutionCommandWrapper(origStage, host, rgn.getRole());
-      }
+      newStage.addExecutionCommandWrappers(origStage, rgn.getHosts(), rgn.getRole());
     }
     return newStage;
   }
@@ -80,6 +80,16 @@ public interface Cluster {
    */
   public List<ServiceComponentHost> getServiceComponentHosts(String hostname);
 
+  /**
+   * Get an immutable snapshot of the services of the cluster and the
+   * placement of their components on hosts. The snapshot can be walked
+   * without any cluster locks and stays consistent while the topology
+   * changes; a later call returns a newer snapshot.
+   *
+   * @return the current topology snapshot (never {@code null})
+   */
+  public ClusterTopologySnapshot getTopologySnapshot();
+
 
   /**
    * Get all of the hosts running the provided service and component.
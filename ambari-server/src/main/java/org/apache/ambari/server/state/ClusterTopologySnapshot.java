@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@link ClusterTopologySnapshot} is an immutable view of which services a
+ * cluster has and which component is installed on which host. A
+ * {@link Cluster} publishes a new snapshot whenever its topology changes so
+ * that readers can walk services, components and hosts without taking the
+ * cluster lock at every level.
+ * <p/>
+ * Only the structure is captured. The {@link Service} and
+ * {@link ServiceComponentHost} instances are the live objects, so state such
+ * as the current or desired state of a host component is still read from
+ * them.
+ */
+public final class ClusterTopologySnapshot {
+
+  /**
+   * The version of the topology captured by this snapshot. It increases
+   * every time the topology of the cluster is changed.
+   */
+  private final long m_version;
+
+  /**
+   * [ ServiceName -> Service ]
+   */
+  private final Map<String, Service> m_services;
+
+  /**
+   * [ ServiceName -> [ ServiceComponentName -> [ HostName -> [ ... ] ] ] ]
+   */
+  private final Map<String, Map<String, Map<String, ServiceComponentHost>>> m_serviceComponentHosts;
+
+  /**
+   * [ HostName -> [ ... ] ]
+   */
+  private final Map<String, List<ServiceComponentHost>> m_serviceComponentHostsByHost;
+
+  /**
+   * Constructor. The given structures are copied.
+   *
+   * @param version
+   *          the version of the topology.
+   * @param services
+   *          the services of the cluster (not {@code null}).
+   * @param serviceComponentHosts
+   *          the host components by service, component and host (not
+   *          {@code null}).
+   * @param serviceComponentHostsByHost
+   *          the host components by host (not {@code null}).
+   */
+  public ClusterTopologySnapshot(long version, Map<String, Service> services,
+      Map<String, Map<String, Map<String, ServiceComponentHost>>> serviceComponentHosts,
+      Map<String, List<ServiceComponentHost>> serviceComponentHostsByHost) {
+
+    m_version = version;
+    m_services = Collections.unmodifiableMap(new TreeMap<String, Service>(services));
+
+    Map<String, Map<String, Map<String, ServiceComponentHost>>> byService =
+        new HashMap<String, Map<String, Map<String, ServiceComponentHost>>>();
+
+    for (Map.Entry<String, Map<String, Map<String, ServiceComponentHost>>> serviceEntry : serviceComponentHosts.entrySet()) {
+      Map<String, Map<String, ServiceComponentHost>> byComponent =
+          new HashMap<String, Map<String, ServiceComponentHost>>();
+
+      for (Map.Entry<String, Map<String, ServiceComponentHost>> componentEntry : serviceEntry.getValue().entrySet()) {
+        byComponent.put(componentEntry.getKey(), Collections.unmodifiableMap(
+            new HashMap<String, ServiceComponentHost>(componentEntry.getValue())));
+      }
+
+      byService.put(serviceEntry.getKey(), Collections.unmodifiableMap(byComponent));
+    }
+
+    m_serviceComponentHosts = Collections.unmodifiableMap(byService);
+
+    Map<String, List<ServiceComponentHost>> byHost =
+        new HashMap<String, List<ServiceComponentHost>>();
+
+    for (Map.Entry<String, List<ServiceComponentHost>> hostEntry : serviceComponentHostsByHost.entrySet()) {
+      byHost.put(hostEntry.getKey(), Collections.unmodifiableList(
+          new ArrayList<ServiceComponentHost>(hostEntry.getValue())));
+    }
+
+    m_serviceComponentHostsByHost = Collections.unmodifiableMap(byHost);
+  }
+
+  /**
+   * Gets the version of the topology captured by this snapshot.
+   *
+   * @return the version.
+   */
+  public long getVersion() {
+    return m_version;
+  }
+
+  /**
+   * Gets the services of the cluster.
+   *
+   * @return the services by name (never {@code null}).
+   */
+  public Map<String, Service> getServices() {
+    return m_services;
+  }
+
+  /**
+   * Gets a service of the cluster.
+   *
+   * @param serviceName
+   *          the name of the service.
+   * @return the service, or {@code null} if the cluster doesn't have it.
+   */
+  public Service getService(String serviceName) {
+    return m_services.get(serviceName);
+  }
+
+  /**
+   * Gets the host components of a service component.
+   *
+   * @param serviceName
+   *          the name of the service.
+   * @param componentName
+   *          the name of the component.
+   * @return the host components by host name (never {@code null}).
+   */
+  public Map<String, ServiceComponentHost> getServiceComponentHosts(
+      String serviceName, String componentName) {
+
+    Map<String, Map<String, ServiceComponentHost>> byComponent =
+        m_serviceComponentHosts.get(serviceName);
+
+    if (null == byComponent) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, ServiceComponentHost> byHost = byComponent.get(componentName);
+    if (null == byHost) {
+      return Collections.emptyMap();
+    }
+
+    return byHost;
+  }
+
+  /**
+   * Gets a single host component.
+   *
+   * @param serviceName
+   *          the name of the service.
+   * @param componentName
+   *          the name of the component.
+   * @param hostName
+   *          the name of the host.
+   * @return the host component, or {@code null} if the component isn't
+   *         installed on the host.
+   */
+  public ServiceComponentHost getServiceComponentHost(String serviceName,
+      String componentName, String hostName) {
+    return getServiceComponentHosts(serviceName, componentName).get(hostName);
+  }
+
+  /**
+   * Gets the host components installed on a host.
+   *
+   * @param hostName
+   *          the name of the host.
+   * @return the host components (never {@code null}).
+   */
+  public List<ServiceComponentHost> getServiceComponentHosts(String hostName) {
+    List<ServiceComponentHost> hostComponents = m_serviceComponentHostsByHost.get(hostName);
+    if (null == hostComponents) {
+      return Collections.emptyList();
+    }
+
+    return hostComponents;
+  }
+}
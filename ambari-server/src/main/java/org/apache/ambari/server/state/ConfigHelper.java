@@ -65,6 +65,14 @@ public class ConfigHelper {
   private final boolean STALE_CONFIGS_CACHE_ENABLED;
   private final int STALE_CONFIGS_CACHE_EXPIRATION_TIME = 300;
   private final Cache<ServiceComponentHost, Boolean> staleConfigsCache;
+  private static final int EFFECTIVE_PROPERTIES_CACHE_SIZE = 1000;
+
+  /**
+   * Merged properties keyed by the configs they were merged from. Configs are
+   * never changed once they have a tag, so the merged properties can be
+   * shared by all readers of the same configs.
+   */
+  private final Cache<ConfigsKey, Map<String, String>> effectivePropertiesCache;
 
   private static final Logger LOG =
       LoggerFactory.getLogger(ConfigHelper.class);
@@ -88,6 +96,8 @@ public class ConfigHelper {
     STALE_CONFIGS_CACHE_ENABLED = configuration.isStaleConfigCacheEnabled();
     staleConfigsCache = CacheBuilder.newBuilder().
         expireAfterWrite(STALE_CONFIGS_CACHE_EXPIRATION_TIME, TimeUnit.SECONDS).build();
+    effectivePropertiesCache = CacheBuilder.newBuilder().
+        maximumSize(EFFECTIVE_PROPERTIES_CACHE_SIZE).build();
   }
 
   /**
@@ -170,34 +180,47 @@ public class ConfigHelper {
 
     Map<String, Map<String, String>> properties = new HashMap<String, Map<String, String>>();
 
+    for (Entry<String, Map<String, String>> entry :
+        getEffectiveConfigPropertiesView(cluster, desiredTags).entrySet()) {
+      properties.put(entry.getKey(), new HashMap<String, String>(entry.getValue()));
+    }
+
+    return properties;
+  }
+
+  /**
+   * Get all config properties for a cluster given a set of configType to
+   * versionTags map, like {@link #getEffectiveConfigProperties(Cluster, Map)},
+   * without copying them. The property maps are immutable and shared with
+   * other readers of the same config versions, so callers which only read
+   * the properties should prefer this method.
+   *
+   * @param cluster
+   * @param desiredTags
+   * @return {type : {key, value}}, the inner maps are unmodifiable
+   */
+  public Map<String, Map<String, String>> getEffectiveConfigPropertiesView(
+      Cluster cluster, Map<String, Map<String, String>> desiredTags) {
+
+    Map<String, Map<String, String>> properties = new HashMap<String, Map<String, String>>();
+
     if (desiredTags != null) {
       for (Entry<String, Map<String, String>> entry : desiredTags.entrySet()) {
         String type = entry.getKey();
-        Map<String, String> propertyMap = properties.get(type);
-        if (propertyMap == null) {
-          propertyMap = new HashMap<String, String>();
-        }
+        Map<String, String> propertyMap = Collections.emptyMap();
 
         Map<String, String> tags = new HashMap<String, String>(entry.getValue());
-        String clusterTag = tags.get(CLUSTER_DEFAULT_TAG);
+        String clusterTag = tags.remove(CLUSTER_DEFAULT_TAG);
 
         // Overrides is only supported if the config type exists at cluster
         // level
         if (clusterTag != null) {
-          Config config = cluster.getConfig(type, clusterTag);
-          if (config != null) {
-            propertyMap.putAll(config.getProperties());
-          }
-          tags.remove(CLUSTER_DEFAULT_TAG);
-          // Now merge overrides
-          for (Entry<String, String> overrideEntry : tags.entrySet()) {
-            Config overrideConfig = cluster.getConfig(type,
-                overrideEntry.getValue());
-
-            if (overrideConfig != null) {
-              propertyMap = getMergedConfig(propertyMap, overrideConfig.getProperties());
-            }
+          List<Config> configs = new ArrayList<Config>(1 + tags.size());
+          configs.add(cluster.getConfig(type, clusterTag));
+          for (String overrideTag : tags.values()) {
+            configs.add(cluster.getConfig(type, overrideTag));
           }
+          propertyMap = getMergedProperties(configs);
         }
         properties.put(type, propertyMap);
       }
@@ -206,6 +229,36 @@ public class ConfigHelper {
     return properties;
   }
 
+  /**
+   * Gets the properties of the first config merged with the overrides of the
+   * following ones, merging them only if the same configs weren't merged
+   * before.
+   *
+   * @param configs the cluster config followed by its overrides, any of them
+   *                may be {@code null}
+   * @return the unmodifiable merged properties
+   */
+  private Map<String, String> getMergedProperties(List<Config> configs) {
+    ConfigsKey key = new ConfigsKey(configs);
+    Map<String, String> merged = effectivePropertiesCache.getIfPresent(key);
+
+    if (merged == null) {
+      Config config = configs.get(0);
+      merged = (config == null) ? new HashMap<String, String>() : config.getProperties();
+
+      for (Config overrideConfig : configs.subList(1, configs.size())) {
+        if (overrideConfig != null) {
+          merged = getMergedConfig(merged, overrideConfig.getProperties());
+        }
+      }
+
+      merged = Collections.unmodifiableMap(merged);
+      effectivePropertiesCache.put(key, merged);
+    }
+
+    return merged;
+  }
+
   /**
    * Get all config attributes for a cluster given a set of configType to
    * versionTags map. This helper method merges all the override tags with a
@@ -1025,4 +1078,48 @@ public class ConfigHelper {
   }
 
 
+
+  /**
+   * Identifies a list of configs by the identity of its elements.
+   */
+  private static final class ConfigsKey {
+    private final List<Config> configs;
+    private final int hashCode;
+
+    private ConfigsKey(List<Config> configs) {
+      this.configs = configs;
+
+      int hash = 1;
+      for (Config config : configs) {
+        hash = 31 * hash + System.identityHashCode(config);
+      }
+      hashCode = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ConfigsKey)) {
+        return false;
+      }
+
+      List<Config> other = ((ConfigsKey) o).configs;
+      if (configs.size() != other.size()) {
+        return false;
+      }
+      for (int i = 0; i < configs.size(); i++) {
+        if (configs.get(i) != other.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
 }
@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.state;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -40,6 +41,7 @@ import org.apache.ambari.server.orm.entities.HostComponentStateEntity;
 import org.apache.ambari.server.orm.entities.ServiceComponentDesiredStateEntity;
 import org.apache.ambari.server.orm.entities.ServiceComponentDesiredStateEntityPK;
 import org.apache.ambari.server.state.cluster.ClusterImpl;
+import org.apache.ambari.server.utils.StageUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,6 +77,13 @@ public class ServiceComponentImpl implements ServiceComponent {
   private ServiceComponentDesiredStateEntity desiredStateEntity;
   private Map<String, ServiceComponentHost> hostComponents;
 
+  /**
+   * An immutable copy of {@link #hostComponents}, or {@code null} if the host
+   * components changed since it was taken. Readers which find a copy here
+   * don't need any locks.
+   */
+  private volatile Map<String, ServiceComponentHost> hostComponentsSnapshot = null;
+
   @AssistedInject
   public ServiceComponentImpl(@Assisted Service service,
                               @Assisted String componentName, Injector injector) throws AmbariException {
@@ -168,13 +177,29 @@ public class ServiceComponentImpl implements ServiceComponent {
     return service.getClusterId();
   }
 
-  @Override
-  public Map<String, ServiceComponentHost> getServiceComponentHosts() {
+  /**
+   * Gets an immutable copy of the host components of this component, taking
+   * a new one under the locks only if they changed since the last copy.
+   *
+   * @return the host components by host name (never {@code null})
+   */
+  private Map<String, ServiceComponentHost> getHostComponentsSnapshot() {
+    Map<String, ServiceComponentHost> snapshot = hostComponentsSnapshot;
+    if (null != snapshot) {
+      return snapshot;
+    }
+
     clusterGlobalLock.readLock().lock();
     try {
       readWriteLock.readLock().lock();
       try {
-        return new HashMap<String, ServiceComponentHost>(hostComponents);
+        snapshot = hostComponentsSnapshot;
+        if (null == snapshot) {
+          snapshot = Collections.unmodifiableMap(
+              new HashMap<String, ServiceComponentHost>(hostComponents));
+          hostComponentsSnapshot = snapshot;
+        }
+        return snapshot;
       } finally {
         readWriteLock.readLock().unlock();
       }
@@ -183,6 +208,11 @@ public class ServiceComponentImpl implements ServiceComponent {
     }
   }
 
+  @Override
+  public Map<String, ServiceComponentHost> getServiceComponentHosts() {
+    return new HashMap<String, ServiceComponentHost>(getHostComponentsSnapshot());
+  }
+
   @Override
   public void addServiceComponentHosts(
       Map<String, ServiceComponentHost> hostComponents) throws AmbariException {
@@ -238,6 +268,8 @@ public class ServiceComponentImpl implements ServiceComponent {
         ClusterImpl clusterImpl = (ClusterImpl) service.getCluster();
         clusterImpl.addServiceComponentHost(hostComponent);
         hostComponents.put(hostComponent.getHostName(), hostComponent);
+        hostComponentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
       } finally {
         readWriteLock.writeLock().unlock();
       }
@@ -277,6 +309,8 @@ public class ServiceComponentImpl implements ServiceComponent {
         clusterImpl.addServiceComponentHost(hostComponent);
 
         hostComponents.put(hostComponent.getHostName(), hostComponent);
+        hostComponentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
 
         return hostComponent;
       } finally {
@@ -290,21 +324,12 @@ public class ServiceComponentImpl implements ServiceComponent {
   @Override
   public ServiceComponentHost getServiceComponentHost(String hostname)
       throws AmbariException {
-    clusterGlobalLock.readLock().lock();
-    try {
-      readWriteLock.readLock().lock();
-      try {
-        if (!hostComponents.containsKey(hostname)) {
-          throw new ServiceComponentHostNotFoundException(getClusterName(),
-              getServiceName(), getName(), hostname);
-        }
-        return hostComponents.get(hostname);
-      } finally {
-        readWriteLock.readLock().unlock();
-      }
-    } finally {
-      clusterGlobalLock.readLock().unlock();
+    ServiceComponentHost sch = getHostComponentsSnapshot().get(hostname);
+    if (null == sch) {
+      throw new ServiceComponentHostNotFoundException(getClusterName(),
+          getServiceName(), getName(), hostname);
     }
+    return sch;
   }
 
   @Override
@@ -569,6 +594,8 @@ public class ServiceComponentImpl implements ServiceComponent {
         }
 
         hostComponents.clear();
+        hostComponentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
       } finally {
         readWriteLock.writeLock().unlock();
       }
@@ -599,6 +626,8 @@ public class ServiceComponentImpl implements ServiceComponent {
         }
         sch.delete();
         hostComponents.remove(hostname);
+        hostComponentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
 
       } finally {
         readWriteLock.writeLock().unlock();
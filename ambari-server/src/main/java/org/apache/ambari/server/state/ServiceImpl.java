@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.state;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -39,6 +40,7 @@ import org.apache.ambari.server.orm.entities.ClusterServiceEntity;
 import org.apache.ambari.server.orm.entities.ClusterServiceEntityPK;
 import org.apache.ambari.server.orm.entities.ServiceComponentDesiredStateEntity;
 import org.apache.ambari.server.orm.entities.ServiceDesiredStateEntity;
+import org.apache.ambari.server.utils.StageUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +66,13 @@ public class ServiceImpl implements Service {
   private boolean persisted = false;
   private final Cluster cluster;
   private Map<String, ServiceComponent> components;
+
+  /**
+   * An immutable copy of {@link #components}, or {@code null} if the
+   * components changed since it was taken. Readers which find a copy here
+   * don't need any locks.
+   */
+  private volatile Map<String, ServiceComponent> componentsSnapshot = null;
   private final boolean isClientOnlyService;
 
   @Inject
@@ -170,9 +179,30 @@ public class ServiceImpl implements Service {
 
   @Override
   public Map<String, ServiceComponent> getServiceComponents() {
+    return new HashMap<String, ServiceComponent>(getComponentsSnapshot());
+  }
+
+  /**
+   * Gets an immutable copy of the components of this service, taking a new
+   * one under the lock only if they changed since the last copy.
+   *
+   * @return the components by name (never {@code null})
+   */
+  private Map<String, ServiceComponent> getComponentsSnapshot() {
+    Map<String, ServiceComponent> snapshot = componentsSnapshot;
+    if (null != snapshot) {
+      return snapshot;
+    }
+
     readWriteLock.readLock().lock();
     try {
-      return new HashMap<String, ServiceComponent>(components);
+      snapshot = componentsSnapshot;
+      if (null == snapshot) {
+        snapshot = Collections.unmodifiableMap(
+            new HashMap<String, ServiceComponent>(components));
+        componentsSnapshot = snapshot;
+      }
+      return snapshot;
     } finally {
       readWriteLock.readLock().unlock();
     }
@@ -219,6 +249,8 @@ public class ServiceImpl implements Service {
               + ", serviceComponentName=" + component.getName());
         }
         components.put(component.getName(), component);
+        componentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
       } finally {
         readWriteLock.writeLock().unlock();
       }
@@ -250,6 +282,8 @@ public class ServiceImpl implements Service {
         }
         ServiceComponent component = serviceComponentFactory.createNew(this, serviceComponentName);
         components.put(component.getName(), component);
+        componentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
         return component;
       } finally {
         readWriteLock.writeLock().unlock();
@@ -262,16 +296,12 @@ public class ServiceImpl implements Service {
   @Override
   public ServiceComponent getServiceComponent(String componentName)
       throws AmbariException {
-    readWriteLock.readLock().lock();
-    try {
-      if (!components.containsKey(componentName)) {
-        throw new ServiceComponentNotFoundException(cluster.getClusterName(),
-            getName(), componentName);
-      }
-      return components.get(componentName);
-    } finally {
-      readWriteLock.readLock().unlock();
+    ServiceComponent component = getComponentsSnapshot().get(componentName);
+    if (null == component) {
+      throw new ServiceComponentNotFoundException(cluster.getClusterName(),
+          getName(), componentName);
     }
+    return component;
   }
 
   @Override
@@ -545,6 +575,8 @@ public class ServiceImpl implements Service {
         }
 
         components.clear();
+        componentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
       } finally {
         readWriteLock.writeLock().unlock();
       }
@@ -575,6 +607,8 @@ public class ServiceImpl implements Service {
 
         component.delete();
         components.remove(componentName);
+        componentsSnapshot = null;
+        StageUtils.invalidateClusterHostInfo();
       } finally {
         readWriteLock.writeLock().unlock();
       }
@@ -501,13 +501,9 @@ public class AlertDefinitionHash {
         // designed to be 1:1 per change; if multiple invalidations happened
         // before the next heartbeat, there would be several commands that would
         // force the agents to reschedule their alerts more than once
-        m_actionQueue.dequeue(hostName,
-            AgentCommandType.ALERT_DEFINITION_COMMAND);
-
-        m_actionQueue.dequeue(hostName,
+        m_actionQueue.replace(hostName, command,
+            AgentCommandType.ALERT_DEFINITION_COMMAND,
             AgentCommandType.ALERT_EXECUTION_COMMAND);
-
-        m_actionQueue.enqueue(hostName, command);
       }
     } finally {
       m_actionQueueLock.unlock();
@@ -0,0 +1,521 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.alert;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.EagerSingleton;
+import org.apache.ambari.server.events.AlertDefinitionDeleteEvent;
+import org.apache.ambari.server.events.AlertDefinitionDisabledEvent;
+import org.apache.ambari.server.events.AlertStateChangeEvent;
+import org.apache.ambari.server.events.HostRemovedEvent;
+import org.apache.ambari.server.events.InitialAlertEvent;
+import org.apache.ambari.server.events.MaintenanceModeEvent;
+import org.apache.ambari.server.events.ServiceComponentUninstalledEvent;
+import org.apache.ambari.server.events.ServiceRemovedEvent;
+import org.apache.ambari.server.events.publishers.AlertEventPublisher;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.orm.dao.AlertHostSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+import org.apache.ambari.server.state.AlertState;
+import org.apache.ambari.server.state.MaintenanceState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link AlertSummaryCounters} class keeps in-memory counts of the current
+ * alerts of every cluster, broken down by service and by host, so that alert
+ * summaries can be rendered without running the aggregate queries of
+ * {@link AlertsDAO#findCurrentCounts(long, String, String)} and
+ * {@link AlertsDAO#findCurrentHostCounts(long)} for every resource.
+ * <p/>
+ * The counts of a cluster are loaded from the database on first use and are
+ * then updated from {@link InitialAlertEvent} and {@link AlertStateChangeEvent}.
+ * Events which change the maintenance state of alerts or remove current
+ * alerts in bulk mark the counts stale so that they are reloaded on the next
+ * read. The counts are also reconciled against the database every
+ * {@link #RECONCILE_INTERVAL_MILLIS} to correct any drift.
+ */
+@Singleton
+@EagerSingleton
+public class AlertSummaryCounters {
+
+  /**
+   * Logger.
+   */
+  private final static Logger LOG = LoggerFactory.getLogger(AlertSummaryCounters.class);
+
+  /**
+   * How long loaded counts are trusted before they are reconciled against the
+   * database.
+   */
+  public static final long RECONCILE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * Indices into the count arrays.
+   */
+  private static final int OK = 0;
+  private static final int WARNING = 1;
+  private static final int CRITICAL = 2;
+  private static final int UNKNOWN = 3;
+  private static final int MAINTENANCE = 4;
+  private static final int COUNT_SIZE = 5;
+
+  /**
+   * Used to load the current alerts of a cluster.
+   */
+  @Inject
+  private AlertsDAO m_alertsDao;
+
+  /**
+   * The counts of each loaded cluster, keyed by cluster ID.
+   */
+  private final ConcurrentMap<Long, ClusterCounts> m_clusterCounts =
+      new ConcurrentHashMap<Long, ClusterCounts>();
+
+  /**
+   * Serializes loading of cluster counts.
+   */
+  private final Object m_loadLock = new Object();
+
+  /**
+   * Constructor.
+   *
+   * @param alertEventPublisher
+   *          the publisher of alert state changes
+   * @param ambariEventPublisher
+   *          the publisher of maintenance mode and removal events
+   */
+  @Inject
+  public AlertSummaryCounters(AlertEventPublisher alertEventPublisher,
+      AmbariEventPublisher ambariEventPublisher) {
+    alertEventPublisher.register(this);
+    ambariEventPublisher.register(this);
+  }
+
+  /**
+   * Gets the summary of the current alerts for the specified scope. This
+   * returns the same counts as
+   * {@link AlertsDAO#findCurrentCounts(long, String, String)}.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @param serviceName
+   *          the service name, or {@code null} for all services
+   * @param hostName
+   *          the host name, or {@code null} for all hosts
+   * @return the summary DTO (never {@code null}).
+   */
+  public AlertSummaryDTO getSummary(long clusterId, String serviceName,
+      String hostName) {
+    ClusterCounts clusterCounts = getClusterCounts(clusterId);
+    int[] counts = clusterCounts.getCounts(serviceName, hostName);
+
+    return new AlertSummaryDTO(counts[OK], counts[WARNING], counts[CRITICAL],
+        counts[UNKNOWN], counts[MAINTENANCE]);
+  }
+
+  /**
+   * Gets the number of hosts in each alert state, where the state of a host is
+   * the most severe state of its alerts that are not in maintenance mode. This
+   * returns the same counts as {@link AlertsDAO#findCurrentHostCounts(long)}.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @return the host summary DTO (never {@code null}).
+   */
+  public AlertHostSummaryDTO getHostSummary(long clusterId) {
+    return getClusterCounts(clusterId).getHostSummary();
+  }
+
+  /**
+   * Marks the counts of every cluster as stale so that they are reloaded from
+   * the database on the next read.
+   */
+  public void invalidateAll() {
+    for (ClusterCounts clusterCounts : m_clusterCounts.values()) {
+      clusterCounts.invalidate();
+    }
+  }
+
+  /**
+   * Counts a newly received alert.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAlertEvent(InitialAlertEvent event) {
+    update(event.getClusterId(), event.getCurrentAlert());
+  }
+
+  /**
+   * Moves an alert between the counts of its old and new state.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAlertEvent(AlertStateChangeEvent event) {
+    update(event.getClusterId(), event.getCurrentAlert());
+  }
+
+  /**
+   * Maintenance mode changes are applied to the current alerts by other
+   * listeners of the same event, so the counts can only be reloaded.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAmbariEvent(MaintenanceModeEvent event) {
+    invalidateAll();
+  }
+
+  /**
+   * Current alerts for the removed host are deleted in bulk.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAmbariEvent(HostRemovedEvent event) {
+    invalidateAll();
+  }
+
+  /**
+   * Current alerts for the removed service are deleted in bulk.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAmbariEvent(ServiceRemovedEvent event) {
+    invalidate(event.getClusterId());
+  }
+
+  /**
+   * Current alerts for the uninstalled component are deleted in bulk.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAmbariEvent(ServiceComponentUninstalledEvent event) {
+    invalidate(event.getClusterId());
+  }
+
+  /**
+   * Current alerts for the deleted definition are deleted in bulk.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAmbariEvent(AlertDefinitionDeleteEvent event) {
+    invalidate(event.getClusterId());
+  }
+
+  /**
+   * Current alerts for the disabled definition are deleted in bulk.
+   *
+   * @param event
+   *          the event to handle.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAmbariEvent(AlertDefinitionDisabledEvent event) {
+    invalidate(event.getClusterId());
+  }
+
+  /**
+   * Gets the current time; exposed for testing reconciliation.
+   *
+   * @return the current time in milliseconds.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Gets the counts of a cluster, loading them if they were never loaded, are
+   * stale, or are due for reconciliation.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @return the counts (never {@code null}).
+   */
+  private ClusterCounts getClusterCounts(long clusterId) {
+    ClusterCounts clusterCounts = m_clusterCounts.get(clusterId);
+    if (null != clusterCounts && clusterCounts.isCurrent(currentTimeMillis())) {
+      return clusterCounts;
+    }
+
+    synchronized (m_loadLock) {
+      clusterCounts = m_clusterCounts.get(clusterId);
+      if (null != clusterCounts && clusterCounts.isCurrent(currentTimeMillis())) {
+        return clusterCounts;
+      }
+
+      clusterCounts = new ClusterCounts(currentTimeMillis());
+      List<AlertCurrentEntity> currentAlerts = m_alertsDao.findCurrentByCluster(clusterId);
+      for (AlertCurrentEntity currentAlert : currentAlerts) {
+        clusterCounts.update(currentAlert);
+      }
+
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Loaded alert summary counts for cluster {} from {} current alerts",
+            clusterId, currentAlerts.size());
+      }
+
+      m_clusterCounts.put(clusterId, clusterCounts);
+      return clusterCounts;
+    }
+  }
+
+  /**
+   * Applies the latest state of a current alert to the counts of its cluster,
+   * if they are loaded.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @param currentAlert
+   *          the current alert
+   */
+  private void update(long clusterId, AlertCurrentEntity currentAlert) {
+    if (null == currentAlert || null == currentAlert.getAlertId()) {
+      return;
+    }
+
+    ClusterCounts clusterCounts = m_clusterCounts.get(clusterId);
+    if (null != clusterCounts) {
+      clusterCounts.update(currentAlert);
+    }
+  }
+
+  /**
+   * Marks the counts of a cluster as stale.
+   *
+   * @param clusterId
+   *          the cluster id
+   */
+  private void invalidate(long clusterId) {
+    ClusterCounts clusterCounts = m_clusterCounts.get(clusterId);
+    if (null != clusterCounts) {
+      clusterCounts.invalidate();
+    }
+  }
+
+  /**
+   * Gets the index into a count array for an alert.
+   *
+   * @param state
+   *          the alert state
+   * @param maintenanceState
+   *          the maintenance state of the current alert
+   * @return the index, or {@code -1} if the alert should not be counted.
+   */
+  private static int getIndex(AlertState state, MaintenanceState maintenanceState) {
+    if (null != maintenanceState && maintenanceState != MaintenanceState.OFF) {
+      return MAINTENANCE;
+    }
+
+    if (null == state) {
+      return -1;
+    }
+
+    switch (state) {
+      case OK:
+        return OK;
+      case WARNING:
+        return WARNING;
+      case CRITICAL:
+        return CRITICAL;
+      case UNKNOWN:
+        return UNKNOWN;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * The counted scope of a single current alert.
+   */
+  private static final class CountedAlert {
+    private final String m_serviceName;
+    private final String m_hostName;
+    private final int m_index;
+
+    private CountedAlert(String serviceName, String hostName, int index) {
+      m_serviceName = serviceName;
+      m_hostName = hostName;
+      m_index = index;
+    }
+  }
+
+  /**
+   * The counts of a single cluster. All access to the counts is synchronized on
+   * the instance since updates arrive concurrently from the alert event bus.
+   */
+  private static final class ClusterCounts {
+    private final long m_loadedAt;
+    private volatile boolean m_stale = false;
+
+    private final Map<Long, CountedAlert> m_alerts = new HashMap<Long, CountedAlert>();
+    private final int[] m_counts = new int[COUNT_SIZE];
+    private final Map<String, int[]> m_serviceCounts = new HashMap<String, int[]>();
+    private final Map<String, int[]> m_hostCounts = new HashMap<String, int[]>();
+
+    private ClusterCounts(long loadedAt) {
+      m_loadedAt = loadedAt;
+    }
+
+    private boolean isCurrent(long now) {
+      return !m_stale && now - m_loadedAt < RECONCILE_INTERVAL_MILLIS;
+    }
+
+    private void invalidate() {
+      m_stale = true;
+    }
+
+    private synchronized void update(AlertCurrentEntity currentAlert) {
+      AlertHistoryEntity history = currentAlert.getAlertHistory();
+      if (null == history) {
+        return;
+      }
+
+      CountedAlert previous = m_alerts.remove(currentAlert.getAlertId());
+      if (null != previous) {
+        add(previous, -1);
+      }
+
+      int index = getIndex(history.getAlertState(), currentAlert.getMaintenanceState());
+      if (index < 0) {
+        return;
+      }
+
+      CountedAlert counted = new CountedAlert(history.getServiceName(),
+          history.getHostName(), index);
+
+      m_alerts.put(currentAlert.getAlertId(), counted);
+      add(counted, 1);
+    }
+
+    private void add(CountedAlert counted, int delta) {
+      m_counts[counted.m_index] += delta;
+
+      if (null != counted.m_serviceName) {
+        add(m_serviceCounts, counted.m_serviceName, counted.m_index, delta);
+      }
+
+      if (null != counted.m_hostName) {
+        add(m_hostCounts, counted.m_hostName, counted.m_index, delta);
+      }
+    }
+
+    private static void add(Map<String, int[]> countsByName, String name,
+        int index, int delta) {
+      int[] counts = countsByName.get(name);
+      if (null == counts) {
+        counts = new int[COUNT_SIZE];
+        countsByName.put(name, counts);
+      }
+
+      counts[index] += delta;
+
+      if (isEmpty(counts)) {
+        countsByName.remove(name);
+      }
+    }
+
+    private synchronized int[] getCounts(String serviceName, String hostName) {
+      if (null == serviceName && null == hostName) {
+        return m_counts.clone();
+      }
+
+      // both a service and a host are never asked for together by the
+      // summary provider, so count the intersection the slow way
+      if (null != serviceName && null != hostName) {
+        int[] counts = new int[COUNT_SIZE];
+        for (CountedAlert counted : m_alerts.values()) {
+          if (serviceName.equals(counted.m_serviceName)
+              && hostName.equals(counted.m_hostName)) {
+            counts[counted.m_index]++;
+          }
+        }
+        return counts;
+      }
+
+      int[] counts = null != serviceName ? m_serviceCounts.get(serviceName)
+          : m_hostCounts.get(hostName);
+
+      return null == counts ? new int[COUNT_SIZE] : counts.clone();
+    }
+
+    private synchronized AlertHostSummaryDTO getHostSummary() {
+      int okCount = 0;
+      int warningCount = 0;
+      int criticalCount = 0;
+      int unknownCount = 0;
+
+      for (int[] counts : m_hostCounts.values()) {
+        if (counts[CRITICAL] > 0) {
+          criticalCount++;
+        } else if (counts[WARNING] > 0) {
+          warningCount++;
+        } else if (counts[UNKNOWN] > 0) {
+          unknownCount++;
+        } else {
+          okCount++;
+        }
+      }
+
+      return new AlertHostSummaryDTO(okCount, unknownCount, warningCount,
+          criticalCount);
+    }
+
+    private static boolean isEmpty(int[] counts) {
+      for (int count : counts) {
+        if (count != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
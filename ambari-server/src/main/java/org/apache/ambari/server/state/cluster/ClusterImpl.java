@@ -84,6 +84,7 @@ import org.apache.ambari.server.orm.entities.ServiceConfigEntity;
 import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.ClusterHealthReport;
+import org.apache.ambari.server.state.ClusterTopologySnapshot;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ComponentInfo;
 import org.apache.ambari.server.state.Config;
@@ -111,6 +112,7 @@ import org.apache.ambari.server.state.fsm.InvalidStateTransitionException;
 import org.apache.ambari.server.state.scheduler.RequestExecution;
 import org.apache.ambari.server.state.scheduler.RequestExecutionFactory;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostSummary;
+import org.apache.ambari.server.utils.StageUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -234,6 +236,18 @@ public class ClusterImpl implements Cluster {
 
   private volatile boolean svcHostsLoaded = false;
 
+  /**
+   * The last published topology snapshot, or {@code null} if the topology
+   * changed since it was published. Readers which find a snapshot here don't
+   * need the cluster lock.
+   */
+  private volatile ClusterTopologySnapshot topologySnapshot = null;
+
+  /**
+   * The version of the topology, guarded by the cluster global lock.
+   */
+  private long topologyVersion = 0;
+
   private volatile Multimap<String, String> serviceConfigTypes;
 
   @Inject
@@ -367,6 +381,7 @@ public class ClusterImpl implements Cluster {
         }
       }
       svcHostsLoaded = true;
+      invalidateTopologySnapshot();
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -581,22 +596,14 @@ public class ClusterImpl implements Cluster {
 
   public ServiceComponentHost getServiceComponentHost(String serviceName,
       String serviceComponentName, String hostname) throws AmbariException {
-    loadServiceHostComponents();
-    clusterGlobalLock.readLock().lock();
-    try {
-      if (!serviceComponentHosts.containsKey(serviceName)
-          || !serviceComponentHosts.get(serviceName).containsKey(
-              serviceComponentName)
-          || !serviceComponentHosts.get(serviceName).get(serviceComponentName).containsKey(
-              hostname)) {
-        throw new ServiceComponentHostNotFoundException(getClusterName(),
-            serviceName, serviceComponentName, hostname);
-      }
-      return serviceComponentHosts.get(serviceName).get(serviceComponentName).get(
-          hostname);
-    } finally {
-      clusterGlobalLock.readLock().unlock();
+    ServiceComponentHost sch = getTopologySnapshot().getServiceComponentHost(
+        serviceName, serviceComponentName, hostname);
+
+    if (null == sch) {
+      throw new ServiceComponentHostNotFoundException(getClusterName(),
+          serviceName, serviceComponentName, hostname);
     }
+    return sch;
   }
 
   @Override
@@ -686,6 +693,7 @@ public class ClusterImpl implements Cluster {
       serviceComponentHosts.get(serviceName).get(componentName).put(hostname,
           svcCompHost);
       serviceComponentHostsByHost.get(hostname).add(svcCompHost);
+      invalidateTopologySnapshot();
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -769,6 +777,7 @@ public class ClusterImpl implements Cluster {
       if (schToRemove != null) {
         serviceComponentHostsByHost.get(hostname).remove(schToRemove);
       }
+      invalidateTopologySnapshot();
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -782,19 +791,59 @@ public class ClusterImpl implements Cluster {
   @Override
   public List<ServiceComponentHost> getServiceComponentHosts(
     String hostname) {
+    return new CopyOnWriteArrayList<ServiceComponentHost>(
+        getTopologySnapshot().getServiceComponentHosts(hostname));
+  }
+
+  @Override
+  public ClusterTopologySnapshot getTopologySnapshot() {
+    ClusterTopologySnapshot snapshot = topologySnapshot;
+    if (null != snapshot) {
+      return snapshot;
+    }
+
     loadServiceHostComponents();
     clusterGlobalLock.readLock().lock();
     try {
-      if (serviceComponentHostsByHost.containsKey(hostname)) {
-        return new CopyOnWriteArrayList<ServiceComponentHost>(
-            serviceComponentHostsByHost.get(hostname));
+      // writers hold the write lock while changing the topology, so the
+      // structures can't change while the snapshot is copied from them
+      snapshot = topologySnapshot;
+      if (null == snapshot) {
+        snapshot = new ClusterTopologySnapshot(topologyVersion, services,
+            serviceComponentHosts, serviceComponentHostsByHost);
+
+        topologySnapshot = snapshot;
       }
-      return new ArrayList<ServiceComponentHost>();
+      return snapshot;
     } finally {
       clusterGlobalLock.readLock().unlock();
     }
   }
 
+  /**
+   * Gets the topology snapshot for the service reads, publishing it if needed.
+   * Services are loaded before their host components, and loading them may
+   * look services up again, so the locked maps are read until the host
+   * components have been loaded.
+   *
+   * @return the snapshot, or {@code null} if the host components haven't been
+   *         loaded yet.
+   */
+  private ClusterTopologySnapshot getLoadedTopologySnapshot() {
+    return svcHostsLoaded ? getTopologySnapshot() : null;
+  }
+
+  /**
+   * Drop the published topology snapshot after a change to the services or
+   * the placement of host components. The next read publishes a new one.
+   * Must be called while holding the cluster global write lock.
+   */
+  private void invalidateTopologySnapshot() {
+    topologyVersion++;
+    topologySnapshot = null;
+    StageUtils.invalidateClusterHostInfo();
+  }
+
   @Override
   public void addService(Service service)
     throws AmbariException {
@@ -812,6 +861,7 @@ public class ClusterImpl implements Cluster {
             + ", serviceName=" + service.getName());
       }
       services.put(service.getName(), service);
+      invalidateTopologySnapshot();
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -833,6 +883,7 @@ public class ClusterImpl implements Cluster {
       }
       Service s = serviceFactory.createNew(this, serviceName);
       services.put(s.getName(), s);
+      invalidateTopologySnapshot();
       return s;
     } finally {
       clusterGlobalLock.writeLock().unlock();
@@ -842,6 +893,15 @@ public class ClusterImpl implements Cluster {
   @Override
   public Service getService(String serviceName)
     throws AmbariException {
+    ClusterTopologySnapshot snapshot = getLoadedTopologySnapshot();
+    if (null != snapshot) {
+      Service service = snapshot.getService(serviceName);
+      if (null == service) {
+        throw new ServiceNotFoundException(getClusterName(), serviceName);
+      }
+      return service;
+    }
+
     loadServices();
     clusterGlobalLock.readLock().lock();
     try {
@@ -856,6 +916,11 @@ public class ClusterImpl implements Cluster {
 
   @Override
   public Map<String, Service> getServices() {
+    ClusterTopologySnapshot snapshot = getLoadedTopologySnapshot();
+    if (null != snapshot) {
+      return new HashMap<String, Service>(snapshot.getServices());
+    }
+
     loadServices();
     clusterGlobalLock.readLock().lock();
     try {
@@ -1740,6 +1805,7 @@ public class ClusterImpl implements Cluster {
       }
 
       services.clear();
+      invalidateTopologySnapshot();
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -1762,6 +1828,7 @@ public class ClusterImpl implements Cluster {
       }
       service.delete();
       services.remove(serviceName);
+      invalidateTopologySnapshot();
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
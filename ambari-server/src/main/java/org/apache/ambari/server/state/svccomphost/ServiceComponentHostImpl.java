@@ -75,6 +75,7 @@ import org.apache.ambari.server.state.fsm.SingleArcTransition;
 import org.apache.ambari.server.state.fsm.StateMachine;
 import org.apache.ambari.server.state.fsm.StateMachineFactory;
 import org.apache.ambari.server.state.stack.upgrade.RepositoryVersionHelper;
+import org.apache.ambari.server.utils.StageUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -1099,6 +1100,8 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     try {
       getDesiredStateEntity().setAdminState(attribute);
       saveIfPersisted();
+      // decommissioned hosts are part of the cluster host info
+      StageUtils.invalidateClusterHostInfo();
     } finally {
       writeLock.unlock();
     }
@@ -1188,13 +1191,7 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
           persisted = true;
 
           // publish the service component installed event
-          StackId stackId = getDesiredStackVersion();
-
-          ServiceComponentInstalledEvent event = new ServiceComponentInstalledEvent(
-              getClusterId(), stackId.getStackName(),
-              stackId.getStackVersion(), getServiceName(), getServiceComponentName(), getHostName());
-
-          eventPublisher.publish(event);
+          eventPublisher.publish(createInstalledEvent());
         } else {
           saveIfPersisted();
         }
@@ -1211,8 +1208,6 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
   @Transactional
   protected void persistEntities() {
     HostEntity hostEntity = hostDAO.findByName(getHostName());
-    hostEntity.addHostComponentStateEntity(stateEntity);
-    hostEntity.addHostComponentDesiredStateEntity(desiredStateEntity);
 
     ServiceComponentDesiredStateEntityPK dpk = new ServiceComponentDesiredStateEntityPK();
     dpk.setClusterId(serviceComponent.getClusterId());
@@ -1220,6 +1215,27 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     dpk.setComponentName(serviceComponent.getName());
 
     ServiceComponentDesiredStateEntity serviceComponentDesiredStateEntity = serviceComponentDesiredStateDAO.findByPK(dpk);
+
+    persistEntities(hostEntity, serviceComponentDesiredStateEntity);
+
+    serviceComponentDesiredStateDAO.merge(serviceComponentDesiredStateEntity);
+    hostDAO.merge(hostEntity);
+  }
+
+  /**
+   * Creates the state entities of this host component against already loaded
+   * host and service component entities. Neither owning entity is merged and
+   * no query is issued, so that {@link ServiceComponentHostPersister} can
+   * write many host components as a single batch.
+   *
+   * @param hostEntity                         the managed host entity
+   * @param serviceComponentDesiredStateEntity the managed service component entity
+   */
+  void persistEntities(HostEntity hostEntity,
+      ServiceComponentDesiredStateEntity serviceComponentDesiredStateEntity) {
+    hostEntity.addHostComponentStateEntity(stateEntity);
+    hostEntity.addHostComponentDesiredStateEntity(desiredStateEntity);
+
     serviceComponentDesiredStateEntity.getHostComponentDesiredStateEntities().add(desiredStateEntity);
 
     desiredStateEntity.setServiceComponentDesiredStateEntity(serviceComponentDesiredStateEntity);
@@ -1229,9 +1245,46 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
     hostComponentStateDAO.create(stateEntity);
     hostComponentDesiredStateDAO.create(desiredStateEntity);
+  }
 
-    serviceComponentDesiredStateDAO.merge(serviceComponentDesiredStateEntity);
-    hostDAO.merge(hostEntity);
+  /**
+   * Marks this host component as persisted once its entities have been
+   * written by {@link ServiceComponentHostPersister}.
+   */
+  void setPersisted() {
+    writeLock.lock();
+    try {
+      persisted = true;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Creates the event announcing that this host component was added.
+   *
+   * @return the installed event
+   */
+  ServiceComponentInstalledEvent createInstalledEvent() {
+    StackId stackId = getDesiredStackVersion();
+
+    return new ServiceComponentInstalledEvent(getClusterId(),
+        stackId.getStackName(), stackId.getStackVersion(), getServiceName(),
+        getServiceComponentName(), getHostName());
+  }
+
+  /**
+   * @return the service component this host component belongs to
+   */
+  ServiceComponent getServiceComponent() {
+    return serviceComponent;
+  }
+
+  /**
+   * @return the host this host component is installed on
+   */
+  Host getHost() {
+    return host;
   }
 
   @Override
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.state.svccomphost;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.events.ServiceComponentInstalledEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.orm.dao.HostDAO;
+import org.apache.ambari.server.orm.dao.ServiceComponentDesiredStateDAO;
+import org.apache.ambari.server.orm.entities.HostEntity;
+import org.apache.ambari.server.orm.entities.ServiceComponentDesiredStateEntity;
+import org.apache.ambari.server.orm.entities.ServiceComponentDesiredStateEntityPK;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
+
+/**
+ * The {@link ServiceComponentHostPersister} writes a set of new
+ * {@link ServiceComponentHost} instances in a single transaction. Unlike
+ * {@link ServiceComponentHost#persist()}, which looks up, merges and refreshes
+ * the owning host and service component for every host component, the
+ * owning entities are loaded once up front, the host component entities are
+ * created without any intervening query so that they are flushed as JDBC
+ * batches, and each host and service component is refreshed once at the end.
+ * The {@link ServiceComponentInstalledEvent}s are published only after the
+ * transaction that wrote the topology has returned, so that listeners never
+ * observe host components that could still be rolled back.
+ */
+@Singleton
+public class ServiceComponentHostPersister {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOG = LoggerFactory.getLogger(ServiceComponentHostPersister.class);
+
+  @Inject
+  private HostDAO hostDAO;
+
+  @Inject
+  private ServiceComponentDesiredStateDAO serviceComponentDesiredStateDAO;
+
+  @Inject
+  private AmbariEventPublisher eventPublisher;
+
+  /**
+   * Persists the given host components and publishes their installed events.
+   * Host components which have already been persisted are skipped. Callers
+   * running inside their own transaction should use {@link #write(Collection)}
+   * and {@link #publish(List)} instead, publishing once that transaction has
+   * returned.
+   *
+   * @param hostComponents  the new host components; they must already be
+   *                        added to their service component
+   *
+   * @throws AmbariException if a host or service component of the topology
+   *                         does not exist
+   */
+  public void persist(Collection<ServiceComponentHost> hostComponents) throws AmbariException {
+    publish(write(hostComponents));
+  }
+
+  /**
+   * Writes the given host components in a single transaction without
+   * publishing any event. Host components which have already been persisted
+   * are skipped.
+   *
+   * @param hostComponents  the new host components; they must already be
+   *                        added to their service component
+   *
+   * @return the installed events of the written host components, to be
+   *         passed to {@link #publish(List)} after the transaction
+   *
+   * @throws AmbariException if a host or service component of the topology
+   *                         does not exist
+   */
+  @Transactional
+  public List<ServiceComponentInstalledEvent> write(Collection<ServiceComponentHost> hostComponents)
+      throws AmbariException {
+    List<ServiceComponentHostImpl> newHostComponents = new ArrayList<ServiceComponentHostImpl>();
+    Set<String> hostNames = new LinkedHashSet<String>();
+    for (ServiceComponentHost hostComponent : hostComponents) {
+      if (!hostComponent.isPersisted()) {
+        newHostComponents.add((ServiceComponentHostImpl) hostComponent);
+        hostNames.add(hostComponent.getHostName());
+      }
+    }
+
+    if (newHostComponents.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    // load every owning entity before the first insert so that no query
+    // forces a flush while the host component entities are being created
+    Map<String, HostEntity> hostEntities = new HashMap<String, HostEntity>();
+    for (HostEntity hostEntity : hostDAO.findByNames(hostNames)) {
+      hostEntity.getHostComponentStateEntities().size();
+      hostEntity.getHostComponentDesiredStateEntities().size();
+      hostEntities.put(hostEntity.getHostName(), hostEntity);
+    }
+
+    Map<ServiceComponent, ServiceComponentDesiredStateEntity> componentEntities =
+        new HashMap<ServiceComponent, ServiceComponentDesiredStateEntity>();
+    Set<Host> hosts = new LinkedHashSet<Host>();
+    for (ServiceComponentHostImpl hostComponent : newHostComponents) {
+      if (!hostEntities.containsKey(hostComponent.getHostName())) {
+        throw new AmbariException("Unable to persist host component " +
+            hostComponent.getServiceComponentName() + ", host " +
+            hostComponent.getHostName() + " does not exist");
+      }
+
+      ServiceComponent serviceComponent = hostComponent.getServiceComponent();
+      if (!componentEntities.containsKey(serviceComponent)) {
+        ServiceComponentDesiredStateEntityPK pk = new ServiceComponentDesiredStateEntityPK();
+        pk.setClusterId(serviceComponent.getClusterId());
+        pk.setServiceName(serviceComponent.getServiceName());
+        pk.setComponentName(serviceComponent.getName());
+
+        ServiceComponentDesiredStateEntity componentEntity = serviceComponentDesiredStateDAO.findByPK(pk);
+        if (componentEntity == null) {
+          throw new AmbariException("Unable to persist host components of " +
+              serviceComponent.getName() + ", the service component does not exist");
+        }
+        componentEntity.getHostComponentDesiredStateEntities().size();
+        componentEntities.put(serviceComponent, componentEntity);
+      }
+      hosts.add(hostComponent.getHost());
+    }
+
+    for (ServiceComponentHostImpl hostComponent : newHostComponents) {
+      ServiceComponent serviceComponent = hostComponent.getServiceComponent();
+      Lock clusterWriteLock = serviceComponent.getClusterGlobalLock().writeLock();
+      clusterWriteLock.lock();
+      try {
+        hostComponent.persistEntities(hostEntities.get(hostComponent.getHostName()),
+            componentEntities.get(serviceComponent));
+      } finally {
+        clusterWriteLock.unlock();
+      }
+    }
+
+    // the host lookups flush the pending inserts, so the service component
+    // entities are refreshed against the written rows
+    for (Host host : hosts) {
+      host.refresh();
+    }
+    for (ServiceComponent serviceComponent : componentEntities.keySet()) {
+      serviceComponent.refresh();
+    }
+
+    for (ServiceComponentHostImpl hostComponent : newHostComponents) {
+      hostComponent.setPersisted();
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Persisted " + newHostComponents.size() + " host components on " +
+          hostEntities.size() + " hosts");
+    }
+
+    List<ServiceComponentInstalledEvent> events =
+        new ArrayList<ServiceComponentInstalledEvent>(newHostComponents.size());
+    for (ServiceComponentHostImpl hostComponent : newHostComponents) {
+      events.add(hostComponent.createInstalledEvent());
+    }
+    return events;
+  }
+
+  /**
+   * Publishes the installed events returned by {@link #write(Collection)}.
+   *
+   * @param events  the installed events
+   */
+  public void publish(List<ServiceComponentInstalledEvent> events) {
+    for (ServiceComponentInstalledEvent event : events) {
+      eventPublisher.publish(event);
+    }
+  }
+}
@@ -18,6 +18,8 @@
 package org.apache.ambari.server.utils;
 
 import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.Role;
@@ -57,6 +59,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class StageUtils {
 
@@ -71,6 +74,17 @@ public class StageUtils {
       new HashMap<String, String>();
   private volatile static Gson gson;
 
+  /**
+   * Incremented whenever the topology of any cluster changes.
+   */
+  private static final AtomicLong topologyVersion = new AtomicLong();
+
+  /**
+   * The computed cluster host information keyed by cluster instance.
+   */
+  private static final Cache<Cluster, CachedClusterHostInfo> clusterHostInfoCache =
+      CacheBuilder.newBuilder().weakKeys().build();
+
   private static String server_hostname;
   static {
     try {
@@ -219,8 +233,93 @@ public class StageUtils {
     return actionExecContext.getParameters() != null ? actionExecContext.getParameters() : new TreeMap<String, String>();
   }
 
+  /**
+   * Gets the cluster host information sent to the agents with every command.
+   * The result is cached per cluster until the cluster topology changes (see
+   * {@link #invalidateClusterHostInfo()}) or the hosts or their ping ports
+   * change.
+   *
+   * @param allHosts
+   *          the hosts of the cluster
+   * @param cluster
+   *          the cluster
+   * @return a copy of the cluster host information which may be modified by
+   *         the caller
+   * @throws AmbariException
+   */
   public static Map<String, Set<String>> getClusterHostInfo(
       Map<String, Host> allHosts, Cluster cluster) throws AmbariException {
+    Map<String, Set<String>> clusterHostInfo = new HashMap<String, Set<String>>();
+    for (Entry<String, Set<String>> entry : getCachedClusterHostInfo(allHosts,
+        cluster).clusterHostInfo.entrySet()) {
+      clusterHostInfo.put(entry.getKey(),
+          new LinkedHashSet<String>(entry.getValue()));
+    }
+    return clusterHostInfo;
+  }
+
+  /**
+   * Gets the JSON encoded cluster host information, serializing it only once
+   * per cluster topology.
+   *
+   * @param allHosts
+   *          the hosts of the cluster
+   * @param cluster
+   *          the cluster
+   * @return the JSON encoded cluster host information
+   * @throws AmbariException
+   * @see #getClusterHostInfo(Map, Cluster)
+   */
+  public static String getClusterHostInfoJson(Map<String, Host> allHosts,
+      Cluster cluster) throws AmbariException {
+    CachedClusterHostInfo cached = getCachedClusterHostInfo(allHosts, cluster);
+    String json = cached.json;
+    if (null == json) {
+      json = getGson().toJson(cached.clusterHostInfo);
+      cached.json = json;
+    }
+    return json;
+  }
+
+  /**
+   * Invalidates the cached cluster host information of all clusters. Must be
+   * called whenever services, components or host components are added or
+   * removed, or the admin state of a host component changes.
+   */
+  public static void invalidateClusterHostInfo() {
+    topologyVersion.incrementAndGet();
+  }
+
+  private static CachedClusterHostInfo getCachedClusterHostInfo(
+      Map<String, Host> allHosts, Cluster cluster) throws AmbariException {
+
+    // read the version before computing so that a concurrent topology change
+    // leaves a stale entry behind rather than a wrong one
+    long version = topologyVersion.get();
+
+    List<String> hostNames = new ArrayList<String>(allHosts.size());
+    List<Integer> pingPorts = new ArrayList<Integer>(allHosts.size());
+    for (Host host : allHosts.values()) {
+      hostNames.add(host.getHostName());
+      pingPorts.add(host.getCurrentPingPort() == null ?
+          DEFAULT_PING_PORT : host.getCurrentPingPort());
+    }
+
+    CachedClusterHostInfo cached = clusterHostInfoCache.getIfPresent(cluster);
+    if (null != cached && cached.version == version
+        && cached.hostNames.equals(hostNames)
+        && cached.pingPorts.equals(pingPorts)) {
+      return cached;
+    }
+
+    cached = new CachedClusterHostInfo(version, hostNames, pingPorts,
+        computeClusterHostInfo(allHosts, cluster));
+    clusterHostInfoCache.put(cluster, cached);
+    return cached;
+  }
+
+  private static Map<String, Set<String>> computeClusterHostInfo(
+      Map<String, Host> allHosts, Cluster cluster) throws AmbariException {
 
     Map<String, SortedSet<Integer>> hostRolesInfo = new HashMap<String, SortedSet<Integer>>();
 
@@ -239,7 +338,10 @@ public class StageUtils {
       portsList.add(currentPingPort);
     }
 
-    List<String> hostsList = new ArrayList<String>(hostsSet);
+    Map<String, Integer> hostIndexes = new HashMap<String, Integer>();
+    for (String hostName : hostsSet) {
+      hostIndexes.put(hostName, hostIndexes.size());
+    }
 
     //     Fill host roles
     // Fill hosts for services
@@ -273,9 +375,8 @@ public class StageUtils {
               hostRolesInfo.put(roleName, hostsForComponentsHost);
             }
 
-            int hostIndex = hostsList.indexOf(hostName);
             //Add index of host to current host role
-            hostsForComponentsHost.add(hostIndex);
+            hostsForComponentsHost.add(getHostIndex(hostIndexes, hostName));
           }
 
           if (decomRoleName != null) {
@@ -288,9 +389,8 @@ public class StageUtils {
                 hostRolesInfo.put(decomRoleName, hostsForComponentsHost);
               }
 
-              int hostIndex = hostsList.indexOf(hostName);
               //Add index of host to current host role
-              hostsForComponentsHost.add(hostIndex);
+              hostsForComponentsHost.add(getHostIndex(hostIndexes, hostName));
             }
           }
         }
@@ -322,6 +422,11 @@ public class StageUtils {
     return clusterHostInfo;
   }
 
+  private static int getHostIndex(Map<String, Integer> hostIndexes, String hostName) {
+    Integer hostIndex = hostIndexes.get(hostName);
+    return null == hostIndex ? -1 : hostIndex;
+  }
+
   /**
    * Finds ranges in sorted set and replaces ranges by compact notation
    * <p/>
@@ -408,4 +513,24 @@ public class StageUtils {
   public static String getHostName() {
     return server_hostname;
   }
+
+  /**
+   * The cluster host information computed for a topology version along with
+   * the hosts and ping ports it was computed from.
+   */
+  private static final class CachedClusterHostInfo {
+    private final long version;
+    private final List<String> hostNames;
+    private final List<Integer> pingPorts;
+    private final Map<String, Set<String>> clusterHostInfo;
+    private volatile String json;
+
+    private CachedClusterHostInfo(long version, List<String> hostNames,
+        List<Integer> pingPorts, Map<String, Set<String>> clusterHostInfo) {
+      this.version = version;
+      this.hostNames = hostNames;
+      this.pingPorts = pingPorts;
+      this.clusterHostInfo = clusterHostInfo;
+    }
+  }
 }
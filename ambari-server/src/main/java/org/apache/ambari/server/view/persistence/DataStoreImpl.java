@@ -41,6 +41,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -172,6 +173,71 @@ public class DataStoreImpl implements DataStore {
     }
   }
 
+  @Override
+  public void storeAll(Collection<?> entities) throws PersistenceException {
+    checkInitialize();
+
+    if (entities.isEmpty()) {
+      return;
+    }
+
+    EntityManager em = getEntityManager();
+    try {
+      em.getTransaction().begin();
+      try {
+        for (Object entity : entities) {
+          persistEntity(entity, em, new HashSet<DynamicEntity>());
+        }
+        em.getTransaction().commit();
+      } catch (Exception e) {
+        if (em.getTransaction()!= null) {
+          em.getTransaction().rollback();
+        }
+        throwPersistenceException("Caught exception trying to store " + entities.size() + " view entities", e);
+      }
+    } finally {
+      em.close();
+    }
+  }
+
+  @Override
+  public void removeAll(Collection<?> entities) throws PersistenceException {
+    checkInitialize();
+
+    if (entities.isEmpty()) {
+      return;
+    }
+
+    EntityManager em = getEntityManager();
+    try {
+      em.getTransaction().begin();
+      try {
+        for (Object entity : entities) {
+          Class       clazz = entity.getClass();
+          String      id    = getIdFieldName(clazz);
+          DynamicType type  = getDynamicEntityType(clazz);
+
+          if (type != null) {
+            Map<String, Object> properties    = getEntityProperties(entity);
+            DynamicEntity       dynamicEntity = em.getReference(type.getJavaClass(), properties.get(id));
+
+            if (dynamicEntity != null) {
+              em.remove(dynamicEntity);
+            }
+          }
+        }
+        em.getTransaction().commit();
+      } catch (Exception e) {
+        if (em.getTransaction()!= null) {
+          em.getTransaction().rollback();
+        }
+        throwPersistenceException("Caught exception trying to remove " + entities.size() + " view entities", e);
+      }
+    } finally {
+      em.close();
+    }
+  }
+
   @Override
   public <T> T find(Class<T> clazz, Object primaryKey) throws PersistenceException {
     checkInitialize();
@@ -205,7 +271,7 @@ public class DataStoreImpl implements DataStore {
 
       if (type != null) {
         try {
-          Query query = em.createQuery(getSelectStatement(clazz, whereClause));
+          Query query = em.createQuery(getSelectStatement(clazz, whereClause, null));
 
           List dynamicEntities = query.getResultList();
 
@@ -224,6 +290,66 @@ public class DataStoreImpl implements DataStore {
   }
 
 
+  @Override
+  public <T> List<T> findAll(Class<T> clazz, String whereClause, int offset, int limit, String orderBy)
+      throws PersistenceException {
+    checkInitialize();
+
+    EntityManager em = getEntityManager();
+    try {
+      List<T>     resources = new ArrayList<T>();
+      DynamicType type      = getDynamicEntityType(clazz);
+
+      if (type != null) {
+        try {
+          Query query = em.createQuery(getSelectStatement(clazz, whereClause, orderBy));
+
+          query.setFirstResult(offset);
+          if (limit >= 0) {
+            query.setMaxResults(limit);
+          }
+
+          List dynamicEntities = query.getResultList();
+
+          for (Object dynamicEntity : dynamicEntities) {
+            resources.add(toEntity(clazz, type, (DynamicEntity) dynamicEntity));
+          }
+        } catch (Exception e) {
+          throwPersistenceException("Caught exception trying to find " +
+              clazz.getName() + " where " + whereClause + " order by " + orderBy +
+              " (offset=" + offset + ", limit=" + limit + ")", e);
+        }
+      }
+      return resources;
+    } finally {
+      em.close();
+    }
+  }
+
+  @Override
+  public long count(Class<?> clazz, String whereClause) throws PersistenceException {
+    checkInitialize();
+
+    EntityManager em = getEntityManager();
+    try {
+      DynamicType type = getDynamicEntityType(clazz);
+
+      if (type != null) {
+        try {
+          Query query = em.createQuery(getStatement("SELECT COUNT(e)", clazz, whereClause, null));
+
+          return ((Number) query.getSingleResult()).longValue();
+        } catch (Exception e) {
+          throwPersistenceException("Caught exception trying to count " +
+              clazz.getName() + " where " + whereClause, e);
+        }
+      }
+      return 0L;
+    } finally {
+      em.close();
+    }
+  }
+
   // ----- helper methods ----------------------------------------------------
 
   // lazy initialize the data store
@@ -433,33 +559,53 @@ public class DataStoreImpl implements DataStore {
     return resource;
   }
 
-  // build a JPA select statement from the given view entity class and where clause
-  private <T> String getSelectStatement(Class<T> clazz, String whereClause)
+  // build a JPA select statement from the given view entity class, where clause and order by clause
+  private <T> String getSelectStatement(Class<T> clazz, String whereClause, String orderBy)
+      throws IntrospectionException {
+    return getStatement("SELECT e", clazz, whereClause, orderBy);
+  }
+
+  // build a JPA statement from the given select clause, view entity class, where clause and order by clause
+  private String getStatement(String select, Class<?> clazz, String whereClause, String orderBy)
       throws IntrospectionException {
     StringBuilder stringBuilder = new StringBuilder();
     String        entityName    = entityClassMap.get(clazz);
 
-    stringBuilder.append("SELECT e FROM ").append(entityName).append(" e");
-    if (whereClause != null) {
-      stringBuilder.append(" WHERE");
+    stringBuilder.append(select).append(" FROM ").append(entityName).append(" e");
+    if (whereClause != null || orderBy != null) {
+      Set<String> propertyNames = getPropertyNames(clazz);
+
+      if (whereClause != null) {
+        stringBuilder.append(" WHERE");
+        appendClause(stringBuilder, propertyNames, whereClause);
+      }
+      if (orderBy != null) {
+        stringBuilder.append(" ORDER BY");
+        appendClause(stringBuilder, propertyNames, orderBy);
+      }
+    }
+    return stringBuilder.toString();
+  }
 
-      Set<String>     propertyNames = getPropertyNames(clazz);
-      StringTokenizer tokenizer     = new StringTokenizer(whereClause, " \t\n\r\f+-*/=><()\"", true);
-      boolean         quoted        = false;
+  // append the given clause to the statement, qualifying the unquoted property names with the entity alias
+  private static void appendClause(StringBuilder stringBuilder, Set<String> propertyNames, String clause) {
+    StringTokenizer tokenizer = new StringTokenizer(clause, " \t\n\r\f+-*/=><(),\"", true);
+    boolean         quoted    = false;
 
-      while (tokenizer.hasMoreElements()) {
-        String token = tokenizer.nextToken();
+    while (tokenizer.hasMoreElements()) {
+      String token = tokenizer.nextToken();
 
-        quoted = quoted ^ token.equals("\"");
+      quoted = quoted ^ token.equals("\"");
 
-        if (propertyNames.contains(token) && !quoted) {
-          stringBuilder.append(" e.").append(token);
-        } else {
-          stringBuilder.append(token);
+      if (propertyNames.contains(token) && !quoted) {
+        if (!Character.isWhitespace(stringBuilder.charAt(stringBuilder.length() - 1))) {
+          stringBuilder.append(' ');
         }
+        stringBuilder.append("e.").append(token);
+      } else {
+        stringBuilder.append(token);
       }
     }
-    return stringBuilder.toString();
   }
 
   // get a map of properties from the given view entity
@@ -21,6 +21,7 @@ import static org.apache.ambari.server.orm.DBAccessor.DbType.ORACLE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -297,6 +298,22 @@ public class TestActionDBAccessorImpl {
     }
   }
 
+  @Test
+  public void testPersistActionsUnknownHost() throws AmbariException {
+    Stage s = createStubStage(hostName, requestId, stageId);
+    s.addHostRoleExecutionCommand("unknown_host", Role.HBASE_REGIONSERVER,
+        RoleCommand.START, null, "cluster1", "HBASE", false);
+
+    List<Stage> stages = new ArrayList<Stage>();
+    stages.add(s);
+    try {
+      db.persistActions(new Request(stages, clusters));
+      fail("Expected AmbariException for a host that doesn't exist");
+    } catch (AmbariException e) {
+      assertTrue(e.getMessage().contains("unknown_host"));
+    }
+  }
+
   @Test
   public void testHostRoleScheduled() throws InterruptedException, AmbariException {
     populateActionDB(db, hostName, requestId, stageId);
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+/**
+ * Tests {@link AgentConfigurationCache}.
+ */
+public class AgentConfigurationCacheTest {
+
+  private AgentConfigurationCache cache;
+
+  @Before
+  public void setup() {
+    cache = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(Configuration.class).toInstance(new Configuration(new Properties()));
+      }
+    }).getInstance(AgentConfigurationCache.class);
+  }
+
+  @Test
+  public void testCompactExecutionCommand() throws Exception {
+    ExecutionCommand command = new ExecutionCommand();
+    command.setCommandId("1-1");
+    command.setConfigurations(createConfigurations("bar"));
+
+    Map<String, Set<String>> clusterHostInfo = new HashMap<String, Set<String>>();
+    clusterHostInfo.put("all_hosts", new TreeSet<String>(Arrays.asList("h1", "h2")));
+    command.setClusterHostInfo(clusterHostInfo);
+
+    ExecutionCommand compacted = cache.compact(command);
+
+    // the original command is left untouched
+    assertNotNull(command.getConfigurations());
+    assertNull(command.getConfigurationHashes());
+
+    assertEquals("1-1", compacted.getCommandId());
+    assertNull(compacted.getConfigurations());
+    assertNull(compacted.getClusterHostInfo());
+    assertEquals(2, compacted.getConfigurationHashes().size());
+
+    String hash = compacted.getConfigurationHashes().get("foo-site");
+    Map<String, String> fooSite = new Gson().fromJson(
+        new String(cache.getBlob(hash), "UTF-8"),
+        new TypeToken<Map<String, String>>() {}.getType());
+    assertEquals(command.getConfigurations().get("foo-site"), fooSite);
+
+    assertNotNull(cache.getBlob(compacted.getClusterHostInfoHash()));
+    assertNull(cache.getBlob("unknown"));
+  }
+
+  @Test
+  public void testIdenticalContentSharesHash() throws Exception {
+    StatusCommand first = new StatusCommand();
+    first.setConfigurations(createConfigurations("bar"));
+
+    StatusCommand second = new StatusCommand();
+    second.setConfigurations(createConfigurations("bar"));
+
+    StatusCommand changed = new StatusCommand();
+    changed.setConfigurations(createConfigurations("baz"));
+
+    Map<String, String> firstHashes = cache.compact(first).getConfigurationHashes();
+    Map<String, String> secondHashes = cache.compact(second).getConfigurationHashes();
+    Map<String, String> changedHashes = cache.compact(changed).getConfigurationHashes();
+
+    assertEquals(firstHashes, secondHashes);
+    assertEquals(firstHashes.get("bar-site"), changedHashes.get("bar-site"));
+    assertFalse(firstHashes.get("foo-site").equals(changedHashes.get("foo-site")));
+  }
+
+  @Test
+  public void testHashIgnoresIterationOrder() throws Exception {
+    Set<String> hosts = new LinkedHashSet<String>(Arrays.asList("h1", "h2"));
+    Set<String> reversed = new LinkedHashSet<String>(Arrays.asList("h2", "h1"));
+    assertEquals(AgentConfigurationCache.hash(hosts),
+        AgentConfigurationCache.hash(reversed));
+
+    // the order of lists is significant
+    assertFalse(AgentConfigurationCache.hash(Arrays.asList("h1", "h2")).equals(
+        AgentConfigurationCache.hash(Arrays.asList("h2", "h1"))));
+
+    // values cannot run into their neighbours
+    Map<String, String> first = new HashMap<String, String>();
+    first.put("a", "bc");
+    Map<String, String> second = new HashMap<String, String>();
+    second.put("ab", "c");
+    assertFalse(AgentConfigurationCache.hash(first).equals(
+        AgentConfigurationCache.hash(second)));
+  }
+
+  @Test
+  public void testCompactAlertDefinitionCommand() throws Exception {
+    AlertDefinitionCommand command = new AlertDefinitionCommand("c1", "h1",
+        "hash", null);
+
+    // nothing to replace without configurations
+    assertNull(cache.compact(command).getConfigurationHashes());
+
+    command.setConfigurations(createConfigurations("bar"));
+    AlertDefinitionCommand compacted = cache.compact(command);
+    assertNull(compacted.getConfigurations());
+    assertEquals("h1", compacted.getHostName());
+    assertSame(command.getAlertDefinitions(), compacted.getAlertDefinitions());
+    assertEquals(2, compacted.getConfigurationHashes().size());
+  }
+
+  @Test
+  public void testPinnedHashesSurviveEviction() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.AGENT_CONFIG_CACHE_SIZE_KEY, "2");
+    final Configuration configuration = new Configuration(properties);
+    cache = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(Configuration.class).toInstance(configuration);
+      }
+    }).getInstance(AgentConfigurationCache.class);
+
+    StatusCommand command = new StatusCommand();
+    command.setConfigurations(createConfigurations("bar"));
+    HeartBeatResponse response = new HeartBeatResponse();
+    response.addStatusCommand(cache.compact(command));
+    cache.pin("h1", response);
+
+    String hash = response.getStatusCommands().get(0).getConfigurationHashes().get("foo-site");
+    String barHash = response.getStatusCommands().get(0).getConfigurationHashes().get("bar-site");
+
+    // evict the content of the first response from the cache
+    StatusCommand other = new StatusCommand();
+    Map<String, Map<String, String>> configurations = createConfigurations("baz");
+    configurations.get("bar-site").put("bar", "qux");
+    other.setConfigurations(configurations);
+    cache.compact(other);
+
+    // the lost response is sent again, its hashes must still be resolvable
+    assertNotNull(cache.getBlob(hash));
+    assertNotNull(cache.getBlob(barHash));
+
+    // the next response releases the hashes of the previous one
+    cache.pin("h1", new HeartBeatResponse());
+    assertNull(cache.getBlob(hash));
+    assertNull(cache.getBlob(barHash));
+  }
+
+  private Map<String, Map<String, String>> createConfigurations(String foo) {
+    Map<String, Map<String, String>> configurations = new HashMap<String, Map<String, String>>();
+
+    Map<String, String> fooSite = new HashMap<String, String>();
+    fooSite.put("foo", foo);
+    fooSite.put("foobar", "baz");
+    configurations.put("foo-site", fooSite);
+
+    Map<String, String> barSite = new HashMap<String, String>();
+    barSite.put("bar", "baz");
+    configurations.put("bar-site", barSite);
+
+    return configurations;
+  }
+}
@@ -26,6 +26,7 @@ import com.google.inject.Injector;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.persist.jpa.AmbariJpaPersistModule;
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.config.ClientConfig;
@@ -261,6 +262,24 @@ public class AgentResourceTest extends JerseyTest {
     Assert.assertEquals(response.getClusterName(), "dummycluster");
   }
 
+  @Test
+  public void agentConfigurations() {
+    client = Client.create(new DefaultClientConfig());
+    WebResource webResource = client.resource("http://localhost:9998/configurations/abc123");
+
+    ClientResponse response = webResource.get(ClientResponse.class);
+    Assert.assertEquals(200, response.getStatus());
+    Assert.assertEquals("{\"foo\":\"bar\"}", response.getEntity(String.class));
+    Assert.assertEquals("abc123", response.getEntityTag().getValue());
+
+    // the agent already holds the content for the tag
+    response = webResource.header("If-None-Match", "\"abc123\"").get(ClientResponse.class);
+    Assert.assertEquals(304, response.getStatus());
+
+    response = client.resource("http://localhost:9998/configurations/unknown").get(ClientResponse.class);
+    Assert.assertEquals(404, response.getStatus());
+  }
+
   public class MockModule extends AbstractModule {
 
     RegistrationResponse response = new RegistrationResponse();
@@ -282,6 +301,8 @@ public class AgentResourceTest extends JerseyTest {
             hresponse);
         when(handler.handleComponents(any(String.class))).thenReturn(
             componentsResponse);
+        when(handler.handleConfiguration("abc123")).thenReturn(
+            "{\"foo\":\"bar\"}".getBytes("UTF-8"));
       } catch (Exception ex) {
         // The test will fail anyway
       }
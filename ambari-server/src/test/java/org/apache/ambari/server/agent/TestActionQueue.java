@@ -18,12 +18,16 @@
 package org.apache.ambari.server.agent;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 
 import org.apache.ambari.server.agent.AgentCommand.AgentCommandType;
+import org.apache.ambari.server.configuration.Configuration;
 import org.easymock.EasyMock;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -263,4 +267,116 @@ public class TestActionQueue {
     assertEquals(4, queue.size(c6401));
     assertEquals(3, queue.size(c6402));
   }
+
+  @Test
+  public void testStatusCommandsCoalesced() throws Exception {
+    ActionQueue queue = new ActionQueue();
+    String hostname = "c6401.ambari.apache.org";
+
+    StatusCommand datanode1 = createStatusCommand("DATANODE");
+    StatusCommand namenode = createStatusCommand("NAMENODE");
+    StatusCommand datanode2 = createStatusCommand("DATANODE");
+    ExecutionCommand execution = new ExecutionCommand();
+
+    queue.enqueue(hostname, datanode1);
+    queue.enqueue(hostname, execution);
+    queue.enqueue(hostname, namenode);
+    queue.enqueue(hostname, datanode2);
+
+    // the second DATANODE status command replaces the first in place
+    assertEquals(3, queue.size(hostname));
+    assertEquals(2, queue.size(hostname, AgentCommandType.STATUS_COMMAND));
+    assertEquals(Integer.valueOf(3), queue.getQueueDepths().get(hostname));
+
+    assertSame(datanode2, queue.dequeue(hostname));
+    assertSame(execution, queue.dequeue(hostname));
+
+    // once dequeued, a status command is queued again
+    queue.enqueue(hostname, datanode1);
+    assertSame(namenode, queue.dequeue(hostname));
+    assertSame(datanode1, queue.dequeue(hostname));
+    assertNull(queue.dequeue(hostname));
+  }
+
+  @Test
+  public void testDequeueTask() throws Exception {
+    ActionQueue queue = new ActionQueue();
+    String hostname = "c6401.ambari.apache.org";
+
+    ExecutionCommand datanode = new ExecutionCommand();
+    datanode.setCommandId("1-1");
+    datanode.setTaskId(1L);
+
+    ExecutionCommand namenode = new ExecutionCommand();
+    namenode.setCommandId("1-1");
+    namenode.setTaskId(2L);
+
+    queue.enqueue(hostname, datanode);
+    queue.enqueue(hostname, namenode);
+
+    assertSame(namenode, queue.dequeue(hostname, 2L));
+    assertNull(queue.dequeue(hostname, 2L));
+    assertEquals(1, queue.size(hostname));
+
+    assertSame(datanode, queue.dequeue(hostname, "1-1"));
+    assertNull(queue.dequeue(hostname, "1-1"));
+    assertNull(queue.dequeue(hostname, 1L));
+    assertEquals(0, queue.size(hostname, AgentCommandType.EXECUTION_COMMAND));
+  }
+
+  @Test
+  public void testReplace() throws Exception {
+    ActionQueue queue = new ActionQueue();
+    String hostname = "c6401.ambari.apache.org";
+
+    queue.enqueue(hostname, new AlertDefinitionCommand("c1", hostname, "1", null));
+    queue.enqueue(hostname, new AlertExecutionCommand("c1", hostname, null));
+    queue.enqueue(hostname, new ExecutionCommand());
+
+    AlertDefinitionCommand command = new AlertDefinitionCommand("c1",
+        hostname, "2", null);
+
+    List<AgentCommand> removed = queue.replace(hostname, command,
+        AgentCommandType.ALERT_DEFINITION_COMMAND,
+        AgentCommandType.ALERT_EXECUTION_COMMAND);
+
+    assertEquals(2, removed.size());
+    assertEquals(2, queue.size(hostname));
+    assertEquals(AgentCommandType.EXECUTION_COMMAND,
+        queue.dequeue(hostname).getCommandType());
+    assertSame(command, queue.dequeue(hostname));
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.AGENT_QUEUE_SIZE_MAX_KEY, "2");
+    ActionQueue queue = new ActionQueue(new Configuration(properties));
+    String hostname = "c6401.ambari.apache.org";
+
+    queue.enqueue(hostname, createStatusCommand("DATANODE"));
+    queue.enqueue(hostname, new ExecutionCommand());
+
+    // status commands are dropped once the queue is full
+    queue.enqueue(hostname, createStatusCommand("NAMENODE"));
+    assertEquals(2, queue.size(hostname));
+
+    // but can still replace those already queued
+    StatusCommand datanode = createStatusCommand("DATANODE");
+    queue.enqueue(hostname, datanode);
+    assertEquals(2, queue.size(hostname));
+
+    // other commands are always queued
+    queue.enqueue(hostname, new ExecutionCommand());
+    assertEquals(3, queue.size(hostname));
+    assertSame(datanode, queue.dequeue(hostname));
+  }
+
+  private StatusCommand createStatusCommand(String componentName) {
+    StatusCommand command = new StatusCommand();
+    command.setClusterName("c1");
+    command.setServiceName("HDFS");
+    command.setComponentName(componentName);
+    return command;
+  }
 }
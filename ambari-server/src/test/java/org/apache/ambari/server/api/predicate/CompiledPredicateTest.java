@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.predicate;
+
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.predicate.AlwaysPredicate;
+import org.apache.ambari.server.controller.predicate.AndPredicate;
+import org.apache.ambari.server.controller.predicate.EqualsPredicate;
+import org.apache.ambari.server.controller.predicate.NotPredicate;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CompiledPredicate unit tests.
+ */
+public class CompiledPredicateTest {
+
+  private static final String[] QUERIES = {
+      "HostRoles/state=STARTED",
+      "HostRoles/state!=STARTED",
+      "HostRoles/state.in(STARTED,INSTALLED,INSTALL_FAILED)",
+      "!HostRoles/state.in(STARTED,INSTALLED)",
+      "HostRoles/host_name.matches(host1.*)",
+      "HostRoles/task_id>5",
+      "HostRoles/task_id<=5",
+      "HostRoles/attempt_cnt>=2&HostRoles/state=STARTED",
+      "HostRoles/state=STARTED|HostRoles/task_id=3|HostRoles/state=INSTALLED",
+      "HostRoles/state.in(STARTED,INSTALLED)|HostRoles/host_name.in(host2,host3)",
+      "!(HostRoles/task_id<3|HostRoles/state=INSTALLED)&HostRoles/host_name!=host4",
+      "HostRoles/stale_configs=true",
+      "HostRoles/missing=foo|HostRoles/missing=bar"
+  };
+
+  @Test
+  public void testCompiledMatchesSource() throws Exception {
+    List<Resource> resources = createResources();
+    PredicateCompiler compiler = new PredicateCompiler();
+
+    for (String query : QUERIES) {
+      Predicate predicate = compiler.compile(query);
+      CompiledPredicate compiled = CompiledPredicate.compile(predicate);
+
+      for (Resource resource : resources) {
+        assertEquals(query + " : " + resource, predicate.evaluate(resource), compiled.evaluate(resource));
+      }
+    }
+  }
+
+  @Test
+  public void testCompileConstants() throws Exception {
+    Resource resource = createResource(1, "host1", "STARTED", 1);
+
+    assertNull(CompiledPredicate.compile(null));
+    assertTrue(CompiledPredicate.compile(AlwaysPredicate.INSTANCE).evaluate(resource));
+    assertFalse(CompiledPredicate.compile(new NotPredicate(AlwaysPredicate.INSTANCE)).evaluate(resource));
+    assertTrue(CompiledPredicate.compile(new AndPredicate(AlwaysPredicate.INSTANCE,
+        new EqualsPredicate<String>("HostRoles/state", "STARTED"))).evaluate(resource));
+  }
+
+  @Test
+  public void testCompileIsIdempotent() throws Exception {
+    Predicate predicate = new PredicateCompiler().compile("HostRoles/state.in(STARTED,INSTALLED)");
+    CompiledPredicate compiled = CompiledPredicate.compile(predicate);
+
+    assertSame(compiled, CompiledPredicate.compile(compiled));
+    assertSame(predicate, compiled.getSource());
+    assertEquals(predicate.toString(), compiled.toString());
+  }
+
+  @Test
+  public void testCustomPredicate() throws Exception {
+    Predicate custom = new Predicate() {
+      @Override
+      public boolean evaluate(Resource resource) {
+        return "host2".equals(resource.getPropertyValue("HostRoles/host_name"));
+      }
+    };
+    CompiledPredicate compiled = CompiledPredicate.compile(
+        new AndPredicate(custom, new EqualsPredicate<String>("HostRoles/state", "STARTED")));
+
+    assertFalse(compiled.evaluate(createResource(1, "host1", "STARTED", 1)));
+    assertTrue(compiled.evaluate(createResource(2, "host2", "STARTED", 1)));
+    assertFalse(compiled.evaluate(createResource(3, "host2", "INSTALLED", 1)));
+  }
+
+  private static List<Resource> createResources() {
+    String[] states = {"STARTED", "INSTALLED", "INSTALL_FAILED", "UNKNOWN"};
+    List<Resource> resources = new ArrayList<Resource>();
+
+    for (int i = 0; i < 12; ++i) {
+      resources.add(createResource(i, "host" + (i % 5), states[i % states.length], i % 3));
+    }
+    // values stored as strings and missing values
+    Resource resource = createResource(20, "host3", "STARTED", 2);
+    resource.setProperty("HostRoles/task_id", "20");
+    resource.setProperty("HostRoles/stale_configs", "true");
+    resources.add(resource);
+    resources.add(new ResourceImpl(Resource.Type.Task));
+
+    return resources;
+  }
+
+  private static Resource createResource(long taskId, String hostName, String state, int attempts) {
+    Resource resource = new ResourceImpl(Resource.Type.Task);
+    resource.setProperty("HostRoles/task_id", taskId);
+    resource.setProperty("HostRoles/host_name", hostName);
+    resource.setProperty("HostRoles/state", state);
+    resource.setProperty("HostRoles/attempt_cnt", attempts);
+    resource.setProperty("HostRoles/stale_configs", taskId % 2 == 0);
+    return resource;
+  }
+}
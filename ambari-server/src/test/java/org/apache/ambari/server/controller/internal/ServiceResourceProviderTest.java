@@ -40,6 +40,7 @@ import org.apache.ambari.server.metadata.RoleCommandOrder;
 import org.apache.ambari.server.serveraction.kerberos.KerberosAdminAuthenticationException;
 import org.apache.ambari.server.serveraction.kerberos.KerberosMissingAdminCredentialsException;
 import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.ClusterTopologySnapshot;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ComponentInfo;
 import org.apache.ambari.server.state.MaintenanceState;
@@ -170,6 +171,9 @@ public class ServiceResourceProviderTest {
     expect(clusters.getCluster("Cluster100")).andReturn(cluster).anyTimes();
 
     expect(cluster.getServices()).andReturn(allResponseMap).anyTimes();
+    expect(cluster.getTopologySnapshot()).andReturn(new ClusterTopologySnapshot(1, allResponseMap,
+        Collections.<String, Map<String, Map<String, ServiceComponentHost>>>emptyMap(),
+        Collections.<String, List<ServiceComponentHost>>emptyMap())).anyTimes();
     expect(cluster.getService("Service102")).andReturn(service2);
 
     expect(service0.convertToResponse()).andReturn(serviceResponse0).anyTimes();
@@ -287,6 +291,9 @@ public class ServiceResourceProviderTest {
     expect(clusters.getCluster("Cluster100")).andReturn(cluster).anyTimes();
 
     expect(cluster.getServices()).andReturn(allResponseMap).anyTimes();
+    expect(cluster.getTopologySnapshot()).andReturn(new ClusterTopologySnapshot(1, allResponseMap,
+        Collections.<String, Map<String, Map<String, ServiceComponentHost>>>emptyMap(),
+        Collections.<String, List<ServiceComponentHost>>emptyMap())).anyTimes();
     expect(cluster.getService("KERBEROS")).andReturn(service0);
 
     expect(service0.convertToResponse()).andReturn(serviceResponse0).anyTimes();
@@ -359,6 +366,9 @@ public class ServiceResourceProviderTest {
     expect(clusters.getCluster("Cluster100")).andReturn(cluster).anyTimes();
 
     expect(cluster.getServices()).andReturn(allResponseMap).anyTimes();
+    expect(cluster.getTopologySnapshot()).andReturn(new ClusterTopologySnapshot(1, allResponseMap,
+        Collections.<String, Map<String, Map<String, ServiceComponentHost>>>emptyMap(),
+        Collections.<String, List<ServiceComponentHost>>emptyMap())).anyTimes();
     expect(cluster.getService("KERBEROS")).andReturn(service0);
 
     expect(service0.convertToResponse()).andReturn(serviceResponse0).anyTimes();
@@ -432,6 +442,9 @@ public class ServiceResourceProviderTest {
     expect(clusters.getCluster("Cluster100")).andReturn(cluster).anyTimes();
 
     expect(cluster.getServices()).andReturn(allResponseMap).anyTimes();
+    expect(cluster.getTopologySnapshot()).andReturn(new ClusterTopologySnapshot(1, allResponseMap,
+        Collections.<String, Map<String, Map<String, ServiceComponentHost>>>emptyMap(),
+        Collections.<String, List<ServiceComponentHost>>emptyMap())).anyTimes();
     expect(cluster.getService("KERBEROS")).andReturn(service0);
 
     expect(service0.convertToResponse()).andReturn(serviceResponse0).anyTimes();
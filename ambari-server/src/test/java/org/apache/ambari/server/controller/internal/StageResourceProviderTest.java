@@ -183,6 +183,8 @@ public class StageResourceProviderTest {
     List<StageEntity> entities = getStageEntities(HostRoleStatus.COMPLETED);
 
     expect(dao.findAll(request, predicate)).andReturn(entities);
+    expect(dao.isSortSupported(request)).andReturn(false);
+    expect(dao.isPageSupported(request, predicate)).andReturn(false);
 
     expect(clusters.getClusterById(anyLong())).andReturn(cluster).anyTimes();
     expect(cluster.getClusterName()).andReturn("c1").anyTimes();
@@ -202,6 +204,36 @@ public class StageResourceProviderTest {
     verify(dao, clusters, cluster);
   }
 
+  @Test
+  public void testQueryForResourcesPaged() throws Exception {
+    StageResourceProvider provider = new StageResourceProvider(managementController);
+
+    Request request = createNiceMock(Request.class);
+    Predicate predicate = createNiceMock(Predicate.class);
+
+    List<StageEntity> entities = getStageEntities(HostRoleStatus.COMPLETED);
+
+    expect(dao.findAll(request, predicate)).andReturn(entities);
+    expect(dao.isSortSupported(request)).andReturn(true);
+    expect(dao.isPageSupported(request, predicate)).andReturn(true);
+    expect(dao.getCount(predicate)).andReturn(20L);
+
+    expect(clusters.getClusterById(anyLong())).andReturn(cluster).anyTimes();
+    expect(cluster.getClusterName()).andReturn("c1").anyTimes();
+
+    replay(dao, clusters, cluster, request, predicate);
+
+    QueryResponse response =  provider.queryForResources(request, predicate);
+
+    Assert.assertEquals(1, response.getResources().size());
+
+    Assert.assertTrue(response.isSortedResponse());
+    Assert.assertTrue(response.isPagedResponse());
+    Assert.assertEquals(20, response.getTotalResourceCount());
+
+    verify(dao, clusters, cluster);
+  }
+
   @Test
   public void testUpdateStageStatus_aborted() throws Exception {
 
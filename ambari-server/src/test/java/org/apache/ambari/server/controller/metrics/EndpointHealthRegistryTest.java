@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+
+import org.apache.ambari.server.controller.utilities.StreamProvider;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ * EndpointHealthRegistry and HealthCheckingStreamProvider tests.
+ */
+public class EndpointHealthRegistryTest {
+
+  private static final String ENDPOINT = "c6401.ambari.apache.org:50075";
+  private static final String SPEC = "http://" + ENDPOINT + "/jmx";
+
+  @Test
+  public void testBackoffAndProbe() throws Exception {
+    TestEndpointHealthRegistry registry = new TestEndpointHealthRegistry();
+
+    Assert.assertTrue(registry.allowRequest(ENDPOINT));
+
+    for (int i = 0; i < EndpointHealthRegistry.FAILURE_THRESHOLD; ++i) {
+      registry.recordFailure(ENDPOINT);
+    }
+    Assert.assertTrue(registry.isOpen(ENDPOINT));
+    Assert.assertFalse(registry.allowRequest(ENDPOINT));
+
+    // after the backoff a single probe is allowed
+    registry.time += EndpointHealthRegistry.INITIAL_BACKOFF_MILLIS;
+    Assert.assertTrue(registry.allowRequest(ENDPOINT));
+    Assert.assertFalse(registry.allowRequest(ENDPOINT));
+
+    // failed probe doubles the backoff
+    registry.recordFailure(ENDPOINT);
+    registry.time += EndpointHealthRegistry.INITIAL_BACKOFF_MILLIS;
+    Assert.assertFalse(registry.allowRequest(ENDPOINT));
+    registry.time += EndpointHealthRegistry.INITIAL_BACKOFF_MILLIS;
+    Assert.assertTrue(registry.allowRequest(ENDPOINT));
+
+    // successful probe closes the circuit
+    registry.recordSuccess(ENDPOINT);
+    Assert.assertFalse(registry.isOpen(ENDPOINT));
+    Assert.assertTrue(registry.allowRequest(ENDPOINT));
+    Assert.assertTrue(registry.allowRequest(ENDPOINT));
+  }
+
+  @Test
+  public void testHealthCheckingStreamProvider() throws Exception {
+    TestEndpointHealthRegistry registry = new TestEndpointHealthRegistry();
+
+    StreamProvider streamProvider = createMock(StreamProvider.class);
+    expect(streamProvider.readFrom(SPEC)).andThrow(new ConnectException("Connection refused"))
+        .times(EndpointHealthRegistry.FAILURE_THRESHOLD);
+    replay(streamProvider);
+
+    HealthCheckingStreamProvider provider = new HealthCheckingStreamProvider(streamProvider, registry);
+
+    // the wrapped provider is only called until the endpoint is marked as failing
+    for (int i = 0; i < EndpointHealthRegistry.FAILURE_THRESHOLD + 3; ++i) {
+      try {
+        provider.readFrom(SPEC);
+        Assert.fail("Expected ConnectException");
+      } catch (ConnectException e) {
+        // expected
+      }
+    }
+    verify(streamProvider);
+  }
+
+  @Test
+  public void testNonConnectionErrorIsHealthy() throws Exception {
+    TestEndpointHealthRegistry registry = new TestEndpointHealthRegistry();
+    InputStream in = new ByteArrayInputStream(new byte[0]);
+
+    StreamProvider streamProvider = createMock(StreamProvider.class);
+    expect(streamProvider.readFrom(SPEC)).andThrow(new FileNotFoundException(SPEC))
+        .times(EndpointHealthRegistry.FAILURE_THRESHOLD);
+    expect(streamProvider.readFrom(SPEC)).andReturn(in);
+    replay(streamProvider);
+
+    HealthCheckingStreamProvider provider = new HealthCheckingStreamProvider(streamProvider, registry);
+
+    for (int i = 0; i < EndpointHealthRegistry.FAILURE_THRESHOLD; ++i) {
+      try {
+        provider.readFrom(SPEC);
+        Assert.fail("Expected FileNotFoundException");
+      } catch (FileNotFoundException e) {
+        // expected
+      }
+    }
+    Assert.assertFalse(registry.isOpen(ENDPOINT));
+    Assert.assertSame(in, provider.readFrom(SPEC));
+    verify(streamProvider);
+  }
+
+  @Test
+  public void testRuntimeExceptionEndsProbe() throws Exception {
+    TestEndpointHealthRegistry registry = new TestEndpointHealthRegistry();
+    InputStream in = new ByteArrayInputStream(new byte[0]);
+
+    StreamProvider streamProvider = createMock(StreamProvider.class);
+    expect(streamProvider.readFrom(SPEC)).andThrow(new ConnectException("Connection refused"))
+        .times(EndpointHealthRegistry.FAILURE_THRESHOLD);
+    expect(streamProvider.readFrom(SPEC)).andThrow(new IllegalStateException("Bad response"));
+    expect(streamProvider.readFrom(SPEC)).andReturn(in);
+    replay(streamProvider);
+
+    HealthCheckingStreamProvider provider = new HealthCheckingStreamProvider(streamProvider, registry);
+
+    for (int i = 0; i < EndpointHealthRegistry.FAILURE_THRESHOLD; ++i) {
+      try {
+        provider.readFrom(SPEC);
+        Assert.fail("Expected ConnectException");
+      } catch (ConnectException e) {
+        // expected
+      }
+    }
+    Assert.assertTrue(registry.isOpen(ENDPOINT));
+
+    // the probe fails with an unexpected exception
+    registry.time += EndpointHealthRegistry.INITIAL_BACKOFF_MILLIS;
+    try {
+      provider.readFrom(SPEC);
+      Assert.fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    // the probe is over, so another one is allowed after the doubled backoff
+    registry.time += EndpointHealthRegistry.INITIAL_BACKOFF_MILLIS * 2;
+    Assert.assertSame(in, provider.readFrom(SPEC));
+    Assert.assertFalse(registry.isOpen(ENDPOINT));
+    verify(streamProvider);
+  }
+
+  private static class TestEndpointHealthRegistry extends EndpointHealthRegistry {
+    private long time = 1000L;
+
+    @Override
+    protected long currentTimeMillis() {
+      return time;
+    }
+  }
+}
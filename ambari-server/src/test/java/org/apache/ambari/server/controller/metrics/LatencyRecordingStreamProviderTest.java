@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.ambari.server.controller.utilities.StreamProvider;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ * LatencyRecordingStreamProvider tests.
+ */
+public class LatencyRecordingStreamProviderTest {
+
+  @Test
+  public void testReadFrom() throws Exception {
+    String spec = "http://c6401.ambari.apache.org:50070/jmx";
+    InputStream in = new ByteArrayInputStream(new byte[0]);
+
+    StreamProvider streamProvider = createNiceMock(StreamProvider.class);
+    expect(streamProvider.readFrom(spec)).andReturn(in);
+    replay(streamProvider);
+
+    EndpointLatencyHistogram histogram =
+        EndpointLatencyHistogram.getHistogram("c6401.ambari.apache.org:50070");
+    long count = histogram.getCount();
+
+    LatencyRecordingStreamProvider provider = new LatencyRecordingStreamProvider(streamProvider);
+    Assert.assertSame(in, provider.readFrom(spec));
+
+    Assert.assertEquals(count + 1, histogram.getCount());
+    verify(streamProvider);
+  }
+
+  @Test
+  public void testReadFromFailure() throws Exception {
+    String spec = "http://c6402.ambari.apache.org:8042/jmx";
+
+    StreamProvider streamProvider = createNiceMock(StreamProvider.class);
+    expect(streamProvider.readFrom(spec)).andThrow(new IOException("Connection refused"));
+    replay(streamProvider);
+
+    EndpointLatencyHistogram histogram =
+        EndpointLatencyHistogram.getHistogram("c6402.ambari.apache.org:8042");
+    long failures = histogram.getFailureCount();
+
+    LatencyRecordingStreamProvider provider = new LatencyRecordingStreamProvider(streamProvider);
+    try {
+      provider.readFrom(spec);
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      // expected
+    }
+
+    Assert.assertEquals(failures + 1, histogram.getFailureCount());
+    verify(streamProvider);
+  }
+
+  @Test
+  public void testHistogramBuckets() throws Exception {
+    EndpointLatencyHistogram histogram = EndpointLatencyHistogram.getHistogram("testHistogramBuckets:1");
+
+    histogram.record(5L, true);
+    histogram.record(75L, true);
+    histogram.record(20000L, false);
+
+    long[] counts = histogram.getBucketCounts();
+    Assert.assertEquals(EndpointLatencyHistogram.BUCKET_BOUNDS.length + 1, counts.length);
+    Assert.assertEquals(1L, counts[0]);
+    Assert.assertEquals(1L, counts[2]);
+    Assert.assertEquals(1L, counts[counts.length - 1]);
+    Assert.assertEquals(3L, histogram.getCount());
+    Assert.assertEquals(1L, histogram.getFailureCount());
+    Assert.assertEquals(20000L, histogram.getMaxMillis());
+  }
+
+  @Test
+  public void testGetEndpoint() throws Exception {
+    Assert.assertEquals("host1:8080",
+        LatencyRecordingStreamProvider.getEndpoint("https://host1:8080/ws/v1/cluster/info"));
+    Assert.assertEquals("not a url", LatencyRecordingStreamProvider.getEndpoint("not a url"));
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.controller.internal.PropertyInfo;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Request;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.spi.SystemException;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * ThreadPoolEnabledPropertyProvider tests.
+ */
+public class ThreadPoolEnabledPropertyProviderTest {
+
+  private static final String HOST_NAME_PROPERTY_ID = "HostRoles/host_name";
+
+  @Test
+  public void testResourceBatches() throws Exception {
+    TestPropertyProvider provider = new TestPropertyProvider(0L);
+
+    Set<Resource> resources = createResources("batches-1", 5);
+    resources.addAll(createResources("batches-2", 1));
+    resources.add(new ResourceImpl(Resource.Type.HostComponent));
+
+    List<List<Resource>> batches = provider.getResourceBatches(resources);
+    Assert.assertEquals(ThreadPoolEnabledPropertyProvider.HOST_CONCURRENCY_LIMIT + 2, batches.size());
+
+    int resourceCount = 0;
+    for (List<Resource> batch : batches) {
+      Set<Object> hostNames = new HashSet<Object>();
+      for (Resource resource : batch) {
+        hostNames.add(resource.getPropertyValue(HOST_NAME_PROPERTY_ID));
+      }
+      Assert.assertEquals(1, hostNames.size());
+      resourceCount += batch.size();
+    }
+    Assert.assertEquals(resources.size(), resourceCount);
+  }
+
+  @Test
+  public void testTimeoutAppliesToEachCallOfBatch() throws Exception {
+    // every call fits into the timeout, the batches as a whole do not
+    TestPropertyProvider provider = new TestPropertyProvider(40L);
+    provider.setPopulateTimeout(100L);
+
+    Set<Resource> resources = createResources("timeout-1", 8);
+    Set<Resource> populated = provider.populateResources(resources, createRequest(), null);
+
+    Assert.assertEquals(8, populated.size());
+  }
+
+  @Test
+  public void testTimeoutWithinBatch() throws Exception {
+    TestPropertyProvider provider = new TestPropertyProvider(150L);
+    provider.setPopulateTimeout(50L);
+
+    Set<Resource> resources = createResources("timeout-2", 4);
+    Set<Resource> populated = provider.populateResources(resources, createRequest(), null);
+
+    Assert.assertEquals(0, populated.size());
+
+    // the ticket is invalidated, so the rest of each batch is abandoned
+    Thread.sleep(250L);
+    Assert.assertEquals(ThreadPoolEnabledPropertyProvider.HOST_CONCURRENCY_LIMIT, provider.calls.get());
+  }
+
+  @Test
+  public void testHostConcurrencyLimitSharedByRequests() throws Exception {
+    final TestPropertyProvider provider = new TestPropertyProvider(20L);
+    provider.setPopulateTimeout(5000L);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<Set<Resource>>> futures = new ArrayList<Future<Set<Resource>>>();
+      for (int i = 0; i < 3; ++i) {
+        final Set<Resource> resources = createResources("shared", 4);
+        futures.add(executor.submit(new Callable<Set<Resource>>() {
+          @Override
+          public Set<Resource> call() throws Exception {
+            return provider.populateResources(resources, createRequest(), null);
+          }
+        }));
+      }
+      for (Future<Set<Resource>> future : futures) {
+        Assert.assertEquals(4, future.get().size());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertTrue(provider.maxConcurrentCalls.get() <= ThreadPoolEnabledPropertyProvider.HOST_CONCURRENCY_LIMIT);
+  }
+
+  private static Set<Resource> createResources(String hostName, int count) {
+    Set<Resource> resources = new HashSet<Resource>();
+    for (int i = 0; i < count; ++i) {
+      Resource resource = new ResourceImpl(Resource.Type.HostComponent);
+      resource.setProperty(HOST_NAME_PROPERTY_ID, hostName);
+      resource.setProperty("HostRoles/component_name", "COMPONENT" + i);
+      resources.add(resource);
+    }
+    return resources;
+  }
+
+  private static Request createRequest() {
+    return PropertyHelper.getReadRequest(Collections.<String>emptySet());
+  }
+
+  private static class TestPropertyProvider extends ThreadPoolEnabledPropertyProvider {
+    private final long delay;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+
+    private TestPropertyProvider(long delay) {
+      super(new HashMap<String, Map<String, PropertyInfo>>(), HOST_NAME_PROPERTY_ID, null);
+      this.delay = delay;
+    }
+
+    @Override
+    protected Resource populateResource(Resource resource, Request request, Predicate predicate, Ticket ticket)
+        throws SystemException {
+      calls.incrementAndGet();
+      int concurrent = concurrentCalls.incrementAndGet();
+      try {
+        synchronized (maxConcurrentCalls) {
+          if (concurrent > maxConcurrentCalls.get()) {
+            maxConcurrentCalls.set(concurrent);
+          }
+        }
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        throw new SystemException("Interrupted", e);
+      } finally {
+        concurrentCalls.decrementAndGet();
+      }
+      return resource;
+    }
+  }
+}
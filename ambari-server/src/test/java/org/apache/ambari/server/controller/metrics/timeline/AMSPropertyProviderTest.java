@@ -58,6 +58,7 @@ public class AMSPropertyProviderTest {
   private static final String CLUSTER_REPORT_METRICS_FILE_PATH = FILE_PATH_PREFIX + "cluster_report_metrics.json";
   private static final String MULTIPLE_COMPONENT_REGEXP_METRICS_FILE_PATH = FILE_PATH_PREFIX + "multiple_component_regexp_metrics.json";
   private static final String EMBEDDED_METRICS_FILE_PATH = FILE_PATH_PREFIX + "embedded_host_metric.json";
+  private static final String MULTIPLE_HOSTS_BATCHED_METRICS_FILE_PATH = FILE_PATH_PREFIX + "multiple_hosts_batched_metrics.json";
 
   @Test
   public void testPopulateResourcesForSingleHostMetric() throws Exception {
@@ -186,6 +187,45 @@ public class AMSPropertyProviderTest {
   }
 
 
+  @Test
+  public void testPopulateResourcesForMultipleHostsBatched() throws Exception {
+    TestStreamProvider streamProvider = new TestStreamProvider(MULTIPLE_HOSTS_BATCHED_METRICS_FILE_PATH);
+    TestMetricHostProvider metricHostProvider = new TestMetricHostProvider();
+    ComponentSSLConfiguration sslConfiguration = mock(ComponentSSLConfiguration.class);
+
+    Map<String, Map<String, PropertyInfo>> propertyIds = PropertyHelper.getMetricPropertyIds(Resource.Type.Host);
+    AMSPropertyProvider propertyProvider = new AMSHostPropertyProvider(
+      propertyIds,
+      streamProvider,
+      sslConfiguration,
+      metricHostProvider,
+      CLUSTER_NAME_PROPERTY_ID,
+      HOST_NAME_PROPERTY_ID
+    );
+
+    Resource resource1 = new ResourceImpl(Resource.Type.Host);
+    resource1.setProperty(HOST_NAME_PROPERTY_ID, "h1");
+    Resource resource2 = new ResourceImpl(Resource.Type.Host);
+    resource2.setProperty(HOST_NAME_PROPERTY_ID, "h2");
+    Set<Resource> resources = new HashSet<Resource>();
+    resources.add(resource1);
+    resources.add(resource2);
+
+    Map<String, TemporalInfo> temporalInfoMap = new HashMap<String, TemporalInfo>();
+    temporalInfoMap.put(PROPERTY_ID1, new TemporalInfoImpl(1416445244701L, 1416445244901L, 1L));
+    Request request = PropertyHelper.getReadRequest(Collections.singleton(PROPERTY_ID1), temporalInfoMap);
+    propertyProvider.populateResources(resources, request, null);
+
+    // both hosts are fetched with a single call to the collector
+    String spec = streamProvider.getLastSpec();
+    Assert.assertTrue(spec.contains("hostname=h1%2Ch2") || spec.contains("hostname=h2%2Ch1"));
+
+    Number[][] val = (Number[][]) resource1.getPropertyValue(PROPERTY_ID1);
+    Assert.assertEquals(3, val.length);
+    val = (Number[][]) resource2.getPropertyValue(PROPERTY_ID1);
+    Assert.assertEquals(2, val.length);
+  }
+
   @Test
   public void testPopulateResourcesForMultipleHostMetrics() throws Exception {
     TestStreamProvider streamProvider = new TestStreamProvider(MULTIPLE_HOST_METRICS_FILE_PATH);
@@ -83,4 +83,23 @@ public class GreaterPredicateTest {
     resource.setProperty(propertyId, 100.3);
     Assert.assertTrue(predicate.evaluate(resource));
   }
+
+  @Test
+  public void testApplyWithStringValues() {
+    Resource resource = new ResourceImpl(Resource.Type.HostComponent);
+    String propertyId = PropertyHelper.getPropertyId("category1", "foo");
+    Predicate predicate = new GreaterPredicate<String>(propertyId, "10");
+
+    resource.setProperty(propertyId, "9");
+    Assert.assertFalse(predicate.evaluate(resource));
+
+    resource.setProperty(propertyId, "10.5");
+    Assert.assertTrue(predicate.evaluate(resource));
+
+    resource.setProperty(propertyId, "100");
+    Assert.assertTrue(predicate.evaluate(resource));
+
+    resource.setProperty(propertyId, "10");
+    Assert.assertFalse(predicate.evaluate(resource));
+  }
 }
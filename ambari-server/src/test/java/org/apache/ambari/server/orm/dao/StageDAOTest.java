@@ -20,8 +20,10 @@ package org.apache.ambari.server.orm.dao;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.persist.PersistService;
+import org.apache.ambari.server.controller.internal.PageRequestImpl;
 import org.apache.ambari.server.controller.internal.StageResourceProvider;
 import org.apache.ambari.server.controller.internal.SortRequestImpl;
+import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.Request;
 import org.apache.ambari.server.controller.spi.SortRequest;
@@ -43,6 +45,7 @@ import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -173,4 +176,75 @@ public class StageDAOTest {
       lastInfo = currentInfo;
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Tests that parts of a predicate which can't be converted don't restrict
+   * the result set; an {@code OR} with such a part must match everything.
+   */
+  @Test
+  public void testStagePredicateNotTranslated() throws Exception {
+    Predicate predicate = new PredicateBuilder().
+        property(StageResourceProvider.STAGE_CONTEXT).equals("request context for 3").or().
+        property(StageResourceProvider.STAGE_CLUSTER_NAME).equals("c1").
+        toPredicate();
+
+    List<StageEntity> entities = stageDao.findAll(PropertyHelper.getReadRequest(), predicate);
+    assertEquals(5, entities.size());
+
+    predicate = new PredicateBuilder().
+        property(StageResourceProvider.STAGE_CONTEXT).equals("request context for 3").and().
+        property(StageResourceProvider.STAGE_CLUSTER_NAME).equals("c1").
+        toPredicate();
+
+    entities = stageDao.findAll(PropertyHelper.getReadRequest(), predicate);
+    assertEquals(1, entities.size());
+  }
+
+  /**
+   * Tests that JPA takes the page of a request when the whole predicate can be
+   * converted.
+   */
+  @Test
+  public void testStagePaging() throws Exception {
+    PageRequest pageRequest = new PageRequestImpl(
+        PageRequest.StartingPoint.OffsetStart, 2, 1, null, null);
+
+    Request request = PropertyHelper.getReadRequest(new HashSet<String>(),
+        null, null, pageRequest, null);
+
+    Predicate predicate = new PredicateBuilder().property(
+        StageResourceProvider.STAGE_REQUEST_ID).equals(99L).toPredicate();
+
+    assertTrue(stageDao.isPageSupported(request, predicate));
+    assertEquals(5, stageDao.getCount(predicate));
+
+    List<StageEntity> entities = stageDao.findAll(request, predicate);
+    assertEquals(2, entities.size());
+    assertEquals(Long.valueOf(101L), entities.get(0).getStageId());
+    assertEquals(Long.valueOf(102L), entities.get(1).getStageId());
+
+    // the cluster name can't be converted so the whole result is returned
+    predicate = new PredicateBuilder().
+        property(StageResourceProvider.STAGE_REQUEST_ID).equals(99L).and().
+        property(StageResourceProvider.STAGE_CLUSTER_NAME).equals("c1").
+        toPredicate();
+
+    assertFalse(stageDao.isPageSupported(request, predicate));
+    assertEquals(5, stageDao.findAll(request, predicate).size());
+
+    // sorting on a property without a column can't be paged either
+    List<SortRequestProperty> sortProperties = new ArrayList<SortRequestProperty>();
+    sortProperties.add(new SortRequestProperty(
+        StageResourceProvider.STAGE_STATUS, SortRequest.Order.ASC));
+
+    request = PropertyHelper.getReadRequest(new HashSet<String>(), null, null,
+        pageRequest, new SortRequestImpl(sortProperties));
+
+    predicate = new PredicateBuilder().property(
+        StageResourceProvider.STAGE_REQUEST_ID).equals(99L).toPredicate();
+
+    assertFalse(stageDao.isSortSupported(request));
+    assertFalse(stageDao.isPageSupported(request, predicate));
+    assertEquals(5, stageDao.findAll(request, predicate).size());
+  }
+}
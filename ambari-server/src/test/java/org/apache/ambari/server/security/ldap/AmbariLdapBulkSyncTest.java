@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.GuiceJpaInitializer;
+import org.apache.ambari.server.security.authorization.AmbariLdapAuthenticationProviderBaseTest;
+import org.apache.ambari.server.security.authorization.AuthorizationTestModule;
+import org.apache.ambari.server.security.authorization.Users;
+import org.apache.directory.server.annotations.CreateLdapServer;
+import org.apache.directory.server.annotations.CreateTransport;
+import org.apache.directory.server.core.annotations.ApplyLdifFiles;
+import org.apache.directory.server.core.annotations.ContextEntry;
+import org.apache.directory.server.core.annotations.CreateDS;
+import org.apache.directory.server.core.annotations.CreatePartition;
+import org.apache.directory.server.core.integ.FrameworkRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+
+/**
+ * Tests bulk LDAP synchronization (paged searches and in-memory membership
+ * resolution) against an embedded LDAP server, using the per-member
+ * synchronization as the reference.
+ */
+@RunWith(FrameworkRunner.class)
+@CreateDS(allowAnonAccess = true,
+    name = "BulkSync",
+    partitions = {
+        @CreatePartition(name = "Root",
+            suffix = "dc=apache,dc=org",
+            contextEntry = @ContextEntry(
+                entryLdif =
+                    "dn: dc=apache,dc=org\n" +
+                        "dc: apache\n" +
+                        "objectClass: top\n" +
+                        "objectClass: domain\n\n" +
+                        "dn: dc=ambari,dc=apache,dc=org\n" +
+                        "dc: ambari\n" +
+                        "objectClass: top\n" +
+                        "objectClass: domain\n\n"))
+    })
+@CreateLdapServer(allowAnonymousAccess = true,
+    transports = {@CreateTransport(protocol = "LDAP", port = 33390)})
+@ApplyLdifFiles("users_for_bulk_sync.ldif")
+public class AmbariLdapBulkSyncTest extends AmbariLdapAuthenticationProviderBaseTest {
+
+  private Injector injector;
+  private Users users;
+
+  @Before
+  public void setUp() {
+    injector = Guice.createInjector(new AuthorizationTestModule());
+    injector.getInstance(GuiceJpaInitializer.class);
+    users = injector.getInstance(Users.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    injector.getInstance(PersistService.class).stop();
+  }
+
+  @Test
+  public void testSynchronizeAll() throws Exception {
+    LdapBatchDto expected = synchronizeAll(createPopulator(false));
+    LdapBatchDto actual = synchronizeAll(createPopulator(true));
+
+    assertBatchEquals(expected, actual);
+    assertEquals(7, actual.getUsersToBeCreated().size());
+    assertEquals(createSet("group1", "group2", "group3"), actual.getGroupsToBeCreated());
+    assertEquals(8, actual.getMembershipToAdd().size());
+
+    users.processLdapSync(actual);
+
+    assertEquals(createSet("user1", "user2", "user3"), new HashSet<String>(users.getAllMembers("group1")));
+    assertEquals(createSet("user3", "user4", "user5", "user6"), new HashSet<String>(users.getAllMembers("group2")));
+    assertEquals(createSet("user7"), new HashSet<String>(users.getAllMembers("group3")));
+    assertTrue(users.getAnyUser("user1").isLdapUser());
+  }
+
+  @Test
+  public void testSynchronizeExisting() throws Exception {
+    users.processLdapSync(synchronizeAll(createPopulator(true)));
+
+    // state that is no longer backed by the directory
+    users.createUser("user8", "password", true, false, true);
+    users.createUser("user9", "password");
+    users.addMemberToGroup("group1", "user9");
+    users.createGroup("group9");
+    users.setGroupLdap("group9");
+
+    LdapBatchDto expected = synchronizeExisting(createPopulator(false));
+    LdapBatchDto actual = synchronizeExisting(createPopulator(true));
+
+    assertBatchEquals(expected, actual);
+    assertEquals(createSet("user8"), actual.getUsersToBeRemoved());
+    assertEquals(createSet("group9"), actual.getGroupsToBeRemoved());
+    assertEquals(createSet(new LdapUserGroupMemberDto("group1", "user9")), actual.getMembershipToRemove());
+    assertTrue(actual.getMembershipToAdd().isEmpty());
+
+    users.processLdapSync(actual);
+
+    assertNull(users.getAnyUser("user8"));
+    assertNull(users.getGroup("group9"));
+    assertFalse(users.getAllMembers("group1").contains("user9"));
+    assertEquals(createSet("user1", "user2", "user3"), new HashSet<String>(users.getAllMembers("group1")));
+  }
+
+  private AmbariLdapDataPopulator createPopulator(boolean bulkSync) {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.LDAP_PRIMARY_URL_KEY, "localhost:33390");
+    properties.setProperty(Configuration.LDAP_BASE_DN_KEY, "dc=ambari,dc=apache,dc=org");
+    properties.setProperty(Configuration.LDAP_USER_OBJECT_CLASS_KEY, "person");
+    properties.setProperty(Configuration.LDAP_USERNAME_ATTRIBUTE_KEY, "uid");
+    properties.setProperty(Configuration.LDAP_GROUP_OBJECT_CLASS_KEY, "groupOfNames");
+    properties.setProperty(Configuration.LDAP_GROUP_NAMING_ATTR_KEY, "cn");
+    properties.setProperty(Configuration.LDAP_GROUP_MEMEBERSHIP_ATTR_KEY, "member");
+    properties.setProperty(Configuration.LDAP_SYNC_BULK_ENABLED_KEY, String.valueOf(bulkSync));
+    // smaller than the number of users so that every search spans several pages
+    properties.setProperty(Configuration.LDAP_SYNC_PAGE_SIZE_KEY, "2");
+    return new AmbariLdapDataPopulator(new Configuration(properties), users);
+  }
+
+  private LdapBatchDto synchronizeAll(AmbariLdapDataPopulator populator) throws Exception {
+    LdapBatchDto batchInfo = new LdapBatchDto();
+    populator.synchronizeAllLdapUsers(batchInfo);
+    populator.synchronizeAllLdapGroups(batchInfo);
+    return batchInfo;
+  }
+
+  private LdapBatchDto synchronizeExisting(AmbariLdapDataPopulator populator) throws Exception {
+    LdapBatchDto batchInfo = new LdapBatchDto();
+    populator.synchronizeExistingLdapUsers(batchInfo);
+    populator.synchronizeExistingLdapGroups(batchInfo);
+    return batchInfo;
+  }
+
+  private static void assertBatchEquals(LdapBatchDto expected, LdapBatchDto actual) {
+    assertEquals(expected.getUsersToBeCreated(), actual.getUsersToBeCreated());
+    assertEquals(expected.getUsersToBecomeLdap(), actual.getUsersToBecomeLdap());
+    assertEquals(expected.getUsersToBeRemoved(), actual.getUsersToBeRemoved());
+    assertEquals(expected.getGroupsToBeCreated(), actual.getGroupsToBeCreated());
+    assertEquals(expected.getGroupsToBecomeLdap(), actual.getGroupsToBecomeLdap());
+    assertEquals(expected.getGroupsToBeRemoved(), actual.getGroupsToBeRemoved());
+    assertEquals(expected.getMembershipToAdd(), actual.getMembershipToAdd());
+    assertEquals(expected.getMembershipToRemove(), actual.getMembershipToRemove());
+  }
+
+  private static <T> Set<T> createSet(T... elements) {
+    return new HashSet<T>(Arrays.asList(elements));
+  }
+}
@@ -1551,6 +1551,37 @@ public class AmbariLdapDataPopulatorTest {
     assertEquals("cn=testuser,ou=ambari,dc=sme,dc=support,dc=com", userDto.getDn());
   }
 
+  @Test
+  public void testNormalizeDn() throws Exception {
+    assertEquals("cn=test user,ou=ambari,dc=example,dc=com",
+        AmbariLdapDataPopulator.normalizeDn("CN=Test User , OU=Ambari,DC=example, DC=com"));
+    assertEquals(AmbariLdapDataPopulator.normalizeDn("cn=Doe\\, John,dc=example,dc=com"),
+        AmbariLdapDataPopulator.normalizeDn("CN=Doe\\2C John,DC=Example,DC=Com"));
+    // not a DN
+    assertEquals("jdoe", AmbariLdapDataPopulator.normalizeDn("JDoe"));
+  }
+
+  @Test
+  public void testLdapGroupContextMapperNormalizesMembers() throws Exception {
+    LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
+    expect(ldapServerProperties.getGroupNamingAttr()).andReturn("cn").anyTimes();
+    expect(ldapServerProperties.getGroupMembershipAttr()).andReturn("member").anyTimes();
+    DirContextAdapter adapter = createNiceMock(DirContextAdapter.class);
+    expect(adapter.getStringAttribute("cn")).andReturn("Group1");
+    expect(adapter.getStringAttributes("member")).andReturn(
+        new String[] {"CN=Test User, OU=Ambari,DC=example,DC=com", "UID1"});
+
+    replay(ldapServerProperties, adapter);
+
+    Set<LdapGroupDto> groups = new HashSet<LdapGroupDto>();
+    new AmbariLdapDataPopulator.LdapGroupContextMapper(groups, ldapServerProperties).mapFromContext(adapter);
+
+    assertEquals(1, groups.size());
+    LdapGroupDto group = groups.iterator().next();
+    assertEquals("group1", group.getGroupName());
+    assertEquals(createSet("cn=test user,ou=ambari,dc=example,dc=com", "uid1"), group.getMemberAttributes());
+  }
+
   private static int userIdCounter = 1;
 
   private User createUser(String name, boolean ldapUser, GroupEntity group) {
@@ -36,11 +36,18 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 public class ServerActionExecutorTest {
@@ -220,6 +227,121 @@ public class ServerActionExecutorTest {
     assertEquals(HostRoleStatus.FAILED, getTaskStatus(s));
   }
 
+  /**
+   * Test that the server actions of independent stages run concurrently
+   */
+  @Test
+  public void testServerActionsRunConcurrently() throws Exception {
+    LatchServerAction.latch = new CountDownLatch(2);
+
+    List<HostRoleCommand> tasks = new ArrayList<HostRoleCommand>();
+    tasks.add(createTask(1, 1, 1, SERVER_HOST_NAME, "cluster1", LatchServerAction.class));
+    tasks.add(createTask(2, 2, 1, SERVER_HOST_NAME, "cluster2", LatchServerAction.class));
+
+    ActionDBAccessor db = createMockActionDBAccessor(tasks);
+    ServerActionExecutor.init(injector);
+    ServerActionExecutor executor = new ServerActionExecutor(db, 10000, 2, 1);
+
+    // Each action waits for the other one, so both only complete if they run at the same time
+    executor.doWork();
+
+    assertEquals(HostRoleStatus.COMPLETED, tasks.get(0).getStatus());
+    assertEquals(HostRoleStatus.COMPLETED, tasks.get(1).getStatus());
+
+    ServerActionExecutor.ActionMetrics metrics =
+        executor.getActionMetrics().get(LatchServerAction.class.getName());
+    assertEquals(2, metrics.getCount());
+    assertTrue(metrics.getMaxTimeMS() <= metrics.getTotalTimeMS());
+  }
+
+  /**
+   * Test that the server actions of a stage run in the order they were queued
+   */
+  @Test
+  public void testServerActionsOfStageRunInOrder() throws Exception {
+    OrderServerAction.executed.clear();
+
+    // the earlier tasks take longer, so they would finish last if run concurrently
+    List<HostRoleCommand> tasks = new ArrayList<HostRoleCommand>();
+    for (long taskId = 1; taskId <= 3; taskId++) {
+      tasks.add(createTask(taskId, 1, 1, "h" + taskId, "cluster1", OrderServerAction.class));
+    }
+
+    ActionDBAccessor db = createMockActionDBAccessor(tasks);
+    ServerActionExecutor.init(injector);
+    ServerActionExecutor executor = new ServerActionExecutor(db, 10000, 4, 4);
+
+    executor.doWork();
+
+    assertEquals(Arrays.asList(1L, 2L, 3L), OrderServerAction.executed);
+    for (HostRoleCommand task : tasks) {
+      assertEquals(HostRoleStatus.COMPLETED, task.getStatus());
+    }
+  }
+
+  /**
+   * Test that no more than the allowed number of server actions run at the same time for a
+   * cluster, the others stay queued until a permit is available
+   */
+  @Test
+  public void testServerActionsLimitedPerCluster() throws Exception {
+    ClusterLimitServerAction.running.set(0);
+    ClusterLimitServerAction.maxRunning.set(0);
+
+    List<HostRoleCommand> tasks = new ArrayList<HostRoleCommand>();
+    for (long requestId = 1; requestId <= 3; requestId++) {
+      tasks.add(createTask(requestId, requestId, 1, SERVER_HOST_NAME, "cluster1",
+          ClusterLimitServerAction.class));
+    }
+
+    ActionDBAccessor db = createMockActionDBAccessor(tasks);
+    ServerActionExecutor.init(injector);
+    ServerActionExecutor executor = new ServerActionExecutor(db, 10000, 3, 1);
+
+    executor.doWork();
+
+    // only the first task got the permit of the cluster
+    assertEquals(HostRoleStatus.COMPLETED, tasks.get(0).getStatus());
+    assertEquals(HostRoleStatus.QUEUED, tasks.get(1).getStatus());
+    assertEquals(HostRoleStatus.QUEUED, tasks.get(2).getStatus());
+
+    int cycleCount = 0;
+    while (tasks.get(2).getStatus() == HostRoleStatus.QUEUED && (cycleCount++ <= MAX_CYCLE_ITERATIONS)) {
+      executor.doWork();
+    }
+
+    for (HostRoleCommand task : tasks) {
+      assertEquals(HostRoleStatus.COMPLETED, task.getStatus());
+    }
+    assertEquals(1, ClusterLimitServerAction.maxRunning.get());
+  }
+
+  /**
+   * Test that a server action is not run if its task is no longer queued when its lane gets to it
+   */
+  @Test
+  public void testServerActionSkippedWhenNoLongerQueued() throws Exception {
+    OrderServerAction.executed.clear();
+
+    HostRoleCommand task = createTask(1, 1, 1, SERVER_HOST_NAME, "cluster1",
+        OrderServerAction.class);
+    ActionDBAccessor db = createMockActionDBAccessor(Collections.singletonList(task));
+
+    // the stage was aborted after the task was read
+    HostRoleCommand aborted = createTask(1, 1, 1, SERVER_HOST_NAME, "cluster1",
+        OrderServerAction.class);
+    aborted.setStatus(HostRoleStatus.ABORTED);
+    when(db.getTask(1L)).thenReturn(aborted);
+
+    ServerActionExecutor.init(injector);
+    ServerActionExecutor executor = new ServerActionExecutor(db, 10000, 2, 1);
+
+    executor.doWork();
+
+    assertTrue(OrderServerAction.executed.isEmpty());
+    assertEquals(HostRoleStatus.QUEUED, task.getStatus());
+  }
+
   private HostRoleStatus getTaskStatus(Stage stage) {
     return stage.getHostRoleStatus(SERVER_HOST_NAME, "AMBARI_SERVER_ACTION");
   }
@@ -235,6 +357,13 @@ public class ServerActionExecutorTest {
     ActionDBAccessor db = mock(ActionDBAccessor.class);
 
     when(db.getStagesInProgress()).thenReturn(stages);
+    doAnswer(new Answer() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return stages.get(0).getHostRoleCommand(SERVER_HOST_NAME,
+            Role.AMBARI_SERVER_ACTION.toString());
+      }
+    }).when(db).getTask(anyLong());
     doAnswer(new Answer() {
       @Override
       public Object answer(InvocationOnMock invocation) throws Throwable {
@@ -279,6 +408,78 @@ public class ServerActionExecutorTest {
     return db;
   }
 
+  /**
+   * Creates a queued server action task; only persisted tasks know their request and stage.
+   */
+  private static HostRoleCommand createTask(long taskId, long requestId, long stageId,
+                                            String hostName, String clusterName,
+                                            Class<? extends ServerAction> actionClass) {
+    Stage stage = new Stage(requestId, "/tmp", clusterName, 1L, "test", CLUSTER_HOST_INFO,
+        "{}", "{}");
+    stage.setStageId(stageId);
+    stage.addServerActionCommand(actionClass.getName(), null, Role.AMBARI_SERVER_ACTION,
+        RoleCommand.EXECUTE, clusterName, hostName,
+        new ServiceComponentHostServerActionEvent(hostName, System.currentTimeMillis()),
+        null, "command detail", null, 10, false);
+
+    HostRoleCommand task = stage.getHostRoleCommand(hostName, Role.AMBARI_SERVER_ACTION.toString());
+    task.setTaskId(taskId);
+    task.setStatus(HostRoleStatus.QUEUED);
+
+    HostRoleCommand spy = spy(task);
+    doReturn(requestId).when(spy).getRequestId();
+    doReturn(stageId).when(spy).getStageId();
+    return spy;
+  }
+
+  private ActionDBAccessor createMockActionDBAccessor(final List<HostRoleCommand> tasks) {
+    ActionDBAccessor db = mock(ActionDBAccessor.class);
+
+    doAnswer(new Answer() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        HostRoleStatus status = (HostRoleStatus) invocation.getArguments()[1];
+        List<HostRoleCommand> queued = new ArrayList<HostRoleCommand>();
+        for (HostRoleCommand task : tasks) {
+          if (task.getStatus() == status) {
+            queued.add(task);
+          }
+        }
+        return queued;
+      }
+    }).when(db).getTasksByRoleAndStatus(anyString(), any(HostRoleStatus.class));
+    doAnswer(new Answer() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        long taskId = (Long) invocation.getArguments()[0];
+        for (HostRoleCommand task : tasks) {
+          if (task.getTaskId() == taskId) {
+            return task;
+          }
+        }
+        return null;
+      }
+    }).when(db).getTask(anyLong());
+    doAnswer(new Answer() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        String host = (String) invocation.getArguments()[0];
+        long requestId = (Long) invocation.getArguments()[1];
+        long stageId = (Long) invocation.getArguments()[2];
+        CommandReport commandReport = (CommandReport) invocation.getArguments()[4];
+        for (HostRoleCommand task : tasks) {
+          if (task.getHostName().equals(host) && task.getRequestId() == requestId
+              && task.getStageId() == stageId) {
+            task.setStatus(HostRoleStatus.valueOf(commandReport.getStatus()));
+          }
+        }
+        return null;
+      }
+    }).when(db).updateHostRoleState(anyString(), anyLong(), anyLong(), anyString(), any(CommandReport.class));
+
+    return db;
+  }
+
   private static Stage getStageWithServerAction(long requestId, long stageId,
                                                 Map<String, String> payload, String requestContext,
                                                 int timeout) {
@@ -294,6 +495,63 @@ public class ServerActionExecutorTest {
     return stage;
   }
 
+  /**
+   * A server action which completes only once all expected actions are running
+   */
+  public static class LatchServerAction extends AbstractServerAction {
+    private static CountDownLatch latch;
+
+    @Override
+    public CommandReport execute(ConcurrentMap<String, Object> requestSharedDataContext)
+        throws AmbariException, InterruptedException {
+      latch.countDown();
+      if (latch.await(5, TimeUnit.SECONDS)) {
+        return createCommandReport(0, HostRoleStatus.COMPLETED, null, "Success!", null);
+      }
+      return createCommandReport(1, HostRoleStatus.FAILED, null, null, "Not run concurrently");
+    }
+  }
+
+  /**
+   * A server action recording the order in which the tasks were executed
+   */
+  public static class OrderServerAction extends AbstractServerAction {
+    private static final List<Long> executed =
+        Collections.synchronizedList(new ArrayList<Long>());
+
+    @Override
+    public CommandReport execute(ConcurrentMap<String, Object> requestSharedDataContext)
+        throws AmbariException, InterruptedException {
+      long taskId = getHostRoleCommand().getTaskId();
+      Thread.sleep((4 - taskId) * 50);
+      executed.add(taskId);
+      return createCommandReport(0, HostRoleStatus.COMPLETED, null, "Success!", null);
+    }
+  }
+
+  /**
+   * A server action tracking the number of actions running at the same time
+   */
+  public static class ClusterLimitServerAction extends AbstractServerAction {
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Override
+    public CommandReport execute(ConcurrentMap<String, Object> requestSharedDataContext)
+        throws AmbariException, InterruptedException {
+      int count = running.incrementAndGet();
+      synchronized (maxRunning) {
+        maxRunning.set(Math.max(maxRunning.get(), count));
+      }
+      try {
+        Thread.sleep(50);
+      } finally {
+        running.decrementAndGet();
+      }
+      return createCommandReport(0, HostRoleStatus.COMPLETED, null, "Success!", null);
+    }
+  }
+
   public static class MockModule extends AbstractModule {
     @Override
     protected void configure() {
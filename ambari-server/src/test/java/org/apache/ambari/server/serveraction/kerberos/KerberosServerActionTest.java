@@ -29,6 +29,7 @@ import org.apache.ambari.server.actionmanager.HostRoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.agent.CommandReport;
 import org.apache.ambari.server.agent.ExecutionCommand;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.stack.OsFamily;
@@ -37,7 +38,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -53,6 +57,7 @@ public class KerberosServerActionTest {
   File temporaryDirectory;
   private Injector injector;
   private KerberosServerAction action;
+  private Configuration configuration;
 
   @Before
   public void setUp() throws Exception {
@@ -61,6 +66,9 @@ public class KerberosServerActionTest {
     final Clusters clusters = mock(Clusters.class);
     when(clusters.getCluster(anyString())).thenReturn(cluster);
 
+    configuration = mock(Configuration.class);
+    when(configuration.getKerberosOperationThreads()).thenReturn(1);
+
     final ExecutionCommand mockExecutionCommand = mock(ExecutionCommand.class);
     final HostRoleCommand mockHostRoleCommand = mock(HostRoleCommand.class);
 
@@ -93,6 +101,7 @@ public class KerberosServerActionTest {
         });
 
         bind(Clusters.class).toInstance(clusters);
+        bind(Configuration.class).toInstance(configuration);
         bind(OsFamily.class).toInstance(createNiceMock(OsFamily.class));
       }
     });
@@ -193,6 +202,50 @@ public class KerberosServerActionTest {
     }
   }
 
+  @Test
+  public void testProcessIdentitiesParallel() throws Exception {
+    when(configuration.getKerberosOperationThreads()).thenReturn(4);
+
+    ConcurrentMap<String, Object> sharedMap = new ConcurrentHashMap<String, Object>();
+    CommandReport report = action.processIdentities(sharedMap);
+    Assert.assertNotNull(report);
+    Assert.assertEquals(HostRoleStatus.COMPLETED.toString(), report.getStatus());
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("principal|hostName|REALM.COM" + i, sharedMap.get("principal|_HOST|_REALM" + i));
+    }
+  }
+
+  @Test
+  public void testProcessIdentitiesParallelFail() throws Exception {
+    when(configuration.getKerberosOperationThreads()).thenReturn(4);
+
+    ConcurrentMap<String, Object> sharedMap = new ConcurrentHashMap<String, Object>();
+    sharedMap.put("FAIL", "true");
+
+    CommandReport report = action.processIdentities(sharedMap);
+    Assert.assertNotNull(report);
+    Assert.assertEquals(HostRoleStatus.FAILED.toString(), report.getStatus());
+  }
+
+  @Test
+  public void testGroupRecords() throws Exception {
+    List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+    records.add(createRecord("nn/_HOST@_REALM", "host1", "/etc/security/keytabs/nn.service.keytab"));
+    records.add(createRecord("hdfs@_REALM", "host1", "/etc/security/keytabs/hdfs.headless.keytab"));
+    records.add(createRecord("nn/_HOST@_REALM", "host2", "/etc/security/keytabs/nn.service.keytab"));
+    records.add(createRecord("hdfs@_REALM", "host2", "/etc/security/keytabs/hdfs.headless.keytab"));
+    // shares a keytab file with hdfs@REALM.COM on host1
+    records.add(createRecord("other@_REALM", "host1", "/etc/security/keytabs/hdfs.headless.keytab"));
+
+    List<List<Map<String, String>>> groups = action.groupRecords(records, "REALM.COM");
+
+    Assert.assertEquals(3, groups.size());
+    Assert.assertEquals(Arrays.asList(records.get(0)), groups.get(0));
+    Assert.assertEquals(Arrays.asList(records.get(1), records.get(3), records.get(4)), groups.get(1));
+    Assert.assertEquals(Arrays.asList(records.get(2)), groups.get(2));
+  }
+
   @Test
   public void testProcessIdentitiesFail() throws Exception {
     ConcurrentMap<String, Object> sharedMap = new ConcurrentHashMap<String, Object>();
@@ -211,4 +264,12 @@ public class KerberosServerActionTest {
     Assert.assertEquals("password", credentials.getPassword());
     Assert.assertEquals("keytab", credentials.getKeytab());
   }
-}
\ No newline at end of file
+
+  private Map<String, String> createRecord(String principal, String host, String keytabFilePath) {
+    Map<String, String> record = new HashMap<String, String>();
+    record.put(KerberosActionDataFile.PRINCIPAL, principal);
+    record.put(KerberosActionDataFile.HOSTNAME, host);
+    record.put(KerberosActionDataFile.KEYTAB_FILE_PATH, keytabFilePath);
+    return record;
+  }
+}
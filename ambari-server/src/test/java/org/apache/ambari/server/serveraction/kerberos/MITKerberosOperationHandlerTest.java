@@ -29,12 +29,14 @@ import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.stack.OsFamily;
 import org.apache.ambari.server.utils.ShellCommandUtil;
+import org.apache.commons.io.FileUtils;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -429,6 +431,67 @@ public class MITKerberosOperationHandlerTest extends KerberosOperationHandlerTes
     handler.close();
   }
 
+  @Test
+  public void testKAdminSession() throws Exception {
+    File directory = createStandInKAdmin(
+        "echo started >> \"$(dirname \"$0\")/starts\"\n" +
+        "echo \"Authenticating as principal admin/admin with password.\"\n" +
+        "printf 'kadmin:  '\n" +
+        "while read -r query; do\n" +
+        "  case \"$query\" in\n" +
+        "    \"get_principal existing@EXAMPLE.COM\")\n" +
+        "      echo \"Principal: existing@EXAMPLE.COM\"\n" +
+        "      echo \"Key: vno 3, aes256-cts-hmac-sha1-96, no salt\" ;;\n" +
+        "    \"get_principal new@EXAMPLE.COM\")\n" +
+        "      if [ -n \"$created\" ]; then\n" +
+        "        echo \"Principal: new@EXAMPLE.COM\"\n" +
+        "        echo \"Key: vno 1, aes256-cts-hmac-sha1-96, no salt\"\n" +
+        "      else\n" +
+        "        echo 'get_principal: Principal does not exist while retrieving \"new@EXAMPLE.COM\".' >&2\n" +
+        "      fi ;;\n" +
+        "    \"add_principal -pw \"*\" new@EXAMPLE.COM\")\n" +
+        "      created=1\n" +
+        "      echo 'Principal \"new@EXAMPLE.COM\" created.' ;;\n" +
+        "    quit)\n" +
+        "      exit 0 ;;\n" +
+        "  esac\n" +
+        "  printf 'kadmin:  '\n" +
+        "done\n");
+
+    try {
+      MITKerberosOperationHandler handler = createKAdminSessionHandler();
+      handler.open(new KerberosCredential(DEFAULT_ADMIN_PRINCIPAL, DEFAULT_ADMIN_PASSWORD, null), DEFAULT_REALM,
+          createKerberosEnv(directory));
+
+      Assert.assertTrue(handler.principalExists("existing@EXAMPLE.COM"));
+      Assert.assertFalse(handler.principalExists("new@EXAMPLE.COM"));
+      Assert.assertEquals(Integer.valueOf(1), handler.createPrincipal("new@EXAMPLE.COM", "password", false));
+      Assert.assertTrue(handler.principalExists("new@EXAMPLE.COM"));
+      handler.close();
+
+      // all of the queries went through one kadmin process
+      Assert.assertEquals("started\n", FileUtils.readFileToString(new File(directory, "starts")));
+    } finally {
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
+  @Test(expected = KerberosAdminAuthenticationException.class)
+  public void testKAdminSessionIncorrectAdminPassword() throws Exception {
+    File directory = createStandInKAdmin(
+        "echo 'kadmin: Incorrect password while initializing kadmin interface' >&2\n" +
+        "exit 1\n");
+
+    try {
+      MITKerberosOperationHandler handler = createKAdminSessionHandler();
+      handler.open(new KerberosCredential(DEFAULT_ADMIN_PRINCIPAL, DEFAULT_ADMIN_PASSWORD, null), DEFAULT_REALM,
+          createKerberosEnv(directory));
+      handler.testAdministratorCredentials();
+    } finally {
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
   @Test
   @Ignore
   public void testTestAdministratorCredentialsLive() throws KerberosOperationException {
@@ -455,4 +518,40 @@ public class MITKerberosOperationHandlerTest extends KerberosOperationHandlerTes
     handler.testAdministratorCredentials();
     handler.close();
   }
-}
\ No newline at end of file
+
+  /**
+   * Creates a handler that sends all of its queries to one kadmin process.
+   */
+  private MITKerberosOperationHandler createKAdminSessionHandler() {
+    final Configuration configuration = EasyMock.createNiceMock(Configuration.class);
+    expect(configuration.isKerberosKAdminSessionEnabled()).andReturn(true).anyTimes();
+    replay(configuration);
+
+    return Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(Configuration.class).toInstance(configuration);
+      }
+    }).getInstance(MITKerberosOperationHandler.class);
+  }
+
+  /**
+   * Writes a shell script that stands in for kadmin to a new temporary directory.
+   */
+  private File createStandInKAdmin(String script) throws Exception {
+    File directory = File.createTempFile("ambari_ut_", ".d");
+    Assert.assertTrue(directory.delete());
+    Assert.assertTrue(directory.mkdirs());
+
+    File kadmin = new File(directory, "kadmin");
+    FileUtils.writeStringToFile(kadmin, "#!/bin/sh\n" + script);
+    Assert.assertTrue(kadmin.setExecutable(true));
+    return directory;
+  }
+
+  private Map<String, String> createKerberosEnv(File executableDirectory) {
+    Map<String, String> kerberosEnv = new HashMap<String, String>(KERBEROS_ENV_MAP);
+    kerberosEnv.put(MITKerberosOperationHandler.KERBEROS_ENV_EXECUTABLE_SEARCH_PATHS, executableDirectory.getAbsolutePath());
+    return kerberosEnv;
+  }
+}
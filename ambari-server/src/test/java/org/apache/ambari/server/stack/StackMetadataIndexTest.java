@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.stack;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.apache.ambari.server.state.ComponentInfo;
+import org.apache.ambari.server.state.ServiceInfo;
+import org.apache.ambari.server.state.StackInfo;
+import org.junit.Test;
+
+/**
+ * StackMetadataIndex unit tests.
+ */
+public class StackMetadataIndexTest {
+
+  @Test
+  public void testLookups() throws Exception {
+    ComponentInfo namenode = new ComponentInfo();
+    namenode.setName("NAMENODE");
+    ComponentInfo datanode = new ComponentInfo();
+    datanode.setName("DATANODE");
+
+    ServiceInfo hdfs = new ServiceInfo();
+    hdfs.setName("HDFS");
+    hdfs.getComponents().add(namenode);
+    hdfs.getComponents().add(datanode);
+
+    StackInfo stack = new StackInfo();
+    stack.setName("HDP");
+    stack.setVersion("2.2");
+    stack.getServices().add(hdfs);
+
+    StackMetadataIndex index = new StackMetadataIndex(Collections.singleton(stack));
+
+    assertSame(stack, index.getStack("HDP", "2.2"));
+    assertSame(hdfs, index.getService("HDP", "2.2", "HDFS"));
+    assertSame(namenode, index.getComponent("HDP", "2.2", "HDFS", "NAMENODE"));
+    assertSame(datanode, index.getComponent("HDP", "2.2", "HDFS", "DATANODE"));
+
+    assertNull(index.getStack("HDP", "2.1"));
+    assertNull(index.getService("HDP", "2.2", "YARN"));
+    assertNull(index.getComponent("HDP", "2.2", "HDFS", "JOURNALNODE"));
+    assertNull(index.getComponent("HDP", "2.2", "YARN", "NAMENODE"));
+    assertNull(index.getComponent(null, "2.2", "HDFS", "NAMENODE"));
+  }
+}
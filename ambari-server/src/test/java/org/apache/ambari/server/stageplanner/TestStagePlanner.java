@@ -22,10 +22,12 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.Role;
 import org.apache.ambari.server.RoleCommand;
+import org.apache.ambari.server.actionmanager.HostRoleCommand;
 import org.apache.ambari.server.actionmanager.Stage;
 import org.apache.ambari.server.metadata.RoleCommandOrder;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
@@ -155,4 +157,54 @@ public class TestStagePlanner {
     }
     assertEquals(4, outStages.size());
   }
+
+  @Test
+  public void testManyHostsPlan() {
+    RoleCommandOrder rco = injector.getInstance(RoleCommandOrder.class);
+    ClusterImpl cluster = mock(ClusterImpl.class);
+    when(cluster.getCurrentStackVersion()).thenReturn(new StackId("HDP-2.0.6"));
+    rco.initialize(cluster);
+    RoleGraph rg = new RoleGraph(rco);
+    long now = System.currentTimeMillis();
+    int hostCount = 2000;
+    Stage stage = StageUtils.getATestStage(1, 1, "host0", "", "");
+    stage.addHostRoleExecutionCommand("host1", Role.HBASE_MASTER,
+        RoleCommand.START, new ServiceComponentHostStartEvent("HBASE_MASTER",
+            "host1", now), "cluster1", "HBASE", false);
+    stage.addHostRoleExecutionCommand("host1", Role.ZOOKEEPER_SERVER,
+        RoleCommand.START, new ServiceComponentHostStartEvent("ZOOKEEPER_SERVER",
+            "host1", now), "cluster1", "ZOOKEEPER", false);
+    for (int i = 2; i < hostCount; i++) {
+      String hostname = "host" + i;
+      stage.addHostRoleExecutionCommand(hostname, Role.DATANODE,
+          RoleCommand.START, new ServiceComponentHostStartEvent("DATANODE",
+              hostname, now), "cluster1", "HDFS", false);
+      stage.addHostRoleExecutionCommand(hostname, Role.HBASE_REGIONSERVER,
+          RoleCommand.START, new ServiceComponentHostStartEvent("HBASE_REGIONSERVER",
+              hostname, now), "cluster1", "HBASE", false);
+      stage.addHostRoleExecutionCommand(hostname, Role.GANGLIA_MONITOR,
+          RoleCommand.START, new ServiceComponentHostStartEvent("GANGLIA_MONITOR",
+              hostname, now), "cluster1", "GANGLIA", false);
+    }
+
+    long start = System.nanoTime();
+    rg.build(stage);
+    List<Stage> outStages = rg.getStages();
+    long elapsed = System.nanoTime() - start;
+    System.out.println("Planned " + outStages.size() + " stages for " + hostCount
+        + " hosts in " + (elapsed / 1000000) + " ms");
+
+    // NAMENODE install, then ZOOKEEPER_SERVER and DATANODE before HBASE_MASTER
+    // before HBASE_REGIONSERVER
+    assertEquals(4, outStages.size());
+
+    int commandCount = 0;
+    for (Stage s : outStages) {
+      for (Map<String, HostRoleCommand> roleCommands : s.getHostRoleCommands().values()) {
+        commandCount += roleCommands.size();
+      }
+    }
+    assertEquals(stage.getOrderedHostRoleCommands().size(), commandCount);
+    assertEquals(hostCount - 2, outStages.get(3).getHostRoleCommands().size());
+  }
 }
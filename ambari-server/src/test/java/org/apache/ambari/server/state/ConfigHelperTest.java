@@ -269,6 +269,35 @@ public class ConfigHelperTest {
       Assert.assertEquals("30", coreProps.get("ipc.client.connect.max.retries"));
     }
 
+    @Test
+    public void testEffectivePropertiesViewIsShared() throws Exception {
+      Map<String, Map<String, String>> desiredTags =
+          configHelper.getEffectiveDesiredTags(cluster, "h1");
+
+      Map<String, Map<String, String>> view = configHelper
+          .getEffectiveConfigPropertiesView(cluster, desiredTags);
+      Map<String, String> coreProps = view.get("core-site");
+      Assert.assertEquals("30", coreProps.get("ipc.client.connect.max.retries"));
+
+      // the same config versions share their merged properties
+      Assert.assertSame(coreProps, configHelper
+          .getEffectiveConfigPropertiesView(cluster, desiredTags).get("core-site"));
+
+      try {
+        coreProps.put("a", "b");
+        Assert.fail("Expected the view to be unmodifiable");
+      } catch (UnsupportedOperationException e) {
+        // expected
+      }
+
+      // copies may still be changed by their callers
+      Map<String, String> copy = configHelper
+          .getEffectiveConfigProperties(cluster, desiredTags).get("core-site");
+      Assert.assertEquals(coreProps, copy);
+      copy.put("a", "b");
+      Assert.assertFalse(coreProps.containsKey("a"));
+    }
+
     @Test
     public void testEffectivePropertiesAttributesWithOverrides() throws Exception {
       final Config config1 = new ConfigImpl("core-site");
@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.alerts;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.ambari.server.events.AlertStateChangeEvent;
+import org.apache.ambari.server.events.InitialAlertEvent;
+import org.apache.ambari.server.events.MaintenanceModeEvent;
+import org.apache.ambari.server.events.publishers.AlertEventPublisher;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.orm.GuiceJpaInitializer;
+import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
+import org.apache.ambari.server.orm.OrmTestHelper;
+import org.apache.ambari.server.orm.dao.AlertDefinitionDAO;
+import org.apache.ambari.server.orm.dao.AlertHostSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
+import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+import org.apache.ambari.server.state.AlertState;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.MaintenanceState;
+import org.apache.ambari.server.state.alert.AlertSummaryCounters;
+import org.apache.ambari.server.state.alert.Scope;
+import org.apache.ambari.server.state.alert.SourceType;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+
+/**
+ * Tests {@link AlertSummaryCounters}.
+ */
+public class AlertSummaryCountersTest {
+
+  private Injector m_injector;
+  private AlertsDAO m_dao;
+  private AlertDefinitionDAO m_definitionDao;
+  private TestAlertSummaryCounters m_counters;
+  private long m_clusterId;
+  private List<AlertCurrentEntity> m_currentAlerts;
+
+  @Before
+  public void setup() throws Exception {
+    m_injector = Guice.createInjector(new InMemoryDefaultTestModule());
+    m_injector.getInstance(GuiceJpaInitializer.class);
+
+    m_dao = m_injector.getInstance(AlertsDAO.class);
+    m_definitionDao = m_injector.getInstance(AlertDefinitionDAO.class);
+    m_clusterId = m_injector.getInstance(OrmTestHelper.class).createCluster();
+
+    m_counters = new TestAlertSummaryCounters(
+        m_injector.getInstance(AlertEventPublisher.class),
+        m_injector.getInstance(AmbariEventPublisher.class));
+    m_injector.injectMembers(m_counters);
+
+    // 2 services across 2 hosts; h1 has an OK and a CRITICAL alert, h2 has a
+    // WARNING alert and the service level alert has no host
+    m_currentAlerts = new ArrayList<AlertCurrentEntity>();
+    m_currentAlerts.add(createCurrent("HDFS", "h1", AlertState.OK));
+    m_currentAlerts.add(createCurrent("HDFS", "h1", AlertState.CRITICAL));
+    m_currentAlerts.add(createCurrent("YARN", "h2", AlertState.WARNING));
+    m_currentAlerts.add(createCurrent("YARN", null, AlertState.UNKNOWN));
+  }
+
+  @After
+  public void teardown() {
+    m_injector.getInstance(PersistService.class).stop();
+    m_injector = null;
+  }
+
+  @Test
+  public void testCountsMatchDatabase() throws Exception {
+    assertMatchesDatabase();
+
+    AlertSummaryDTO summary = m_counters.getSummary(m_clusterId, null, null);
+    assertEquals(1, summary.getOkCount());
+    assertEquals(1, summary.getWarningCount());
+    assertEquals(1, summary.getCriticalCount());
+    assertEquals(1, summary.getUnknownCount());
+    assertEquals(0, summary.getMaintenanceCount());
+
+    AlertHostSummaryDTO hostSummary = m_counters.getHostSummary(m_clusterId);
+    assertEquals(0, hostSummary.getOkCount());
+    assertEquals(1, hostSummary.getWarningCount());
+    assertEquals(1, hostSummary.getCriticalCount());
+    assertEquals(0, hostSummary.getUnknownCount());
+  }
+
+  @Test
+  public void testStateChangeUpdatesCounts() throws Exception {
+    // load the counts before the change
+    assertMatchesDatabase();
+
+    AlertCurrentEntity current = m_currentAlerts.get(1);
+    AlertHistoryEntity history = createHistory(
+        current.getAlertHistory().getAlertDefinition(), "h1", AlertState.OK);
+    current.setAlertHistory(history);
+    current = m_dao.merge(current);
+
+    m_counters.onAlertEvent(new AlertStateChangeEvent(m_clusterId, null,
+        current, AlertState.CRITICAL));
+
+    assertEquals(0, m_counters.getSummary(m_clusterId, "HDFS", null).getCriticalCount());
+    assertEquals(2, m_counters.getSummary(m_clusterId, null, "h1").getOkCount());
+    assertEquals(1, m_counters.getHostSummary(m_clusterId).getOkCount());
+    assertMatchesDatabase();
+  }
+
+  @Test
+  public void testInitialAlertUpdatesCounts() throws Exception {
+    assertMatchesDatabase();
+
+    AlertCurrentEntity current = createCurrent("YARN", "h3", AlertState.CRITICAL);
+    m_counters.onAlertEvent(new InitialAlertEvent(m_clusterId, null, current));
+
+    assertEquals(2, m_counters.getSummary(m_clusterId, null, null).getCriticalCount());
+    assertEquals(2, m_counters.getHostSummary(m_clusterId).getCriticalCount());
+    assertMatchesDatabase();
+  }
+
+  @Test
+  public void testMaintenanceModeReloadsCounts() throws Exception {
+    assertMatchesDatabase();
+
+    AlertCurrentEntity current = m_currentAlerts.get(2);
+    current.setMaintenanceState(MaintenanceState.ON);
+    m_dao.merge(current);
+
+    // the change is not visible until a maintenance mode event arrives
+    assertEquals(0, m_counters.getSummary(m_clusterId, null, null).getMaintenanceCount());
+
+    m_counters.onAmbariEvent(new MaintenanceModeEvent(MaintenanceState.ON,
+        EasyMock.createNiceMock(Host.class)));
+
+    AlertSummaryDTO summary = m_counters.getSummary(m_clusterId, null, null);
+    assertEquals(1, summary.getMaintenanceCount());
+    assertEquals(0, summary.getWarningCount());
+
+    // h2 only has an alert in maintenance mode which makes it OK
+    assertEquals(1, m_counters.getHostSummary(m_clusterId).getOkCount());
+    assertMatchesDatabase();
+  }
+
+  @Test
+  public void testPeriodicReconciliation() throws Exception {
+    assertMatchesDatabase();
+
+    // a change without an event drifts until the counts are reconciled
+    createCurrent("HDFS", "h1", AlertState.WARNING);
+    assertEquals(1, m_counters.getSummary(m_clusterId, null, null).getWarningCount());
+
+    m_counters.m_now += AlertSummaryCounters.RECONCILE_INTERVAL_MILLIS;
+    assertEquals(2, m_counters.getSummary(m_clusterId, null, null).getWarningCount());
+    assertMatchesDatabase();
+  }
+
+  /**
+   * Asserts that the counters agree with the aggregate queries.
+   */
+  private void assertMatchesDatabase() {
+    for (String serviceName : new String[] { null, "HDFS", "YARN" }) {
+      assertSummaryEquals(m_dao.findCurrentCounts(m_clusterId, serviceName, null),
+          m_counters.getSummary(m_clusterId, serviceName, null));
+    }
+
+    for (String hostName : new String[] { "h1", "h2", "h3" }) {
+      assertSummaryEquals(m_dao.findCurrentCounts(m_clusterId, null, hostName),
+          m_counters.getSummary(m_clusterId, null, hostName));
+    }
+
+    AlertHostSummaryDTO expected = m_dao.findCurrentHostCounts(m_clusterId);
+    AlertHostSummaryDTO actual = m_counters.getHostSummary(m_clusterId);
+    assertEquals(expected.getOkCount(), actual.getOkCount());
+    assertEquals(expected.getWarningCount(), actual.getWarningCount());
+    assertEquals(expected.getCriticalCount(), actual.getCriticalCount());
+    assertEquals(expected.getUnknownCount(), actual.getUnknownCount());
+  }
+
+  private void assertSummaryEquals(AlertSummaryDTO expected, AlertSummaryDTO actual) {
+    assertEquals(expected.getOkCount(), actual.getOkCount());
+    assertEquals(expected.getWarningCount(), actual.getWarningCount());
+    assertEquals(expected.getCriticalCount(), actual.getCriticalCount());
+    assertEquals(expected.getUnknownCount(), actual.getUnknownCount());
+    assertEquals(expected.getMaintenanceCount(), actual.getMaintenanceCount());
+  }
+
+  private AlertCurrentEntity createCurrent(String serviceName, String hostName,
+      AlertState state) {
+    AlertDefinitionEntity definition = new AlertDefinitionEntity();
+    definition.setDefinitionName("definition_" + UUID.randomUUID());
+    definition.setServiceName(serviceName);
+    definition.setComponentName(null);
+    definition.setClusterId(m_clusterId);
+    definition.setHash(UUID.randomUUID().toString());
+    definition.setScheduleInterval(Integer.valueOf(60));
+    definition.setScope(Scope.SERVICE);
+    definition.setSource("{\"type\" : \"SCRIPT\"}");
+    definition.setSourceType(SourceType.SCRIPT);
+    m_definitionDao.create(definition);
+
+    AlertCurrentEntity current = new AlertCurrentEntity();
+    current.setAlertHistory(createHistory(definition, hostName, state));
+    current.setLatestTimestamp(System.currentTimeMillis());
+    current.setOriginalTimestamp(System.currentTimeMillis());
+    current.setMaintenanceState(MaintenanceState.OFF);
+    m_dao.create(current);
+    return current;
+  }
+
+  private AlertHistoryEntity createHistory(AlertDefinitionEntity definition,
+      String hostName, AlertState state) {
+    AlertHistoryEntity history = new AlertHistoryEntity();
+    history.setServiceName(definition.getServiceName());
+    history.setClusterId(m_clusterId);
+    history.setAlertDefinition(definition);
+    history.setAlertLabel(definition.getDefinitionName());
+    history.setAlertText(definition.getDefinitionName());
+    history.setAlertTimestamp(System.currentTimeMillis());
+    history.setHostName(hostName);
+    history.setAlertState(state);
+    m_dao.create(history);
+    return history;
+  }
+
+  /**
+   * Counters with a controllable clock.
+   */
+  private static final class TestAlertSummaryCounters extends AlertSummaryCounters {
+    private long m_now = System.currentTimeMillis();
+
+    private TestAlertSummaryCounters(AlertEventPublisher alertEventPublisher,
+        AmbariEventPublisher ambariEventPublisher) {
+      super(alertEventPublisher, ambariEventPublisher);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return m_now;
+    }
+  }
+}
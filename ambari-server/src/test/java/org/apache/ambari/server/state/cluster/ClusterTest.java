@@ -20,6 +20,8 @@ package org.apache.ambari.server.state.cluster;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -72,6 +74,7 @@ import org.apache.ambari.server.orm.entities.RepositoryVersionEntity;
 import org.apache.ambari.server.orm.entities.ServiceDesiredStateEntity;
 import org.apache.ambari.server.state.AgentVersion;
 import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.ClusterTopologySnapshot;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ComponentInfo;
 import org.apache.ambari.server.state.Config;
@@ -696,6 +699,85 @@ public class ClusterTest {
     Assert.assertEquals(2, scHosts.size());
   }
 
+  @Test
+  public void testTopologySnapshot() throws Exception {
+    createDefaultCluster();
+
+    Service s = serviceFactory.createNew(c1, "HDFS");
+    c1.addService(s);
+    s.persist();
+    ServiceComponent sc = serviceComponentFactory.createNew(s, "NAMENODE");
+    s.addServiceComponent(sc);
+    sc.persist();
+    ServiceComponentHost sch =
+        serviceComponentHostFactory.createNew(sc, "h1");
+    sc.addServiceComponentHost(sch);
+    sch.persist();
+
+    ClusterTopologySnapshot snapshot = c1.getTopologySnapshot();
+    assertSame(snapshot, c1.getTopologySnapshot());
+    assertSame(s, snapshot.getService("HDFS"));
+    assertSame(sch, snapshot.getServiceComponentHost("HDFS", "NAMENODE", "h1"));
+    assertEquals(1, snapshot.getServiceComponentHosts("h1").size());
+    assertEquals(0, snapshot.getServiceComponentHosts("h2").size());
+
+    // a change to the topology publishes a new snapshot and leaves the old
+    // one untouched
+    ServiceComponentHost sch2 =
+        serviceComponentHostFactory.createNew(sc, "h2");
+    sc.addServiceComponentHost(sch2);
+    sch2.persist();
+
+    ClusterTopologySnapshot newSnapshot = c1.getTopologySnapshot();
+    assertNotSame(snapshot, newSnapshot);
+    assertTrue(newSnapshot.getVersion() > snapshot.getVersion());
+    assertEquals(1, snapshot.getServiceComponentHosts("HDFS", "NAMENODE").size());
+    assertEquals(2, newSnapshot.getServiceComponentHosts("HDFS", "NAMENODE").size());
+    assertSame(sch2, c1.getServiceComponentHost("HDFS", "NAMENODE", "h2"));
+    assertSame(sch2, sc.getServiceComponentHost("h2"));
+    assertEquals(2, sc.getServiceComponentHosts().size());
+  }
+
+  @Test
+  public void testReadersPublishTopologySnapshot() throws Exception {
+    createDefaultCluster();
+
+    Service s = serviceFactory.createNew(c1, "HDFS");
+    c1.addService(s);
+    s.persist();
+    ServiceComponent sc = serviceComponentFactory.createNew(s, "NAMENODE");
+    s.addServiceComponent(sc);
+    sc.persist();
+    ServiceComponentHost sch =
+        serviceComponentHostFactory.createNew(sc, "h1");
+    sc.addServiceComponentHost(sch);
+    sch.persist();
+
+    Field field = ClusterImpl.class.getDeclaredField("topologySnapshot");
+    field.setAccessible(true);
+
+    // the host component reads publish the snapshot, later reads use it
+    assertEquals(Collections.singletonList(sch), c1.getServiceComponentHosts("h1"));
+    ClusterTopologySnapshot snapshot = (ClusterTopologySnapshot) field.get(c1);
+    assertNotNull(snapshot);
+
+    assertSame(s, c1.getService("HDFS"));
+    assertEquals(Collections.singleton("HDFS"), c1.getServices().keySet());
+    assertSame(sch, c1.getServiceComponentHost("HDFS", "NAMENODE", "h1"));
+    assertSame(snapshot, field.get(c1));
+
+    // a change replaces the snapshot and the next read sees the change
+    ServiceComponentHost sch2 =
+        serviceComponentHostFactory.createNew(sc, "h2");
+    sc.addServiceComponentHost(sch2);
+    sch2.persist();
+
+    assertEquals(Collections.singletonList(sch2), c1.getServiceComponentHosts("h2"));
+    ClusterTopologySnapshot newSnapshot = (ClusterTopologySnapshot) field.get(c1);
+    assertNotNull(newSnapshot);
+    assertTrue(newSnapshot.getVersion() > snapshot.getVersion());
+  }
+
   @Test
   public void testGetAndSetConfigs() throws Exception {
     createDefaultCluster();
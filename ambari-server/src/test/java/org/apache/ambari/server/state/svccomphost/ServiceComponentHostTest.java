@@ -18,9 +18,11 @@
 
 package org.apache.ambari.server.state.svccomphost;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
@@ -30,11 +32,13 @@ import org.apache.ambari.server.ServiceComponentNotFoundException;
 import org.apache.ambari.server.ServiceNotFoundException;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.controller.ServiceComponentHostResponse;
+import org.apache.ambari.server.events.ServiceComponentInstalledEvent;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
 import org.apache.ambari.server.orm.OrmTestHelper;
 import org.apache.ambari.server.orm.dao.HostComponentDesiredStateDAO;
 import org.apache.ambari.server.orm.dao.HostComponentStateDAO;
+import org.apache.ambari.server.orm.dao.HostDAO;
 import org.apache.ambari.server.orm.entities.HostComponentDesiredStateEntity;
 import org.apache.ambari.server.orm.entities.HostComponentDesiredStateEntityPK;
 import org.apache.ambari.server.orm.entities.HostComponentStateEntity;
@@ -1069,6 +1073,66 @@ public class ServiceComponentHostTest {
     cluster.addDesiredConfig("user", Collections.singleton(config));
   }
 
+  @Test
+  public void testPersistServiceComponentHosts() throws Exception {
+    clusters.addHost("h2");
+    setOsFamily(clusters.getHost("h2"), "redhat", "5.9");
+    clusters.getHost("h2").persist();
+    clusters.mapHostToCluster("h2", "C1");
+
+    Cluster cluster = clusters.getCluster("C1");
+    Service service = serviceFactory.createNew(cluster, "HDFS");
+    cluster.addService(service);
+    service.persist();
+
+    List<ServiceComponentHost> hostComponents = new ArrayList<ServiceComponentHost>();
+    for (String componentName : new String[] {"NAMENODE", "DATANODE"}) {
+      ServiceComponent sc = serviceComponentFactory.createNew(service, componentName);
+      service.addServiceComponent(sc);
+      sc.persist();
+
+      for (String hostName : new String[] {"h1", "h2"}) {
+        ServiceComponentHost sch = serviceComponentHostFactory.createNew(sc, hostName);
+        sc.addServiceComponentHost(sch);
+        hostComponents.add(sch);
+      }
+    }
+
+    ServiceComponentHostPersister persister = injector.getInstance(ServiceComponentHostPersister.class);
+    List<ServiceComponentInstalledEvent> events = persister.write(hostComponents);
+    Assert.assertEquals(hostComponents.size(), events.size());
+    persister.publish(events);
+
+    HostComponentStateDAO hostComponentStateDAO = injector.getInstance(HostComponentStateDAO.class);
+    for (ServiceComponentHost sch : hostComponents) {
+      Assert.assertTrue(sch.isPersisted());
+
+      HostComponentStateEntityPK pk = new HostComponentStateEntityPK();
+      pk.setClusterId(cluster.getClusterId());
+      pk.setServiceName(sch.getServiceName());
+      pk.setComponentName(sch.getServiceComponentName());
+      pk.setHostName(sch.getHostName());
+      Assert.assertNotNull(hostComponentStateDAO.findByPK(pk));
+    }
+    Assert.assertEquals(2, injector.getInstance(HostDAO.class).findByName("h2").getHostComponentStateEntities().size());
+    Assert.assertEquals(2, cluster.getServiceComponentHosts("h2").size());
+
+    // the persisted host components keep writing through
+    ServiceComponentHost sch = hostComponents.get(0);
+    sch.setDesiredState(State.INSTALLED);
+    HostComponentDesiredStateEntityPK pk = new HostComponentDesiredStateEntityPK();
+    pk.setClusterId(cluster.getClusterId());
+    pk.setServiceName(sch.getServiceName());
+    pk.setComponentName(sch.getServiceComponentName());
+    pk.setHostName(sch.getHostName());
+    Assert.assertEquals(State.INSTALLED,
+        injector.getInstance(HostComponentDesiredStateDAO.class).findByPK(pk).getDesiredState());
+
+    // already persisted host components are skipped
+    Assert.assertTrue(persister.write(hostComponents).isEmpty());
+    persister.persist(hostComponents);
+  }
+
   @Test
   public void testMaintenance() throws Exception {
     String stackVersion="HDP-2.0.6";
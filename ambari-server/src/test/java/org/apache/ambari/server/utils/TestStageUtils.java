@@ -17,8 +17,10 @@
  */
 package org.apache.ambari.server.utils;
 
+import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.powermock.api.easymock.PowerMock.mockStaticPartial;
 import static org.powermock.api.easymock.PowerMock.replayAll;
@@ -34,6 +36,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -54,11 +57,15 @@ import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.HostComponentAdminState;
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.ServiceComponentHost;
 import org.apache.ambari.server.state.ServiceComponentHostFactory;
 import org.apache.ambari.server.state.StackId;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.jackson.JsonGenerationException;
+import org.easymock.EasyMock;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -322,6 +329,69 @@ public class TestStageUtils {
     assertEquals(h0, serverHost.iterator().next());
   }
 
+  @Test
+  public void testGetClusterHostInfoCached() throws Exception {
+    Host h1 = createNiceMock(Host.class);
+    Host h2 = createNiceMock(Host.class);
+    expect(h1.getHostName()).andReturn("h1").anyTimes();
+    expect(h2.getHostName()).andReturn("h2").anyTimes();
+    expect(h1.getCurrentPingPort()).andReturn(8670).anyTimes();
+    expect(h2.getCurrentPingPort()).andReturn(8670).anyTimes();
+
+    // h2 after its agent registered on another ping port
+    Host h2Moved = createNiceMock(Host.class);
+    expect(h2Moved.getHostName()).andReturn("h2").anyTimes();
+    expect(h2Moved.getCurrentPingPort()).andReturn(8671).anyTimes();
+
+    Map<String, Host> hosts = new LinkedHashMap<String, Host>();
+    hosts.put("h1", h1);
+    hosts.put("h2", h2);
+
+    Map<String, ServiceComponentHost> hostComponents =
+        new HashMap<String, ServiceComponentHost>();
+    hostComponents.put("h1", createNiceMock(ServiceComponentHost.class));
+
+    ServiceComponent component = createNiceMock(ServiceComponent.class);
+    expect(component.getName()).andReturn("NAMENODE").anyTimes();
+    expect(component.getServiceComponentHosts()).andReturn(hostComponents).anyTimes();
+
+    Service service = createNiceMock(Service.class);
+    expect(service.getServiceComponents()).andReturn(
+        Collections.singletonMap("NAMENODE", component)).anyTimes();
+
+    Cluster cluster = createNiceMock(Cluster.class);
+    expect(cluster.getServices()).andReturn(
+        Collections.singletonMap("HDFS", service)).anyTimes();
+
+    EasyMock.replay(h1, h2, h2Moved, component, service, cluster);
+
+    Map<String, Set<String>> info = StageUtils.getClusterHostInfo(hosts, cluster);
+    assertEquals(Collections.singleton("0"), info.get("namenode_host"));
+    assertEquals(Collections.singleton("8670:0,1"), info.get("all_ping_ports"));
+
+    // callers get their own copy
+    info.get("namenode_host").add("1");
+    String json = StageUtils.getClusterHostInfoJson(hosts, cluster);
+    assertEquals(Collections.singleton("0"),
+        StageUtils.getClusterHostInfo(hosts, cluster).get("namenode_host"));
+    assertSame(json, StageUtils.getClusterHostInfoJson(hosts, cluster));
+
+    // a changed ping port is picked up without an invalidation
+    hosts.put("h2", h2Moved);
+    info = StageUtils.getClusterHostInfo(hosts, cluster);
+    assertEquals(new HashSet<String>(Arrays.asList("8670:0", "8671:1")),
+        info.get("all_ping_ports"));
+
+    // topology changes are picked up once the cache is invalidated
+    hostComponents.put("h2", createNiceMock(ServiceComponentHost.class));
+    assertEquals(Collections.singleton("0"),
+        StageUtils.getClusterHostInfo(hosts, cluster).get("namenode_host"));
+
+    StageUtils.invalidateClusterHostInfo();
+    assertEquals(Collections.singleton("0,1"),
+        StageUtils.getClusterHostInfo(hosts, cluster).get("namenode_host"));
+  }
+
   private void checkServiceCompression(Map<String, Set<String>> info,
       Map<String, String> serviceMapping, Map<String, List<Integer>> serviceTopology,
       List<String> hostList) {
@@ -46,6 +46,7 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Query;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -342,6 +343,182 @@ public class DataStoreImplTest {
         dynamicEntity1, dynamicEntity2, dynamicEntity3, query, schemaManager);
   }
 
+  @Test
+  public void testStoreAll() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    EntityTransaction transaction = createMock(EntityTransaction.class);
+
+    // set expectations
+    Capture<DynamicType> typeCapture = new Capture<DynamicType>();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture));
+
+    // a single entity manager and transaction for all of the entities
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).once();
+    expect(entityManager.getTransaction()).andReturn(transaction).anyTimes();
+
+    Capture<Class> entityClassCapture = new Capture<Class>();
+    expect(entityManager.find(capture(entityClassCapture), eq(99))).andReturn(null);
+    expect(entityManager.find(capture(entityClassCapture), eq(100))).andReturn(null);
+    Capture<DynamicEntity> entityCapture1 = new Capture<DynamicEntity>();
+    entityManager.persist(capture(entityCapture1));
+    Capture<DynamicEntity> entityCapture2 = new Capture<DynamicEntity>();
+    entityManager.persist(capture(entityCapture2));
+    entityManager.close();
+
+    transaction.begin();
+    transaction.commit();
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    dataStore.storeAll(Arrays.asList(new TestEntity(99, "foo"), new TestEntity(100, "bar")));
+
+    Assert.assertEquals(entityClassCapture.getValue(), typeCapture.getValue().getJavaClass());
+    Assert.assertEquals(99, entityCapture1.getValue().get("id"));
+    Assert.assertEquals("foo", entityCapture1.getValue().get("name"));
+    Assert.assertEquals(100, entityCapture2.getValue().get("id"));
+    Assert.assertEquals("bar", entityCapture2.getValue().get("name"));
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager);
+  }
+
+  @Test
+  public void testRemoveAll() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    EntityTransaction transaction = createMock(EntityTransaction.class);
+    DynamicEntity dynamicEntity1 = createMock(DynamicEntity.class);
+    DynamicEntity dynamicEntity2 = createMock(DynamicEntity.class);
+
+    // set expectations
+    Capture<DynamicType> typeCapture = new Capture<DynamicType>();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture));
+
+    // a single entity manager and transaction for all of the entities
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).once();
+    expect(entityManager.getTransaction()).andReturn(transaction).anyTimes();
+    Capture<Class> entityClassCapture = new Capture<Class>();
+    expect(entityManager.getReference(capture(entityClassCapture), eq(99))).andReturn(dynamicEntity1);
+    expect(entityManager.getReference(capture(entityClassCapture), eq(100))).andReturn(dynamicEntity2);
+    entityManager.remove(dynamicEntity1);
+    entityManager.remove(dynamicEntity2);
+    entityManager.close();
+
+    transaction.begin();
+    transaction.commit();
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager,
+        dynamicEntity1, dynamicEntity2);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    dataStore.removeAll(Arrays.asList(new TestEntity(99, "foo"), new TestEntity(100, "bar")));
+
+    Assert.assertEquals(entityClassCapture.getValue(), typeCapture.getValue().getJavaClass());
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager,
+        dynamicEntity1, dynamicEntity2);
+  }
+
+  @Test
+  public void testFindAll_paged() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    DynamicEntity dynamicEntity1 = createMock(DynamicEntity.class);
+    DynamicEntity dynamicEntity2 = createMock(DynamicEntity.class);
+    Query query = createMock(Query.class);
+
+    // set expectations
+    Capture<DynamicType> typeCapture = new Capture<DynamicType>();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager);
+    expect(entityManager.createQuery(
+        "SELECT e FROM DataStoreImplTest$TestEntity1 e WHERE e.name='foo' ORDER BY e.name, e.id DESC")).andReturn(query);
+    entityManager.close();
+
+    expect(query.setFirstResult(10)).andReturn(query);
+    expect(query.setMaxResults(2)).andReturn(query);
+    expect(query.getResultList()).andReturn(Arrays.asList(dynamicEntity1, dynamicEntity2));
+
+    expect(dynamicEntity1.get("id")).andReturn(101);
+    expect(dynamicEntity1.get("name")).andReturn("foo");
+
+    expect(dynamicEntity2.get("id")).andReturn(100);
+    expect(dynamicEntity2.get("name")).andReturn("foo");
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper,
+        dynamicEntity1, dynamicEntity2, query, schemaManager);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    List<TestEntity> entities = dataStore.findAll(TestEntity.class, "name='foo'", 10, 2, "name, id DESC");
+
+    // the order of the query results is kept
+    Assert.assertEquals(2, entities.size());
+    Assert.assertEquals(101, entities.get(0).getId());
+    Assert.assertEquals(100, entities.get(1).getId());
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper,
+        dynamicEntity1, dynamicEntity2, query, schemaManager);
+  }
+
+  @Test
+  public void testCount() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    Query query = createMock(Query.class);
+
+    // set expectations
+    Capture<DynamicType> typeCapture = new Capture<DynamicType>();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager);
+    expect(entityManager.createQuery(
+        "SELECT COUNT(e) FROM DataStoreImplTest$TestEntity1 e WHERE e.name='foo'")).andReturn(query);
+    entityManager.close();
+
+    expect(query.getSingleResult()).andReturn(3L);
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper, query, schemaManager);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    Assert.assertEquals(3L, dataStore.count(TestEntity.class, "name='foo'"));
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper, query, schemaManager);
+  }
+
   private DataStoreImpl getDataStore(EntityManagerFactory entityManagerFactory,
                                      JPADynamicHelper jpaDynamicHelper,
                                      DynamicClassLoader classLoader,
@@ -19,6 +19,7 @@
 package org.apache.ambari.view;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * View data store.
@@ -44,6 +45,26 @@ public interface DataStore {
    */
   public void remove(Object entity) throws PersistenceException;
 
+  /**
+   * Save the given entities to persistent storage in a single transaction.  Either
+   * all of the entities are persisted or none of them are.
+   *
+   * @param entities  the entities to be persisted.
+   *
+   * @throws PersistenceException thrown if the given entities can not be persisted
+   */
+  public void storeAll(Collection<?> entities) throws PersistenceException;
+
+  /**
+   * Remove the given entities from persistent storage in a single transaction.  Either
+   * all of the entities are removed or none of them are.
+   *
+   * @param entities  the entities to be removed.
+   *
+   * @throws PersistenceException thrown if the given entities can not be removed
+   */
+  public void removeAll(Collection<?> entities) throws PersistenceException;
+
   /**
    * Find the entity of the given class type that is uniquely identified by the
    * given primary key.
@@ -72,4 +93,38 @@ public interface DataStore {
    * @throws PersistenceException
    */
   public <T> Collection<T> findAll(Class<T> clazz, String whereClause) throws PersistenceException;
+
+  /**
+   * Find a page of the entities for the given where clause, sorted by the given order
+   * by clause.  Specifying null for the where clause should consider all entities of
+   * the given class type.  An order by clause should be given when paging through
+   * the entities so that the pages are stable.
+   *
+   * @param clazz        the entity class
+   * @param whereClause  the where clause; may be null
+   * @param offset       the position of the first entity to return, starting at 0
+   * @param limit        the maximum number of entities to return; a negative value for no limit
+   * @param orderBy      the order by clause (e.g. "name, id DESC"); may be null
+   * @param <T>          the entity type
+   *
+   * @return the page of entities in the requested order; empty list if no entities
+   *         can be found
+   *
+   * @throws PersistenceException thrown if an error occurs trying to find the entities
+   */
+  public <T> List<T> findAll(Class<T> clazz, String whereClause, int offset, int limit, String orderBy)
+      throws PersistenceException;
+
+  /**
+   * Count the entities for the given where clause.  Specifying null for the where
+   * clause should count all entities of the given class type.
+   *
+   * @param clazz        the entity class
+   * @param whereClause  the where clause; may be null
+   *
+   * @return the number of entities for the given where clause
+   *
+   * @throws PersistenceException thrown if an error occurs trying to count the entities
+   */
+  public long count(Class<?> clazz, String whereClause) throws PersistenceException;
 }
@@ -26,5 +26,11 @@ public interface LogStore {
   void persist(LoggingEvent originalEvent, Object parsedEvent) 
       throws IOException;
   
+  /**
+   * Make all events persisted since the last flush durable. Stores may
+   * buffer events passed to persist until flush is called.
+   */
+  void flush() throws IOException;
+  
   void close() throws IOException;
 }
@@ -18,55 +18,79 @@
 package org.apache.ambari.log4j.common;
 
 import java.io.IOException;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.spi.LoggingEvent;
 
+/**
+ * Drains logging events from the queue in batches, parses them and
+ * persists each batch into the store followed by a single flush.
+ */
 public class LoggingThreadRunnable implements Runnable {
   private static final Log LOG = LogFactory.getLog(LoggingThreadRunnable.class);
-  private static long WAIT_EMPTY_QUEUE = 60000;
-  private final Queue<LoggingEvent> events;
+  private static long WAIT_EMPTY_QUEUE = 1000;
+  private static long STATS_LOG_INTERVAL = 300000;
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  private final BlockingQueue<LoggingEvent> events;
   private final LogParser parser;
   private final LogStore store;
+  private final int batchSize;
   private final AtomicBoolean done = new AtomicBoolean(false);
+
+  private final AtomicLong persistedEvents = new AtomicLong();
+  private final AtomicLong persistedBatches = new AtomicLong();
+  private final AtomicLong failedBatches = new AtomicLong();
+  private final AtomicLong persistNanos = new AtomicLong();
+  private volatile long lastLagMillis = 0;
+  private volatile long maxLagMillis = 0;
+  private long lastStatsLogTime = System.currentTimeMillis();
   
   public LoggingThreadRunnable(
-      Queue<LoggingEvent> events, 
+      BlockingQueue<LoggingEvent> events, 
       LogParser parser, 
       LogStore provider) {
+    this(events, parser, provider, DEFAULT_BATCH_SIZE);
+  }
+  
+  public LoggingThreadRunnable(
+      BlockingQueue<LoggingEvent> events, 
+      LogParser parser, 
+      LogStore provider,
+      int batchSize) {
     this.events = events;
     this.store = provider;
     this.parser = parser;
+    this.batchSize = Math.max(1, batchSize);
   }
   
   @Override
   public void run() {
+    List<LoggingEvent> batch = new ArrayList<LoggingEvent>(batchSize);
     while (!done.get()) {
       LoggingEvent event = null;
-      while ((event = events.poll()) != null) {
-        Object result = null;
-        try {
-          parser.addEventToParse(event);
-          while ((result = parser.getParseResult()) != null) {
-            try {
-              store.persist(event, result);
-            } catch (IOException e) {
-              LOG.warn("Failed to persist " + result);
-            }
-          }
-        } catch (IOException ioe) {
-          LOG.warn("Failed to parse log-event: " + event);
-        }
-      }
       try {
-        Thread.sleep(WAIT_EMPTY_QUEUE);
+        event = events.poll(WAIT_EMPTY_QUEUE, TimeUnit.MILLISECONDS);
       } catch(InterruptedException ie) {
         //ignore and continue
       }
-    	  
+      if (event == null) {
+        continue;
+      }
+      batch.add(event);
+      events.drainTo(batch, batchSize - 1);
+      persistBatch(batch);
+      batch.clear();
+    }
+    while (events.drainTo(batch, batchSize) > 0) {
+      persistBatch(batch);
+      batch.clear();
     }
     try {
       store.close();
@@ -75,6 +99,88 @@ public class LoggingThreadRunnable implements Runnable {
     }
   }
   
+  private void persistBatch(List<LoggingEvent> batch) {
+    long start = System.nanoTime();
+    long lag = System.currentTimeMillis() - batch.get(0).timeStamp;
+    for (LoggingEvent event : batch) {
+      Object result = null;
+      try {
+        parser.addEventToParse(event);
+        while ((result = parser.getParseResult()) != null) {
+          try {
+            store.persist(event, result);
+          } catch (IOException e) {
+            LOG.warn("Failed to persist " + result);
+          }
+        }
+      } catch (IOException ioe) {
+        LOG.warn("Failed to parse log-event: " + event);
+      }
+    }
+    try {
+      store.flush();
+      persistedEvents.addAndGet(batch.size());
+      persistedBatches.incrementAndGet();
+    } catch (IOException ioe) {
+      failedBatches.incrementAndGet();
+      LOG.warn("Failed to flush batch of " + batch.size() + " log-events", ioe);
+    }
+    persistNanos.addAndGet(System.nanoTime() - start);
+    lastLagMillis = lag;
+    if (lag > maxLagMillis) {
+      maxLagMillis = lag;
+    }
+    logStatistics();
+  }
+  
+  private void logStatistics() {
+    long now = System.currentTimeMillis();
+    if (now - lastStatsLogTime < STATS_LOG_INTERVAL) {
+      return;
+    }
+    lastStatsLogTime = now;
+    LOG.info("Persisted " + getPersistedEvents() + " log-events in " + 
+        getPersistedBatches() + " batches (" + getFailedBatches() + 
+        " failed), " + getEventsPerSecond() + " events/s, lag " + 
+        getLastLagMillis() + " ms (max " + getMaxLagMillis() + " ms), " + 
+        events.size() + " queued");
+  }
+  
+  public long getPersistedEvents() {
+    return persistedEvents.get();
+  }
+  
+  public long getPersistedBatches() {
+    return persistedBatches.get();
+  }
+  
+  public long getFailedBatches() {
+    return failedBatches.get();
+  }
+  
+  /**
+   * @return events persisted per second of time spent persisting
+   */
+  public long getEventsPerSecond() {
+    long nanos = persistNanos.get();
+    if (nanos == 0) {
+      return 0;
+    }
+    return persistedEvents.get() * TimeUnit.SECONDS.toNanos(1) / nanos;
+  }
+  
+  /**
+   * @return age of the oldest event of the last batch when it was taken
+   *         from the queue
+   */
+  public long getLastLagMillis() {
+    return lastLagMillis;
+  }
+  
+  public long getMaxLagMillis() {
+    return maxLagMillis;
+  }
+  
   public void close() throws IOException {
     done.set(true);
   }
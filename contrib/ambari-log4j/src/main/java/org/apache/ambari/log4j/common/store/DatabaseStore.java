@@ -22,6 +22,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import org.apache.ambari.log4j.common.BatchLogStoreUpdateProvider;
 import org.apache.ambari.log4j.common.LogStore;
 import org.apache.ambari.log4j.common.LogStoreUpdateProvider;
 import org.apache.commons.logging.Log;
@@ -93,6 +94,14 @@ public class DatabaseStore implements LogStore {
     updateProvider.update(originalEvent, parsedEvent);
   }
 
+  @Override
+  public void flush() throws IOException {
+    if (this.initialized &&
+        updateProvider instanceof BatchLogStoreUpdateProvider) {
+      ((BatchLogStoreUpdateProvider) updateProvider).flush();
+    }
+  }
+
   @Override
   public void close() throws IOException {
     try {
@@ -18,8 +18,9 @@
 package org.apache.ambari.log4j.hadoop.mapreduce.jobhistory;
 
 import java.io.IOException;
-import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ambari.log4j.common.LogParser;
 import org.apache.ambari.log4j.common.LogStore;
@@ -37,7 +38,23 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
 
   private static final Log LOG = LogFactory.getLog(JobHistoryAppender.class);
   
-  private final Queue<LoggingEvent> events;
+  private static final int DEFAULT_QUEUE_CAPACITY = 100000;
+  private static final long DROPPED_WARN_INTERVAL = 10000;
+  
+  /**
+   * Behavior when the queue of events waiting to be persisted is full
+   */
+  enum OverflowPolicy {
+    /** Drop the new event */
+    DISCARD,
+    /** Drop the oldest queued event to make room for the new one */
+    DISCARD_OLDEST,
+    /** Block the logging thread until there is room */
+    BLOCK
+  }
+  
+  private volatile BlockingQueue<LoggingEvent> events;
+  private final AtomicLong droppedEvents = new AtomicLong();
   private LoggingThreadRunnable logThreadRunnable;
   private Thread logThread;
 
@@ -51,6 +68,9 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
           LOG.info(((HistoryEvent)parsedEvent).toString());
         }
 
+        @Override
+        public void flush() throws IOException {}
+
         @Override
         public void close() throws IOException {}
   };
@@ -59,11 +79,14 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
   private String database;
   private String user;
   private String password;
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+  private int batchSize = LoggingThreadRunnable.DEFAULT_BATCH_SIZE;
+  private OverflowPolicy overflowPolicy = OverflowPolicy.DISCARD;
   
   private LogStore logStore;
   
   public JobHistoryAppender() {
-    events = new LinkedBlockingQueue<LoggingEvent>();
+    events = new LinkedBlockingQueue<LoggingEvent>(queueCapacity);
     logParser = new MapReduceJobHistoryParser();
     logStore = nullStore;
   }
@@ -102,6 +125,55 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
     this.password = password;
   }
 
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public String getOverflowPolicy() {
+    return overflowPolicy.name();
+  }
+
+  /**
+   * @param overflowPolicy one of DISCARD, DISCARD_OLDEST or BLOCK
+   */
+  public void setOverflowPolicy(String overflowPolicy) {
+    this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+  }
+
+  /* Statistics */
+
+  public int getQueueSize() {
+    return events.size();
+  }
+
+  public long getDroppedEvents() {
+    return droppedEvents.get();
+  }
+
+  public long getPersistedEvents() {
+    return logThreadRunnable == null ? 0 : logThreadRunnable.getPersistedEvents();
+  }
+
+  public long getEventsPerSecond() {
+    return logThreadRunnable == null ? 0 : logThreadRunnable.getEventsPerSecond();
+  }
+
+  public long getLagMillis() {
+    return logThreadRunnable == null ? 0 : logThreadRunnable.getLastLagMillis();
+  }
+
   /* --------------------------- */
 
   @Override
@@ -134,8 +206,22 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
               "Failed to create database store for " + database, e);
         }
       }
+      BlockingQueue<LoggingEvent> queue = (queueCapacity > 0) ?
+          new LinkedBlockingQueue<LoggingEvent>(queueCapacity) :
+          new LinkedBlockingQueue<LoggingEvent>();
+      // events appended before activation may not fit into a smaller queue
+      if (overflowPolicy == OverflowPolicy.DISCARD_OLDEST) {
+        while (events.size() > queue.remainingCapacity() && events.poll() != null) {
+          dropped();
+        }
+      }
+      events.drainTo(queue, queue.remainingCapacity());
+      while (events.poll() != null) {
+        dropped();
+      }
+      events = queue;
       logThreadRunnable = 
-          new LoggingThreadRunnable(events, logParser, logStore);
+          new LoggingThreadRunnable(events, logParser, logStore, batchSize);
       logThread = new Thread(logThreadRunnable);
       logThread.setDaemon(true);
       logThread.start();
@@ -165,6 +251,35 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
 
   @Override
   protected void append(LoggingEvent event) {
-    events.add(event);
+    if (events.offer(event)) {
+      return;
+    }
+    switch (overflowPolicy) {
+      case BLOCK:
+        try {
+          events.put(event);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          dropped();
+        }
+        break;
+      case DISCARD_OLDEST:
+        do {
+          if (events.poll() != null) {
+            dropped();
+          }
+        } while (!events.offer(event));
+        break;
+      default:
+        dropped();
+        break;
+    }
+  }
+  
+  private void dropped() {
+    if (droppedEvents.incrementAndGet() % DROPPED_WARN_INTERVAL == 1) {
+      LOG.warn("Job history queue is full (" + queueCapacity + 
+          " events), dropped " + droppedEvents.get() + " events so far");
+    }
   }
 }
@@ -22,7 +22,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -35,7 +37,7 @@ import java.util.regex.Pattern;
 import org.apache.ambari.eventdb.model.WorkflowContext;
 import org.apache.ambari.eventdb.model.WorkflowDag;
 import org.apache.ambari.eventdb.model.WorkflowDag.WorkflowDagEntry;
-import org.apache.ambari.log4j.common.LogStoreUpdateProvider;
+import org.apache.ambari.log4j.common.BatchLogStoreUpdateProvider;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.mapreduce.Counter;
@@ -64,7 +66,17 @@ import org.apache.hadoop.util.StringUtils;
 import org.apache.log4j.spi.LoggingEvent;
 import org.codehaus.jackson.map.ObjectMapper;
 
-public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
+/**
+ * Writes MapReduce job history events into the database.
+ * 
+ * Task and task attempt events, which make up the bulk of the history, are
+ * added to JDBC batches of their prepared statements. Job events are executed
+ * immediately after the pending batches, since they read what the batches
+ * write. Everything since the last flush is committed as one transaction;
+ * if the transaction fails, it is rolled back and the events are written
+ * again one by one, so that a single bad event only loses itself.
+ */
+public class MapReduceJobHistoryUpdater implements BatchLogStoreUpdateProvider {
   
   private static final Log LOG = 
       LogFactory.getLog(MapReduceJobHistoryUpdater.class);
@@ -84,6 +96,25 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
   private Map<Class<? extends HistoryEvent>, PreparedStatement> entitySqlMap =
       new HashMap<Class<? extends HistoryEvent>, PreparedStatement>();
   
+  /**
+   * Upper bound of events in one transaction, in case flush is not called
+   */
+  private static final int MAX_PENDING_EVENTS = 5000;
+  
+  // whether updates are collected into transactions committed on flush
+  private boolean transactional = false;
+  // whether a statement of the current transaction failed
+  private boolean transactionFailed = false;
+  // batched statements in execution order, inserts before updates
+  private final List<PreparedStatement> batchOrder =
+      new ArrayList<PreparedStatement>();
+  private final Map<PreparedStatement, Integer> batchSizes =
+      new IdentityHashMap<PreparedStatement, Integer>();
+  // batched update statement of each row, to keep updates of a row ordered
+  private final Map<String, PreparedStatement> pendingRowUpdates =
+      new HashMap<String, PreparedStatement>();
+  private final List<Object[]> pendingEvents = new ArrayList<Object[]>();
+  
   @Override
   public void init(Connection connection) throws IOException {
     this.connection = connection;
@@ -93,6 +124,138 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
     } catch (SQLException sqle) {
       throw new IOException(sqle);
     }
+    
+    try {
+      if (connection.getMetaData().supportsBatchUpdates()) {
+        connection.setAutoCommit(false);
+        transactional = true;
+      }
+    } catch (SQLException sqle) {
+      LOG.info("Transactions are not supported, updates will not be batched", 
+          sqle);
+    }
+    batchOrder.add(entitySqlMap.get(TaskStartedEvent.class));
+    batchOrder.add(entitySqlMap.get(TaskAttemptStartedEvent.class));
+    batchOrder.add(entitySqlMap.get(TaskFinishedEvent.class));
+    batchOrder.add(entitySqlMap.get(TaskFailedEvent.class));
+    batchOrder.add(entitySqlMap.get(TaskAttemptFinishedEvent.class));
+    batchOrder.add(
+        entitySqlMap.get(TaskAttemptUnsuccessfulCompletionEvent.class));
+    batchOrder.add(entitySqlMap.get(MapAttemptFinishedEvent.class));
+    batchOrder.add(entitySqlMap.get(ReduceAttemptFinishedEvent.class));
+  }
+  
+  /**
+   * Execute statement now. Pending batches are executed first, so that the
+   * statement sees all preceding updates.
+   */
+  private void executeNow(PreparedStatement ps) throws SQLException {
+    try {
+      executeBatches();
+      if (ps != null) {
+        ps.execute();
+      }
+    } catch (SQLException sqle) {
+      transactionFailed = transactional;
+      throw sqle;
+    }
+  }
+  
+  /**
+   * Add statement to its batch.
+   * @param ps statement with parameters set
+   * @param rowKey key of the updated row, null for inserts
+   */
+  private void executeBatched(PreparedStatement ps, String rowKey) 
+      throws SQLException {
+    if (!transactional) {
+      ps.executeUpdate();
+      return;
+    }
+    if (rowKey != null) {
+      PreparedStatement pending = pendingRowUpdates.get(rowKey);
+      if (pending != null && pending != ps) {
+        // the row has a pending update of another statement, which
+        // must be applied first
+        executeNow(null);
+      }
+      pendingRowUpdates.put(rowKey, ps);
+    }
+    ps.addBatch();
+    Integer size = batchSizes.get(ps);
+    batchSizes.put(ps, (size == null) ? 1 : size + 1);
+  }
+  
+  private void executeBatches() throws SQLException {
+    if (batchSizes.isEmpty()) {
+      return;
+    }
+    try {
+      for (PreparedStatement ps : batchOrder) {
+        if (batchSizes.containsKey(ps)) {
+          ps.executeBatch();
+        }
+      }
+    } finally {
+      batchSizes.clear();
+      pendingRowUpdates.clear();
+    }
+  }
+  
+  private void clearBatches() {
+    for (PreparedStatement ps : batchOrder) {
+      try {
+        ps.clearBatch();
+      } catch (SQLException sqle) {
+        LOG.debug("Failed to clear batch", sqle);
+      }
+    }
+    batchSizes.clear();
+    pendingRowUpdates.clear();
+  }
+  
+  @Override
+  public void flush() throws IOException {
+    if (!transactional || pendingEvents.isEmpty()) {
+      return;
+    }
+    List<Object[]> events = new ArrayList<Object[]>(pendingEvents);
+    pendingEvents.clear();
+    if (!transactionFailed) {
+      try {
+        executeBatches();
+        connection.commit();
+        return;
+      } catch (SQLException sqle) {
+        LOG.info("Failed to store batch of " + events.size() + 
+            " history events, storing them one by one", sqle);
+      }
+    }
+    clearBatches();
+    transactionFailed = false;
+    try {
+      connection.rollback();
+      connection.setAutoCommit(true);
+    } catch (SQLException sqle) {
+      throw new IOException(sqle);
+    }
+    transactional = false;
+    try {
+      for (Object[] event : events) {
+        try {
+          doUpdates((LoggingEvent) event[0], event[1]);
+        } catch (SQLException sqle) {
+          LOG.info("Failed to store " + event[1], sqle);
+        }
+      }
+    } finally {
+      try {
+        connection.setAutoCommit(false);
+        transactional = true;
+      } catch (SQLException sqle) {
+        LOG.info("Failed to restore transactional mode", sqle);
+      }
+    }
   }
   
   private void initializePreparedStatements() throws SQLException {
@@ -544,7 +707,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       jobEndUpdate.setString(1, "MAP");
       jobEndUpdate.setString(2, "REDUCE");
       jobEndUpdate.setString(3, jobId);
-      jobEndUpdate.executeUpdate();
+      executeNow(jobEndUpdate);
     } catch (SQLException sqle) {
       LOG.info("Failed to update mapsRuntime/reducesRuntime for " + jobId, 
           sqle);
@@ -688,7 +851,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       ResultSet rs = null;
       try {
         workflowSelectPS.setString(1, workflowContext.getWorkflowId());
-        workflowSelectPS.execute();
+        executeNow(workflowSelectPS);
         rs = workflowSelectPS.getResultSet();
         if (rs.next()) {
           existingContextString = rs.getString(1);
@@ -716,7 +879,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
         workflowPS.setLong(5, historyEvent.getSubmitTime());
         workflowPS.setLong(6, historyEvent.getSubmitTime());
         workflowPS.setLong(7, workflowContext.getWorkflowDag().size());
-        workflowPS.executeUpdate();
+        executeNow(workflowPS);
         LOG.debug("Successfully inserted workflowId = " + 
             workflowContext.getWorkflowId());
       } else {
@@ -735,7 +898,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
         workflowUpdateTimePS.setLong(3, historyEvent.getSubmitTime());
         workflowUpdateTimePS.setLong(4, historyEvent.getSubmitTime());
         workflowUpdateTimePS.setString(5, workflowContext.getWorkflowId());
-        workflowUpdateTimePS.executeUpdate();
+        executeNow(workflowUpdateTimePS);
         LOG.debug("Successfully updated workflowId = " + 
             workflowContext.getWorkflowId());
       }
@@ -743,7 +906,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       // Insert job
       jobPS.setString(7, workflowContext.getWorkflowId());
       jobPS.setString(8, workflowContext.getWorkflowEntityName());
-      jobPS.executeUpdate();
+      executeNow(jobPS);
       LOG.debug("Successfully inserted job = " + jobId + 
           " and workflowId = " + workflowContext.getWorkflowId());
 
@@ -790,12 +953,12 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setLong(6, inputBytes);
       entityPS.setLong(7, outputBytes);
       entityPS.setString(8, historyEvent.getJobid().toString());
-      entityPS.executeUpdate();
+      executeNow(entityPS);
       // job finished events always have success status
       workflowUpdateNumCompletedPS.setLong(1, historyEvent.getFinishTime());
       workflowUpdateNumCompletedPS.setLong(2, historyEvent.getFinishTime());
       workflowUpdateNumCompletedPS.setString(3, historyEvent.getJobid().toString());
-      workflowUpdateNumCompletedPS.executeUpdate();
+      executeNow(workflowUpdateNumCompletedPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobid() + " into " + JOB_TABLE, sqle);
@@ -814,7 +977,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setInt(3, historyEvent.getTotalReduces());
       entityPS.setString(4, historyEvent.getStatus());
       entityPS.setString(5, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeNow(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -827,7 +990,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
     try {
       entityPS.setString(1, historyEvent.getStatus());
       entityPS.setString(2, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeNow(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -841,7 +1004,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setLong(1, historyEvent.getSubmitTime());
       entityPS.setLong(2, historyEvent.getLaunchTime());
       entityPS.setString(3, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeNow(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -857,7 +1020,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setLong(3, historyEvent.getFinishedReduces());
       entityPS.setString(4, historyEvent.getStatus());
       entityPS.setString(5, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeNow(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -875,7 +1038,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(3, historyEvent.getSplitLocations());
       entityPS.setLong(4, historyEvent.getStartTime());
       entityPS.setString(5, historyEvent.getTaskId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, null);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for task " + 
           historyEvent.getTaskId() + " into " + TASK_TABLE, sqle);
@@ -892,7 +1055,8 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(3, historyEvent.getTaskStatus());
       entityPS.setLong(4, historyEvent.getFinishTime());
       entityPS.setString(5, historyEvent.getTaskId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, 
+          TASK_TABLE + historyEvent.getTaskId());
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for task " + 
           historyEvent.getTaskId() + " into " + TASK_TABLE, sqle);
@@ -915,7 +1079,8 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
         entityPS.setString(6, "task_na");
       }
       entityPS.setString(7, historyEvent.getTaskId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, 
+          TASK_TABLE + historyEvent.getTaskId());
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for task " + 
           historyEvent.getTaskId() + " into " + TASK_TABLE, sqle);
@@ -935,7 +1100,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(6, historyEvent.getLocality().toString());
       entityPS.setString(7, historyEvent.getAvataar().toString());
       entityPS.setString(8, historyEvent.getTaskAttemptId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, null);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getTaskAttemptId() + 
@@ -963,7 +1128,8 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(5, historyEvent.getTaskStatus());
       entityPS.setString(6, historyEvent.getHostname());
       entityPS.setString(7, historyEvent.getAttemptId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, 
+          TASKATTEMPT_TABLE + historyEvent.getAttemptId());
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getAttemptId() + 
@@ -985,7 +1151,8 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(6, historyEvent.getHostname());
       entityPS.setString(7, historyEvent.getError());
       entityPS.setString(8, historyEvent.getTaskAttemptId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, 
+          TASKATTEMPT_TABLE + historyEvent.getTaskAttemptId());
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getTaskAttemptId() + 
@@ -1017,7 +1184,8 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(8, historyEvent.getTaskStatus());
       entityPS.setString(9, historyEvent.getHostname());
       entityPS.setString(10, historyEvent.getAttemptId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, 
+          TASKATTEMPT_TABLE + historyEvent.getAttemptId());
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getAttemptId() + 
@@ -1050,7 +1218,8 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(9, historyEvent.getTaskStatus());
       entityPS.setString(10, historyEvent.getHostname());
       entityPS.setString(11, historyEvent.getAttemptId().toString());
-      entityPS.executeUpdate();
+      executeBatched(entityPS, 
+          TASKATTEMPT_TABLE + historyEvent.getAttemptId());
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getAttemptId() + 
@@ -1082,11 +1251,21 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
   @Override
   public void update(LoggingEvent originalEvent, Object parsedEvent) 
       throws IOException {
+    if (transactional) {
+      pendingEvents.add(new Object[] {originalEvent, parsedEvent});
+      if (transactionFailed) {
+        // stored one by one on flush
+        return;
+      }
+    }
     try {
       doUpdates(originalEvent, parsedEvent);
     } catch (SQLException sqle) {
       throw new IOException(sqle);
     }
+    if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+      flush();
+    }
   }
 
 }
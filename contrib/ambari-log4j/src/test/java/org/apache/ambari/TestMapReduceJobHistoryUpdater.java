@@ -16,6 +16,15 @@
  */
 package org.apache.ambari;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -24,6 +33,10 @@ import org.apache.ambari.eventdb.model.WorkflowContext;
 import org.apache.ambari.eventdb.model.WorkflowDag;
 import org.apache.ambari.eventdb.model.WorkflowDag.WorkflowDagEntry;
 import org.apache.ambari.log4j.hadoop.mapreduce.jobhistory.MapReduceJobHistoryUpdater;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.tools.rumen.TaskStartedEvent;
 
 /**
  * 
@@ -72,6 +85,146 @@ public class TestMapReduceJobHistoryUpdater extends TestCase {
     assertEquals(emptyDag, MapReduceJobHistoryUpdater.constructMergedDag(three, three));
   }
   
+  public void testUpdatesBatchedUntilFlush() throws Exception {
+    FakeDatabase db = new FakeDatabase(true);
+    MapReduceJobHistoryUpdater updater = new MapReduceJobHistoryUpdater();
+    updater.init(db.connection);
+    db.calls.clear();
+
+    updater.update(null, getTaskStartedEvent(1));
+    updater.update(null, getTaskStartedEvent(2));
+    assertEquals(Arrays.asList("addBatch", "addBatch"), db.calls);
+
+    updater.flush();
+    assertEquals(Arrays.asList("addBatch", "addBatch", "executeBatch", "commit"), db.calls);
+
+    // nothing pending
+    db.calls.clear();
+    updater.flush();
+    assertTrue(db.calls.isEmpty());
+  }
+
+  public void testFailedBatchRolledBackAndReplayed() throws Exception {
+    FakeDatabase db = new FakeDatabase(true);
+    MapReduceJobHistoryUpdater updater = new MapReduceJobHistoryUpdater();
+    updater.init(db.connection);
+    db.calls.clear();
+    db.failBatches = true;
+
+    updater.update(null, getTaskStartedEvent(1));
+    updater.update(null, getTaskStartedEvent(2));
+    updater.flush();
+
+    // the transaction is rolled back and every event is written on its own
+    assertEquals(Arrays.asList("addBatch", "addBatch", "executeBatch",
+        "clearBatch", "rollback", "setAutoCommit:true",
+        "executeUpdate", "executeUpdate", "setAutoCommit:false"), db.calls);
+
+    // later events are batched again
+    db.calls.clear();
+    db.failBatches = false;
+    updater.update(null, getTaskStartedEvent(3));
+    updater.flush();
+    assertEquals(Arrays.asList("addBatch", "executeBatch", "commit"), db.calls);
+  }
+
+  public void testUpdatesNotBatchedWithoutBatchSupport() throws Exception {
+    FakeDatabase db = new FakeDatabase(false);
+    MapReduceJobHistoryUpdater updater = new MapReduceJobHistoryUpdater();
+    updater.init(db.connection);
+    db.calls.clear();
+
+    updater.update(null, getTaskStartedEvent(1));
+    updater.flush();
+    assertEquals(Arrays.asList("executeUpdate"), db.calls);
+  }
+
+  private static TaskStartedEvent getTaskStartedEvent(int id) {
+    TaskID taskId = new TaskID(new JobID("job", 1), true, id);
+    return new TaskStartedEvent(taskId, 1000L + id, TaskType.MAP, "");
+  }
+
+  /**
+   * JDBC connection which records the calls of interest. Only the statement
+   * storing TaskStartedEvents is recorded.
+   */
+  private static class FakeDatabase {
+    final List<String> calls = new ArrayList<String>();
+    final Connection connection;
+    boolean failBatches = false;
+
+    FakeDatabase(final boolean supportsBatchUpdates) {
+      final DatabaseMetaData metaData = proxy(DatabaseMetaData.class, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          if (method.getName().equals("supportsBatchUpdates")) {
+            return supportsBatchUpdates;
+          }
+          return defaultValue(method);
+        }
+      });
+      connection = proxy(Connection.class, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          String name = method.getName();
+          if (name.equals("getMetaData")) {
+            return metaData;
+          } else if (name.equals("prepareStatement")) {
+            return createStatement(((String) args[0]).startsWith("INSERT INTO task "));
+          } else if (name.equals("setAutoCommit")) {
+            calls.add(name + ":" + args[0]);
+          } else if (name.equals("commit") || name.equals("rollback")) {
+            calls.add(name);
+          }
+          return defaultValue(method);
+        }
+      });
+    }
+
+    private PreparedStatement createStatement(final boolean recorded) {
+      return proxy(PreparedStatement.class, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+          String name = method.getName();
+          if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+          } else if (name.equals("equals")) {
+            return proxy == args[0];
+          }
+          if (recorded && (name.equals("addBatch") || name.equals("executeBatch") ||
+              name.equals("clearBatch") || name.equals("executeUpdate"))) {
+            calls.add(name);
+          }
+          if (name.equals("executeBatch")) {
+            if (failBatches) {
+              throw new SQLException("Batch failed");
+            }
+            return new int[0];
+          }
+          return defaultValue(method);
+        }
+      });
+    }
+
+    private static Object defaultValue(Method method) {
+      Class<?> type = method.getReturnType();
+      if (type == boolean.class) {
+        return false;
+      } else if (type == int.class) {
+        return 0;
+      } else if (type == long.class) {
+        return 0L;
+      }
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+      return (T) Proxy.newProxyInstance(
+          TestMapReduceJobHistoryUpdater.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+  }
+
   private static WorkflowDagEntry getEntry(String source, String... targets) {
     WorkflowDagEntry entry = new WorkflowDagEntry();
     entry.setSource(source);
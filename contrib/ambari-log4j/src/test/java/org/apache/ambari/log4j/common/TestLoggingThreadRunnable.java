@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.log4j.common;
+
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class TestLoggingThreadRunnable extends TestCase {
+
+  class SampleLogParser implements LogParser {
+    private final Queue<Object> results = new LinkedList<Object>();
+
+    public void addEventToParse(LoggingEvent event) {
+      results.add(event.getMessage());
+    }
+
+    public Object getParseResult() throws IOException {
+      return results.poll();
+    }
+  }
+
+  class SampleLogStore implements LogStore {
+    final List<Object> persisted = new ArrayList<Object>();
+    final List<Integer> flushed = new ArrayList<Integer>();
+    boolean closed = false;
+    boolean failFlush = false;
+
+    public synchronized void persist(LoggingEvent originalEvent, Object parsedEvent)
+        throws IOException {
+      persisted.add(parsedEvent);
+    }
+
+    public synchronized void flush() throws IOException {
+      if (failFlush) {
+        throw new IOException("flush failed");
+      }
+      flushed.add(persisted.size());
+    }
+
+    public synchronized void close() throws IOException {
+      closed = true;
+    }
+  }
+
+  private static LoggingEvent event(String message) {
+    Logger logger = Logger.getLogger(TestLoggingThreadRunnable.class);
+    return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, null);
+  }
+
+  public void testBatches() throws Exception {
+    BlockingQueue<LoggingEvent> events = new LinkedBlockingQueue<LoggingEvent>();
+    for (int i = 0; i < 25; i++) {
+      events.add(event("event" + i));
+    }
+    SampleLogStore store = new SampleLogStore();
+    LoggingThreadRunnable runnable =
+        new LoggingThreadRunnable(events, new SampleLogParser(), store, 10);
+    Thread thread = new Thread(runnable);
+    thread.start();
+    for (int i = 0; i < 100 && runnable.getPersistedEvents() < 25; i++) {
+      Thread.sleep(50);
+    }
+    runnable.close();
+    thread.join(5000);
+
+    assertTrue(store.closed);
+    assertEquals(25, store.persisted.size());
+    for (int i = 0; i < 25; i++) {
+      assertEquals("event" + i, store.persisted.get(i));
+    }
+    // queue is drained in batches of at most 10 events, each followed by a flush
+    assertEquals(3, store.flushed.size());
+    assertEquals(Integer.valueOf(10), store.flushed.get(0));
+    assertEquals(Integer.valueOf(20), store.flushed.get(1));
+    assertEquals(Integer.valueOf(25), store.flushed.get(2));
+    assertEquals(25, runnable.getPersistedEvents());
+    assertEquals(3, runnable.getPersistedBatches());
+    assertTrue(runnable.getLastLagMillis() >= 0);
+  }
+
+  public void testFailedFlushNotCountedAsPersisted() throws Exception {
+    BlockingQueue<LoggingEvent> events = new LinkedBlockingQueue<LoggingEvent>();
+    for (int i = 0; i < 5; i++) {
+      events.add(event("event" + i));
+    }
+    SampleLogStore store = new SampleLogStore();
+    store.failFlush = true;
+    LoggingThreadRunnable runnable =
+        new LoggingThreadRunnable(events, new SampleLogParser(), store, 10);
+    Thread thread = new Thread(runnable);
+    thread.start();
+    for (int i = 0; i < 100 && runnable.getFailedBatches() < 1; i++) {
+      Thread.sleep(50);
+    }
+    runnable.close();
+    thread.join(5000);
+
+    assertEquals(1, runnable.getFailedBatches());
+    assertEquals(0, runnable.getPersistedEvents());
+    assertEquals(0, runnable.getPersistedBatches());
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+/**
+ * Single byte range of HTTP Range request header
+ */
+public class ByteRange {
+
+  private static final String BYTES_UNIT = "bytes=";
+
+  private final long start;
+  private final long end;
+  private final long total;
+
+  /**
+   * Constructor
+   * @param start first byte position, inclusive
+   * @param end last byte position, inclusive
+   * @param total full length of the content
+   */
+  public ByteRange(long start, long end, long total) {
+    this.start = start;
+    this.end = end;
+    this.total = total;
+  }
+
+  /**
+   * Parse value of Range header. Only single range is supported, headers
+   * with multiple ranges or invalid syntax are ignored and full
+   * content should be served as allowed by RFC 7233.
+   * @param header Range header value, may be null
+   * @param total full length of the content
+   * @return range or null if header should be ignored
+   */
+  public static ByteRange parse(String header, long total) {
+    if (header == null) {
+      return null;
+    }
+    header = header.trim();
+    if (!header.startsWith(BYTES_UNIT) || header.indexOf(',') != -1) {
+      return null;
+    }
+    String spec = header.substring(BYTES_UNIT.length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash == -1) {
+      return null;
+    }
+    String first = spec.substring(0, dash).trim();
+    String last = spec.substring(dash + 1).trim();
+    try {
+      if (first.isEmpty()) {
+        if (last.isEmpty()) {
+          return null;
+        }
+        long suffix = Long.parseLong(last);
+        if (suffix < 0) {
+          return null;
+        }
+        if (suffix == 0) {
+          return new ByteRange(total, total - 1, total);
+        }
+        return new ByteRange(Math.max(0, total - suffix), total - 1, total);
+      }
+      long start = Long.parseLong(first);
+      if (start < 0) {
+        return null;
+      }
+      if (last.isEmpty()) {
+        return new ByteRange(start, total - 1, total);
+      }
+      long end = Long.parseLong(last);
+      if (end < start) {
+        return null;
+      }
+      return new ByteRange(start, Math.min(end, total - 1), total);
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * @return false if range does not overlap the content and 416 should be returned
+   */
+  public boolean isSatisfiable() {
+    return start < total;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public long getLength() {
+    return end - start + 1;
+  }
+
+  /**
+   * @return value of Content-Range response header
+   */
+  public String toContentRange() {
+    if (!isSatisfiable()) {
+      return "bytes */" + total;
+    }
+    return "bytes " + start + "-" + end + "/" + total;
+  }
+}
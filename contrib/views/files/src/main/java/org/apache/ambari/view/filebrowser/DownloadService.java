@@ -23,8 +23,18 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.FileNameMap;
 import java.net.URLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Queue;
+import java.util.Set;
+import java.util.TimeZone;
 import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -60,15 +70,18 @@ import org.json.simple.JSONObject;
  */
 public class DownloadService extends HdfsService {
 
+  private static final int PARTIAL_CONTENT = 206;
+  private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
   public DownloadService(ViewContext context) {
     super(context);
   }
 
   /**
-   * Download entire file
+   * Download entire file or its byte range
    * @param path path to file
    * @param download download as octet strem or as file mime type
-   * @param headers http headers
+   * @param headers http headers, Range and If-Range headers are supported
    * @param ui uri info
    * @return response with file
    */
@@ -79,9 +92,48 @@ public class DownloadService extends HdfsService {
                          @Context HttpHeaders headers, @Context UriInfo ui) {
     try {
       HdfsApi api = getApi(context);
-      FileStatus status = api.getFileStatus(path);
-      FSDataInputStream fs = api.open(path);
-      ResponseBuilder result = Response.ok(fs);
+      final FileStatus status = api.getFileStatus(path);
+      String etag = "\"" + status.getLen() + "-" + status.getModificationTime() + "\"";
+      ByteRange range = null;
+      if (isRangeApplicable(headers, etag, status.getModificationTime())) {
+        range = ByteRange.parse(getHeader(headers, "Range"), status.getLen());
+      }
+      if (range != null && !range.isSatisfiable()) {
+        return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header("Content-Range", range.toContentRange()).build();
+      }
+      final FSDataInputStream fs = api.open(path);
+      final long offset = (range == null) ? 0 : range.getStart();
+      final long length = (range == null) ? status.getLen() : range.getLength();
+      StreamingOutput stream = new StreamingOutput() {
+        public void write(OutputStream output) throws IOException {
+          DownloadStatistics.Transfer transfer = getStatistics().start("browse", status.getPath().getName());
+          boolean success = false;
+          try {
+            if (offset > 0) {
+              fs.seek(offset);
+            }
+            OutputStream out = StreamingTransfer.buffered(output, transfer);
+            StreamingTransfer.copy(fs, out, length);
+            out.flush();
+            success = true;
+          } finally {
+            fs.close();
+            transfer.finish(success);
+          }
+        }
+      };
+      ResponseBuilder result;
+      if (range == null) {
+        result = Response.ok(stream);
+      } else {
+        result = Response.status(PARTIAL_CONTENT).entity(stream)
+            .header("Content-Range", range.toContentRange());
+      }
+      result.header("Accept-Ranges", "bytes")
+          .header("Content-Length", length)
+          .header("ETag", etag)
+          .lastModified(new Date(status.getModificationTime()));
       if (download) {
         result.header("Content-Disposition",
             "inline; filename=\"" + status.getPath().getName() + "\"").type(MediaType.APPLICATION_OCTET_STREAM);
@@ -101,28 +153,60 @@ public class DownloadService extends HdfsService {
     }
   }
 
-  private void zipFile(ZipOutputStream zip, String path) {
+  private static String getHeader(HttpHeaders headers, String name) {
+    if (headers == null) {
+      return null;
+    }
+    List<String> values = headers.getRequestHeader(name);
+    if (values == null || values.isEmpty()) {
+      return null;
+    }
+    return values.get(0);
+  }
+
+  /**
+   * Range is ignored if If-Range header does not match current version of file,
+   * so that resumed download never mixes two versions of file.
+   */
+  private static boolean isRangeApplicable(HttpHeaders headers, String etag, long modificationTime) {
+    String ifRange = getHeader(headers, "If-Range");
+    if (ifRange == null) {
+      return true;
+    }
+    ifRange = ifRange.trim();
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return ifRange.equals(etag);
+    }
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    try {
+      return format.parse(ifRange).getTime() / 1000 == modificationTime / 1000;
+    } catch (ParseException ex) {
+      return false;
+    }
+  }
+
+  private DownloadStatistics getStatistics() {
+    return DownloadStatistics.getInstance(context);
+  }
+
+  private void zipFile(ZipOutputStream zip, ReadAheadPipeline.FileSource source) throws IOException {
+    String path = source.getPath();
     try {
-      FSDataInputStream in = getApi(context).open(path);
-      zip.putNextEntry(new ZipEntry(path.substring(1)));
-      byte[] chunk = new byte[1024];
-      while (in.read(chunk) != -1) {
-        zip.write(chunk);
-      }
-    } catch (IOException ex) {
+      source.await();
+    } catch (ReadAheadPipeline.ReadException ex) {
+      logger.error("Error zipping file " + path.substring(1) + " (file ignored): "
+          + ex.getMessage());
+      return;
+    }
+    zip.putNextEntry(new ZipEntry(path.substring(1)));
+    try {
+      source.transferTo(zip);
+    } catch (ReadAheadPipeline.ReadException ex) {
       logger.error("Error zipping file " + path.substring(1) + " (file ignored): "
           + ex.getMessage());
-    } catch (InterruptedException ex) {
-      String msg = "Error zipping file " + path.substring(1) + " (file ignored): "
-          + ex.getMessage();
-      logger.error(msg);
     } finally {
-      try {
-        zip.closeEntry();
-      } catch (IOException ex) {
-        logger.error("Error closing entry " + path.substring(1) + " (file ignored): "
-            + ex.getMessage());
-      }
+      zip.closeEntry();
     }
   }
 
@@ -143,7 +227,51 @@ public class DownloadService extends HdfsService {
   }
 
   /**
-   * Download ZIP of passed file list
+   * List entries of zip in breadth-first order
+   * @param api HdfsApi
+   * @param entries requested files and directories
+   * @param directories set to collect paths of directories in
+   * @return paths of all files and directories to zip
+   */
+  private List<String> listZipEntries(HdfsApi api, String[] entries, Set<String> directories)
+      throws Exception {
+    List<String> paths = new ArrayList<String>();
+    Queue<String> files = new LinkedList<String>();
+    for (String file : entries) {
+      if (api.getFileStatus(file).isDirectory()) {
+        directories.add(file);
+      }
+      files.add(file);
+    }
+    while (!files.isEmpty()) {
+      String path = files.poll();
+      if (directories.contains(path)) {
+        FileStatus[] subdir;
+        try {
+          subdir = api.listdir(path);
+        } catch (AccessControlException ex) {
+          logger.error("Error zipping directory " + path.substring(1) + "/ (directory ignored)" + ": "
+              + ex.getMessage());
+          continue;
+        }
+        for (FileStatus file : subdir) {
+          String filePath = org.apache.hadoop.fs.Path
+              .getPathWithoutSchemeAndAuthority(file.getPath())
+              .toString();
+          if (file.isDirectory()) {
+            directories.add(filePath);
+          }
+          files.add(filePath);
+        }
+      }
+      paths.add(path);
+    }
+    return paths;
+  }
+
+  /**
+   * Download ZIP of passed file list. Files are read from HDFS ahead of
+   * compression by background threads.
    * @param request download request
    * @return response with zip
    */
@@ -156,40 +284,41 @@ public class DownloadService extends HdfsService {
       StreamingOutput result = new StreamingOutput() {
         public void write(OutputStream output) throws IOException,
             ServiceFormattedException {
-          ZipOutputStream zip = new ZipOutputStream(output);
+          DownloadStatistics.Transfer transfer = getStatistics().start("zip", "hdfs.zip");
+          boolean success = false;
+          ZipOutputStream zip = new ZipOutputStream(StreamingTransfer.buffered(output, transfer));
+          ReadAheadPipeline pipeline = null;
           try {
             HdfsApi api = getApi(context);
-            Queue<String> files = new LinkedList<String>();
-            for (String file : request.entries) {
-              files.add(file);
+            Set<String> directories = new HashSet<String>();
+            List<String> paths = listZipEntries(api, request.entries, directories);
+            List<String> files = new ArrayList<String>();
+            for (String path : paths) {
+              if (!directories.contains(path)) {
+                files.add(path);
+              }
             }
-            while (!files.isEmpty()) {
-              String path = files.poll();
-              FileStatus status = api.getFileStatus(path);
-              if (status.isDirectory()) {
-                FileStatus[] subdir;
-                try {
-                  subdir = api.listdir(path);
-                } catch (AccessControlException ex) {
-                  logger.error("Error zipping directory " + path.substring(1) + "/ (directory ignored)" + ": "
-                      + ex.getMessage());
-                  continue;
-                }
-                for (FileStatus file : subdir) {
-                  files.add(org.apache.hadoop.fs.Path
-                      .getPathWithoutSchemeAndAuthority(file.getPath())
-                      .toString());
-                }
+            pipeline = new ReadAheadPipeline(api, files, ReadAheadPipeline.DEFAULT_DEPTH);
+            for (String path : paths) {
+              if (directories.contains(path)) {
                 zipDirectory(zip, path);
               } else {
-                zipFile(zip, path);
+                zipFile(zip, pipeline.next());
               }
             }
+            success = true;
           } catch (Exception ex) {
             logger.error("Error occurred: " + ex.getMessage());
             throw new ServiceFormattedException(ex.getMessage(), ex);
           } finally {
-            zip.close();
+            if (pipeline != null) {
+              pipeline.close();
+            }
+            try {
+              zip.close();
+            } finally {
+              transfer.finish(success);
+            }
           }
         }
       };
@@ -216,20 +345,25 @@ public class DownloadService extends HdfsService {
       StreamingOutput result = new StreamingOutput() {
         public void write(OutputStream output) throws IOException,
             ServiceFormattedException {
-          FSDataInputStream in = null;
-          for (String path : request.entries) {
-            try {
-              in = getApi(context).open(path);
-              byte[] chunk = new byte[1024];
-              while (in.read(chunk) != -1) {
-                output.write(chunk);
-              }
-            } catch (Exception ex) {
-              throw new ServiceFormattedException(ex.getMessage(), ex);
-            } finally {
-              if (in != null)
-                in.close();
+          DownloadStatistics.Transfer transfer = getStatistics().start("concat", "concatResult.txt");
+          boolean success = false;
+          ReadAheadPipeline pipeline = null;
+          try {
+            pipeline = new ReadAheadPipeline(getApi(context), Arrays.asList(request.entries),
+                ReadAheadPipeline.DEFAULT_DEPTH);
+            OutputStream out = StreamingTransfer.buffered(output, transfer);
+            while (pipeline.hasNext()) {
+              pipeline.next().transferTo(out);
             }
+            out.flush();
+            success = true;
+          } catch (Exception ex) {
+            throw new ServiceFormattedException(ex.getMessage(), ex);
+          } finally {
+            if (pipeline != null) {
+              pipeline.close();
+            }
+            transfer.finish(success);
           }
         }
       };
@@ -247,6 +381,23 @@ public class DownloadService extends HdfsService {
     }
   }
 
+  /**
+   * Throughput statistics of active and recent downloads
+   * @return response with statistics
+   */
+  @GET
+  @Path("/statistics")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response statistics() {
+    try {
+      return Response.ok(getStatistics().toJSON()).build();
+    } catch (WebApplicationException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new ServiceFormattedException(ex.getMessage(), ex);
+    }
+  }
+
   // ===============================
   // Download files by unique link
 
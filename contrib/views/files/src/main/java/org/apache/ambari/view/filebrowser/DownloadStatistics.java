@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+import org.apache.ambari.view.ViewContext;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput statistics of downloads served by view instance
+ */
+public class DownloadStatistics {
+
+  private static final int RECENT_TRANSFERS = 20;
+
+  private static Map<String, DownloadStatistics> viewSingletonObjects = new HashMap<String, DownloadStatistics>();
+
+  /**
+   * Get statistics of view instance
+   * @param context View Context instance
+   * @return statistics
+   */
+  public static synchronized DownloadStatistics getInstance(ViewContext context) {
+    if (!viewSingletonObjects.containsKey(context.getInstanceName()))
+      viewSingletonObjects.put(context.getInstanceName(), new DownloadStatistics());
+    return viewSingletonObjects.get(context.getInstanceName());
+  }
+
+  private int active = 0;
+  private long completed = 0;
+  private long failed = 0;
+  private long totalBytes = 0;
+  private long totalMillis = 0;
+  private final LinkedList<Transfer> recent = new LinkedList<Transfer>();
+
+  /**
+   * Register new transfer
+   * @param kind kind of download: browse, zip or concat
+   * @param name file name or description of download
+   * @return transfer to update while streaming
+   */
+  public Transfer start(String kind, String name) {
+    synchronized (this) {
+      active++;
+    }
+    return new Transfer(kind, name);
+  }
+
+  private synchronized void finished(Transfer transfer) {
+    active--;
+    if (transfer.success) {
+      completed++;
+    } else {
+      failed++;
+    }
+    totalBytes += transfer.getBytes();
+    totalMillis += transfer.getElapsedMillis();
+    recent.addFirst(transfer);
+    if (recent.size() > RECENT_TRANSFERS) {
+      recent.removeLast();
+    }
+  }
+
+  /**
+   * @return statistics as json object
+   */
+  public synchronized JSONObject toJSON() {
+    JSONObject json = new JSONObject();
+    json.put("active", active);
+    json.put("completed", completed);
+    json.put("failed", failed);
+    json.put("bytes", totalBytes);
+    json.put("bytesPerSecond", bytesPerSecond(totalBytes, totalMillis));
+    JSONArray transfers = new JSONArray();
+    for (Transfer transfer : recent) {
+      transfers.add(transfer.toJSON());
+    }
+    json.put("recent", transfers);
+    return json;
+  }
+
+  private static long bytesPerSecond(long bytes, long millis) {
+    return bytes * 1000 / Math.max(1, millis);
+  }
+
+  /**
+   * Single download in progress
+   */
+  public class Transfer {
+    private final String kind;
+    private final String name;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile long endTime = -1;
+    private volatile boolean success;
+
+    private Transfer(String kind, String name) {
+      this.kind = kind;
+      this.name = name;
+    }
+
+    /**
+     * Account bytes written to the response
+     * @param count number of bytes
+     */
+    public void addBytes(long count) {
+      bytes.addAndGet(count);
+    }
+
+    public long getBytes() {
+      return bytes.get();
+    }
+
+    public long getElapsedMillis() {
+      long end = endTime == -1 ? System.currentTimeMillis() : endTime;
+      return end - startTime;
+    }
+
+    /**
+     * Mark transfer as finished. Only the first call has effect.
+     * @param success false if download was interrupted by error
+     */
+    public void finish(boolean success) {
+      synchronized (DownloadStatistics.this) {
+        if (endTime != -1) {
+          return;
+        }
+        this.endTime = System.currentTimeMillis();
+        this.success = success;
+        finished(this);
+      }
+      HdfsService.logger.debug(String.format("%s download of %s: %d bytes in %d ms (%d bytes/s)",
+          kind, name, getBytes(), getElapsedMillis(), bytesPerSecond(getBytes(), getElapsedMillis())));
+    }
+
+    private JSONObject toJSON() {
+      JSONObject json = new JSONObject();
+      json.put("kind", kind);
+      json.put("name", name);
+      json.put("startTime", startTime);
+      json.put("bytes", getBytes());
+      json.put("millis", getElapsedMillis());
+      json.put("bytesPerSecond", bytesPerSecond(getBytes(), getElapsedMillis()));
+      json.put("success", success);
+      return json;
+    }
+  }
+}
@@ -0,0 +1,325 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads sequence of HDFS files ahead of the consumer. While the request
+ * thread compresses and writes one file, the following files are already
+ * being read by background threads into bounded queues of pooled buffers.
+ */
+public class ReadAheadPipeline {
+
+  /**
+   * Number of files read ahead of the one being written
+   */
+  public static final int DEFAULT_DEPTH = 3;
+
+  private static final int CHUNKS_PER_FILE = 4;
+  private static final int READ_AHEAD_THREADS = 8;
+  private static final long PUT_TIMEOUT_MS = 100;
+
+  private static final ExecutorService executor = Executors.newFixedThreadPool(READ_AHEAD_THREADS,
+      new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "files-view-read-ahead-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  private static final Chunk END = new Chunk(null, 0, null);
+
+  private final HdfsApi api;
+  private final Iterator<String> paths;
+  private final int depth;
+  private final LinkedList<FileSource> window = new LinkedList<FileSource>();
+
+  /**
+   * Constructor
+   * @param api HdfsApi to open files with
+   * @param paths paths of files in order they will be consumed
+   * @param depth number of files to read ahead
+   */
+  public ReadAheadPipeline(HdfsApi api, List<String> paths, int depth) {
+    this.api = api;
+    this.paths = paths.iterator();
+    this.depth = depth;
+  }
+
+  /**
+   * @return true if there are more files
+   */
+  public boolean hasNext() {
+    return !window.isEmpty() || paths.hasNext();
+  }
+
+  /**
+   * Take next file and schedule reading of the following ones
+   * @return next file source
+   */
+  public FileSource next() {
+    fillWindow(1);
+    FileSource source = window.removeFirst();
+    fillWindow(depth);
+    return source;
+  }
+
+  private void fillWindow(int size) {
+    while (window.size() < size && paths.hasNext()) {
+      FileSource source = new FileSource(paths.next());
+      source.prefetch();
+      window.addLast(source);
+    }
+  }
+
+  /**
+   * Cancel reading of files that were not consumed
+   */
+  public void close() {
+    for (FileSource source : window) {
+      source.cancel();
+    }
+    window.clear();
+  }
+
+  /**
+   * Error of reading file, as opposed to error of writing the response
+   */
+  public static class ReadException extends IOException {
+    public ReadException(String message, Throwable cause) {
+      super(message);
+      initCause(cause);
+    }
+  }
+
+  private static class Chunk {
+    private final byte[] buffer;
+    private final int length;
+    private final Exception error;
+
+    private Chunk(byte[] buffer, int length, Exception error) {
+      this.buffer = buffer;
+      this.length = length;
+      this.error = error;
+    }
+  }
+
+  /**
+   * Single file of the pipeline. If reading of the file has not been started
+   * by background thread when it is consumed, the consumer reads it itself,
+   * so requests never wait for read-ahead of other downloads.
+   */
+  public class FileSource {
+    private final String path;
+    private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<Chunk>(CHUNKS_PER_FILE);
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
+    private volatile boolean cancelled = false;
+    private InputStream inline = null;
+    private Chunk head = null;
+
+    private FileSource(String path) {
+      this.path = path;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    private void prefetch() {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (!cancelled && claimed.compareAndSet(false, true)) {
+            readAhead();
+          }
+        }
+      });
+    }
+
+    private void readAhead() {
+      InputStream in = null;
+      try {
+        in = open();
+        while (!cancelled) {
+          byte[] buffer = StreamingTransfer.acquireBuffer();
+          int read = StreamingTransfer.fill(in, buffer, StreamingTransfer.BUFFER_SIZE);
+          if (read == -1) {
+            StreamingTransfer.releaseBuffer(buffer);
+            put(END);
+            break;
+          }
+          if (!put(new Chunk(buffer, read, null))) {
+            StreamingTransfer.releaseBuffer(buffer);
+          }
+        }
+      } catch (Exception ex) {
+        put(new Chunk(null, 0, ex));
+      } finally {
+        closeQuietly(in);
+      }
+    }
+
+    private boolean put(Chunk chunk) {
+      try {
+        while (!cancelled) {
+          if (chunks.offer(chunk, PUT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            return true;
+          }
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+
+    private InputStream open() throws IOException {
+      try {
+        return api.open(path);
+      } catch (InterruptedException ex) {
+        throw new InterruptedIOException(ex.getMessage());
+      }
+    }
+
+    /**
+     * Wait until file is opened
+     * @throws ReadException if file can not be opened
+     */
+    public void await() throws ReadException {
+      if (inline != null || head != null) {
+        return;
+      }
+      if (claimed.compareAndSet(false, true)) {
+        try {
+          inline = open();
+        } catch (IOException ex) {
+          throw new ReadException(ex.getMessage(), ex);
+        }
+        return;
+      }
+      head = take();
+      if (head.error != null) {
+        throw new ReadException(head.error.getMessage(), head.error);
+      }
+    }
+
+    private Chunk take() throws ReadException {
+      try {
+        return chunks.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new ReadException("Interrupted while reading " + path, ex);
+      }
+    }
+
+    /**
+     * Write whole file to output
+     * @param output output stream
+     * @return bytes written
+     * @throws ReadException if file can not be read
+     * @throws IOException if output can not be written
+     */
+    public long transferTo(OutputStream output) throws IOException {
+      try {
+        await();
+        if (inline != null) {
+          return transferInline(output);
+        }
+        long written = 0;
+        Chunk chunk = head;
+        head = null;
+        while (chunk != END) {
+          if (chunk.error != null) {
+            throw new ReadException(chunk.error.getMessage(), chunk.error);
+          }
+          try {
+            output.write(chunk.buffer, 0, chunk.length);
+          } finally {
+            StreamingTransfer.releaseBuffer(chunk.buffer);
+          }
+          written += chunk.length;
+          chunk = take();
+        }
+        return written;
+      } finally {
+        cancel();
+      }
+    }
+
+    private long transferInline(OutputStream output) throws IOException {
+      byte[] buffer = StreamingTransfer.acquireBuffer();
+      try {
+        long written = 0;
+        while (true) {
+          int read;
+          try {
+            read = StreamingTransfer.fill(inline, buffer, StreamingTransfer.BUFFER_SIZE);
+          } catch (IOException ex) {
+            throw new ReadException(ex.getMessage(), ex);
+          }
+          if (read == -1) {
+            return written;
+          }
+          output.write(buffer, 0, read);
+          written += read;
+        }
+      } finally {
+        StreamingTransfer.releaseBuffer(buffer);
+      }
+    }
+
+    private void cancel() {
+      cancelled = true;
+      claimed.set(true);
+      closeQuietly(inline);
+      inline = null;
+      Chunk chunk;
+      while ((chunk = chunks.poll()) != null) {
+        StreamingTransfer.releaseBuffer(chunk.buffer);
+      }
+    }
+  }
+
+  private static void closeQuietly(InputStream in) {
+    if (in != null) {
+      try {
+        in.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Copies HDFS streams to the response through large pooled buffers
+ */
+public class StreamingTransfer {
+
+  /**
+   * Size of transfer buffers. WebHDFS and the servlet container both
+   * perform much better with large writes than with small chunks.
+   */
+  public static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int POOL_SIZE = 64;
+
+  private static final BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<byte[]>(POOL_SIZE);
+
+  private StreamingTransfer() {
+  }
+
+  /**
+   * Take a buffer from the pool or allocate a new one if the pool is empty
+   * @return buffer of BUFFER_SIZE bytes
+   */
+  public static byte[] acquireBuffer() {
+    byte[] buffer = bufferPool.poll();
+    if (buffer == null) {
+      buffer = new byte[BUFFER_SIZE];
+    }
+    return buffer;
+  }
+
+  /**
+   * Return buffer to the pool. Buffers above the pool capacity are left to GC.
+   * @param buffer buffer obtained from acquireBuffer
+   */
+  public static void releaseBuffer(byte[] buffer) {
+    if (buffer != null && buffer.length == BUFFER_SIZE) {
+      bufferPool.offer(buffer);
+    }
+  }
+
+  /**
+   * Wrap response stream so that small writes (e.g. from deflater) are
+   * coalesced into BUFFER_SIZE writes
+   * @param output response stream
+   * @param transfer transfer to account written bytes in
+   * @return buffered stream
+   */
+  public static OutputStream buffered(OutputStream output, final DownloadStatistics.Transfer transfer) {
+    return new BufferedOutputStream(new FilterOutputStream(output) {
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        transfer.addBytes(len);
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        transfer.addBytes(1);
+      }
+    }, BUFFER_SIZE);
+  }
+
+  /**
+   * Fill buffer from stream
+   * @param in input stream
+   * @param buffer buffer
+   * @param max maximum bytes to read
+   * @return bytes read, -1 if stream is at the end
+   * @throws IOException
+   */
+  public static int fill(InputStream in, byte[] buffer, int max) throws IOException {
+    int filled = 0;
+    while (filled < max) {
+      int read = in.read(buffer, filled, max - filled);
+      if (read == -1) {
+        break;
+      }
+      filled += read;
+    }
+    return (filled == 0 && max > 0) ? -1 : filled;
+  }
+
+  /**
+   * Copy stream to output
+   * @param in input stream
+   * @param output output stream
+   * @param length bytes to copy, negative to copy until the end of stream
+   * @return bytes copied
+   * @throws IOException
+   */
+  public static long copy(InputStream in, OutputStream output, long length) throws IOException {
+    byte[] buffer = acquireBuffer();
+    try {
+      long copied = 0;
+      while (length < 0 || copied < length) {
+        int max = BUFFER_SIZE;
+        if (length >= 0 && length - copied < max) {
+          max = (int) (length - copied);
+        }
+        int read = fill(in, buffer, max);
+        if (read == -1) {
+          break;
+        }
+        output.write(buffer, 0, read);
+        copied += read;
+      }
+      return copied;
+    } finally {
+      releaseBuffer(buffer);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+  @Test
+  public void testParse() throws Exception {
+    ByteRange range = ByteRange.parse("bytes=10-19", 100);
+    Assert.assertEquals(10, range.getStart());
+    Assert.assertEquals(19, range.getEnd());
+    Assert.assertEquals(10, range.getLength());
+    Assert.assertEquals("bytes 10-19/100", range.toContentRange());
+
+    range = ByteRange.parse("bytes=90-", 100);
+    Assert.assertEquals(90, range.getStart());
+    Assert.assertEquals(99, range.getEnd());
+
+    range = ByteRange.parse("bytes=50-500", 100);
+    Assert.assertEquals(99, range.getEnd());
+  }
+
+  @Test
+  public void testParseSuffix() throws Exception {
+    ByteRange range = ByteRange.parse("bytes=-30", 100);
+    Assert.assertEquals(70, range.getStart());
+    Assert.assertEquals(99, range.getEnd());
+
+    range = ByteRange.parse("bytes=-300", 100);
+    Assert.assertEquals(0, range.getStart());
+  }
+
+  @Test
+  public void testUnsatisfiable() throws Exception {
+    ByteRange range = ByteRange.parse("bytes=100-", 100);
+    Assert.assertFalse(range.isSatisfiable());
+    Assert.assertEquals("bytes */100", range.toContentRange());
+    Assert.assertFalse(ByteRange.parse("bytes=0-", 0).isSatisfiable());
+  }
+
+  @Test
+  public void testIgnored() throws Exception {
+    Assert.assertNull(ByteRange.parse(null, 100));
+    Assert.assertNull(ByteRange.parse("items=1-2", 100));
+    Assert.assertNull(ByteRange.parse("bytes=1-2,4-5", 100));
+    Assert.assertNull(ByteRange.parse("bytes=5-1", 100));
+    Assert.assertNull(ByteRange.parse("bytes=x-1", 100));
+    Assert.assertNull(ByteRange.parse("bytes=-", 100));
+  }
+}
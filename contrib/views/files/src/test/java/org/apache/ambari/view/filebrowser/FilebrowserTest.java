@@ -23,16 +23,22 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.ambari.view.ViewContext;
@@ -158,6 +164,58 @@ public class FilebrowserTest{
     Response result = fileBrowserService.download().downloadGZip(dr);
   }
 
+  @Test
+  public void testBrowseRange() throws Exception {
+    uploadFile("/tmp/", "testRange", ".tmp", "Hello world");
+    HttpHeaders rangeHeaders = createNiceMock(HttpHeaders.class);
+    expect(rangeHeaders.getRequestHeader("Range")).andReturn(Collections.singletonList("bytes=6-")).anyTimes();
+    replay(rangeHeaders);
+
+    Response response = fileBrowserService.download().browse("/tmp/testRange.tmp", true, rangeHeaders, uriInfo);
+    Assert.assertEquals(206, response.getStatus());
+    Assert.assertEquals("bytes 6-10/11", response.getMetadata().getFirst("Content-Range"));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(output);
+    Assert.assertEquals("world", output.toString());
+
+    HttpHeaders unsatisfiableHeaders = createNiceMock(HttpHeaders.class);
+    expect(unsatisfiableHeaders.getRequestHeader("Range")).andReturn(Collections.singletonList("bytes=11-")).anyTimes();
+    replay(unsatisfiableHeaders);
+    response = fileBrowserService.download().browse("/tmp/testRange.tmp", true, unsatisfiableHeaders, uriInfo);
+    Assert.assertEquals(416, response.getStatus());
+    Assert.assertEquals("bytes */11", response.getMetadata().getFirst("Content-Range"));
+  }
+
+  @Test
+  public void testZipContent() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      uploadFile("/tmp/", "testZip" + i, ".txt", "Hello world" + i);
+    }
+    DownloadService.DownloadRequest dr = new DownloadService.DownloadRequest();
+    dr.entries = new String[] { "/tmp" };
+
+    Response result = fileBrowserService.download().downloadGZip(dr);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((StreamingOutput) result.getEntity()).write(output);
+
+    ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()));
+    Map<String, String> entries = new HashMap<String, String>();
+    ZipEntry entry;
+    while ((entry = zip.getNextEntry()) != null) {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      byte[] chunk = new byte[1024];
+      int read;
+      while ((read = zip.read(chunk)) != -1) {
+        content.write(chunk, 0, read);
+      }
+      entries.put(entry.getName(), content.toString());
+    }
+    Assert.assertTrue(entries.containsKey("tmp/"));
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("Hello world" + i, entries.get("tmp/testZip" + i + ".txt"));
+    }
+  }
+
   @Test
   public void testUsername() throws Exception {
     Assert.assertEquals(System.getProperty("user.name"), fileBrowserService.upload().getDoAsUsername(context));
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive.resources.jobs;
+
+import org.apache.ambari.view.ViewContext;
+import org.apache.ambari.view.hive.resources.jobs.atsJobs.HiveQueryId;
+import org.apache.ambari.view.hive.resources.jobs.atsJobs.TezDagId;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user cache of ATS jobs used by {@link Aggregator}.
+ * Keeps Hive queries already read from ATS together with their Tez DAGs,
+ * so that job list requests only read queries started since the last request
+ * and DAGs which are not finished yet.
+ * Jobs of users who did not request them for a while are dropped, as are jobs
+ * of least recently active users when there are too many of them.
+ */
+public class AggregatedJobsCache {
+  private static final int DEFAULT_MAX_USERS = 100;
+  private static final long DEFAULT_EXPIRY_MILLIS = 60 * 60 * 1000L;
+
+  private static Map<String, AggregatedJobsCache> viewSingletonObjects = new HashMap<String, AggregatedJobsCache>();
+  public static synchronized AggregatedJobsCache getInstance(ViewContext context) {
+    if (!viewSingletonObjects.containsKey(context.getInstanceName()))
+      viewSingletonObjects.put(context.getInstanceName(), new AggregatedJobsCache());
+    return viewSingletonObjects.get(context.getInstanceName());
+  }
+
+  private final int maxUsers;
+  private final long expiryMillis;
+
+  /**
+   * Jobs by user, least recently requested first
+   */
+  private final LinkedHashMap<String, UserJobs> userJobs = new LinkedHashMap<String, UserJobs>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, UserJobs> eldest) {
+      return size() > maxUsers;
+    }
+  };
+
+  public AggregatedJobsCache() {
+    this(DEFAULT_MAX_USERS, DEFAULT_EXPIRY_MILLIS);
+  }
+
+  /**
+   * @param maxUsers maximum number of users whose jobs are kept
+   * @param expiryMillis time after which jobs of user are dropped if not requested
+   */
+  public AggregatedJobsCache(int maxUsers, long expiryMillis) {
+    this.maxUsers = maxUsers;
+    this.expiryMillis = expiryMillis;
+  }
+
+  /**
+   * Get cached jobs of user. Callers should synchronize on returned object.
+   * @param username owner of jobs
+   * @return cached jobs
+   */
+  public synchronized UserJobs getUserJobs(String username) {
+    long now = System.currentTimeMillis();
+    Iterator<UserJobs> iterator = userJobs.values().iterator();
+    while (iterator.hasNext()) {
+      if (now - iterator.next().lastAccessTime <= expiryMillis)
+        break;  // the rest was requested later
+      iterator.remove();
+    }
+
+    UserJobs jobs = userJobs.get(username);
+    if (jobs == null) {
+      jobs = new UserJobs();
+      userJobs.put(username, jobs);
+    }
+    jobs.lastAccessTime = now;
+    return jobs;
+  }
+
+  /**
+   * Drop cached jobs of user, next request will read all jobs from ATS
+   * @param username owner of jobs
+   */
+  public synchronized void invalidate(String username) {
+    userJobs.remove(username);
+  }
+
+  /**
+   * Jobs of one user
+   */
+  public static class UserJobs {
+    /**
+     * Start time in seconds of the latest query read from ATS; -1 if ATS was never read
+     */
+    long lastStartTime = -1;
+
+    /**
+     * Time in milliseconds of the last request of jobs
+     */
+    long lastAccessTime;
+
+    /**
+     * ATS jobs by entity, most recent first
+     */
+    LinkedHashMap<String, AtsJob> atsJobs = new LinkedHashMap<String, AtsJob>();
+
+    /**
+     * Operation handle guids by view job id
+     */
+    Map<String, String> operationHandleGuids = new HashMap<String, String>();
+  }
+
+  /**
+   * Hive query with its Tez DAGs
+   */
+  public static class AtsJob {
+    HiveQueryId hiveQueryId;
+    List<TezDagId> tezDagIds;
+
+    public AtsJob(HiveQueryId hiveQueryId, List<TezDagId> tezDagIds) {
+      this.hiveQueryId = hiveQueryId;
+      this.tezDagIds = tezDagIds;
+    }
+
+    /**
+     * @return first DAG of query, shown in jobs list
+     */
+    TezDagId getTezDag() {
+      return tezDagIds.isEmpty() ? new TezDagId() : tezDagIds.get(0);
+    }
+  }
+}
@@ -36,9 +36,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -63,85 +67,199 @@ public class Aggregator {
   protected final static Logger LOG =
       LoggerFactory.getLogger(Aggregator.class);
 
+  private static final long MILLIS_IN_SECOND = 1000L;
+
+  /**
+   * Incremental reads from ATS start this many seconds before the latest known
+   * query, because ATS may publish a query after a later started one
+   */
+  static final long ATS_REFRESH_OVERLAP_SECONDS = 5 * 60;
+
+  /**
+   * Tez DAG statuses which won't change anymore
+   */
+  private static final Set<String> FINAL_DAG_STATUSES = new HashSet<String>(
+      Arrays.asList("SUCCEEDED", "FAILED", "KILLED", "ERROR"));
+
   private final IATSParser ats;
   private final IOperationHandleResourceManager operationHandleResourceManager;
   private IResourceManager<Job> viewJobResourceManager;
+  private final AggregatedJobsCache cache;
 
   public Aggregator(IResourceManager<Job> jobResourceManager,
                     IOperationHandleResourceManager operationHandleResourceManager,
                     IATSParser ats) {
+    this(jobResourceManager, operationHandleResourceManager, ats, new AggregatedJobsCache());
+  }
+
+  public Aggregator(IResourceManager<Job> jobResourceManager,
+                    IOperationHandleResourceManager operationHandleResourceManager,
+                    IATSParser ats,
+                    AggregatedJobsCache cache) {
     this.viewJobResourceManager = jobResourceManager;
     this.operationHandleResourceManager = operationHandleResourceManager;
     this.ats = ats;
+    this.cache = cache;
   }
 
   public List<Job> readAll(String username) {
-      Set<String> addedOperationIds = new HashSet<String>();
+    AggregatedJobsCache.UserJobs userJobs = cache.getUserJobs(username);
+    synchronized (userJobs) {
+      // view jobs are read on every request, so local changes are always visible;
+      // operation handles of jobs are read only once
+      Map<String, Job> viewJobsByGuid = new LinkedHashMap<String, Job>();
+      Map<String, String> operationHandleGuids = new HashMap<String, String>();
+      for (Job job : viewJobResourceManager.readAll(new OnlyOwnersFilteringStrategy(username))) {
+        String guid = userJobs.operationHandleGuids.get(job.getId());
+        if (guid == null) {
+          List<StoredOperationHandle> operationHandles = operationHandleResourceManager.readJobRelatedHandles(job);
+          assert operationHandles.size() <= 1;
+          if (operationHandles.size() > 0)
+            guid = operationHandles.get(0).getGuid();
+        }
+        if (guid != null) {
+          operationHandleGuids.put(job.getId(), guid);
+          viewJobsByGuid.put(guid, job);
+        }
+      }
+      userJobs.operationHandleGuids = operationHandleGuids;
 
-    List<Job> allJobs = new LinkedList<Job>();
-    for (HiveQueryId atsHiveQuery : ats.getHiveQueryIdsList(username)) {
+      refreshAtsJobs(username, userJobs);
 
-      TezDagId atsTezDag;
-      if (atsHiveQuery.dagNames != null && atsHiveQuery.dagNames.size() > 0) {
-        String dagName = atsHiveQuery.dagNames.get(0);
+      Set<String> addedOperationIds = new HashSet<String>();
+      List<Job> allJobs = new LinkedList<Job>();
+      for (AggregatedJobsCache.AtsJob cachedJob : userJobs.atsJobs.values()) {
+        HiveQueryId atsHiveQuery = cachedJob.hiveQueryId;
+        TezDagId atsTezDag = cachedJob.getTezDag();
+
+        JobImpl atsJob = null;
+        if (hasOperationId(atsHiveQuery)) {
+          Job viewJob = viewJobsByGuid.get(urlSafeBase64ToHexString(atsHiveQuery.operationId));
+          if (viewJob != null) {
+            try {
+              saveJobInfoIfNeeded(atsHiveQuery, atsTezDag, viewJob);
+              atsJob = mergeAtsJobWithViewJob(atsHiveQuery, atsTezDag, viewJob);
+            } catch (ItemNotFound itemNotFound) {
+              // view job was removed meanwhile
+            }
+          }
+        }
+        if (atsJob == null) {
+          // Executed outside of HS2 or outside of Hive View
+          atsJob = atsOnlyJob(atsHiveQuery, atsTezDag);
+        }
+        allJobs.add(atsJob);
 
-        atsTezDag = ats.getTezDAGByName(dagName);
-      } else {
-        atsTezDag = new TezDagId();
+        addedOperationIds.add(atsHiveQuery.operationId);
       }
 
-      JobImpl atsJob;
-      if (hasOperationId(atsHiveQuery)) {
-        try {
-          Job viewJob = getJobByOperationId(urlSafeBase64ToHexString(atsHiveQuery.operationId));
-          saveJobInfoIfNeeded(atsHiveQuery, atsTezDag, viewJob);
-
-          atsJob = mergeAtsJobWithViewJob(atsHiveQuery, atsTezDag, viewJob);
-        } catch (ItemNotFound itemNotFound) {
-          // Executed from HS2, but outside of Hive View
-          atsJob = atsOnlyJob(atsHiveQuery, atsTezDag);
+      //cover case when operationId is present, but not exists in ATS
+      //e.g. optimized queries without executing jobs, like "SELECT * FROM TABLE"
+      for (Map.Entry<String, Job> entry : viewJobsByGuid.entrySet()) {
+        if (!addedOperationIds.contains(hexStringToUrlSafeBase64(entry.getKey()))) {
+          //e.g. query without hadoop job: select * from table
+          allJobs.add(entry.getValue());
         }
-      } else {
-        atsJob = atsOnlyJob(atsHiveQuery, atsTezDag);
       }
-      allJobs.add(atsJob);
 
-      addedOperationIds.add(atsHiveQuery.operationId);
+      return allJobs;
     }
+  }
 
-    //cover case when operationId is present, but not exists in ATS
-    //e.g. optimized queries without executing jobs, like "SELECT * FROM TABLE"
-    for (Job job : viewJobResourceManager.readAll(new OnlyOwnersFilteringStrategy(username))) {
-      List<StoredOperationHandle> operationHandles = operationHandleResourceManager.readJobRelatedHandles(job);
-      assert operationHandles.size() <= 1;
-
-      if (operationHandles.size() > 0) {
-        StoredOperationHandle operationHandle = operationHandles.get(0);
+  /**
+   * Read queries started since the last request, minus an overlap window, from ATS
+   * and update Tez DAGs of queries which are not finished yet.
+   * @param username owner of queries
+   * @param userJobs cached jobs of user
+   */
+  protected void refreshAtsJobs(String username, AggregatedJobsCache.UserJobs userJobs) {
+    List<HiveQueryId> newQueries = userJobs.lastStartTime < 0 ?
+        ats.getHiveQueryIdsList(username) :
+        ats.getHiveQueryIdsList(username,
+            Math.max(userJobs.lastStartTime - ATS_REFRESH_OVERLAP_SECONDS, 0) * MILLIS_IN_SECOND);
+
+    LinkedHashMap<String, AggregatedJobsCache.AtsJob> atsJobs = new LinkedHashMap<String, AggregatedJobsCache.AtsJob>();
+    long lastStartTime = Math.max(userJobs.lastStartTime, 0);
+    for (HiveQueryId atsHiveQuery : newQueries) {
+      lastStartTime = Math.max(lastStartTime, atsHiveQuery.starttime);
+      AggregatedJobsCache.AtsJob cachedJob = userJobs.atsJobs.get(atsHiveQuery.entity);
+      if (cachedJob != null && isFinished(cachedJob)) {
+        // read again because of the overlap window
+        atsJobs.put(atsHiveQuery.entity, cachedJob);
+        continue;
+      }
+      atsHiveQuery.stages = null;  // query plan is not needed for jobs list
+      atsJobs.put(atsHiveQuery.entity, new AggregatedJobsCache.AtsJob(atsHiveQuery, getTezDags(atsHiveQuery)));
+    }
 
-        if (!addedOperationIds.contains(hexStringToUrlSafeBase64(operationHandle.getGuid()))) {
-          //e.g. query without hadoop job: select * from table
-          allJobs.add(job);
+    for (Map.Entry<String, AggregatedJobsCache.AtsJob> entry : userJobs.atsJobs.entrySet()) {
+      if (atsJobs.containsKey(entry.getKey()))
+        continue;
+
+      AggregatedJobsCache.AtsJob cachedJob = entry.getValue();
+      if (!isFinished(cachedJob)) {
+        HiveQueryId atsHiveQuery = hasOperationId(cachedJob.hiveQueryId) ?
+            ats.getHiveQueryIdByOperationId(cachedJob.hiveQueryId.operationId) :
+            ats.getHiveQueryIdByEntity(cachedJob.hiveQueryId.entity);
+        if (atsHiveQuery.entity != null) {
+          atsHiveQuery.stages = null;
+          cachedJob.hiveQueryId = atsHiveQuery;
         }
+        cachedJob.tezDagIds = getTezDags(cachedJob.hiveQueryId);
       }
+      atsJobs.put(entry.getKey(), cachedJob);
     }
 
-    return allJobs;
+    userJobs.atsJobs = atsJobs;
+    userJobs.lastStartTime = lastStartTime;
   }
 
-  public Job readATSJob(Job viewJob) throws ItemNotFound {
-    TOperationHandle operationHandle = operationHandleResourceManager.getHandleForJob(viewJob);
+  /**
+   * Query is finished when ATS has its QUERY_COMPLETED event and all of its Tez DAGs are in a final state
+   * @param atsJob cached job
+   * @return true if the job won't change anymore
+   */
+  protected boolean isFinished(AggregatedJobsCache.AtsJob atsJob) {
+    if (!atsJob.hiveQueryId.completed)
+      return false;
+    for (TezDagId tezDagId : atsJob.tezDagIds) {
+      if (tezDagId.status == null || !FINAL_DAG_STATUSES.contains(tezDagId.status.toUpperCase()))
+        return false;
+    }
+    return true;
+  }
 
-    String hexGuid = Hex.encodeHexString(operationHandle.getOperationId().getGuid());
-    HiveQueryId atsHiveQuery = ats.getHiveQueryIdByOperationId(hexStringToUrlSafeBase64(hexGuid));
+  /**
+   * Read all Tez DAGs of query
+   * @param atsHiveQuery query
+   * @return DAGs in the order of query stages
+   */
+  protected List<TezDagId> getTezDags(HiveQueryId atsHiveQuery) {
+    List<TezDagId> tezDagIds = new LinkedList<TezDagId>();
+    if (atsHiveQuery.dagNames != null) {
+      for (String dagName : atsHiveQuery.dagNames) {
+        tezDagIds.add(ats.getTezDAGByName(dagName));
+      }
+    }
+    return tezDagIds;
+  }
 
-    TezDagId atsTezDag;
+  protected TezDagId getTezDag(HiveQueryId atsHiveQuery) {
     if (atsHiveQuery.dagNames != null && atsHiveQuery.dagNames.size() > 0) {
       String dagName = atsHiveQuery.dagNames.get(0);
 
-      atsTezDag = ats.getTezDAGByName(dagName);
-    } else {
-      atsTezDag = new TezDagId();
+      return ats.getTezDAGByName(dagName);
     }
+    return new TezDagId();
+  }
+
+  public Job readATSJob(Job viewJob) throws ItemNotFound {
+    TOperationHandle operationHandle = operationHandleResourceManager.getHandleForJob(viewJob);
+
+    String hexGuid = Hex.encodeHexString(operationHandle.getOperationId().getGuid());
+    HiveQueryId atsHiveQuery = ats.getHiveQueryIdByOperationId(hexStringToUrlSafeBase64(hexGuid));
+
+    TezDagId atsTezDag = getTezDag(atsHiveQuery);
 
     saveJobInfoIfNeeded(atsHiveQuery, atsTezDag, viewJob);
     return mergeAtsJobWithViewJob(atsHiveQuery, atsTezDag, viewJob);
@@ -87,7 +87,8 @@ public class JobService extends BaseService {
     if (aggregator == null) {
       ATSRequestsDelegate transport = new ATSRequestsDelegateImpl(context, "http://127.0.0.1:8188");
       IATSParser atsParser = new ATSParser(transport);
-      aggregator = new Aggregator(getResourceManager(), getOperationHandleResourceManager(), atsParser);
+      aggregator = new Aggregator(getResourceManager(), getOperationHandleResourceManager(), atsParser,
+          AggregatedJobsCache.getInstance(context));
     }
     return aggregator;
   }
@@ -256,6 +257,7 @@ public class JobService extends BaseService {
   @Produces(MediaType.APPLICATION_JSON)
   public Response getResults(@PathParam("jobId") String jobId,
                              @QueryParam("first") String fromBeginning,
+                             @QueryParam("offset") Long offset,
                              @QueryParam("count") Integer count,
                              @QueryParam("searchId") String searchId,
                              @QueryParam("columns") final String requestedColumns) {
@@ -263,7 +265,7 @@ public class JobService extends BaseService {
       final JobController jobController = getResourceManager().readController(jobId);
 
       return ResultsPaginationController.getInstance(context)
-           .request(jobId, searchId, true, fromBeginning, count,
+           .request(jobId, searchId, true, fromBeginning, offset, count,
                new Callable<Cursor>() {
                  @Override
                  public Cursor call() throws Exception {
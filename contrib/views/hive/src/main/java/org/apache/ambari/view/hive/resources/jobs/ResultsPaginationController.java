@@ -23,56 +23,93 @@ import org.apache.ambari.view.ViewContext;
 import org.apache.ambari.view.hive.client.ColumnDescription;
 import org.apache.ambari.view.hive.client.HiveClientException;
 import org.apache.ambari.view.hive.client.Cursor;
+import org.apache.ambari.view.hive.utils.BadRequestFormattedException;
+import org.apache.ambari.view.hive.utils.NotFoundFormattedException;
 import org.apache.ambari.view.hive.utils.ServiceFormattedException;
-import org.apache.commons.collections4.map.PassiveExpiringMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 
 /**
  * Results Pagination Controller
- * Persists cursors for result sets
+ * Spools result sets to local files so that pages can be read in any order
  */
 public class ResultsPaginationController {
+  private final static Logger LOG =
+      LoggerFactory.getLogger(ResultsPaginationController.class);
+
   public static final String DEFAULT_SEARCH_ID = "default";
+  public static final String RESULTS_CACHE_DIR_PROPERTY = "results.cache.dir";
+  public static final String RESULTS_CACHE_MAX_SIZE_PROPERTY = "results.cache.max.size";
+
   private static Map<String, ResultsPaginationController> viewSingletonObjects = new HashMap<String, ResultsPaginationController>();
   public static ResultsPaginationController getInstance(ViewContext context) {
     if (!viewSingletonObjects.containsKey(context.getInstanceName()))
-      viewSingletonObjects.put(context.getInstanceName(), new ResultsPaginationController());
+      viewSingletonObjects.put(context.getInstanceName(), new ResultsPaginationController(context));
     return viewSingletonObjects.get(context.getInstanceName());
   }
 
   public ResultsPaginationController() {
+    this(new File(System.getProperty("java.io.tmpdir"), "ambari-hive-view-results"), DEFAULT_MAX_SIZE);
+  }
+
+  public ResultsPaginationController(ViewContext context) {
+    this(getCacheDir(context), getMaxSize(context));
+  }
+
+  public ResultsPaginationController(File cacheDir, long maxSize) {
+    this.cacheDir = cacheDir;
+    this.maxSize = maxSize;
   }
 
   private static final long EXPIRING_TIME = 10*60*1000;  // 10 minutes
+  private static final long DEFAULT_MAX_SIZE = 1024L*1024*1024;  // 1 GB
   private static final int DEFAULT_FETCH_COUNT = 50;
-  private Map<String, Cursor> resultsCache;
 
-  public static class CustomTimeToLiveExpirationPolicy extends PassiveExpiringMap.ConstantTimeToLiveExpirationPolicy<String, Cursor> {
-    public CustomTimeToLiveExpirationPolicy(long timeToLiveMillis) {
-      super(timeToLiveMillis);
-    }
+  private final File cacheDir;
+  private final long maxSize;
+  private final Map<String, CachedResults> resultsCache = new HashMap<String, CachedResults>();
+
+  private static File getCacheDir(ViewContext context) {
+    String dir = context.getProperties().get(RESULTS_CACHE_DIR_PROPERTY);
+    if (dir == null || dir.isEmpty())
+      dir = System.getProperty("java.io.tmpdir") + File.separator + "ambari-hive-view-results";
+    return new File(dir, context.getInstanceName());
+  }
 
-    @Override
-    public long expirationTime(String key, Cursor value) {
-      if (key.startsWith("$"))
-        return -1;  //never expire
-      return super.expirationTime(key, value);
+  private static long getMaxSize(ViewContext context) {
+    String maxSize = context.getProperties().get(RESULTS_CACHE_MAX_SIZE_PROPERTY);
+    if (maxSize == null || maxSize.isEmpty())
+      return DEFAULT_MAX_SIZE;
+    try {
+      return Long.parseLong(maxSize) * 1024 * 1024;
+    } catch (NumberFormatException ex) {
+      LOG.warn("Invalid " + RESULTS_CACHE_MAX_SIZE_PROPERTY + " value: " + maxSize);
+      return DEFAULT_MAX_SIZE;
     }
   }
 
-  private Map<String, Cursor> getResultsCache() {
-    if (resultsCache == null) {
-      PassiveExpiringMap<String, Cursor> resultsCacheExpiringMap =
-          new PassiveExpiringMap<String, Cursor>(new CustomTimeToLiveExpirationPolicy(EXPIRING_TIME));
-      resultsCache = Collections.synchronizedMap(resultsCacheExpiringMap);
+  /**
+   * Spooled results with read position of forward-only requests
+   */
+  private static class CachedResults {
+    private final ResultsSpool spool;
+    private final boolean canExpire;
+    private long position = 0;
+
+    public CachedResults(ResultsSpool spool, boolean canExpire) {
+      this.spool = spool;
+      this.canExpire = canExpire;
     }
-    return resultsCache;
   }
 
   /**
@@ -84,49 +121,168 @@ public class ResultsPaginationController {
     if (searchId == null)
       searchId = DEFAULT_SEARCH_ID;
     String effectiveKey = key + "?" + searchId;
-    if (!getResultsCache().containsKey(effectiveKey))
+    CachedResults results;
+    synchronized (resultsCache) {
+      removeExpired();
+      results = resultsCache.get(effectiveKey);
+    }
+    if (results == null)
       return false;
-    Cursor cursor = getResultsCache().get(effectiveKey);
-    getResultsCache().put(effectiveKey, cursor);
+    results.spool.touch();
     return true;
   }
 
-  private Cursor getResultsSet(String key, Callable<Cursor> makeResultsSet) {
-    if (!getResultsCache().containsKey(key)) {
-      Cursor resultSet = null;
-      try {
-        resultSet = makeResultsSet.call();
-      } catch (Exception ex) {
-        throw new ServiceFormattedException(ex.getMessage(), ex);
+  /**
+   * Get cached results, creating them if needed. Returned spool is pinned.
+   */
+  private CachedResults getResultsSet(String key, boolean canExpire, Callable<Cursor> makeResultsSet) {
+    CachedResults results;
+    synchronized (resultsCache) {
+      removeExpired();
+      results = resultsCache.get(key);
+      if (results != null)
+        results.spool.pin();
+    }
+    if (results != null) {
+      results.spool.touch();
+      return results;
+    }
+
+    ResultsSpool spool;
+    try {
+      spool = createSpool(makeResultsSet.call());
+    } catch (Exception ex) {
+      throw new ServiceFormattedException(ex.getMessage(), ex);
+    }
+
+    synchronized (resultsCache) {
+      CachedResults existing = resultsCache.get(key);
+      if (existing != null) {
+        // created concurrently by another request
+        spool.close();
+        existing.spool.pin();
+        return existing;
       }
-      getResultsCache().put(key, resultSet);
+      spool.pin();
+      results = new CachedResults(spool, canExpire);
+      resultsCache.put(key, results);
+      return results;
     }
+  }
 
-    return getResultsCache().get(key);
+  private ResultsSpool createSpool(Cursor cursor) throws IOException, HiveClientException {
+    if (!cacheDir.exists() && !cacheDir.mkdirs() && !cacheDir.exists())
+      throw new IOException("Unable to create results cache directory " + cacheDir);
+    return new ResultsSpool(cursor, new File(cacheDir, UUID.randomUUID().toString() + ".results"));
+  }
+
+  private void remove(String key) {
+    CachedResults results;
+    synchronized (resultsCache) {
+      results = resultsCache.remove(key);
+    }
+    if (results != null)
+      results.spool.close();
+  }
+
+  /**
+   * Remove expired entries. Entries that are being read are kept.
+   * Should be called with resultsCache lock held.
+   */
+  private void removeExpired() {
+    long now = System.currentTimeMillis();
+    Iterator<CachedResults> iterator = resultsCache.values().iterator();
+    while (iterator.hasNext()) {
+      CachedResults results = iterator.next();
+      if (results.canExpire && !results.spool.isPinned() &&
+          now - results.spool.getLastAccessTime() > EXPIRING_TIME) {
+        iterator.remove();
+        results.spool.close();
+      }
+    }
+  }
+
+  /**
+   * Remove least recently used entries until cache fits into the size limit.
+   * The given entry and entries that are being read are never removed.
+   * @param current entry used by current request
+   */
+  private void removeLeastRecentlyUsed(CachedResults current) {
+    synchronized (resultsCache) {
+      long size = 0;
+      for (CachedResults results : resultsCache.values()) {
+        size += results.spool.getSize();
+      }
+
+      while (size > maxSize) {
+        String lruKey = null;
+        CachedResults lru = null;
+        for (Map.Entry<String, CachedResults> entry : resultsCache.entrySet()) {
+          CachedResults results = entry.getValue();
+          if (results != current && !results.spool.isPinned() && (lru == null ||
+              results.spool.getLastAccessTime() < lru.spool.getLastAccessTime())) {
+            lruKey = entry.getKey();
+            lru = results;
+          }
+        }
+        if (lru == null)
+          break;
+
+        size -= lru.spool.getSize();
+        resultsCache.remove(lruKey);
+        lru.spool.close();
+      }
+    }
   }
 
   public Response.ResponseBuilder request(String key, String searchId, boolean canExpire, String fromBeginning, Integer count, Callable<Cursor> makeResultsSet) throws HiveClientException {
+    return request(key, searchId, canExpire, fromBeginning, null, count, makeResultsSet);
+  }
+
+  public Response.ResponseBuilder request(String key, String searchId, boolean canExpire, String fromBeginning, Long offset, Integer count, Callable<Cursor> makeResultsSet) throws HiveClientException {
+    if (offset != null && offset < 0)
+      throw new BadRequestFormattedException("Offset should not be negative", null);
+    if (count != null && count <= 0)
+      throw new BadRequestFormattedException("Count should be positive", null);
+
     if (searchId == null)
       searchId = DEFAULT_SEARCH_ID;
     key = key + "?" + searchId;
     if (!canExpire)
       key = "$" + key;
-    if (fromBeginning != null && fromBeginning.equals("true") && getResultsCache().containsKey(key))
-      getResultsCache().remove(key);
-    Cursor resultSet = getResultsSet(key, makeResultsSet);
+    boolean rewind = fromBeginning != null && fromBeginning.equals("true");
+    if (rewind && !canExpire)
+      remove(key);  // results that never expire are refreshed from Hive
+    CachedResults results = getResultsSet(key, canExpire, makeResultsSet);
 
     if (count == null)
       count = DEFAULT_FETCH_COUNT;
 
     ResultsResponse resultsResponse = new ResultsResponse();
-    resultsResponse.setSchema(resultSet.getSchema());
+    resultsResponse.setSchema(results.spool.getSchema());
     ArrayList<Object[]> rows = new ArrayList<Object[]>(count);
-    int read = resultSet.readRaw(rows, count);
-    resultsResponse.setRows(rows);
-    resultsResponse.setReadCount(read);
-    resultsResponse.setHasNext(resultSet.hasNext());
-//      resultsResponse.setSize(resultSet.size());
-    resultsResponse.setOffset(resultSet.getOffset());
+    try {
+      synchronized (results) {
+        if (offset != null)
+          results.position = offset;
+        else if (rewind)
+          results.position = 0;
+
+        int read = results.spool.read(results.position, count, rows);
+        results.position += read;
+        resultsResponse.setRows(rows);
+        resultsResponse.setReadCount(read);
+        resultsResponse.setHasNext(results.spool.hasRow(results.position));
+        resultsResponse.setOffset(results.position);
+      }
+    } catch (IllegalStateException ex) {
+      throw new NotFoundFormattedException(ex.getMessage(), ex);
+    } catch (IOException ex) {
+      throw new ServiceFormattedException("Unable to read results cache", ex);
+    } finally {
+      results.spool.release();
+    }
+    removeLeastRecentlyUsed(results);
     return Response.ok(resultsResponse);
   }
 
@@ -0,0 +1,425 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive.resources.jobs;
+
+import org.apache.ambari.view.hive.client.ColumnDescription;
+import org.apache.ambari.view.hive.client.Cursor;
+import org.apache.ambari.view.hive.client.HiveClientException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of a query spooled to a local file.
+ *
+ * Rows are pulled from the cursor in blocks of {@link #BLOCK_SIZE} rows only
+ * when a page past the spooled rows is requested. Every block is stored
+ * column by column, and the offset of each block is kept in memory, so any
+ * page can be read back with one seek without asking HiveServer2 again.
+ * Once the cursor is exhausted it is released.
+ *
+ * A spool is pinned while it is read. Closing a pinned spool is deferred
+ * until the last reader releases it.
+ */
+public class ResultsSpool {
+  public static final int BLOCK_SIZE = 50;
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_BYTE = 2;
+  private static final byte TYPE_SHORT = 3;
+  private static final byte TYPE_INT = 4;
+  private static final byte TYPE_LONG = 5;
+  private static final byte TYPE_FLOAT = 6;
+  private static final byte TYPE_DOUBLE = 7;
+  private static final byte TYPE_STRING = 8;
+  private static final byte TYPE_BINARY = 9;
+  private static final byte TYPE_DECIMAL = 10;
+  private static final byte TYPE_TIMESTAMP = 11;
+  private static final byte TYPE_DATE = 12;
+  private static final byte TYPE_OBJECT = 13;
+
+  private final File file;
+  private final RandomAccessFile data;
+  private final ArrayList<ColumnDescription> schema;
+  private final List<Long> blockOffsets = new ArrayList<Long>();
+
+  private Cursor cursor;
+  private long rowCount = 0;
+  private volatile long lastAccessTime;
+  private boolean closed = false;
+  private int pins = 0;
+  private boolean closeRequested = false;
+
+  private int cachedBlockIndex = -1;
+  private List<Object[]> cachedBlock = null;
+
+  /**
+   * Creates spool for cursor
+   * @param cursor cursor to read rows from
+   * @param file file to spool rows into; removed on close
+   * @throws IOException if file can't be created
+   * @throws HiveClientException if schema can't be fetched
+   */
+  public ResultsSpool(Cursor cursor, File file) throws IOException, HiveClientException {
+    this.cursor = cursor;
+    this.file = file;
+    this.schema = cursor.getSchema();
+    this.data = new RandomAccessFile(file, "rw");
+    this.data.setLength(0);
+    this.lastAccessTime = System.currentTimeMillis();
+  }
+
+  public ArrayList<ColumnDescription> getSchema() {
+    return schema;
+  }
+
+  /**
+   * Read rows to list
+   * @param offset index of first row to read
+   * @param count maximum amount of rows to read
+   * @param rows list to add rows to
+   * @return amount of rows read
+   * @throws IOException if spool can't be read or written
+   * @throws IllegalArgumentException if offset is negative
+   */
+  public synchronized int read(long offset, int count, List<Object[]> rows) throws IOException {
+    if (offset < 0) {
+      throw new IllegalArgumentException("Negative offset: " + offset);
+    }
+    ensureOpen();
+    lastAccessTime = System.currentTimeMillis();
+    spoolTo(offset + count);
+
+    int read = 0;
+    long index = offset;
+    while (read < count && index < rowCount) {
+      int blockIndex = (int) (index / BLOCK_SIZE);
+      List<Object[]> block = readBlock(blockIndex);
+      for (int i = (int) (index % BLOCK_SIZE); i < block.size() && read < count; i++) {
+        rows.add(block.get(i));
+        read++;
+        index++;
+      }
+    }
+    return read;
+  }
+
+  /**
+   * Check if there is row with such index
+   * @param index index of row
+   * @return true if row exists
+   * @throws IOException if spool can't be written
+   */
+  public synchronized boolean hasRow(long index) throws IOException {
+    ensureOpen();
+    spoolTo(index + 1);
+    return index < rowCount;
+  }
+
+  /**
+   * Amount of rows spooled so far
+   * @return rows count
+   */
+  public synchronized long getSpooledRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Check if all rows were fetched from the cursor
+   * @return true if cursor is exhausted
+   */
+  public synchronized boolean isComplete() {
+    return cursor == null;
+  }
+
+  /**
+   * Size of spool file
+   * @return size in bytes
+   */
+  public synchronized long getSize() {
+    if (closed) {
+      return 0;
+    }
+    try {
+      return data.length();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  public long getLastAccessTime() {
+    return lastAccessTime;
+  }
+
+  public void touch() {
+    lastAccessTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Pin spool so that it is not closed while it is read
+   * @throws IllegalStateException if spool is already closed
+   */
+  public synchronized void pin() {
+    ensureOpen();
+    pins++;
+  }
+
+  /**
+   * Release pin taken by {@link #pin()}. Closes the spool if it was
+   * closed while pinned.
+   */
+  public synchronized void release() {
+    if (pins > 0) {
+      pins--;
+    }
+    if (pins == 0 && closeRequested) {
+      close();
+    }
+  }
+
+  public synchronized boolean isPinned() {
+    return pins > 0;
+  }
+
+  /**
+   * Close spool and remove its file. If the spool is pinned it is closed
+   * when the last pin is released.
+   */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    if (pins > 0) {
+      closeRequested = true;
+      return;
+    }
+    closed = true;
+    cursor = null;
+    cachedBlock = null;
+    try {
+      data.close();
+    } catch (IOException ignored) {
+    }
+    file.delete();
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("Results are expired");
+    }
+  }
+
+  private void spoolTo(long rows) throws IOException {
+    while (cursor != null && rowCount < rows) {
+      ArrayList<Object[]> block = new ArrayList<Object[]>(BLOCK_SIZE);
+      int read = cursor.readRaw(block, BLOCK_SIZE);
+      if (read > 0) {
+        writeBlock(block);
+      }
+      if (read < BLOCK_SIZE || !cursor.hasNext()) {
+        cursor = null;
+      }
+    }
+  }
+
+  private void writeBlock(List<Object[]> block) throws IOException {
+    int columns = block.get(0).length;
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(block.size());
+    out.writeInt(columns);
+    for (int column = 0; column < columns; column++) {
+      for (Object[] row : block) {
+        writeValue(out, row[column]);
+      }
+    }
+    out.flush();
+
+    long offset = data.length();
+    data.seek(offset);
+    data.write(bytes.toByteArray());
+    blockOffsets.add(offset);
+    rowCount += block.size();
+  }
+
+  private List<Object[]> readBlock(int blockIndex) throws IOException {
+    if (blockIndex == cachedBlockIndex) {
+      return cachedBlock;
+    }
+
+    long start = blockOffsets.get(blockIndex);
+    long end = blockIndex + 1 < blockOffsets.size() ? blockOffsets.get(blockIndex + 1) : data.length();
+    byte[] bytes = new byte[(int) (end - start)];
+    data.seek(start);
+    data.readFully(bytes);
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    int rows = in.readInt();
+    int columns = in.readInt();
+    List<Object[]> block = new ArrayList<Object[]>(rows);
+    for (int row = 0; row < rows; row++) {
+      block.add(new Object[columns]);
+    }
+    for (int column = 0; column < columns; column++) {
+      for (Object[] row : block) {
+        row[column] = readValue(in);
+      }
+    }
+
+    cachedBlockIndex = blockIndex;
+    cachedBlock = block;
+    return block;
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(TYPE_NULL);
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Byte) {
+      out.writeByte(TYPE_BYTE);
+      out.writeByte((Byte) value);
+    } else if (value instanceof Short) {
+      out.writeByte(TYPE_SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(TYPE_INT);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(TYPE_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(TYPE_FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      out.writeByte(TYPE_DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof byte[]) {
+      byte[] binary = (byte[]) value;
+      out.writeByte(TYPE_BINARY);
+      out.writeInt(binary.length);
+      out.write(binary);
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(TYPE_DECIMAL);
+      writeUTF8(out, value.toString());
+    } else if (value instanceof Timestamp) {
+      out.writeByte(TYPE_TIMESTAMP);
+      out.writeLong(((Timestamp) value).getTime());
+      out.writeInt(((Timestamp) value).getNanos());
+    } else if (value instanceof Date) {
+      out.writeByte(TYPE_DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (value instanceof String) {
+      out.writeByte(TYPE_STRING);
+      writeUTF8(out, (String) value);
+    } else if (value instanceof Serializable) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+      objectOut.writeObject(value);
+      objectOut.close();
+      out.writeByte(TYPE_OBJECT);
+      out.writeInt(bytes.size());
+      bytes.writeTo(out);
+    } else {
+      out.writeByte(TYPE_STRING);
+      writeUTF8(out, value.toString());
+    }
+  }
+
+  private static void writeUTF8(DataOutputStream out, String value) throws IOException {
+    // writeUTF is limited to 64K, so strings are written as length-prefixed UTF-8
+    byte[] utf8 = value.getBytes("UTF-8");
+    out.writeInt(utf8.length);
+    out.write(utf8);
+  }
+
+  private static String readUTF8(DataInputStream in) throws IOException {
+    byte[] utf8 = new byte[in.readInt()];
+    in.readFully(utf8);
+    return new String(utf8, "UTF-8");
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_BOOLEAN:
+        return in.readBoolean();
+      case TYPE_BYTE:
+        return in.readByte();
+      case TYPE_SHORT:
+        return in.readShort();
+      case TYPE_INT:
+        return in.readInt();
+      case TYPE_LONG:
+        return in.readLong();
+      case TYPE_FLOAT:
+        return in.readFloat();
+      case TYPE_DOUBLE:
+        return in.readDouble();
+      case TYPE_STRING:
+        return readUTF8(in);
+      case TYPE_BINARY: {
+        byte[] binary = new byte[in.readInt()];
+        in.readFully(binary);
+        return binary;
+      }
+      case TYPE_DECIMAL:
+        return new BigDecimal(readUTF8(in));
+      case TYPE_TIMESTAMP: {
+        Timestamp timestamp = new Timestamp(in.readLong());
+        timestamp.setNanos(in.readInt());
+        return timestamp;
+      }
+      case TYPE_DATE:
+        return new Date(in.readLong());
+      case TYPE_OBJECT: {
+        byte[] serialized = new byte[in.readInt()];
+        in.readFully(serialized);
+        ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(serialized));
+        try {
+          return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException("Unknown value class in results spool: " + e.getMessage());
+        } finally {
+          objectIn.close();
+        }
+      }
+      default:
+        throw new IOException("Unknown value type in results spool: " + type);
+    }
+  }
+}
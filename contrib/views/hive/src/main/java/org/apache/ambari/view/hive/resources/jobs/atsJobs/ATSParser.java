@@ -34,6 +34,7 @@ public class ATSParser implements IATSParser {
   private ATSRequestsDelegate delegate;
 
   private static final long MillisInSecond = 1000L;
+  private static final String QUERY_COMPLETED_EVENT = "QUERY_COMPLETED";
 
   public ATSParser(ATSRequestsDelegate delegate) {
     this.delegate = delegate;
@@ -41,7 +42,15 @@ public class ATSParser implements IATSParser {
 
   @Override
   public List<HiveQueryId> getHiveQueryIdsList(String username) {
-    JSONObject entities = delegate.hiveQueryIdList(username);
+    return parseHiveQueryIdsList(delegate.hiveQueryIdList(username));
+  }
+
+  @Override
+  public List<HiveQueryId> getHiveQueryIdsList(String username, long windowStart) {
+    return parseHiveQueryIdsList(delegate.hiveQueryIdList(username, windowStart));
+  }
+
+  private List<HiveQueryId> parseHiveQueryIdsList(JSONObject entities) {
     JSONArray jobs = (JSONArray) entities.get("entities");
 
     List<HiveQueryId> parsedJobs = new LinkedList<HiveQueryId>();
@@ -70,6 +79,16 @@ public class ATSParser implements IATSParser {
     return parseAtsHiveJob((JSONObject) jobs.get(0));
   }
 
+  @Override
+  public HiveQueryId getHiveQueryIdByEntity(String entity) {
+    JSONObject job = delegate.hiveQueryIdByEntity(entity);
+    if (job == null || job.get("entity") == null) {
+      return new HiveQueryId();
+    }
+
+    return parseAtsHiveJob(job);
+  }
+
   @Override
   public TezDagId getTezDAGByName(String name) {
     JSONArray tezDagEntities = (JSONArray) delegate.tezDagByName(name).get("entities");
@@ -108,6 +127,13 @@ public class ATSParser implements IATSParser {
 
     parsedJob.duration = lastEventTimestamp - parsedJob.starttime;
 
+    JSONArray events = (JSONArray) job.get("events");
+    for (Object event : events) {
+      if (QUERY_COMPLETED_EVENT.equals(((JSONObject) event).get("eventtype"))) {
+        parsedJob.completed = true;
+      }
+    }
+
     JSONObject otherinfo = (JSONObject) job.get("otherinfo");
     JSONObject query = (JSONObject) JSONValue.parse((String) otherinfo.get("QUERY"));
 
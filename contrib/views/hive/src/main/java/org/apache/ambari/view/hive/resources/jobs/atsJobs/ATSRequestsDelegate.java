@@ -23,7 +23,11 @@ import org.json.simple.JSONObject;
 public interface ATSRequestsDelegate {
   JSONObject hiveQueryIdList(String username);
 
+  JSONObject hiveQueryIdList(String username, long windowStart);
+
   JSONObject hiveQueryIdByOperationId(String operationId);
 
+  JSONObject hiveQueryIdByEntity(String entity);
+
   JSONObject tezDagByName(String name);
 }
@@ -49,6 +49,14 @@ public class ATSRequestsDelegateImpl implements ATSRequestsDelegate {
     return (JSONObject) JSONValue.parse(response);
   }
 
+  @Override
+  public JSONObject hiveQueryIdList(String username, long windowStart) {
+    String hiveQueriesListUrl = atsUrl + "/ws/v1/timeline/HIVE_QUERY_ID?primaryFilter=requestuser:" + username +
+        "&windowStart=" + windowStart;
+    String response = readFromWithDefault(hiveQueriesListUrl, EMPTY_ENTITIES_JSON);
+    return (JSONObject) JSONValue.parse(response);
+  }
+
   @Override
   public JSONObject hiveQueryIdByOperationId(String operationId) {
     String hiveQueriesListUrl = atsUrl + "/ws/v1/timeline/HIVE_QUERY_ID?primaryFilter=operationid:" + operationId;
@@ -56,6 +64,13 @@ public class ATSRequestsDelegateImpl implements ATSRequestsDelegate {
     return (JSONObject) JSONValue.parse(response);
   }
 
+  @Override
+  public JSONObject hiveQueryIdByEntity(String entity) {
+    String hiveQueryUrl = atsUrl + "/ws/v1/timeline/HIVE_QUERY_ID/" + entity;
+    String response = readFromWithDefault(hiveQueryUrl, "{}");
+    return (JSONObject) JSONValue.parse(response);
+  }
+
   @Override
   public JSONObject tezDagByName(String name) {
     String tezDagUrl = atsUrl + "/ws/v1/timeline/TEZ_DAG_ID?primaryFilter=dagName:" + name;
@@ -34,4 +34,9 @@ public class HiveQueryId {
   public long duration;
   public String operationId;
   public String user;
+
+  /**
+   * True if ATS has the QUERY_COMPLETED event of the query
+   */
+  public boolean completed;
 }
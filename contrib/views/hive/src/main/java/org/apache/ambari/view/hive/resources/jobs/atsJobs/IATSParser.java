@@ -23,7 +23,22 @@ import java.util.List;
 public interface IATSParser {
   List<HiveQueryId> getHiveQueryIdsList(String username);
 
+  /**
+   * Get Hive queries of user started since given time
+   * @param username owner of queries
+   * @param windowStart time in milliseconds; queries started earlier are not returned
+   * @return list of queries
+   */
+  List<HiveQueryId> getHiveQueryIdsList(String username, long windowStart);
+
   HiveQueryId getHiveQueryIdByOperationId(String guidString);
 
+  /**
+   * Get Hive query by its ATS entity id
+   * @param entity entity id of query
+   * @return query, with null entity if ATS does not have it
+   */
+  HiveQueryId getHiveQueryIdByEntity(String entity);
+
   TezDagId getTezDAGByName(String name);
 }
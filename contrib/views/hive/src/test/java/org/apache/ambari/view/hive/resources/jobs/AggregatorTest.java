@@ -173,6 +173,163 @@ public class AggregatorTest {
     Assert.assertEquals(3, aggregated.size());
   }
 
+  @Test
+  public void testReadAllIncrementally() throws Exception {
+    HiveQueryId finishedQuery = getSampleHiveQueryId("ENTITY-FINISHED");
+    finishedQuery.operationId = null;
+    finishedQuery.starttime = 1000;
+    finishedQuery.completed = true;
+    finishedQuery.dagNames.add("dag-finished");
+
+    HiveQueryId runningQuery = getSampleHiveQueryId("ENTITY-RUNNING");
+    runningQuery.operationId = null;
+    runningQuery.starttime = 2000;
+    runningQuery.dagNames.add("dag-running");
+
+    MockATSParser atsParser = getMockATSWithQueries(finishedQuery, runningQuery);
+    atsParser.getDagStatuses().put("dag-finished", "SUCCEEDED");
+    atsParser.getDagStatuses().put("dag-running", "RUNNING");
+
+    Aggregator aggregator = new Aggregator(getEmptyJobResourceManager(),
+        getEmptyOperationHandleResourceManager(),
+        atsParser,
+        new AggregatedJobsCache());
+
+    Assert.assertEquals(2, aggregator.readAll("luke").size());
+    Assert.assertEquals(0, atsParser.getWindowStarts().size());
+    Assert.assertEquals(2, atsParser.getDagRequests().size());
+
+    // new query since the last request
+    HiveQueryId newQuery = getSampleHiveQueryId("ENTITY-NEW");
+    newQuery.operationId = null;
+    newQuery.starttime = 3000;
+    List<HiveQueryId> queries = new LinkedList<HiveQueryId>(atsParser.getHiveQueryIds());
+    queries.add(0, newQuery);
+    atsParser.setHiveQueryIds(queries);
+    atsParser.getDagStatuses().put("dag-running", "SUCCEEDED");
+    runningQuery.completed = true;
+    atsParser.getDagRequests().clear();
+
+    List<Job> aggregated = aggregator.readAll("luke");
+    Assert.assertEquals(3, aggregated.size());
+    Assert.assertEquals("ENTITY-NEW", aggregated.get(0).getId());
+    long overlap = Aggregator.ATS_REFRESH_OVERLAP_SECONDS;
+    Assert.assertEquals(Arrays.asList((2000 - overlap) * 1000), atsParser.getWindowStarts());
+    // only the running DAG is requested again
+    Assert.assertEquals(Arrays.asList("dag-running"), atsParser.getDagRequests());
+
+    atsParser.getDagRequests().clear();
+    Assert.assertEquals(3, aggregator.readAll("luke").size());
+    Assert.assertEquals(Arrays.asList((2000 - overlap) * 1000, (3000 - overlap) * 1000),
+        atsParser.getWindowStarts());
+    Assert.assertEquals(0, atsParser.getDagRequests().size());
+  }
+
+  @Test
+  public void testReadAllRefreshesUntilQueryAndAllDagsFinished() throws Exception {
+    HiveQueryId query = getSampleHiveQueryId("ENTITY-TWO-DAGS");
+    query.operationId = null;
+    query.starttime = 100;
+    query.dagNames.add("dag-first");
+    query.dagNames.add("dag-second");
+
+    HiveQueryId noDagQuery = getSampleHiveQueryId("ENTITY-NO-DAGS");
+    noDagQuery.operationId = null;
+    noDagQuery.starttime = 100;
+
+    // later query, so that the others are only refreshed
+    HiveQueryId latestQuery = getSampleHiveQueryId("ENTITY-LATEST");
+    latestQuery.operationId = null;
+    latestQuery.starttime = 100 + Aggregator.ATS_REFRESH_OVERLAP_SECONDS + 100;
+    latestQuery.completed = true;
+
+    MockATSParser atsParser = getMockATSWithQueries(query, noDagQuery, latestQuery);
+    atsParser.getDagStatuses().put("dag-first", "SUCCEEDED");
+    atsParser.getDagStatuses().put("dag-second", "RUNNING");
+
+    Aggregator aggregator = new Aggregator(getEmptyJobResourceManager(),
+        getEmptyOperationHandleResourceManager(),
+        atsParser,
+        new AggregatedJobsCache());
+
+    aggregator.readAll("luke");
+    atsParser.getDagRequests().clear();
+
+    // the query completed, but its second DAG is still running
+    query.completed = true;
+    aggregator.readAll("luke");
+    Assert.assertEquals(Arrays.asList("dag-first", "dag-second"), atsParser.getDagRequests());
+    // the query without DAGs is read again until it is completed
+    Assert.assertEquals(Arrays.asList("ENTITY-TWO-DAGS", "ENTITY-NO-DAGS"), atsParser.getEntityRequests());
+
+    atsParser.getDagStatuses().put("dag-second", "SUCCEEDED");
+    noDagQuery.completed = true;
+    atsParser.getDagRequests().clear();
+    atsParser.getEntityRequests().clear();
+    aggregator.readAll("luke");
+    Assert.assertEquals(Arrays.asList("dag-first", "dag-second"), atsParser.getDagRequests());
+
+    // all finished, nothing is read again
+    atsParser.getDagRequests().clear();
+    atsParser.getEntityRequests().clear();
+    aggregator.readAll("luke");
+    Assert.assertEquals(0, atsParser.getDagRequests().size());
+    Assert.assertEquals(0, atsParser.getEntityRequests().size());
+  }
+
+  @Test
+  public void testReadAllFindsLatePublishedQuery() throws Exception {
+    HiveQueryId seenQuery = getSampleHiveQueryId("ENTITY-SEEN");
+    seenQuery.operationId = null;
+    seenQuery.starttime = 10000;
+    seenQuery.completed = true;
+
+    MockATSParser atsParser = getMockATSWithQueries(seenQuery);
+    Aggregator aggregator = new Aggregator(getEmptyJobResourceManager(),
+        getEmptyOperationHandleResourceManager(),
+        atsParser,
+        new AggregatedJobsCache());
+    Assert.assertEquals(1, aggregator.readAll("luke").size());
+
+    // ATS publishes a query which started before the one already seen
+    HiveQueryId lateQuery = getSampleHiveQueryId("ENTITY-LATE");
+    lateQuery.operationId = null;
+    lateQuery.starttime = 10000 - Aggregator.ATS_REFRESH_OVERLAP_SECONDS / 2;
+    List<HiveQueryId> queries = new LinkedList<HiveQueryId>(atsParser.getHiveQueryIds());
+    queries.add(lateQuery);
+    atsParser.setHiveQueryIds(queries);
+
+    List<Job> aggregated = aggregator.readAll("luke");
+    Assert.assertEquals(2, aggregated.size());
+    Set<String> ids = new HashSet<String>();
+    for (Job job : aggregated) {
+      ids.add(job.getId());
+    }
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("ENTITY-SEEN", "ENTITY-LATE")), ids);
+
+    // queries read again in the overlap window are not duplicated
+    Assert.assertEquals(2, aggregator.readAll("luke").size());
+  }
+
+  @Test
+  public void testAggregatedJobsCacheBounded() throws Exception {
+    AggregatedJobsCache cache = new AggregatedJobsCache(2, 60000L);
+
+    AggregatedJobsCache.UserJobs luke = cache.getUserJobs("luke");
+    AggregatedJobsCache.UserJobs leia = cache.getUserJobs("leia");
+    Assert.assertSame(luke, cache.getUserJobs("luke"));
+
+    // least recently requested user is dropped
+    cache.getUserJobs("han");
+    Assert.assertSame(luke, cache.getUserJobs("luke"));
+    Assert.assertNotSame(leia, cache.getUserJobs("leia"));
+
+    // jobs not requested for a while are dropped
+    luke = cache.getUserJobs("luke");
+    luke.lastAccessTime -= 120000L;
+    Assert.assertNotSame(luke, cache.getUserJobs("luke"));
+  }
+
   private MockJobResourceManager getJobResourceManagerWithJobs(Job... jobs) {
     MockJobResourceManager jobResourceManager = getEmptyJobResourceManager();
     jobResourceManager.setJobs(Arrays.asList(jobs));
@@ -366,6 +523,10 @@ public class AggregatorTest {
   public static class MockATSParser implements IATSParser {
 
     private List<HiveQueryId> hiveQueryIds = new LinkedList<HiveQueryId>();
+    private List<Long> windowStarts = new LinkedList<Long>();
+    private List<String> dagRequests = new LinkedList<String>();
+    private List<String> entityRequests = new LinkedList<String>();
+    private Map<String, String> dagStatuses = new HashMap<String, String>();
 
     public MockATSParser() {
     }
@@ -375,14 +536,55 @@ public class AggregatorTest {
       return hiveQueryIds;
     }
 
+    @Override
+    public List<HiveQueryId> getHiveQueryIdsList(String username, long windowStart) {
+      windowStarts.add(windowStart);
+      List<HiveQueryId> queries = new LinkedList<HiveQueryId>();
+      for (HiveQueryId hiveQueryId : hiveQueryIds) {
+        if (hiveQueryId.starttime * 1000 >= windowStart)
+          queries.add(hiveQueryId);
+      }
+      return queries;
+    }
+
     @Override
     public HiveQueryId getHiveQueryIdByOperationId(String guid) {
       return new HiveQueryId();
     }
 
+    @Override
+    public HiveQueryId getHiveQueryIdByEntity(String entity) {
+      entityRequests.add(entity);
+      for (HiveQueryId hiveQueryId : hiveQueryIds) {
+        if (hiveQueryId.entity.equals(entity))
+          return hiveQueryId;
+      }
+      return new HiveQueryId();
+    }
+
     @Override
     public TezDagId getTezDAGByName(String name) {
-      return new TezDagId();
+      dagRequests.add(name);
+      TezDagId tezDagId = new TezDagId();
+      if (dagStatuses.containsKey(name))
+        tezDagId.status = dagStatuses.get(name);
+      return tezDagId;
+    }
+
+    public List<Long> getWindowStarts() {
+      return windowStarts;
+    }
+
+    public List<String> getDagRequests() {
+      return dagRequests;
+    }
+
+    public List<String> getEntityRequests() {
+      return entityRequests;
+    }
+
+    public Map<String, String> getDagStatuses() {
+      return dagStatuses;
     }
 
     public List<HiveQueryId> getHiveQueryIds() {
@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive.resources.jobs;
+
+import org.apache.ambari.view.hive.client.Cursor;
+import org.apache.ambari.view.hive.utils.BadRequestFormattedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+public class ResultsPaginationControllerTest {
+  private final ResultsPaginationController controller = new ResultsPaginationController(
+      new File(System.getProperty("java.io.tmpdir"), "results-pagination-test"), 1024L * 1024);
+
+  private final Callable<Cursor> noCursor = new Callable<Cursor>() {
+    @Override
+    public Cursor call() throws Exception {
+      throw new AssertionError("Results should not be requested");
+    }
+  };
+
+  @Test
+  public void testNegativeOffsetRejected() throws Exception {
+    for (long offset : new long[]{-1L, -49L, -50L, -1000L}) {
+      try {
+        controller.request("job", null, true, null, offset, 10, noCursor);
+        Assert.fail("Expected BadRequestFormattedException");
+      } catch (BadRequestFormattedException e) {
+        Assert.assertEquals(400, e.getResponse().getStatus());
+      }
+    }
+  }
+
+  @Test
+  public void testNonPositiveCountRejected() throws Exception {
+    for (int count : new int[]{0, -1}) {
+      try {
+        controller.request("job", null, true, null, 0L, count, noCursor);
+        Assert.fail("Expected BadRequestFormattedException");
+      } catch (BadRequestFormattedException e) {
+        Assert.assertEquals(400, e.getResponse().getStatus());
+      }
+    }
+  }
+}
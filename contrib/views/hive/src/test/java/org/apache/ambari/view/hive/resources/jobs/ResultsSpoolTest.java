@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive.resources.jobs;
+
+import org.apache.ambari.view.hive.client.ColumnDescription;
+import org.apache.ambari.view.hive.client.Cursor;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+
+public class ResultsSpoolTest {
+  private static final int ROWS = 120;
+
+  private File file;
+  private int fetched;
+
+  @Before
+  public void setUp() throws Exception {
+    file = File.createTempFile("results", ".spool");
+    fetched = 0;
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    file.delete();
+  }
+
+  @Test
+  public void testRandomAccess() throws Exception {
+    ResultsSpool spool = new ResultsSpool(createCursor(), file);
+
+    List<Object[]> rows = new ArrayList<Object[]>();
+    Assert.assertEquals(10, spool.read(60, 10, rows));
+    Assert.assertEquals(60L, rows.get(0)[0]);
+    Assert.assertEquals("row69", rows.get(9)[1]);
+    Assert.assertEquals(100, fetched);
+    Assert.assertFalse(spool.isComplete());
+
+    // earlier pages are served from the spool
+    rows.clear();
+    Assert.assertEquals(30, spool.read(5, 30, rows));
+    Assert.assertEquals(5L, rows.get(0)[0]);
+    Assert.assertEquals(34L, rows.get(29)[0]);
+    Assert.assertEquals(100, fetched);
+
+    rows.clear();
+    Assert.assertEquals(20, spool.read(100, 50, rows));
+    Assert.assertTrue(spool.isComplete());
+    Assert.assertEquals(ROWS, spool.getSpooledRowCount());
+    Assert.assertFalse(spool.hasRow(ROWS));
+    Assert.assertTrue(spool.hasRow(ROWS - 1));
+
+    rows.clear();
+    Assert.assertEquals(0, spool.read(ROWS, 10, rows));
+  }
+
+  @Test
+  public void testValueTypes() throws Exception {
+    ResultsSpool spool = new ResultsSpool(createCursor(), file);
+
+    List<Object[]> rows = new ArrayList<Object[]>();
+    spool.read(3, 2, rows);
+    Object[] row = rows.get(0);
+    Assert.assertEquals(3L, row[0]);
+    Assert.assertEquals("row3", row[1]);
+    Assert.assertNull(row[2]);
+    Assert.assertEquals(1.5, row[3]);
+    Assert.assertEquals(Boolean.FALSE, row[4]);
+    Assert.assertEquals(3, row[5]);
+    Assert.assertEquals(Boolean.TRUE, rows.get(1)[4]);
+  }
+
+  @Test
+  public void testTypedValues() throws Exception {
+    final Timestamp timestamp = new Timestamp(1420070400000L);
+    timestamp.setNanos(123456789);
+    final Object[] typedRow = new Object[]{new BigDecimal("12345678901234567890.123"), timestamp,
+        new Date(1420070400000L)};
+
+    Cursor cursor = createNiceMock(Cursor.class);
+    expect(cursor.getSchema()).andReturn(new ArrayList<ColumnDescription>()).anyTimes();
+    expect(cursor.readRaw(anyObject(ArrayList.class), anyInt())).andAnswer(new IAnswer<Integer>() {
+      @Override
+      public Integer answer() throws Throwable {
+        ((ArrayList<Object[]>) getCurrentArguments()[0]).add(typedRow);
+        return 1;
+      }
+    }).once();
+    replay(cursor);
+
+    ResultsSpool spool = new ResultsSpool(cursor, file);
+    List<Object[]> rows = new ArrayList<Object[]>();
+    Assert.assertEquals(1, spool.read(0, 10, rows));
+    Object[] row = rows.get(0);
+    Assert.assertEquals(new BigDecimal("12345678901234567890.123"), row[0]);
+    Assert.assertEquals(timestamp, row[1]);
+    Assert.assertEquals(123456789, ((Timestamp) row[1]).getNanos());
+    Assert.assertEquals(new Date(1420070400000L), row[2]);
+  }
+
+  @Test
+  public void testCloseDeferredWhilePinned() throws Exception {
+    ResultsSpool spool = new ResultsSpool(createCursor(), file);
+    spool.pin();
+    spool.read(0, 10, new ArrayList<Object[]>());
+
+    spool.close();
+    Assert.assertTrue(file.exists());
+    List<Object[]> rows = new ArrayList<Object[]>();
+    Assert.assertEquals(10, spool.read(10, 10, rows));
+    Assert.assertEquals(10L, rows.get(0)[0]);
+
+    spool.release();
+    Assert.assertFalse(file.exists());
+    try {
+      spool.pin();
+      Assert.fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeOffset() throws Exception {
+    ResultsSpool spool = new ResultsSpool(createCursor(), file);
+    spool.read(-1, 10, new ArrayList<Object[]>());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    ResultsSpool spool = new ResultsSpool(createCursor(), file);
+    spool.read(0, 10, new ArrayList<Object[]>());
+    Assert.assertTrue(spool.getSize() > 0);
+
+    spool.close();
+    Assert.assertFalse(file.exists());
+    try {
+      spool.read(0, 10, new ArrayList<Object[]>());
+      Assert.fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  private Cursor createCursor() throws Exception {
+    Cursor cursor = createNiceMock(Cursor.class);
+    expect(cursor.getSchema()).andReturn(new ArrayList<ColumnDescription>()).anyTimes();
+    expect(cursor.readRaw(anyObject(ArrayList.class), anyInt())).andAnswer(new IAnswer<Integer>() {
+      @Override
+      public Integer answer() throws Throwable {
+        ArrayList<Object[]> rows = (ArrayList<Object[]>) getCurrentArguments()[0];
+        int count = (Integer) getCurrentArguments()[1];
+        int read = 0;
+        while (read < count && fetched < ROWS) {
+          rows.add(new Object[]{(long) fetched, "row" + fetched, null, 1.5, fetched % 2 == 0, fetched});
+          fetched++;
+          read++;
+        }
+        return read;
+      }
+    }).anyTimes();
+    expect(cursor.hasNext()).andAnswer(new IAnswer<Boolean>() {
+      @Override
+      public Boolean answer() throws Throwable {
+        return fetched < ROWS;
+      }
+    }).anyTimes();
+    replay(cursor);
+    return cursor;
+  }
+}
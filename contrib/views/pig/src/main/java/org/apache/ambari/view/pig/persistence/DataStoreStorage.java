@@ -38,6 +38,12 @@ import java.util.List;
 public class DataStoreStorage implements Storage {
   private final static Logger LOG =
       LoggerFactory.getLogger(DataStoreStorage.class);
+
+  /**
+   * Number of objects loaded from the DataStore at once while filtering
+   */
+  private static final int PAGE_SIZE = 500;
+
   protected final Gson gson = new Gson();
   protected ViewContext context;
 
@@ -95,11 +101,18 @@ public class DataStoreStorage implements Storage {
     LinkedList<T> list = new LinkedList<T>();
     LOG.debug(String.format("Loading all %s-s", model.getName()));
     try {
-      for(T item: context.getDataStore().findAll(model, null)) {
-        if ((filter == null) || filter.isConform(item)) {
-          list.add(item);
+      // page through the objects so that only the conforming ones are kept in memory
+      List<T> page;
+      int offset = 0;
+      do {
+        page = context.getDataStore().findAll(model, null, offset, PAGE_SIZE, "id");
+        for(T item: page) {
+          if ((filter == null) || filter.isConform(item)) {
+            list.add(item);
+          }
         }
-      }
+        offset += page.size();
+      } while (page.size() == PAGE_SIZE);
     } catch (PersistenceException e) {
       throw new ServiceFormattedException("Error while finding all objects in DataStorage", e);
     }